@@ -1,12 +1,20 @@
 package ch.hefr.isc.shipping_optimization;
 
+import ch.hefr.isc.shipping_optimization.data.CheckpointFile;
 import ch.hefr.isc.shipping_optimization.data.CsvFileConfig;
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
 import ch.hefr.isc.shipping_optimization.data.CsvFileParser;
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.data.LazyDistanceMatrix;
 import ch.hefr.isc.shipping_optimization.data.RoutingSolutionToJson;
+import ch.hefr.isc.shipping_optimization.metrics.MetricsRegistry;
+import ch.hefr.isc.shipping_optimization.metrics.MetricsServer;
 import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.profiling.PhaseTimer;
 import ch.hefr.isc.shipping_optimization.routing.DataModel;
 import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
 import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import ch.hefr.isc.shipping_optimization.routing.TimeWaveSolver;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -24,13 +32,76 @@ public class App {
     // public static final RoutingConfig DEFAULT_CONFIG = RoutingConfig.builder().setSolverTimeLimit(Duration.ofMinutes(5)).build();
     public static final RoutingConfig DEFAULT_CONFIG = RoutingConfig.builder().build();
 
-    public static void main(String[] args) throws IOException {
-        DataModel dataModel = CsvFileParser.parseDataModel(CsvFileConfig.DEFAULT_CONFIG_FULL, DEFAULT_CONFIG_FULL);
+    public static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(30);
+    // system properties of the metrics endpoint port and of the file the metrics are written to at the end
+    public static final String METRICS_PORT_PROPERTY = "routing.metrics.port";
+    public static final String METRICS_FILE_PROPERTY = "routing.metrics.file";
+    // system property of the number of time waves the day is solved in, the day is solved at once by default
+    public static final String WAVES_PROPERTY = "routing.waves";
+
+    /**
+     * Arguments: optionally a checkpoint file the best routes are written to during the solve, followed by
+     * "resume" to start the search from the routes of the existing checkpoint. The time spent in each phase is
+     * printed at the end, run with -XX:StartFlightRecording to also record the phases as flight recorder events.
+     * The metrics are served while running if the routing.metrics.port system property is set, and written to the
+     * file of the routing.metrics.file system property at the end. With the routing.waves system property, the day
+     * is solved in that many time waves, without checkpoints. The completed distance matrix is cached next to the
+     * distance matrix file, and with the routing.matrix.rowCacheBytes system property only its rows needed are loaded,
+     * in a cache of that many bytes.
+     */
+    @SuppressWarnings("try")
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String metricsPort = System.getProperty(METRICS_PORT_PROPERTY);
+        try (MetricsServer ignored = metricsPort == null
+                ? null
+                : MetricsServer.start(Integer.parseInt(metricsPort), MetricsRegistry.global())) {
+            run(args);
+        }
+        String metricsFile = System.getProperty(METRICS_FILE_PROPERTY);
+        if (metricsFile != null) MetricsRegistry.global().write(Path.of(metricsFile));
+    }
+
+    private static void run(String[] args) throws IOException, InterruptedException {
+        DistanceTable distanceMatrix = CsvFileParser.parseSharedDistanceMatrix(CsvFileConfig.DEFAULT_CONFIG_FULL);
+        try {
+            solve(args, distanceMatrix);
+        } finally {
+            if (distanceMatrix instanceof LazyDistanceMatrix lazyMatrix) lazyMatrix.close();
+        }
+    }
+
+    @SuppressWarnings("try")
+    private static void solve(String[] args, DistanceTable distanceMatrix) throws IOException {
+        DataModel dataModel = new CsvFileDataModel(CsvFileParser.parseOrders(CsvFileConfig.DEFAULT_CONFIG_FULL),
+                distanceMatrix, DEFAULT_CONFIG_FULL);
         // DataModel dataModel = CsvFileParser.parseDataModel(CsvFileConfig.DEFAULT_CONFIG, DEFAULT_CONFIG);
+        int numberWaves = Integer.getInteger(WAVES_PROPERTY, 1);
+        if (numberWaves > 1) {
+            RoutingSolution solution = new TimeWaveSolver(dataModel,
+                    TimeWaveSolver.evenBoundaries(dataModel, numberWaves)).solve();
+            try (PhaseTimer.Phase ignored = PhaseTimer.start("write")) {
+                System.out.println(solution);
+            }
+            System.out.println(PhaseTimer.summary());
+            return;
+        }
         RoutingSolver solver = new RoutingSolver(dataModel);
-        solver.solve();
+        long[][] initialRoutes = null;
+        if (args.length > 0) {
+            Path checkpoint = Path.of(args[0]);
+            if (args.length > 1 && args[1].equals("resume") && Files.exists(checkpoint))
+                initialRoutes = CheckpointFile.read(checkpoint, dataModel);
+            solver.setCheckpointHandler(CHECKPOINT_INTERVAL, CheckpointFile.writer(checkpoint, dataModel));
+        }
+        solver.solve(initialRoutes);
         RoutingSolution solution = solver.solution();
-        System.out.println(solution);
-        // Files.writeString(Path.of("solution.json"), RoutingSolutionToJson.parseSolution(solution).toString(4));
+        try (PhaseTimer.Phase ignored = PhaseTimer.start("write")) {
+            System.out.println(solution);
+            // Files.writeString(Path.of("solution.json"), RoutingSolutionToJson.parseSolution(solution).toString(4));
+        }
+        if (solver.lowerBound().isPresent())
+            System.out.printf("objective lower bound %d, gap %.2f%%%n", solver.lowerBound().getAsLong(),
+                    100 * solver.gap());
+        System.out.println(PhaseTimer.summary());
     }
 }
@@ -0,0 +1,117 @@
+package ch.hefr.isc.shipping_optimization.batch;
+
+import ch.hefr.isc.shipping_optimization.data.SearchProfileFile;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * An orders file to solve in a batch with its routing config.
+ *
+ * @param ordersPath the path to the orders file
+ * @param config     the routing config of the orders file
+ */
+public record BatchJob(Path ordersPath, RoutingConfig config) {
+
+    /**
+     * Get the name of the job, the orders file name without extension.
+     *
+     * @return the name of the job
+     */
+    public String name() {
+        String fileName = ordersPath.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? fileName.substring(0, extension) : fileName;
+    }
+
+    /**
+     * List the csv orders files of a directory, all solved with the same config.
+     *
+     * @param directory the directory containing the orders files
+     * @param config    the routing config of every file
+     * @return the jobs sorted by path
+     * @throws IOException if an error occurs while listing the directory
+     */
+    public static List<BatchJob> fromDirectory(Path directory, RoutingConfig config) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".csv"))
+                    .sorted()
+                    .map(path -> new BatchJob(path, config))
+                    .toList();
+        }
+    }
+
+    /**
+     * Parse a manifest file. Each line after the header is
+     * {@code ordersPath;depotZip;numberVehicles;solverTimeLimitSeconds;searchProfilePath} where every column but
+     * the orders path may be left empty to keep the value of the default config. Relative paths are resolved
+     * against the directory of the manifest.
+     *
+     * @param manifest the path to the manifest file
+     * @param defaults the routing config used for the empty columns
+     * @return the jobs in manifest order
+     * @throws IOException if an error occurs while reading the manifest or a search profile, or if a line is invalid
+     */
+    public static List<BatchJob> fromManifest(Path manifest, RoutingConfig defaults) throws IOException {
+        List<String> lines = Files.readAllLines(manifest);
+        lines.remove(0);
+
+        Path baseDirectory = manifest.toAbsolutePath().getParent();
+        List<BatchJob> jobs = new ArrayList<>();
+        for (String line : lines) {
+            if (line.isBlank()) continue;
+            String[] data = line.split(";", -1);
+            if (data[0].isBlank())
+                throw new IOException("Missing orders path in manifest line: " + line);
+
+            RoutingConfig config = defaults;
+            if (data.length > 4 && !data[4].isBlank())
+                config = SearchProfileFile.read(baseDirectory.resolve(data[4].trim()), config);
+
+            RoutingConfig.RoutingConfigBuilder builder = config.toBuilder();
+            try {
+                if (data.length > 1 && !data[1].isBlank())
+                    builder.setDepotZip(Zip.of(data[1].trim()));
+                if (data.length > 2 && !data[2].isBlank())
+                    builder.setNumberVehicles(Integer.parseInt(data[2].trim()));
+                if (data.length > 3 && !data[3].isBlank())
+                    builder.setSolverTimeLimit(Duration.ofSeconds(Long.parseLong(data[3].trim())));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid manifest line: " + line, e);
+            }
+            jobs.add(new BatchJob(baseDirectory.resolve(data[0].trim()), builder.build()));
+        }
+        try {
+            checkUniqueNames(jobs);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid manifest " + manifest + ": " + e.getMessage(), e);
+        }
+        return jobs;
+    }
+
+    /**
+     * Check that no two jobs have the same name, ignoring the case, so that they don't write the same output file.
+     *
+     * @param jobs the jobs
+     * @throws IllegalArgumentException if two jobs have the same name
+     */
+    public static void checkUniqueNames(List<BatchJob> jobs) throws IllegalArgumentException {
+        Map<String, BatchJob> names = new HashMap<>();
+        for (BatchJob job : jobs) {
+            BatchJob previous = names.putIfAbsent(job.name().toLowerCase(Locale.ROOT), job);
+            if (previous != null)
+                throw new IllegalArgumentException("Jobs " + previous.ordersPath() + " and " + job.ordersPath()
+                        + " have the same name " + job.name());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ch.hefr.isc.shipping_optimization.batch;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The throughput report of a batch run.
+ *
+ * @param results  the result of each job
+ * @param wallTime the wall time of the whole batch, including the distance matrix loading
+ * @param workers  the number of concurrent workers
+ */
+public record BatchReport(List<JobResult> results, Duration wallTime, int workers) {
+
+    public int numberSolved() {
+        return (int) results.stream().filter(JobResult::solved).count();
+    }
+
+    /**
+     * Get the number of solved instances per hour of batch wall time.
+     *
+     * @return the throughput in instances per hour
+     */
+    public double instancesPerHour() {
+        if (wallTime.isZero()) return 0;
+        return numberSolved() * 3600.0 / (wallTime.toNanos() / 1e9);
+    }
+
+    /**
+     * Get a percentile of the solve time of the solved instances, using the nearest rank method.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the solve time percentile, zero if nothing was solved
+     */
+    public Duration solveTimePercentile(double percentile) {
+        long[] nanos = results.stream()
+                .filter(JobResult::solved)
+                .mapToLong(result -> result.solveTime().toNanos())
+                .sorted()
+                .toArray();
+        if (nanos.length == 0) return Duration.ZERO;
+        int rank = (int) Math.ceil(percentile / 100 * nanos.length);
+        return Duration.ofNanos(nanos[Math.max(0, Math.min(nanos.length, rank) - 1)]);
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("instances", results.size());
+        json.put("solved", numberSolved());
+        json.put("workers", workers);
+        json.put("wallTimeSeconds", wallTime.toMillis() / 1000.0);
+        json.put("instancesPerHour", instancesPerHour());
+        json.put("solveTimeP50Seconds", solveTimePercentile(50).toMillis() / 1000.0);
+        json.put("solveTimeP95Seconds", solveTimePercentile(95).toMillis() / 1000.0);
+        json.put("totalParseTimeSeconds", results.stream()
+                .mapToLong(result -> result.parseTime().toMillis()).sum() / 1000.0);
+
+        JSONArray jobs = new JSONArray();
+        for (JobResult result : results) {
+            JSONObject job = new JSONObject();
+            job.put("name", result.name());
+            job.put("solved", result.solved());
+            job.put("numberOrders", result.numberOrders());
+            job.put("parseTimeSeconds", result.parseTime().toMillis() / 1000.0);
+            job.put("solveTimeSeconds", result.solveTime().toMillis() / 1000.0);
+            if (result.solved()) job.put("totalMonetaryCost", result.totalMonetaryCost());
+            if (result.error() != null) job.put("error", result.error());
+            jobs.put(job);
+        }
+        json.put("jobs", jobs);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d / %d instances solved in %.1fs with %d workers (%.1f instances/hour, "
+                        + "p50 %.1fs, p95 %.1fs)", numberSolved(), results.size(), wallTime.toMillis() / 1000.0,
+                workers, instancesPerHour(), solveTimePercentile(50).toMillis() / 1000.0,
+                solveTimePercentile(95).toMillis() / 1000.0);
+    }
+
+    /**
+     * The result of one job.
+     *
+     * @param name              the name of the job
+     * @param solved            whether a solution was found and written
+     * @param numberOrders      the number of orders of the instance
+     * @param parseTime         the time spent parsing the orders
+     * @param solveTime         the time spent building the model, solving and extracting the solution
+     * @param totalMonetaryCost the total monetary cost of the solution, NaN if not solved
+     * @param error             the error message if the job failed, null otherwise
+     */
+    public record JobResult(String name, boolean solved, int numberOrders, Duration parseTime, Duration solveTime,
+                            double totalMonetaryCost, String error) {}
+}
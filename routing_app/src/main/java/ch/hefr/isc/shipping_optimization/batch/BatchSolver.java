@@ -0,0 +1,198 @@
+package ch.hefr.isc.shipping_optimization.batch;
+
+import ch.hefr.isc.shipping_optimization.data.CsvFileConfig;
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.CsvFileParser;
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.data.LazyDistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.RoutingSolutionToJson;
+import ch.hefr.isc.shipping_optimization.metrics.MetricsRegistry;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.AdmissionControl;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import com.google.ortools.Loader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Solves many orders files concurrently in one process.
+ * <p>
+ * The native libraries and the distance matrix are loaded once and shared by every instance, the matrix completed
+ * and kept compact or loaded row by row, see {@link CsvFileParser#parseSharedDistanceMatrix}. The instances are
+ * solved by a fixed number of workers, and a worker only starts building a model once the estimated memory of the
+ * running models fits in the memory cap, see {@link AdmissionControl}. The instances too large for the cap are
+ * decomposed or refused. One solution json is written per orders file, and a throughput report for the whole batch.
+ */
+public class BatchSolver {
+
+    private static final Logger logger = Logger.getLogger(BatchSolver.class.getName());
+    public static final String REPORT_FILE_NAME = "batch_report.json";
+    public static final String METRICS_FILE_NAME = "metrics.prom";
+    private static final int MEGA_BYTE = 1 << 20;
+
+    private final CsvFileConfig csvConfig;
+    private final int workers;
+    private final long memoryCapBytes;
+    private final AdmissionControl.Overflow overflow;
+
+    /**
+     * @param csvConfig      the data files, the orders path is replaced by the one of each job
+     * @param workers        the number of instances solved concurrently
+     * @param memoryCapBytes the maximum estimated memory of the models solved concurrently
+     */
+    public BatchSolver(CsvFileConfig csvConfig, int workers, long memoryCapBytes) {
+        this(csvConfig, workers, memoryCapBytes, AdmissionControl.Overflow.DECOMPOSE);
+    }
+
+    /**
+     * @param csvConfig      the data files, the orders path is replaced by the one of each job
+     * @param workers        the number of instances solved concurrently
+     * @param memoryCapBytes the maximum estimated memory of the models solved concurrently
+     * @param overflow       what to do with the instances too large for the memory cap
+     */
+    public BatchSolver(CsvFileConfig csvConfig, int workers, long memoryCapBytes,
+                       AdmissionControl.Overflow overflow) {
+        if (workers < 1) throw new IllegalArgumentException("There has to be at least one worker");
+        this.csvConfig = csvConfig;
+        this.workers = workers;
+        this.memoryCapBytes = memoryCapBytes;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Solve all the jobs and write their solutions, the batch report and the process metrics to the output directory.
+     *
+     * @param jobs            the jobs to solve
+     * @param outputDirectory the directory the solutions and the report are written to
+     * @return the batch report
+     * @throws IOException              if an error occurs while reading the distance matrix or writing the report
+     * @throws InterruptedException     if the thread is interrupted while waiting for the jobs
+     * @throws IllegalArgumentException if two jobs have the same name, or a job the name of the report
+     */
+    public BatchReport run(List<BatchJob> jobs, Path outputDirectory) throws IOException, InterruptedException {
+        BatchJob.checkUniqueNames(jobs);
+        for (BatchJob job : jobs)
+            if ((job.name() + ".json").equalsIgnoreCase(REPORT_FILE_NAME))
+                throw new IllegalArgumentException("Job " + job.ordersPath() + " would overwrite the batch report");
+        long start = System.nanoTime();
+        Files.createDirectories(outputDirectory);
+
+        Loader.loadNativeLibraries();
+        DistanceTable distanceMatrix = CsvFileParser.parseSharedDistanceMatrix(csvConfig);
+        logger.info(String.format("distance matrix loaded in %dms", (System.nanoTime() - start) / 1_000_000));
+
+        AdmissionControl admission = new AdmissionControl(memoryCapBytes, overflow);
+        List<Callable<BatchReport.JobResult>> tasks = new ArrayList<>();
+        for (BatchJob job : jobs)
+            tasks.add(() -> solve(job, distanceMatrix, admission, outputDirectory));
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<BatchReport.JobResult> results = new ArrayList<>();
+        try {
+            for (Future<BatchReport.JobResult> future : executor.invokeAll(tasks))
+                results.add(result(future));
+        } finally {
+            executor.shutdownNow();
+            if (distanceMatrix instanceof LazyDistanceMatrix lazyMatrix) lazyMatrix.close();
+        }
+
+        BatchReport report = new BatchReport(results, Duration.ofNanos(System.nanoTime() - start), workers);
+        Files.writeString(outputDirectory.resolve(REPORT_FILE_NAME), report.toJson().toString(4));
+        MetricsRegistry.global().write(outputDirectory.resolve(METRICS_FILE_NAME));
+        return report;
+    }
+
+    private BatchReport.JobResult solve(BatchJob job, DistanceTable distanceMatrix, AdmissionControl admission,
+                                        Path outputDirectory) throws InterruptedException {
+        long parseStart = System.nanoTime();
+        List<Order> orders;
+        try {
+            orders = CsvFileParser.parseOrders(csvConfig.toBuilder().setOrdersPath(job.ordersPath().toString())
+                    .build());
+        } catch (IOException | RuntimeException e) {
+            logger.warning(String.format("%s: cannot parse orders: %s", job.name(), e.getMessage()));
+            return new BatchReport.JobResult(job.name(), false, 0, Duration.ofNanos(System.nanoTime() - parseStart),
+                    Duration.ZERO, Double.NaN, e.toString());
+        }
+        Duration parseTime = Duration.ofNanos(System.nanoTime() - parseStart);
+
+        DataModel dataModel = new CsvFileDataModel(orders, distanceMatrix, job.config());
+        long solveStart = System.nanoTime();
+        try {
+            Optional<RoutingSolution> found = admission.solve(dataModel);
+            if (found.isEmpty()) {
+                return new BatchReport.JobResult(job.name(), false, orders.size(), parseTime,
+                        Duration.ofNanos(System.nanoTime() - solveStart), Double.NaN, "No solution found");
+            }
+            RoutingSolution solution = found.get();
+            Duration solveTime = Duration.ofNanos(System.nanoTime() - solveStart);
+            Files.writeString(outputDirectory.resolve(job.name() + ".json"),
+                    RoutingSolutionToJson.parseSolution(solution).toString(4));
+            logger.info(String.format("%s: solved %d orders in %dms", job.name(), orders.size(),
+                    solveTime.toMillis()));
+            return new BatchReport.JobResult(job.name(), true, orders.size(), parseTime, solveTime,
+                    solution.totalMonetaryCost(), null);
+        } catch (IOException | RuntimeException e) {
+            logger.warning(String.format("%s: failed: %s", job.name(), e.getMessage()));
+            return new BatchReport.JobResult(job.name(), false, orders.size(), parseTime,
+                    Duration.ofNanos(System.nanoTime() - solveStart), Double.NaN, e.toString());
+        }
+    }
+
+    private static BatchReport.JobResult result(Future<BatchReport.JobResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch job failed", e.getCause());
+        }
+    }
+
+    /**
+     * Solve a batch using the default data files for everything but the orders.
+     * <p>
+     * Arguments: orders directory or manifest file, output directory, number of workers (defaults to the number
+     * of processors), memory cap in megabytes (defaults to the maximum heap size) and what to do with the instances
+     * too large for the cap, refuse or decompose (defaults to decompose).
+     *
+     * @param args the arguments
+     * @throws IOException          if an error occurs while reading the inputs or writing the outputs
+     * @throws InterruptedException if the thread is interrupted while solving
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchSolver <orders directory | manifest> <output directory> [workers] "
+                    + "[memory cap in MB] [refuse | decompose]");
+            System.exit(1);
+        }
+        Path input = Path.of(args[0]);
+        RoutingConfig defaults = RoutingConfig.builder().build();
+        List<BatchJob> jobs = Files.isDirectory(input)
+                ? BatchJob.fromDirectory(input, defaults)
+                : BatchJob.fromManifest(input, defaults);
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long memoryCapBytes = args.length > 3
+                ? Long.parseLong(args[3]) * MEGA_BYTE
+                : Runtime.getRuntime().maxMemory();
+        AdmissionControl.Overflow overflow = args.length > 4
+                ? AdmissionControl.Overflow.valueOf(args[4].toUpperCase())
+                : AdmissionControl.Overflow.DECOMPOSE;
+
+        BatchReport report = new BatchSolver(CsvFileConfig.DEFAULT_CONFIG_FULL, workers, memoryCapBytes, overflow)
+                .run(jobs, Path.of(args[1]));
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,49 @@
+package ch.hefr.isc.shipping_optimization.cache;
+
+import ch.hefr.isc.shipping_optimization.data.DataModelCodec;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Stable fingerprint of a routing instance.
+ * <p>
+ * The fingerprint is the SHA-256 of the {@link DataModelCodec} snapshot of the data model, so it covers the routing
+ * config with its search profile and time limit, the orders in their order and the distances and durations between
+ * the zips they use, with the time dependent durations between these zips if any. Two data models with the same
+ * fingerprint give the same model to the routing solver.
+ */
+public class InstanceFingerprint {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * Compute the fingerprint of a data model.
+     *
+     * @param data the data model
+     * @return the fingerprint as a lower case hexadecimal string
+     */
+    public static String of(DataModel data) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(),
+                digest))) {
+            DataModelCodec.write(out, data);
+        } catch (IOException e) {
+            // the null output stream never fails
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
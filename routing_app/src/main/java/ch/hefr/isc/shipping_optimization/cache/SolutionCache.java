@@ -0,0 +1,293 @@
+package ch.hefr.isc.shipping_optimization.cache;
+
+import ch.hefr.isc.shipping_optimization.data.RoutingSolutionCodec;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache of routing solutions in front of the routing solver.
+ * <p>
+ * Solutions are stored in one file per {@link InstanceFingerprint}, holding the depot zip, the order ids and the
+ * solution encoded with the {@link RoutingSolutionCodec}. The cache directory is bounded in size, the least recently
+ * used entries are evicted first. An instance missing from the cache can start its search from the cached solution
+ * of the same depot sharing the most orders with it.
+ */
+public class SolutionCache {
+
+    private static final Logger logger = Logger.getLogger(SolutionCache.class.getName());
+    private static final String EXTENSION = ".solution";
+    private static final int MAGIC = 0x534f4c43;
+    private static final int VERSION = 2;
+
+    private final Path directory;
+    private final long maxBytes;
+    // access ordered, the first entry is the least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Open a cache directory, creating it if needed. Existing entries are kept in their modification order.
+     *
+     * @param directory the cache directory
+     * @param maxBytes  the maximum total size of the cached solutions
+     * @throws IOException if an error occurs while reading the directory
+     */
+    public SolutionCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.toString().endsWith(EXTENSION)).toList();
+        }
+        Map<Path, FileTime> modificationTimes = new HashMap<>();
+        for (Path file : files) modificationTimes.put(file, Files.getLastModifiedTime(file));
+        for (Path file : files.stream().sorted(Comparator.comparing(modificationTimes::get)).toList()) {
+            try (DataInputStream in = open(file)) {
+                String depotZip = readHeader(in).depotZip();
+                entries.put(key(file), new Entry(Files.size(file), depotZip));
+                totalBytes += Files.size(file);
+            } catch (IOException e) {
+                logger.warning(String.format("removing unreadable cache entry %s: %s", file, e.getMessage()));
+                Files.deleteIfExists(file);
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Get the solution of a data model, solving and caching it on a miss.
+     *
+     * @param data              the data model
+     * @param warmStartOverlap  the minimum share of orders a cached solution of the same depot must have in common
+     *                          with the data model to be used as initial routes on a miss, 0 to always solve from
+     *                          scratch
+     * @return the cached or new solution
+     * @throws IOException           if an error occurs while writing the new solution
+     * @throws IllegalStateException if no solution is found
+     */
+    public RoutingSolution solve(DataModel data, double warmStartOverlap) throws IOException, IllegalStateException {
+        String fingerprint = InstanceFingerprint.of(data);
+        Optional<RoutingSolution> cached = get(fingerprint, data);
+        if (cached.isPresent()) return cached.get();
+
+        long[][] initialRoutes = warmStartOverlap > 0 ? nearMatchRoutes(data, warmStartOverlap).orElse(null) : null;
+        RoutingSolver solver = new RoutingSolver(data);
+        solver.solve(initialRoutes);
+        RoutingSolution solution = solver.solution();
+        put(fingerprint, data, solution);
+        return solution;
+    }
+
+    /**
+     * Get the cached solution of a data model.
+     *
+     * @param data the data model
+     * @return the cached solution if any
+     */
+    public Optional<RoutingSolution> get(DataModel data) {
+        return get(InstanceFingerprint.of(data), data);
+    }
+
+    /**
+     * Cache the solution of a data model.
+     *
+     * @param data     the data model
+     * @param solution the solution of the data model
+     * @throws IOException if an error occurs while writing the entry
+     */
+    public void put(DataModel data, RoutingSolution solution) throws IOException {
+        put(InstanceFingerprint.of(data), data, solution);
+    }
+
+    /**
+     * Find the cached solution of the same depot sharing the most orders with a data model, and map its routes onto
+     * the data model. Orders that are not part of the data model are removed from the routes, new orders are left
+     * to the solver.
+     *
+     * @param data       the data model
+     * @param minOverlap the minimum number of common orders divided by the number of orders of the larger instance
+     * @return the initial routes for the data model if a close enough solution is cached
+     */
+    public Optional<long[][]> nearMatchRoutes(DataModel data, double minOverlap) {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 1; i < data.numberRouteNodes(); ++i) indexes.put(data.routeNodeAt(i).order().id(), i);
+        String depotZip = data.config().depotZip().toString();
+
+        List<String> candidates;
+        synchronized (this) {
+            candidates = entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().depotZip().equals(depotZip))
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+
+        double bestOverlap = minOverlap;
+        long[][] bestRoutes = null;
+        for (String candidate : candidates) {
+            try (DataInputStream in = open(file(candidate))) {
+                Header header = readHeader(in);
+                long common = header.orderIds().stream().filter(indexes::containsKey).count();
+                double overlap = (double) common / Math.max(header.orderIds().size(), indexes.size());
+                if (overlap < bestOverlap || common == 0) continue;
+
+                long[][] routes = RoutingSolutionCodec.readRouteIndexes(in, header.orderIds().size() + 1);
+                for (int r = 0; r < routes.length; ++r) {
+                    routes[r] = Arrays.stream(routes[r])
+                            .mapToObj(index -> header.orderIds().get((int) index - 1))
+                            .filter(indexes::containsKey)
+                            .mapToLong(indexes::get)
+                            .toArray();
+                }
+                bestOverlap = overlap;
+                bestRoutes = routes;
+            } catch (IOException | IndexOutOfBoundsException e) {
+                logger.warning(String.format("cannot read cache entry %s: %s", candidate, e.getMessage()));
+            }
+        }
+        return Optional.ofNullable(bestRoutes);
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private Optional<RoutingSolution> get(String fingerprint, DataModel data) {
+        synchronized (this) {
+            if (entries.get(fingerprint) == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+        }
+        Path file = file(fingerprint);
+        try (DataInputStream in = open(file)) {
+            readHeader(in);
+            RoutingSolution solution = RoutingSolutionCodec.read(in, data);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            return Optional.of(solution);
+        } catch (IOException e) {
+            logger.warning(String.format("removing unreadable cache entry %s: %s", file, e.getMessage()));
+            remove(fingerprint);
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+    }
+
+    private void put(String fingerprint, DataModel data, RoutingSolution solution) throws IOException {
+        Path file = file(fingerprint);
+        Path temporary = Files.createTempFile(directory, fingerprint, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(data.config().depotZip().toString());
+                out.writeInt(data.numberRouteNodes() - 1);
+                for (int i = 1; i < data.numberRouteNodes(); ++i) out.writeUTF(data.routeNodeAt(i).order().id());
+                RoutingSolutionCodec.write(out, data, solution);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(fingerprint, new Entry(Files.size(file),
+                    data.config().depotZip().toString()));
+            if (previous != null) totalBytes -= previous.bytes();
+            totalBytes += Files.size(file);
+            evict();
+        }
+    }
+
+    private synchronized void remove(String fingerprint) {
+        Entry entry = entries.remove(fingerprint);
+        if (entry != null) totalBytes -= entry.bytes();
+        try {
+            Files.deleteIfExists(file(fingerprint));
+        } catch (IOException e) {
+            logger.warning(String.format("cannot delete cache entry %s: %s", fingerprint, e.getMessage()));
+        }
+    }
+
+    private synchronized void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue().bytes();
+            try {
+                Files.deleteIfExists(file(eldest.getKey()));
+            } catch (IOException e) {
+                logger.warning(String.format("cannot delete cache entry %s: %s", eldest.getKey(), e.getMessage()));
+            }
+        }
+    }
+
+    private Path file(String fingerprint) {
+        return directory.resolve(fingerprint + EXTENSION);
+    }
+
+    private static String key(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - EXTENSION.length());
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+
+    private static Header readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("Not a solution cache entry");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported solution cache version " + version);
+        String depotZip = in.readUTF();
+        int numberOrders = in.readInt();
+        List<String> orderIds = new ArrayList<>(numberOrders);
+        for (int i = 0; i < numberOrders; ++i) orderIds.add(in.readUTF());
+        return new Header(depotZip, orderIds);
+    }
+
+    private record Header(String depotZip, List<String> orderIds) {}
+
+    private record Entry(long bytes, String depotZip) {}
+}
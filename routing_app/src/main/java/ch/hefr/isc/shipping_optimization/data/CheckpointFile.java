@@ -0,0 +1,111 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the routes of a solve in progress as a json file.
+ * <p>
+ * The routes are stored as the order ids visited by each vehicle, so a checkpoint can be resumed with a data model
+ * parsed again from the same files, even if the orders are not in the same order.
+ */
+public class CheckpointFile {
+
+    private static final Logger logger = Logger.getLogger(CheckpointFile.class.getName());
+
+    /**
+     * Write the checkpoint file. The file is replaced atomically, so a crash while writing keeps the previous
+     * checkpoint.
+     *
+     * @param path   the path of the file
+     * @param data   the data model being solved
+     * @param routes the route node indexes visited by each vehicle, without the depot
+     * @throws IOException if an error occurs while writing the file
+     */
+    public static void write(Path path, DataModel data, long[][] routes) throws IOException {
+        JSONArray jsonRoutes = new JSONArray();
+        for (long[] route : routes) {
+            JSONArray orderIds = new JSONArray();
+            for (long index : route) orderIds.put(data.routeNodeAt((int) index).order().id());
+            jsonRoutes.put(orderIds);
+        }
+        JSONObject json = new JSONObject();
+        json.put("depotZip", data.config().depotZip().toString());
+        json.put("savedAt", Instant.now().toString());
+        json.put("routes", jsonRoutes);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temporary, json.toString(4));
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the checkpoint file and map its routes onto a data model. Orders that are not part of the data model are
+     * left out of the routes.
+     *
+     * @param path the path of the file
+     * @param data the data model to resume
+     * @return the route node indexes visited by each vehicle, without the depot
+     * @throws IOException if an error occurs while reading the file, if the file is invalid or if it was written for
+     *                     another depot
+     */
+    public static long[][] read(Path path, DataModel data) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = 1; i < data.numberRouteNodes(); ++i) indexes.put(data.routeNodeAt(i).order().id(), i);
+
+        try {
+            JSONObject json = new JSONObject(Files.readString(path));
+            String depotZip = json.getString("depotZip");
+            if (!depotZip.equals(data.config().depotZip().toString()))
+                throw new IOException("Checkpoint " + path + " was written for the depot " + depotZip);
+
+            JSONArray jsonRoutes = json.getJSONArray("routes");
+            long[][] routes = new long[jsonRoutes.length()][];
+            for (int r = 0; r < routes.length; ++r) {
+                JSONArray orderIds = jsonRoutes.getJSONArray(r);
+                List<Long> route = new ArrayList<>();
+                for (int i = 0; i < orderIds.length(); ++i) {
+                    Integer index = indexes.get(orderIds.getString(i));
+                    if (index != null) route.add((long) index);
+                }
+                routes[r] = route.stream().mapToLong(Long::longValue).toArray();
+            }
+            return routes;
+        } catch (JSONException e) {
+            throw new IOException("Invalid checkpoint file " + path, e);
+        }
+    }
+
+    /**
+     * Create a checkpoint handler for {@link ch.hefr.isc.shipping_optimization.routing.RoutingSolver} writing the
+     * checkpoint file. Write errors are logged, so a full disk doesn't abort the solve.
+     *
+     * @param path the path of the file
+     * @param data the data model being solved
+     * @return the checkpoint handler
+     */
+    public static Consumer<long[][]> writer(Path path, DataModel data) {
+        return routes -> {
+            try {
+                write(path, data, routes);
+                logger.info("checkpoint written to " + path);
+            } catch (IOException e) {
+                logger.warning(String.format("cannot write checkpoint %s: %s", path, e.getMessage()));
+            }
+        };
+    }
+}
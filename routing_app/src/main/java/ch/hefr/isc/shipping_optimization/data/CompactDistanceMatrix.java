@@ -0,0 +1,341 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only distance table storing the distances and durations as packed integers.
+ * <p>
+ * The distances are rounded to the meter and the durations are whole seconds. Every row of the matrix stores the
+ * offsets of its values from the row minimum, on 1, 2 or 4 bytes depending on the spread of the row, so a lookup
+ * decodes a single value in constant time. A pair with the same value in both directions is stored once, in the
+ * upper triangle, and the lower triangle only stores the values differing from their mirror, flagged by one bit per
+ * pair. A road matrix where most pairs are symmetric takes about half the space of the full rows, and a fully
+ * asymmetric one the space of the full rows plus one and a half bits per pair below the diagonal for the flags.
+ */
+public final class CompactDistanceMatrix implements DistanceTable {
+
+    private final List<Zip> zips;
+    private final Map<Zip, Integer> indexes;
+    private final PairTable meters;
+    private final PairTable seconds;
+
+    private CompactDistanceMatrix(List<Zip> zips, Map<Zip, Integer> indexes, PairTable meters, PairTable seconds) {
+        this.zips = zips;
+        this.indexes = indexes;
+        this.meters = meters;
+        this.seconds = seconds;
+    }
+
+    /**
+     * Copy a distance table into a compact distance matrix.
+     *
+     * @param table the distance table
+     * @return the compact distance matrix
+     * @throws IllegalArgumentException if the table is too large to be packed
+     */
+    public static CompactDistanceMatrix of(DistanceTable table) throws IllegalArgumentException {
+        List<Zip> zips = table.zips().stream().sorted(Comparator.comparing(Zip::toString)).toList();
+        Map<Zip, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < zips.size(); ++i) indexes.put(zips.get(i), i);
+
+        PairTable.Builder meters = new PairTable.Builder(zips.size());
+        PairTable.Builder seconds = new PairTable.Builder(zips.size());
+        long[] rowMeters = new long[zips.size()];
+        long[] rowSeconds = new long[zips.size()];
+        long[] columnMeters = new long[zips.size()];
+        long[] columnSeconds = new long[zips.size()];
+        for (int i = 0; i < zips.size(); ++i) {
+            for (int j = 0; j < zips.size(); ++j) {
+                rowMeters[j] = meters(table, zips.get(i), zips.get(j));
+                rowSeconds[j] = seconds(table, zips.get(i), zips.get(j));
+            }
+            // the mirrors of the lower triangle of the row
+            for (int j = 0; j < i; ++j) {
+                columnMeters[j] = meters(table, zips.get(j), zips.get(i));
+                columnSeconds[j] = seconds(table, zips.get(j), zips.get(i));
+            }
+            meters.addRow(rowMeters, columnMeters);
+            seconds.addRow(rowSeconds, columnSeconds);
+        }
+        return new CompactDistanceMatrix(zips, indexes, meters.build(), seconds.build());
+    }
+
+    private static long meters(DistanceTable table, Zip from, Zip to) {
+        return table.hasZipData(from, to) ? Math.round(table.distance(from, to).meters()) : PackedRows.MISSING;
+    }
+
+    private static long seconds(DistanceTable table, Zip from, Zip to) {
+        return table.hasZipData(from, to) ? table.duration(from, to).toSeconds() : PackedRows.MISSING;
+    }
+
+    /**
+     * Check if every pair has the same distance and duration in both directions.
+     *
+     * @return true if the matrix is symmetric
+     */
+    public boolean isSymmetric() {
+        return meters.numberAsymmetric == 0 && seconds.numberAsymmetric == 0;
+    }
+
+    /**
+     * Get the number of pairs whose duration differs from the duration in the other direction, each counted in
+     * both directions.
+     *
+     * @return the number of asymmetric pairs
+     */
+    public long asymmetricDurations() {
+        return 2L * seconds.numberAsymmetric;
+    }
+
+    @Override
+    public Distance distance(Zip from, Zip to) {
+        long value = lookup(meters, from, to);
+        return value == PackedRows.MISSING ? UNREACHABLE_DISTANCE : Distance.ofMeters(value);
+    }
+
+    @Override
+    public Duration duration(Zip from, Zip to) {
+        long value = lookup(seconds, from, to);
+        return value == PackedRows.MISSING ? UNREACHABLE_DURATION : Duration.ofSeconds(value);
+    }
+
+    @Override
+    public boolean hasZipData(Zip from, Zip to) {
+        return lookup(seconds, from, to) != PackedRows.MISSING;
+    }
+
+    @Override
+    public Set<Zip> zips() {
+        return new HashSet<>(zips);
+    }
+
+    @Override
+    public Set<Zip> destinations(Zip from) {
+        Set<Zip> destinations = new HashSet<>();
+        Integer row = indexes.get(from);
+        if (row == null) return destinations;
+        for (int column = 0; column < zips.size(); ++column)
+            if (seconds.get(row, column) != PackedRows.MISSING) destinations.add(zips.get(column));
+        return destinations;
+    }
+
+    @Override
+    public long memoryBytes() {
+        // the zips are shared with the orders, the index map costs about 48 bytes per entry
+        return meters.memoryBytes() + seconds.memoryBytes() + 48L * zips.size() + 8L * zips.size();
+    }
+
+    private long lookup(PairTable table, Zip from, Zip to) {
+        Integer row = indexes.get(from);
+        Integer column = indexes.get(to);
+        if (row == null || column == null) return PackedRows.MISSING;
+        return table.get(row, column);
+    }
+
+    /**
+     * One value per ordered pair of a square matrix. The upper triangle, diagonal included, is stored in full. The
+     * pair (i, j) below the diagonal has bit i * (i - 1) / 2 + j of the flags set if its value differs from the one
+     * of (j, i), and only these values are stored, row by row in column order. The number of flags set before each
+     * word of flags gives the position of a flagged value in constant time.
+     */
+    private static final class PairTable {
+
+        private final PackedRows upper;
+        private final PackedRows lower;
+        private final long[] flags;
+        private final int[] ranks;
+        private final int[] firstAsymmetric;
+        private final int numberAsymmetric;
+
+        private PairTable(PackedRows upper, PackedRows lower, long[] flags, int[] ranks, int[] firstAsymmetric,
+                          int numberAsymmetric) {
+            this.upper = upper;
+            this.lower = lower;
+            this.flags = flags;
+            this.ranks = ranks;
+            this.firstAsymmetric = firstAsymmetric;
+            this.numberAsymmetric = numberAsymmetric;
+        }
+
+        /**
+         * Adds the rows of the matrix one after the other.
+         */
+        static final class Builder {
+            private final PackedRows.Builder upper = new PackedRows.Builder();
+            private final PackedRows.Builder lower = new PackedRows.Builder();
+            private final long[] flags;
+            private final int[] firstAsymmetric;
+            private int numberAsymmetric;
+            private int numberRows;
+
+            Builder(int size) {
+                long numberFlags = (long) size * (size - 1) / 2;
+                if ((numberFlags + 63) >>> 6 > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("Matrix is too large to pack");
+                flags = new long[(int) ((numberFlags + 63) >>> 6)];
+                firstAsymmetric = new int[size];
+            }
+
+            /**
+             * @param row    the values of the next row
+             * @param column the values of the column of the same index, only read above the diagonal
+             */
+            void addRow(long[] row, long[] column) {
+                int i = numberRows;
+                long[] asymmetric = new long[i];
+                int count = 0;
+                for (int j = 0; j < i; ++j) {
+                    if (row[j] == column[j]) continue;
+                    long bit = (long) i * (i - 1) / 2 + j;
+                    flags[(int) (bit >>> 6)] |= 1L << bit;
+                    asymmetric[count++] = row[j];
+                }
+                firstAsymmetric[i] = numberAsymmetric;
+                numberAsymmetric += count;
+                upper.addRow(Arrays.copyOfRange(row, i, row.length));
+                lower.addRow(Arrays.copyOf(asymmetric, count));
+                ++numberRows;
+            }
+
+            PairTable build() {
+                int[] ranks = new int[flags.length];
+                int rank = 0;
+                for (int w = 0; w < flags.length; ++w) {
+                    ranks[w] = rank;
+                    rank += Long.bitCount(flags[w]);
+                }
+                return new PairTable(upper.build(), lower.build(), flags, ranks, firstAsymmetric, numberAsymmetric);
+            }
+        }
+
+        long get(int row, int column) {
+            if (row <= column) return upper.get(row, column - row);
+            long bit = (long) row * (row - 1) / 2 + column;
+            long word = flags[(int) (bit >>> 6)];
+            if ((word & (1L << bit)) == 0) return upper.get(column, row - column);
+            int rank = ranks[(int) (bit >>> 6)] + Long.bitCount(word & ((1L << bit) - 1));
+            return lower.get(row, rank - firstAsymmetric[row]);
+        }
+
+        long memoryBytes() {
+            return upper.memoryBytes() + lower.memoryBytes() + 8L * flags.length + 4L * ranks.length
+                    + 4L * firstAsymmetric.length;
+        }
+    }
+
+    /**
+     * Rows of non-negative values stored as offsets from the row minimum, on the smallest width holding the row.
+     */
+    private static final class PackedRows {
+
+        static final long MISSING = -1;
+        private static final VarHandle SHORTS = MethodHandles.byteArrayViewVarHandle(short[].class,
+                ByteOrder.LITTLE_ENDIAN);
+        private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class,
+                ByteOrder.LITTLE_ENDIAN);
+
+        private final long[] bases;
+        private final int[] offsets;
+        private final byte[] widths;
+        private final byte[] data;
+
+        private PackedRows(long[] bases, int[] offsets, byte[] widths, byte[] data) {
+            this.bases = bases;
+            this.offsets = offsets;
+            this.widths = widths;
+            this.data = data;
+        }
+
+        /**
+         * Appends the rows one after the other, the data growing as the rows are added.
+         */
+        static final class Builder {
+            private long[] bases = new long[16];
+            private int[] offsets = new int[16];
+            private byte[] widths = new byte[16];
+            private byte[] data = new byte[1024];
+            private int numberRows;
+            private int size;
+
+            void addRow(long[] values) {
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for (long value : values) {
+                    if (value == MISSING) continue;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                // the largest offset of each width marks the missing values
+                long spread = min == Long.MAX_VALUE ? 0 : max - min;
+                byte width;
+                if (spread < 0xff) width = 1;
+                else if (spread < 0xffff) width = 2;
+                else if (spread < 0xffff_ffffL) width = 4;
+                else throw new IllegalArgumentException("Row " + numberRows + " values are too far apart");
+                long newSize = size + (long) width * values.length;
+                if (newSize > Integer.MAX_VALUE) throw new IllegalArgumentException("Matrix is too large to pack");
+
+                if (numberRows == bases.length) {
+                    bases = Arrays.copyOf(bases, 2 * numberRows);
+                    offsets = Arrays.copyOf(offsets, 2 * numberRows);
+                    widths = Arrays.copyOf(widths, 2 * numberRows);
+                }
+                if (newSize > data.length) data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE,
+                        Math.max(newSize, 2L * data.length)));
+                bases[numberRows] = min == Long.MAX_VALUE ? 0 : min;
+                offsets[numberRows] = size;
+                widths[numberRows] = width;
+                PackedRows rows = new PackedRows(bases, offsets, widths, data);
+                for (int j = 0; j < values.length; ++j) rows.set(numberRows, j, values[j]);
+                ++numberRows;
+                size = (int) newSize;
+            }
+
+            PackedRows build() {
+                return new PackedRows(Arrays.copyOf(bases, numberRows), Arrays.copyOf(offsets, numberRows),
+                        Arrays.copyOf(widths, numberRows), Arrays.copyOf(data, size));
+            }
+        }
+
+        long get(int row, int column) {
+            int position = offsets[row] + column * widths[row];
+            long offset = switch (widths[row]) {
+                case 1 -> data[position] & 0xffL;
+                case 2 -> (short) SHORTS.get(data, position) & 0xffffL;
+                default -> (int) INTS.get(data, position) & 0xffff_ffffL;
+            };
+            return offset == missingOffset(widths[row]) ? MISSING : bases[row] + offset;
+        }
+
+        private void set(int row, int column, long value) {
+            int position = offsets[row] + column * widths[row];
+            long offset = value == MISSING ? missingOffset(widths[row]) : value - bases[row];
+            switch (widths[row]) {
+                case 1 -> data[position] = (byte) offset;
+                case 2 -> SHORTS.set(data, position, (short) offset);
+                default -> INTS.set(data, position, (int) offset);
+            }
+        }
+
+        private static long missingOffset(int width) {
+            return width == 4 ? 0xffff_ffffL : (1L << (8 * width)) - 1;
+        }
+
+        long memoryBytes() {
+            return data.length + 8L * bases.length + 4L * offsets.length + widths.length;
+        }
+    }
+}
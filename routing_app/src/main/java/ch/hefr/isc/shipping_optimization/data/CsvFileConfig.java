@@ -1,5 +1,7 @@
 package ch.hefr.isc.shipping_optimization.data;
 
+import java.nio.file.Path;
+
 /**
  * Configuration for the data files.
  */
@@ -30,6 +32,24 @@ public record CsvFileConfig(String zipDistancesPath, String ordersPath, String o
         return new DataFileConfigBuilder();
     }
 
+    /**
+     * Get the directory the completed distance matrix is cached in, next to the distance matrix file.
+     *
+     * @return the matrix cache directory
+     */
+    public Path matrixCacheDirectory() {
+        return Path.of(distanceMatrixPath).resolveSibling("cache");
+    }
+
+    public DataFileConfigBuilder toBuilder() {
+        return new DataFileConfigBuilder()
+                .setZipDistancesPath(zipDistancesPath)
+                .setOrdersPath(ordersPath)
+                .setOrderWeightsPath(orderWeightsPath)
+                .setUnloadingSitesPath(unloadingSitesPath)
+                .setDistanceMatrixPath(distanceMatrixPath);
+    }
+
     public static class DataFileConfigBuilder {
         private String zipDistancesPath = DEFAULT_LOCATION_DATA_CSV;
         private String ordersPath = DEFAULT_ORDER_DATA_CSV;
@@ -1,23 +1,47 @@
 package ch.hefr.isc.shipping_optimization.data;
 
 import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
 import ch.hefr.isc.shipping_optimization.model.RouteNode;
 import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
 import ch.hefr.isc.shipping_optimization.routing.DataModel;
 import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
 
 import java.time.Duration;
+import java.time.LocalTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class CsvFileDataModel implements DataModel {
-    private final List<Order> orders;
-    private final DistanceMatrix distanceMatrix;
+    private final OrderStore orders;
+    private final DistanceTable distanceMatrix;
     private final RoutingConfig config;
+    private final TravelTimeSlots travelTimeSlots;
 
-    public CsvFileDataModel(List<Order> orders, DistanceMatrix distanceMatrix, RoutingConfig config) {
-        this.orders = orders;
+    public CsvFileDataModel(List<Order> orders, DistanceTable distanceMatrix, RoutingConfig config) {
+        this(orders, distanceMatrix, config, null);
+    }
+
+    /**
+     * @param orders          the orders, copied in an {@link OrderStore} unless already stored in one
+     * @param distanceMatrix  the distance table, the rows of the zip codes of the orders are prefetched if it is a
+     *                        {@link LazyDistanceMatrix}
+     * @param travelTimeSlots the time dependent durations, null to only use the static durations
+     */
+    public CsvFileDataModel(List<Order> orders, DistanceTable distanceMatrix, RoutingConfig config,
+                            TravelTimeSlots travelTimeSlots) {
+        this.orders = OrderStore.of(orders);
         this.distanceMatrix = distanceMatrix;
         this.config = config;
+        this.travelTimeSlots = travelTimeSlots;
+        if (distanceMatrix instanceof LazyDistanceMatrix lazyMatrix) {
+            Set<Zip> zips = new HashSet<>();
+            zips.add(config.depotZip());
+            for (Order order : orders) zips.add(order.zip());
+            lazyMatrix.prefetch(zips);
+        }
     }
 
     @Override
@@ -36,6 +60,11 @@ public class CsvFileDataModel implements DataModel {
         return RouteNode.orderNode(orders.get(index - 1));
     }
 
+    @Override
+    public OrderStore orders() {
+        return orders;
+    }
+
     @Override
     public Distance distance(RouteNode from, RouteNode to) {
         if (from.isDepot() && to.isDepot())
@@ -49,4 +78,43 @@ public class CsvFileDataModel implements DataModel {
             return Duration.ofSeconds(0);
         return distanceMatrix.duration(from.zip(), to.zip());
     }
+
+    @Override
+    public Duration duration(RouteNode from, RouteNode to, LocalTime departure) {
+        Duration duration = duration(from, to);
+        if (travelTimeSlots == null || (from.isDepot() && to.isDepot())) return duration;
+        return travelTimeSlots.duration(from.zip(), to.zip(), departure, duration);
+    }
+
+    @Override
+    public Distance distance(int fromNode, int toNode) {
+        if (fromNode == 0 && toNode == 0)
+            return Distance.ofKiloMeters(0);
+        return distanceMatrix.distance(zipAt(fromNode), zipAt(toNode));
+    }
+
+    @Override
+    public Duration duration(int fromNode, int toNode, LocalTime departure) {
+        if (fromNode == 0 && toNode == 0)
+            return Duration.ofSeconds(0);
+        Zip from = zipAt(fromNode);
+        Zip to = zipAt(toNode);
+        Duration duration = distanceMatrix.duration(from, to);
+        if (travelTimeSlots == null || departure == null) return duration;
+        return travelTimeSlots.duration(from, to, departure, duration);
+    }
+
+    private Zip zipAt(int index) {
+        return index == 0 ? config.depotZip() : orders.zip(index - 1);
+    }
+
+    @Override
+    public boolean hasTimeDependentDurations() {
+        return travelTimeSlots != null;
+    }
+
+    @Override
+    public TravelTimeSlots travelTimeSlots() {
+        return travelTimeSlots;
+    }
 }
@@ -1,27 +1,34 @@
 package ch.hefr.isc.shipping_optimization.data;
 
 import ch.hefr.isc.shipping_optimization.model.Order;
-import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
 import ch.hefr.isc.shipping_optimization.model.utils.Distance;
 import ch.hefr.isc.shipping_optimization.model.utils.Pair;
-import ch.hefr.isc.shipping_optimization.model.utils.Weight;
 import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.profiling.PhaseTimer;
 import ch.hefr.isc.shipping_optimization.routing.DataModel;
 import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
-import java.time.LocalTime;
 import java.util.*;
+import java.util.logging.Logger;
 
 /**
  * A parser for the csv files.
  */
 public class CsvFileParser {
 
+    private static final Logger logger = Logger.getLogger(CsvFileParser.class.getName());
+    // system property of the size in bytes of the row cache of the shared distance matrix, loaded whole if not set
+    public static final String ROW_CACHE_BYTES_PROPERTY = "routing.matrix.rowCacheBytes";
+
     /**
      * Parse the data model from the csv files.
      *
@@ -31,15 +38,137 @@ public class CsvFileParser {
      * @throws IOException if an error occurs while reading the files
      */
     public static DataModel parseDataModel(CsvFileConfig csvConfig, RoutingConfig routingConfig) throws IOException {
-        Map<Zip, Pair<Distance, Duration>> locations = parseLocations(csvConfig.zipDistancesPath());
+        DistanceMatrix distanceMatrix = parseDistanceMatrix(csvConfig);
+        List<Order> orders = parseOrders(csvConfig);
 
-        DistanceMatrix distanceMatrix = parseDistanceMatrix(csvConfig.distanceMatrixPath(), locations);
+        return new CsvFileDataModel(orders, distanceMatrix, routingConfig);
+    }
 
-        Map<String, Float> orderWeights = orderIdFloatMap(csvConfig.orderWeightsPath(), ";");
-        Map<String, Float> unloadingSites = orderIdFloatMap(csvConfig.unloadingSitesPath(), ",");
-        List<Order> orders = parseOrders(csvConfig.ordersPath(), orderWeights, unloadingSites);
+    /**
+     * Parse the distance matrix from the locations and distance matrix files. The matrix doesn't depend on the
+     * orders file and can be shared by the data models of several order files.
+     *
+     * @param csvConfig the csv file config
+     * @return the distance matrix
+     * @throws IOException if an error occurs while reading the files
+     */
+    public static DistanceMatrix parseDistanceMatrix(CsvFileConfig csvConfig) throws IOException {
+        try (PhaseTimer.Phase phase = PhaseTimer.start("parse matrix")) {
+            phase.bytesRead(fileSizes(csvConfig.zipDistancesPath(), csvConfig.distanceMatrixPath()));
+            Map<Zip, Pair<Distance, Duration>> locations = parseLocations(csvConfig.zipDistancesPath());
+            return parseDistanceMatrix(csvConfig.distanceMatrixPath(), locations);
+        }
+    }
 
-        return new CsvFileDataModel(orders, distanceMatrix, routingConfig);
+    /**
+     * Parse the distance matrix and fill its missing pairs with shortest paths, see {@link MatrixCompletion}. The
+     * completed matrix is cached in a directory, keyed by the content of the locations and distance matrix files,
+     * so the completion only runs again when these files change.
+     *
+     * @param csvConfig      the csv file config
+     * @param cacheDirectory the directory of the completed matrix cache
+     * @return the completed distance matrix
+     * @throws IOException          if an error occurs while reading the files
+     * @throws InterruptedException if the thread is interrupted while completing the matrix
+     */
+    @SuppressWarnings("try")
+    public static DistanceMatrix parseCompletedDistanceMatrix(CsvFileConfig csvConfig, Path cacheDirectory)
+            throws IOException, InterruptedException {
+        String key = sourceKey(Path.of(csvConfig.zipDistancesPath()), Path.of(csvConfig.distanceMatrixPath()));
+        Path cacheFile = completedMatrixFile(cacheDirectory, key);
+        if (Files.exists(cacheFile)) {
+            try (PhaseTimer.Phase phase = PhaseTimer.start("read matrix")) {
+                phase.bytesRead(Files.size(cacheFile));
+                return DistanceMatrixFile.read(cacheFile, key);
+            } catch (IOException e) {
+                logger.warning(String.format("ignoring completed distance matrix %s: %s", cacheFile,
+                        e.getMessage()));
+            }
+        }
+
+        DistanceMatrix distanceMatrix = parseDistanceMatrix(csvConfig);
+        try (PhaseTimer.Phase ignored = PhaseTimer.start("complete matrix")) {
+            MatrixCompletion.complete(distanceMatrix, Runtime.getRuntime().availableProcessors());
+            Files.createDirectories(cacheDirectory);
+            DistanceMatrixFile.write(cacheFile, distanceMatrix, key);
+        }
+        return distanceMatrix;
+    }
+
+    /**
+     * Load the distance matrix shared by the data models of several order files, completed and cached in the matrix
+     * cache directory of the csv config, see {@link #parseCompletedDistanceMatrix(CsvFileConfig, Path)}. The whole
+     * matrix is kept in a {@link CompactDistanceMatrix}, unless the routing.matrix.rowCacheBytes system property is
+     * set: the rows of the cached matrix file are then loaded on demand in a cache of that many bytes, see
+     * {@link LazyDistanceMatrix}, which has to be closed once not needed anymore.
+     *
+     * @param csvConfig the csv file config
+     * @return the distance matrix
+     * @throws IOException          if an error occurs while reading the files
+     * @throws InterruptedException if the thread is interrupted while completing the matrix
+     */
+    public static DistanceTable parseSharedDistanceMatrix(CsvFileConfig csvConfig)
+            throws IOException, InterruptedException {
+        Path cacheDirectory = csvConfig.matrixCacheDirectory();
+        String rowCacheBytes = System.getProperty(ROW_CACHE_BYTES_PROPERTY);
+        if (rowCacheBytes == null)
+            return CompactDistanceMatrix.of(parseCompletedDistanceMatrix(csvConfig, cacheDirectory));
+
+        String key = sourceKey(Path.of(csvConfig.zipDistancesPath()), Path.of(csvConfig.distanceMatrixPath()));
+        Path cacheFile = completedMatrixFile(cacheDirectory, key);
+        // completing the matrix writes the cache file
+        if (!Files.exists(cacheFile)) parseCompletedDistanceMatrix(csvConfig, cacheDirectory);
+        return LazyDistanceMatrix.open(cacheFile, Long.parseLong(rowCacheBytes));
+    }
+
+    private static Path completedMatrixFile(Path cacheDirectory, String key) {
+        return cacheDirectory.resolve("distance_matrix_" + key.substring(0, 16) + ".bin");
+    }
+
+    /**
+     * Parse the orders from the orders, order weights and unloading sites files.
+     *
+     * @param csvConfig the csv file config
+     * @return the list of orders
+     * @throws IOException if an error occurs while reading the files
+     */
+    public static List<Order> parseOrders(CsvFileConfig csvConfig) throws IOException {
+        try (PhaseTimer.Phase phase = PhaseTimer.start("parse orders")) {
+            phase.bytesRead(fileSizes(csvConfig.ordersPath(), csvConfig.orderWeightsPath(),
+                    csvConfig.unloadingSitesPath()));
+            List<Order> orders = parseOrders(csvConfig.ordersPath(), OrderLineParser.of(csvConfig));
+            phase.nodes(orders.size() + 1);
+            return orders;
+        }
+    }
+
+    private static long fileSizes(String... paths) throws IOException {
+        long size = 0;
+        for (String path : paths) size += Files.size(Path.of(path));
+        return size;
+    }
+
+    /**
+     * Compute the SHA-256 of the content of files.
+     *
+     * @param paths the paths to the files
+     * @return the hexadecimal digest
+     * @throws IOException if an error occurs while reading the files
+     */
+    private static String sourceKey(Path... paths) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[1 << 16];
+        for (Path path : paths) {
+            try (InputStream in = Files.newInputStream(path)) {
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     /**
@@ -115,36 +244,17 @@ public class CsvFileParser {
     /**
      * Parse the orders from the orders file.
      *
-     * @param ordersPath     the path to the orders file
-     * @param orderWeights   the map of order id to order weight
-     * @param unloadingSites the map of order id to unloading site
+     * @param ordersPath the path to the orders file
+     * @param parser     the parser of the order lines
      * @return the list of orders
-     * @throws IOException if an error occurs while reading the file
+     * @throws IOException if an error occurs while reading the file or if a line is invalid
      */
-    private static List<Order> parseOrders(String ordersPath, Map<String, Float> orderWeights,
-                                           Map<String, Float> unloadingSites) throws IOException {
+    private static List<Order> parseOrders(String ordersPath, OrderLineParser parser) throws IOException {
         List<String> lines = Files.readAllLines(Path.of(ordersPath));
         lines.remove(0);
 
-        List<Order> orders = new ArrayList<>();
-        for (String line : lines) {
-            String[] data = line.split(",");
-
-            TimeWindow timeWindow = new TimeWindow(LocalTime.parse(data[3]), LocalTime.parse(data[4]));
-
-            if (Zip.isInvalid(data[2]))
-                throw new IOException("Invalid zip code " + data[2] + " in orders file");
-
-            if (!orderWeights.containsKey(data[0]))
-                throw new IOException("Order " + data[0] + " not found in order weights file");
-
-            if (!unloadingSites.containsKey(data[5]))
-                throw new IOException("Order " + data[0] + " not found in unloading sites file");
-
-            orders.add(new Order(data[0], Zip.of(data[2]), Integer.parseInt(data[1]), timeWindow,
-                    Weight.ofKiloGrams(orderWeights.get(data[0])), unloadingSites.get(data[5])));
-        }
-
+        OrderStore orders = new OrderStore(lines.size());
+        for (String line : lines) orders.add(parser.parse(line));
         return orders;
     }
 
@@ -156,7 +266,7 @@ public class CsvFileParser {
      * @return the map of order id to float value
      * @throws IOException if an error occurs while reading the file
      */
-    private static Map<String, Float> orderIdFloatMap(String path, String separator) throws IOException {
+    static Map<String, Float> orderIdFloatMap(String path, String separator) throws IOException {
         List<String> lines = Files.readAllLines(Path.of(path));
         lines.remove(0);
 
@@ -0,0 +1,207 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.SearchProfile;
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of a data model.
+ * <p>
+ * A data model is written as its config, its orders and the distance and duration between every pair of zips used
+ * by the orders and the depot, which is all the routing solver reads from it. The zips are written once in a
+ * dictionary and referenced by index, and the integers are written as varints: the time windows in minutes, the
+ * weights in grams, the distances in meters and the durations in seconds, the precision the solver works with.
+ * A snapshot of a few hundred orders takes a few bytes per order and about five bytes per pair of zips. The time
+ * dependent durations of the data model between these zips follow, if any.
+ */
+public class DataModelCodec {
+
+    static final int MAGIC = 0x444d4f44;
+    static final int VERSION = 3;
+    // the zip codes go from 1000 to 9999
+    private static final int MAX_ZIPS = 9000;
+    // orders preallocated before reading them, the store grows past it
+    private static final int MAX_INITIAL_ORDERS = 1 << 16;
+
+    /**
+     * Write a data model.
+     *
+     * @param out  the output
+     * @param data the data model
+     * @throws IOException if an error occurs while writing
+     */
+    public static void write(DataOutput out, DataModel data) throws IOException {
+        Varints.writeUnsigned(out, VERSION);
+        writeConfig(out, data.config());
+
+        // one representative node per zip, an order node if possible so that the intra zip distance is kept
+        OrderStore orders = data.orders();
+        Map<Zip, Integer> zipIndexes = new HashMap<>();
+        List<RouteNode> nodes = new ArrayList<>();
+        zipIndexes.put(data.config().depotZip(), 0);
+        nodes.add(data.routeNodeAt(0));
+        for (int i = 0; i < orders.size(); ++i) {
+            Integer index = zipIndexes.putIfAbsent(orders.zip(i), nodes.size());
+            if (index == null) nodes.add(data.routeNodeAt(i + 1));
+            else if (nodes.get(index).isDepot()) nodes.set(index, data.routeNodeAt(i + 1));
+        }
+        Varints.writeUnsigned(out, nodes.size());
+        for (RouteNode node : nodes) Varints.writeUnsigned(out, Integer.parseInt(node.zip().toString()));
+
+        Varints.writeUnsigned(out, orders.size());
+        for (int i = 0; i < orders.size(); ++i) {
+            out.writeUTF(orders.id(i));
+            Varints.writeUnsigned(out, zipIndexes.get(orders.zip(i)));
+            Varints.writeUnsigned(out, orders.numberBoxes(i));
+            Varints.writeUnsigned(out, orders.timeWindowStartMinutes(i));
+            Varints.writeSigned(out, orders.timeWindowEndMinutes(i) - orders.timeWindowStartMinutes(i));
+            Varints.writeUnsigned(out, orders.weightGrams(i));
+            out.writeFloat(orders.hubDeliveryCostPerBox(i));
+        }
+
+        for (RouteNode from : nodes) {
+            for (RouteNode to : nodes) {
+                Varints.writeUnsigned(out, Math.round(data.distance(from, to).meters()));
+                Varints.writeUnsigned(out, data.duration(from, to).toSeconds());
+            }
+        }
+
+        TravelTimeSlots slots = data.travelTimeSlots();
+        out.writeBoolean(slots != null);
+        if (slots != null) slots.write(out, zipIndexes.keySet());
+    }
+
+    /**
+     * Read a data model. The distances between the zips are kept in a new distance matrix, with the time dependent
+     * durations if the data model had some.
+     *
+     * @param in the input
+     * @return the data model
+     * @throws IOException if an error occurs while reading or if the snapshot is invalid
+     */
+    public static DataModel read(DataInput in) throws IOException {
+        int version = Varints.readUnsignedInt(in);
+        if (version != VERSION) throw new IOException("Unsupported data model snapshot version " + version);
+        try {
+            RoutingConfig config = readConfig(in);
+
+            int numberZips = Varints.readCount(in, MAX_ZIPS);
+            List<Zip> zips = new ArrayList<>(numberZips);
+            for (int i = 0; i < numberZips; ++i) zips.add(Zip.of(String.valueOf(Varints.readUnsignedInt(in))));
+
+            int numberOrders = Varints.readUnsignedInt(in);
+            OrderStore orders = new OrderStore(Math.min(numberOrders, MAX_INITIAL_ORDERS));
+            for (int i = 0; i < numberOrders; ++i) {
+                String id = in.readUTF();
+                Zip zip = zips.get(Varints.readUnsignedInt(in));
+                int numberBoxes = Varints.readUnsignedInt(in);
+                int start = Varints.readUnsignedInt(in);
+                int end = start + Varints.readSignedInt(in);
+                TimeWindow timeWindow = new TimeWindow(LocalTime.ofSecondOfDay(60L * start),
+                        LocalTime.ofSecondOfDay(60L * end));
+                Weight weight = Weight.ofGrams(Varints.readUnsigned(in));
+                orders.add(new Order(id, zip, numberBoxes, timeWindow, weight, in.readFloat()));
+            }
+
+            DistanceMatrix distanceMatrix = new DistanceMatrix();
+            for (Zip from : zips) {
+                for (Zip to : zips) {
+                    Distance distance = Distance.ofMeters(Varints.readUnsigned(in));
+                    distanceMatrix.setZipData(from, to, distance, Duration.ofSeconds(Varints.readUnsigned(in)));
+                }
+            }
+            TravelTimeSlots slots = in.readBoolean() ? TravelTimeSlots.read(in) : null;
+            return new CsvFileDataModel(orders, distanceMatrix, config, slots);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IOException("Invalid data model snapshot", e);
+        }
+    }
+
+    /**
+     * Write a data model snapshot file. The file is replaced atomically.
+     *
+     * @param path the path of the file
+     * @param data the data model
+     * @throws IOException if an error occurs while writing the file
+     */
+    public static void write(Path path, DataModel data) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            write(out, data);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a data model snapshot file.
+     *
+     * @param path the path of the file
+     * @return the data model
+     * @throws IOException if an error occurs while reading the file or if the file is invalid
+     */
+    public static DataModel read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a data model snapshot " + path);
+            return read(in);
+        }
+    }
+
+    private static void writeConfig(DataOutput out, RoutingConfig config) throws IOException {
+        out.writeInt(config.numberVehicles());
+        out.writeUTF(config.depotZip().toString());
+        out.writeLong(config.deliveryExecutionTime().toSeconds());
+        out.writeFloat(config.hourlyVehicleCost());
+        out.writeInt(config.maxBoxesPerVehicle());
+        out.writeDouble(config.maxWeightPerVehicle().grams());
+        out.writeLong(config.solverTimeLimit().toMillis());
+        SearchProfile profile = config.searchProfile();
+        out.writeInt(profile.firstSolutionStrategy().getNumber());
+        out.writeInt(profile.localSearchMetaheuristic().getNumber());
+        out.writeBoolean(profile.useLnsOperators());
+        out.writeLong(profile.lnsTimeLimit().toMillis());
+        out.writeDouble(config.targetGap());
+    }
+
+    private static RoutingConfig readConfig(DataInput in) throws IOException {
+        RoutingConfig.RoutingConfigBuilder builder = RoutingConfig.builder()
+                .setNumberVehicles(in.readInt())
+                .setDepotZip(Zip.of(in.readUTF()))
+                .setDeliveryExecutionTime(Duration.ofSeconds(in.readLong()))
+                .setHourlyVehicleCost(in.readFloat())
+                .setMaxBoxesPerVehicle(in.readInt())
+                .setMaxWeightPerVehicle(Weight.ofGrams(in.readDouble()))
+                .setSolverTimeLimit(Duration.ofMillis(in.readLong()));
+        SearchProfile profile = new SearchProfile(FirstSolutionStrategy.Value.forNumber(in.readInt()),
+                LocalSearchMetaheuristic.Value.forNumber(in.readInt()), in.readBoolean(),
+                Duration.ofMillis(in.readLong()));
+        return builder.setSearchProfile(profile).setTargetGap(in.readDouble()).build();
+    }
+}
@@ -5,14 +5,22 @@ import ch.hefr.isc.shipping_optimization.model.utils.Pair;
 import ch.hefr.isc.shipping_optimization.model.utils.Zip;
 
 import java.time.Duration;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
-public class DistanceMatrix {
+/**
+ * Mutable distance table, used to build the distances and durations between zip codes while parsing.
+ * See {@link CompactDistanceMatrix} for a read-only table using much less memory.
+ */
+public class DistanceMatrix implements DistanceTable {
 
-    // TODO : use a better default value -> compute form routeNodes and van capacity and hourly cost
-    private static final Pair<Distance, Duration> UNREACHABLE_ZIP_DATA = Pair.of(Distance.ofKiloMeters(1e5),
-            Duration.ofSeconds(1_000_000));
+    private static final Pair<Distance, Duration> UNREACHABLE_ZIP_DATA = Pair.of(UNREACHABLE_DISTANCE,
+            UNREACHABLE_DURATION);
+    // rough heap size of a map entry with its pair, distance and duration, the zips being shared
+    private static final long ENTRY_BYTES = 32 + 16 + 16 + 24 + 8;
     private final Map<Zip, Map<Zip, Pair<Distance, Duration>>> adjacencyMap = new HashMap<>();
 
     /**
@@ -29,14 +37,40 @@ public class DistanceMatrix {
                 .put(to, Pair.of(distance, duration));
     }
 
+    @Override
+    public boolean hasZipData(Zip from, Zip to) {
+        Map<Zip, Pair<Distance, Duration>> fromMap = adjacencyMap.get(from);
+        return fromMap != null && fromMap.containsKey(to);
+    }
+
+    @Override
+    public Set<Zip> zips() {
+        Set<Zip> zips = new HashSet<>(adjacencyMap.keySet());
+        for (Map<Zip, Pair<Distance, Duration>> fromMap : adjacencyMap.values()) zips.addAll(fromMap.keySet());
+        return zips;
+    }
+
+    @Override
+    public Set<Zip> destinations(Zip from) {
+        return Collections.unmodifiableSet(adjacencyMap.getOrDefault(from, Map.of()).keySet());
+    }
+
+    @Override
     public Distance distance(Zip from, Zip to) {
         return zipData(from, to).first();
     }
 
+    @Override
     public Duration duration(Zip from, Zip to) {
         return zipData(from, to).second();
     }
 
+    @Override
+    public long memoryBytes() {
+        long entries = adjacencyMap.values().stream().mapToLong(Map::size).sum();
+        return entries * ENTRY_BYTES + adjacencyMap.size() * (ENTRY_BYTES + 48);
+    }
+
     private Pair<Distance, Duration> zipData(Zip from, Zip to) {
         Map<Zip, Pair<Distance, Duration>> fromMap = adjacencyMap.get(from);
         if (fromMap == null) return UNREACHABLE_ZIP_DATA;
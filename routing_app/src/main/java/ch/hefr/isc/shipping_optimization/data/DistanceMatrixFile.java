@@ -0,0 +1,129 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a distance matrix as a binary file, used to cache the completed matrix between runs.
+ * <p>
+ * The file starts with the key of the source files it was built from, a file with another key is rejected. The
+ * header lists the zip codes and the position of the row of each origin, so the rows can also be loaded one by one
+ * with a {@link LazyDistanceMatrix}.
+ */
+public class DistanceMatrixFile {
+
+    static final int MAGIC = 0x444d4154;
+    static final int VERSION = 2;
+    // destination index, meters and seconds
+    static final int ENTRY_BYTES = Integer.BYTES + Double.BYTES + Long.BYTES;
+
+    /**
+     * Write the distance matrix file. The file is replaced atomically.
+     *
+     * @param path           the path of the file
+     * @param distanceMatrix the distance matrix
+     * @param key            the key of the source files of the matrix
+     * @throws IOException if an error occurs while writing the file
+     */
+    public static void write(Path path, DistanceTable distanceMatrix, String key) throws IOException {
+        List<Zip> zips = new ArrayList<>(distanceMatrix.zips());
+        Map<Zip, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < zips.size(); ++i) indexes.put(zips.get(i), i);
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(key);
+            out.writeInt(zips.size());
+            for (Zip zip : zips) out.writeUTF(zip.toString());
+            long rowPosition = out.size() + (long) Long.BYTES * zips.size();
+            for (Zip from : zips) {
+                out.writeLong(rowPosition);
+                rowPosition += Integer.BYTES + (long) ENTRY_BYTES * distanceMatrix.destinations(from).size();
+            }
+            for (Zip from : zips) {
+                // sorted by index, so a row can be searched once loaded
+                List<Zip> destinations = distanceMatrix.destinations(from).stream()
+                        .sorted(Comparator.comparing(indexes::get))
+                        .toList();
+                out.writeInt(destinations.size());
+                for (Zip to : destinations) {
+                    out.writeInt(indexes.get(to));
+                    out.writeDouble(distanceMatrix.distance(from, to).meters());
+                    out.writeLong(distanceMatrix.duration(from, to).toSeconds());
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read the distance matrix file.
+     *
+     * @param path the path of the file
+     * @param key  the key of the current source files of the matrix
+     * @return the distance matrix
+     * @throws IOException if an error occurs while reading the file, if the file is invalid or if it was built from
+     *                     other source files
+     */
+    public static DistanceMatrix read(Path path, String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            List<Zip> zips = readHeader(in, path, key).zips();
+            DistanceMatrix distanceMatrix = new DistanceMatrix();
+            for (Zip from : zips) {
+                int numberDestinations = in.readInt();
+                for (int i = 0; i < numberDestinations; ++i) {
+                    Zip to = zips.get(in.readInt());
+                    Distance distance = Distance.ofMeters(in.readDouble());
+                    distanceMatrix.setZipData(from, to, distance, Duration.ofSeconds(in.readLong()));
+                }
+            }
+            return distanceMatrix;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid distance matrix file " + path, e);
+        }
+    }
+
+    record Header(List<Zip> zips, long[] rowPositions) {}
+
+    /**
+     * Read the header of a distance matrix file, up to the first row.
+     *
+     * @param key the expected key, null to accept any key
+     */
+    static Header readHeader(DataInputStream in, Path path, String key) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) throw new IOException("Not a distance matrix file " + path);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported distance matrix file version " + version);
+            String fileKey = in.readUTF();
+            if (key != null && !fileKey.equals(key))
+                throw new IOException("Distance matrix file " + path + " is outdated");
+
+            int numberZips = in.readInt();
+            List<Zip> zips = new ArrayList<>(numberZips);
+            for (int i = 0; i < numberZips; ++i) zips.add(Zip.of(in.readUTF()));
+            long[] rowPositions = new long[numberZips];
+            for (int i = 0; i < numberZips; ++i) rowPositions[i] = in.readLong();
+            return new Header(zips, rowPositions);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid distance matrix file " + path, e);
+        }
+    }
+}
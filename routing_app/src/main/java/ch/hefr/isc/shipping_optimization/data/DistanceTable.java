@@ -0,0 +1,53 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read access to the distances and durations between zip codes.
+ */
+public interface DistanceTable {
+
+    // TODO : use a better default value -> compute form routeNodes and van capacity and hourly cost
+    Distance UNREACHABLE_DISTANCE = Distance.ofKiloMeters(1e5);
+    Duration UNREACHABLE_DURATION = Duration.ofSeconds(1_000_000);
+
+    Distance distance(Zip from, Zip to);
+
+    Duration duration(Zip from, Zip to);
+
+    /**
+     * Check if the distance and duration between two zip codes are known. Unknown pairs get a very large distance
+     * and duration.
+     *
+     * @param from the origin zip code
+     * @param to   the destination zip code
+     * @return true if the zip data is known
+     */
+    boolean hasZipData(Zip from, Zip to);
+
+    /**
+     * Get the zip codes appearing in the table, as origin or as destination.
+     *
+     * @return the zip codes
+     */
+    Set<Zip> zips();
+
+    /**
+     * Get the zip codes with a known distance and duration from a zip code.
+     *
+     * @param from the origin zip code
+     * @return the destination zip codes
+     */
+    Set<Zip> destinations(Zip from);
+
+    /**
+     * Estimate the heap memory used by the table.
+     *
+     * @return the estimated size in bytes
+     */
+    long memoryBytes();
+}
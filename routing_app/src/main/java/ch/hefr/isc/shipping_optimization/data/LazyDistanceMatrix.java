@@ -0,0 +1,259 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-only distance table loading the rows of a {@link DistanceMatrixFile} on demand.
+ * <p>
+ * The row of an origin zip code is read from the file the first time a distance from this zip code is needed, and
+ * kept in a cache bounded in size. The lookups of cached rows take no lock, as the solver callbacks run them millions
+ * of times and from several solvers at once: the rows are in an array indexed by origin and a lookup only marks its
+ * row as used. Reading a missing row takes a lock to evict rows with the clock algorithm, a row used since the last
+ * sweep of the clock being spared once, which approximates evicting the least recently used rows. The rows needed by
+ * a batch of orders can be prefetched in parallel before solving. The cache should hold at least the rows of the
+ * largest batch, otherwise the solver keeps reading the same rows again.
+ */
+public class LazyDistanceMatrix implements DistanceTable, AutoCloseable {
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Zip> zips;
+    private final Map<Zip, Integer> indexes = new HashMap<>();
+    private final long[] rowPositions;
+    private final long maxBytes;
+    // the cached rows by origin index, null if not cached
+    private final AtomicReferenceArray<Row> rows;
+    // guarded by this
+    private long cachedBytes;
+    private int numberCachedRows;
+    private int clockHand;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static final class Row {
+        private final int[] destinations;
+        private final double[] meters;
+        private final long[] seconds;
+        // set by the lookups, cleared by the clock hand
+        private volatile boolean used = true;
+
+        private Row(int[] destinations, double[] meters, long[] seconds) {
+            this.destinations = destinations;
+            this.meters = meters;
+            this.seconds = seconds;
+        }
+
+        long memoryBytes() {
+            return 64 + 20L * destinations.length;
+        }
+
+        // the destinations of a row are sorted in the file
+        int find(int destination) {
+            return Arrays.binarySearch(destinations, destination);
+        }
+    }
+
+    private LazyDistanceMatrix(Path path, FileChannel channel, DistanceMatrixFile.Header header, long maxBytes) {
+        this.path = path;
+        this.channel = channel;
+        this.zips = header.zips();
+        this.rowPositions = header.rowPositions();
+        this.maxBytes = maxBytes;
+        this.rows = new AtomicReferenceArray<>(zips.size());
+        for (int i = 0; i < zips.size(); ++i) indexes.put(zips.get(i), i);
+    }
+
+    /**
+     * Open a distance matrix file, only reading its header.
+     *
+     * @param path     the path of the file
+     * @param maxBytes the maximum size of the cached rows
+     * @return the lazy distance matrix, to be closed once not needed anymore
+     * @throws IOException if an error occurs while reading the file or if the file is invalid
+     */
+    public static LazyDistanceMatrix open(Path path, long maxBytes) throws IOException {
+        DistanceMatrixFile.Header header;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            header = DistanceMatrixFile.readHeader(in, path, null);
+        }
+        return new LazyDistanceMatrix(path, FileChannel.open(path, StandardOpenOption.READ), header, maxBytes);
+    }
+
+    /**
+     * Load the rows of some origin zip codes in parallel, typically all the zips of a batch of orders and the
+     * depot. The rows already cached are only marked as recently used.
+     *
+     * @param origins the origin zip codes
+     * @throws UncheckedIOException if an error occurs while reading the file
+     */
+    public void prefetch(Collection<Zip> origins) throws UncheckedIOException {
+        origins.stream()
+                .distinct()
+                .map(indexes::get)
+                .filter(index -> index != null)
+                .toList()
+                .parallelStream()
+                .forEach(this::row);
+    }
+
+    @Override
+    public Distance distance(Zip from, Zip to) {
+        Row row = row(from);
+        int column = column(row, to);
+        return column < 0 ? UNREACHABLE_DISTANCE : Distance.ofMeters(row.meters[column]);
+    }
+
+    @Override
+    public Duration duration(Zip from, Zip to) {
+        Row row = row(from);
+        int column = column(row, to);
+        return column < 0 ? UNREACHABLE_DURATION : Duration.ofSeconds(row.seconds[column]);
+    }
+
+    @Override
+    public boolean hasZipData(Zip from, Zip to) {
+        return column(row(from), to) >= 0;
+    }
+
+    @Override
+    public Set<Zip> zips() {
+        return new HashSet<>(zips);
+    }
+
+    @Override
+    public Set<Zip> destinations(Zip from) {
+        Set<Zip> destinations = new HashSet<>();
+        Row row = row(from);
+        if (row != null) for (int destination : row.destinations) destinations.add(zips.get(destination));
+        return destinations;
+    }
+
+    @Override
+    public synchronized long memoryBytes() {
+        return cachedBytes + 8L * rowPositions.length + 48L * zips.size();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public synchronized int cachedRows() {
+        return numberCachedRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int column(Row row, Zip to) {
+        if (row == null) return -1;
+        Integer destination = indexes.get(to);
+        if (destination == null) return -1;
+        return row.find(destination);
+    }
+
+    private Row row(Zip from) {
+        Integer index = indexes.get(from);
+        return index == null ? null : row(index);
+    }
+
+    private Row row(int index) {
+        Row row = rows.get(index);
+        if (row != null) {
+            // only written when needed, so the lookups of a hot row don't keep invalidating its cache line
+            if (!row.used) row.used = true;
+            hits.increment();
+            return row;
+        }
+        misses.increment();
+        // read outside the lock, two threads may read the same row and the second one uses the first one
+        Row read = readRow(index);
+        synchronized (this) {
+            row = rows.get(index);
+            if (row != null) return row;
+            rows.set(index, read);
+            cachedBytes += read.memoryBytes();
+            ++numberCachedRows;
+            evict(index);
+        }
+        return read;
+    }
+
+    /**
+     * Evict rows until the cache fits, sparing the rows used since the last sweep once. The rows still used during
+     * two whole sweeps are evicted anyway, so that the eviction ends while other threads keep using the rows.
+     *
+     * @param kept the index of the row just read, never evicted
+     */
+    private void evict(int kept) {
+        for (int steps = 0; cachedBytes > maxBytes && numberCachedRows > 1; ++steps) {
+            clockHand = clockHand + 1 == rows.length() ? 0 : clockHand + 1;
+            Row row = rows.get(clockHand);
+            if (row == null || clockHand == kept) continue;
+            if (row.used && steps < 2 * rows.length()) {
+                row.used = false;
+                continue;
+            }
+            rows.set(clockHand, null);
+            cachedBytes -= row.memoryBytes();
+            --numberCachedRows;
+        }
+    }
+
+    private Row readRow(int index) {
+        try {
+            long position = rowPositions[index];
+            ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+            readFully(count, position);
+            int numberDestinations = count.flip().getInt();
+
+            ByteBuffer buffer = ByteBuffer.allocate(numberDestinations * DistanceMatrixFile.ENTRY_BYTES);
+            readFully(buffer, position + Integer.BYTES);
+            buffer.flip();
+            int[] destinations = new int[numberDestinations];
+            double[] meters = new double[numberDestinations];
+            long[] seconds = new long[numberDestinations];
+            for (int i = 0; i < numberDestinations; ++i) {
+                destinations[i] = buffer.getInt();
+                meters[i] = buffer.getDouble();
+                seconds[i] = buffer.getLong();
+            }
+            return new Row(destinations, meters, seconds);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read row " + index + " of " + path, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of " + path);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Completes a distance matrix with the shortest paths between the zip codes whose distance is unknown.
+ * <p>
+ * The known entries are the arcs of a graph weighted by their duration, since the routing cost is based on the
+ * travel time. A missing pair gets the duration of the fastest path and the distance along that path. Pairs without
+ * any path keep the unreachable default of the matrix.
+ */
+public class MatrixCompletion {
+
+    private static final Logger logger = Logger.getLogger(MatrixCompletion.class.getName());
+
+    /**
+     * The outcome of a completion.
+     *
+     * @param filledPairs      the number of missing pairs filled with a shortest path
+     * @param unreachablePairs the number of missing pairs without any path
+     */
+    public record Result(long filledPairs, long unreachablePairs) {}
+
+    private record Arcs(int[] targets, double[] meters, long[] seconds) {}
+
+    private record Paths(int source, int[] targets, double[] meters, long[] seconds, long unreachable) {}
+
+    private record Label(int node, long seconds, double meters) {}
+
+    /**
+     * Fill the missing pairs of a distance matrix, running one shortest path search per origin zip code on a
+     * fork-join pool. The distance to a zip code itself is never filled.
+     *
+     * @param distanceMatrix the distance matrix to complete
+     * @param parallelism    the number of threads searching the shortest paths
+     * @return the number of filled and unreachable pairs
+     * @throws InterruptedException if the thread is interrupted while waiting for the searches
+     */
+    public static Result complete(DistanceMatrix distanceMatrix, int parallelism) throws InterruptedException {
+        long start = System.nanoTime();
+        List<Zip> zips = new ArrayList<>(distanceMatrix.zips());
+        Map<Zip, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < zips.size(); ++i) indexes.put(zips.get(i), i);
+
+        Arcs[] graph = new Arcs[zips.size()];
+        for (int i = 0; i < zips.size(); ++i) {
+            Zip from = zips.get(i);
+            List<Zip> destinations = distanceMatrix.destinations(from).stream()
+                    .filter(to -> !to.equals(from))
+                    .toList();
+            int[] targets = new int[destinations.size()];
+            double[] meters = new double[destinations.size()];
+            long[] seconds = new long[destinations.size()];
+            for (int j = 0; j < targets.length; ++j) {
+                Zip to = destinations.get(j);
+                targets[j] = indexes.get(to);
+                meters[j] = distanceMatrix.distance(from, to).meters();
+                seconds[j] = distanceMatrix.duration(from, to).toSeconds();
+            }
+            graph[i] = new Arcs(targets, meters, seconds);
+        }
+
+        // origins knowing all the other zip codes don't need a search
+        int[] sources = IntStream.range(0, graph.length)
+                .filter(i -> graph[i].targets().length < graph.length - 1)
+                .toArray();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<Paths> paths;
+        try {
+            paths = pool.submit(() -> Arrays.stream(sources)
+                    .parallel()
+                    .mapToObj(source -> shortestPaths(graph, source))
+                    .toList()).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Shortest path search failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        long filledPairs = 0;
+        long unreachablePairs = 0;
+        for (Paths path : paths) {
+            Zip from = zips.get(path.source());
+            for (int j = 0; j < path.targets().length; ++j) {
+                distanceMatrix.setZipData(from, zips.get(path.targets()[j]), Distance.ofMeters(path.meters()[j]),
+                        Duration.ofSeconds(path.seconds()[j]));
+            }
+            filledPairs += path.targets().length;
+            unreachablePairs += path.unreachable();
+        }
+        logger.info(String.format("distance matrix completed in %dms: %d pairs filled, %d unreachable",
+                (System.nanoTime() - start) / 1_000_000, filledPairs, unreachablePairs));
+        return new Result(filledPairs, unreachablePairs);
+    }
+
+    /**
+     * Dijkstra search from one origin, stopped as soon as all the missing destinations are settled.
+     */
+    private static Paths shortestPaths(Arcs[] graph, int source) {
+        boolean[] missing = new boolean[graph.length];
+        Arrays.fill(missing, true);
+        missing[source] = false;
+        for (int target : graph[source].targets()) missing[target] = false;
+        int remaining = 0;
+        for (boolean m : missing) if (m) ++remaining;
+
+        long[] seconds = new long[graph.length];
+        double[] meters = new double[graph.length];
+        boolean[] settled = new boolean[graph.length];
+        Arrays.fill(seconds, Long.MAX_VALUE);
+        seconds[source] = 0;
+
+        List<Label> filled = new ArrayList<>(remaining);
+        PriorityQueue<Label> queue = new PriorityQueue<>(Comparator.comparingLong(Label::seconds)
+                .thenComparingDouble(Label::meters));
+        queue.add(new Label(source, 0, 0));
+        while (!queue.isEmpty() && remaining > 0) {
+            Label label = queue.poll();
+            int node = label.node();
+            if (settled[node]) continue;
+            settled[node] = true;
+            if (missing[node]) {
+                filled.add(label);
+                --remaining;
+            }
+
+            Arcs arcs = graph[node];
+            for (int j = 0; j < arcs.targets().length; ++j) {
+                int target = arcs.targets()[j];
+                if (settled[target]) continue;
+                long targetSeconds = label.seconds() + arcs.seconds()[j];
+                double targetMeters = label.meters() + arcs.meters()[j];
+                if (targetSeconds < seconds[target]
+                        || (targetSeconds == seconds[target] && targetMeters < meters[target])) {
+                    seconds[target] = targetSeconds;
+                    meters[target] = targetMeters;
+                    queue.add(new Label(target, targetSeconds, targetMeters));
+                }
+            }
+        }
+
+        int[] targets = new int[filled.size()];
+        double[] filledMeters = new double[filled.size()];
+        long[] filledSeconds = new long[filled.size()];
+        for (int i = 0; i < filled.size(); ++i) {
+            targets[i] = filled.get(i).node();
+            filledMeters[i] = filled.get(i).meters();
+            filledSeconds[i] = filled.get(i).seconds();
+        }
+        return new Paths(source, targets, filledMeters, filledSeconds, remaining);
+    }
+}
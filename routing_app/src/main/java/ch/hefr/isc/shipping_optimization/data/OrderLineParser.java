@@ -0,0 +1,79 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Parses the lines of an orders file, validating them and enriching them with the weight of the order and the hub
+ * delivery cost of its unloading site.
+ * <p>
+ * A line has the layout of the Orders_clear_NPA.csv file: order id, number of boxes, zip code, time window start,
+ * time window end and unloading site, separated by commas. The parser only reads the weights and the unloading
+ * sites once, so it can parse the lines of a file or of a stream as they come.
+ */
+public class OrderLineParser {
+
+    private final Map<String, Float> orderWeights;
+    private final Map<String, Float> unloadingSites;
+
+    /**
+     * @param orderWeights   the weight of each order id, in kilograms
+     * @param unloadingSites the hub delivery cost per box of each unloading site
+     */
+    public OrderLineParser(Map<String, Float> orderWeights, Map<String, Float> unloadingSites) {
+        this.orderWeights = orderWeights;
+        this.unloadingSites = unloadingSites;
+    }
+
+    /**
+     * Create a parser reading the order weights and the unloading sites files.
+     *
+     * @param csvConfig the csv file config
+     * @return the parser
+     * @throws IOException if an error occurs while reading the files
+     */
+    public static OrderLineParser of(CsvFileConfig csvConfig) throws IOException {
+        return new OrderLineParser(CsvFileParser.orderIdFloatMap(csvConfig.orderWeightsPath(), ";"),
+                CsvFileParser.orderIdFloatMap(csvConfig.unloadingSitesPath(), ","));
+    }
+
+    /**
+     * Parse an order line.
+     *
+     * @param line the line, without the line separator
+     * @return the order
+     * @throws IOException if the line is malformed, or if its zip code, weight or unloading site is unknown
+     */
+    public Order parse(String line) throws IOException {
+        String[] data = line.split(",");
+        if (data.length < 6) throw new IOException("Order line has " + data.length + " columns: " + line);
+
+        TimeWindow timeWindow;
+        int numberBoxes;
+        try {
+            timeWindow = new TimeWindow(LocalTime.parse(data[3]), LocalTime.parse(data[4]));
+            numberBoxes = Integer.parseInt(data[1]);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IOException("Invalid order line " + line, e);
+        }
+
+        if (Zip.isInvalid(data[2]))
+            throw new IOException("Invalid zip code " + data[2] + " in orders file");
+
+        if (!orderWeights.containsKey(data[0]))
+            throw new IOException("Order " + data[0] + " not found in order weights file");
+
+        if (!unloadingSites.containsKey(data[5]))
+            throw new IOException("Order " + data[0] + " not found in unloading sites file");
+
+        return new Order(data[0], Zip.of(data[2]), numberBoxes, timeWindow,
+                Weight.ofKiloGrams(orderWeights.get(data[0])), unloadingSites.get(data[5]));
+    }
+}
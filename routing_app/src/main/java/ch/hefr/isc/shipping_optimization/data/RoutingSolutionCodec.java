@@ -0,0 +1,275 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary encoding of a routing solution.
+ * <p>
+ * The route nodes are written as their index in the data model that was solved, so a solution can only be read
+ * back with the same data model. The integers are written as varints: the departure times as offsets from the
+ * previous departure, in minutes when all the times of the solution are whole minutes like the ones of the solver,
+ * and the dropped orders as increasing index offsets. A route stop usually takes two or three bytes. The reloads of
+ * a route come after its stops, as stop offsets and times relative to the departure before them, so a route still
+ * visits every order at most once between the depot at both ends.
+ */
+public class RoutingSolutionCodec {
+
+    static final int MAGIC = 0x524f5554;
+    static final int VERSION = 3;
+    private static final int MINUTE_TIMES = 1;
+    private static final int WHOLE_METERS = 2;
+
+    /**
+     * Write a solution.
+     *
+     * @param out      the output
+     * @param data     the data model the solution solves
+     * @param solution the solution
+     * @throws IOException if an error occurs while writing
+     */
+    public static void write(DataOutput out, DataModel data, RoutingSolution solution) throws IOException {
+        Map<RouteNode, Integer> indexes = routeNodeIndexes(data);
+        int flags = flags(solution);
+        int unit = (flags & MINUTE_TIMES) != 0 ? 60 : 1;
+        Varints.writeUnsigned(out, VERSION);
+        Varints.writeUnsigned(out, flags);
+        Varints.writeUnsigned(out, solution.routes().size());
+        for (RoutingSolution.Route route : solution.routes()) {
+            Varints.writeUnsigned(out, route.numberOfStops());
+            int previous = 0;
+            for (int i = 0; i < route.numberOfStops(); ++i) {
+                Varints.writeUnsigned(out, indexOf(indexes, route.routeNodes().get(i)));
+                int departure = route.departureTimes().get(i).toSecondOfDay() / unit;
+                Varints.writeSigned(out, departure - previous);
+                previous = departure;
+            }
+            int first = route.numberOfStops() == 0 ? 0 : route.departureTimes().get(0).toSecondOfDay() / unit;
+            Varints.writeSigned(out, route.startTime().toSecondOfDay() / unit - first);
+            Varints.writeSigned(out, route.endTime().toSecondOfDay() / unit - previous);
+            Varints.writeSigned(out, route.monetaryCost());
+            if ((flags & WHOLE_METERS) != 0) Varints.writeUnsigned(out, (long) route.totalDistance().meters());
+            else out.writeDouble(route.totalDistance().meters());
+            Varints.writeUnsigned(out, route.reloads().size());
+            int stop = 0;
+            for (RoutingSolution.Reload reload : route.reloads()) {
+                int before = route.departureTimes().get(reload.stop() - 1).toSecondOfDay() / unit;
+                int arrival = reload.arrival().toSecondOfDay() / unit;
+                Varints.writeUnsigned(out, reload.stop() - stop);
+                Varints.writeSigned(out, arrival - before);
+                Varints.writeSigned(out, reload.departure().toSecondOfDay() / unit - arrival);
+                stop = reload.stop();
+            }
+        }
+        int[] dropped = new int[solution.droppedOrders().size()];
+        int d = 0;
+        for (Order order : solution.droppedOrders()) dropped[d++] = indexOf(indexes, RouteNode.orderNode(order));
+        Arrays.sort(dropped);
+        Varints.writeUnsigned(out, dropped.length);
+        int previous = 0;
+        for (int index : dropped) {
+            Varints.writeUnsigned(out, index - previous);
+            previous = index;
+        }
+    }
+
+    /**
+     * Check if all the times of a solution are whole minutes and all its distances whole meters.
+     */
+    private static int flags(RoutingSolution solution) {
+        boolean minutes = true;
+        boolean meters = true;
+        for (RoutingSolution.Route route : solution.routes()) {
+            minutes &= route.startTime().toSecondOfDay() % 60 == 0 && route.endTime().toSecondOfDay() % 60 == 0
+                    && route.departureTimes().stream().allMatch(time -> time.toSecondOfDay() % 60 == 0)
+                    && route.reloads().stream().allMatch(reload -> reload.arrival().toSecondOfDay() % 60 == 0
+                            && reload.departure().toSecondOfDay() % 60 == 0);
+            double distance = route.totalDistance().meters();
+            meters &= distance >= 0 && distance == Math.rint(distance);
+        }
+        return (minutes ? MINUTE_TIMES : 0) | (meters ? WHOLE_METERS : 0);
+    }
+
+    /**
+     * Read a solution.
+     *
+     * @param in   the input
+     * @param data the data model the solution was written with
+     * @return the solution
+     * @throws IOException if an error occurs while reading, if a route node index is out of the data model or if a
+     *                     reload is not between two stops
+     */
+    public static RoutingSolution read(DataInput in, DataModel data) throws IOException {
+        int flags = readFlags(in);
+        int unit = (flags & MINUTE_TIMES) != 0 ? 60 : 1;
+        try {
+            int numberRoutes = Varints.readCount(in, data.config().numberVehicles());
+            List<RoutingSolution.Route> routes = new ArrayList<>(numberRoutes);
+            for (int r = 0; r < numberRoutes; ++r) {
+                // every order at most once, between the depot at both ends
+                int numberStops = Varints.readCount(in, data.numberRouteNodes() + 1);
+                List<RouteNode> routeNodes = new ArrayList<>(numberStops);
+                List<LocalTime> departureTimes = new ArrayList<>(numberStops);
+                int previous = 0;
+                int first = 0;
+                for (int i = 0; i < numberStops; ++i) {
+                    routeNodes.add(routeNodeAt(data, Varints.readUnsignedInt(in)));
+                    previous += Varints.readSignedInt(in);
+                    if (i == 0) first = previous;
+                    departureTimes.add(LocalTime.ofSecondOfDay((long) previous * unit));
+                }
+                LocalTime startTime = LocalTime.ofSecondOfDay((long) (first + Varints.readSignedInt(in)) * unit);
+                LocalTime endTime = LocalTime.ofSecondOfDay((long) (previous + Varints.readSignedInt(in)) * unit);
+                long monetaryCost = Varints.readSigned(in);
+                Distance totalDistance = Distance.ofMeters((flags & WHOLE_METERS) != 0
+                        ? Varints.readUnsigned(in)
+                        : in.readDouble());
+                int numberReloads = Varints.readCount(in, numberStops);
+                List<RoutingSolution.Reload> reloads = new ArrayList<>(numberReloads);
+                int stop = 0;
+                for (int i = 0; i < numberReloads; ++i) {
+                    stop += Varints.readUnsignedInt(in);
+                    if (stop < 1 || stop >= numberStops) throw new IOException("Invalid reload before stop " + stop);
+                    int arrival = departureTimes.get(stop - 1).toSecondOfDay() / unit + Varints.readSignedInt(in);
+                    int departure = arrival + Varints.readSignedInt(in);
+                    reloads.add(new RoutingSolution.Reload(stop, LocalTime.ofSecondOfDay((long) arrival * unit),
+                            LocalTime.ofSecondOfDay((long) departure * unit)));
+                }
+                routes.add(new RoutingSolution.Route(routeNodes, departureTimes, startTime, endTime, monetaryCost,
+                        totalDistance, data.config().depotZip(), reloads));
+            }
+            int numberDropped = Varints.readCount(in, data.numberRouteNodes() - 1);
+            Set<Order> droppedOrders = new HashSet<>();
+            int index = 0;
+            for (int i = 0; i < numberDropped; ++i) {
+                index += Varints.readUnsignedInt(in);
+                droppedOrders.add(routeNodeAt(data, index).order());
+            }
+            return new RoutingSolution(routes, droppedOrders);
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid solution time", e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid solution route", e);
+        }
+    }
+
+    /**
+     * Read only the route node indexes of a written solution, without the depot, the trips of a route being
+     * concatenated. Unlike {@link #read}, this doesn't
+     * need the data model, so the routes of a solution can be mapped onto another data model.
+     *
+     * @param in               the input
+     * @param numberRouteNodes the number of route nodes of the data model the solution was written with
+     * @return the route node indexes for each vehicle
+     * @throws IOException if an error occurs while reading or if a route has more stops than route nodes
+     */
+    public static long[][] readRouteIndexes(DataInput in, int numberRouteNodes) throws IOException {
+        int flags = readFlags(in);
+        // the number of vehicles is unknown, so the routes are not allocated before being read
+        int numberRoutes = Varints.readUnsignedInt(in);
+        List<long[]> routes = new ArrayList<>();
+        for (int r = 0; r < numberRoutes; ++r) {
+            int numberStops = Varints.readCount(in, numberRouteNodes + 1);
+            long[] route = new long[numberStops];
+            int length = 0;
+            for (int i = 0; i < numberStops; ++i) {
+                int index = Varints.readUnsignedInt(in);
+                Varints.readSigned(in);
+                if (index != 0) route[length++] = index;
+            }
+            // start and end times, monetary cost and distance
+            Varints.readSigned(in);
+            Varints.readSigned(in);
+            Varints.readSigned(in);
+            if ((flags & WHOLE_METERS) != 0) Varints.readUnsigned(in);
+            else in.readDouble();
+            int numberReloads = Varints.readCount(in, numberStops);
+            for (int i = 0; i < numberReloads; ++i) {
+                Varints.readUnsigned(in);
+                Varints.readSigned(in);
+                Varints.readSigned(in);
+            }
+            routes.add(Arrays.copyOf(route, length));
+        }
+        return routes.toArray(long[][]::new);
+    }
+
+    private static int readFlags(DataInput in) throws IOException {
+        int version = Varints.readUnsignedInt(in);
+        if (version != VERSION) throw new IOException("Unsupported solution encoding version " + version);
+        return Varints.readUnsignedInt(in);
+    }
+
+    /**
+     * Write a solution file. The file is replaced atomically.
+     *
+     * @param path     the path of the file
+     * @param data     the data model the solution solves
+     * @param solution the solution
+     * @throws IOException if an error occurs while writing the file
+     */
+    public static void write(Path path, DataModel data, RoutingSolution solution) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            write(out, data, solution);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a solution file.
+     *
+     * @param path the path of the file
+     * @param data the data model the solution was written with
+     * @return the solution
+     * @throws IOException if an error occurs while reading the file or if the file is invalid
+     */
+    public static RoutingSolution read(Path path, DataModel data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a solution file " + path);
+            return read(in, data);
+        }
+    }
+
+    private static Map<RouteNode, Integer> routeNodeIndexes(DataModel data) {
+        Map<RouteNode, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < data.numberRouteNodes(); ++i) indexes.putIfAbsent(data.routeNodeAt(i), i);
+        return indexes;
+    }
+
+    private static int indexOf(Map<RouteNode, Integer> indexes, RouteNode node) throws IOException {
+        Integer index = indexes.get(node);
+        if (index == null) throw new IOException("Route node " + node.zip() + " is not part of the data model");
+        return index;
+    }
+
+    private static RouteNode routeNodeAt(DataModel data, int index) throws IOException {
+        if (index < 0 || index >= data.numberRouteNodes())
+            throw new IOException("Route node index " + index + " is out of the data model");
+        return data.routeNodeAt(index);
+    }
+}
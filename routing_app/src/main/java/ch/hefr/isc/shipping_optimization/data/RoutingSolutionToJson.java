@@ -30,7 +30,17 @@ public class RoutingSolutionToJson {
             routeJson.put("totalNumberBoxes", route.totalNumberBoxes());
 
             JSONArray routeNodes = new JSONArray();
+            int reload = 0;
             for (int j = 0; j < route.routeNodes().size(); j++) {
+                if (reload < route.reloads().size() && route.reloads().get(reload).stop() == j) {
+                    RoutingSolution.Reload depot = route.reloads().get(reload++);
+                    JSONObject reloadJson = new JSONObject();
+                    reloadJson.put("type", "depot");
+                    reloadJson.put("zip", route.depotZip());
+                    reloadJson.put("arrivalTime", depot.arrival());
+                    reloadJson.put("departureTime", depot.departure());
+                    routeNodes.put(reloadJson);
+                }
                 RouteNode routeNode = route.routeNodes().get(j);
                 JSONObject routeNodeJson = new JSONObject();
                 if (routeNode.isDepot()) {
@@ -0,0 +1,62 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.SearchProfile;
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Reads and writes a search profile and its solver time limit as a json file.
+ */
+public class SearchProfileFile {
+
+    /**
+     * Write the search profile file.
+     *
+     * @param path            the path of the file
+     * @param profile         the search profile
+     * @param solverTimeLimit the solver time limit the profile was tuned for
+     * @throws IOException if an error occurs while writing the file
+     */
+    public static void write(Path path, SearchProfile profile, Duration solverTimeLimit) throws IOException {
+        JSONObject json = new JSONObject();
+        json.put("firstSolutionStrategy", profile.firstSolutionStrategy().name());
+        json.put("localSearchMetaheuristic", profile.localSearchMetaheuristic().name());
+        json.put("useLnsOperators", profile.useLnsOperators());
+        json.put("lnsTimeLimitMillis", profile.lnsTimeLimit().toMillis());
+        json.put("solverTimeLimitMillis", solverTimeLimit.toMillis());
+        Files.writeString(path, json.toString(4));
+    }
+
+    /**
+     * Read the search profile file and apply it to a routing config.
+     *
+     * @param path   the path of the file
+     * @param config the routing config to apply the profile to
+     * @return the routing config with the search profile and the solver time limit of the file
+     * @throws IOException if an error occurs while reading the file or if the file is invalid
+     */
+    public static RoutingConfig read(Path path, RoutingConfig config) throws IOException {
+        try {
+            JSONObject json = new JSONObject(Files.readString(path));
+            SearchProfile profile = new SearchProfile(
+                    FirstSolutionStrategy.Value.valueOf(json.getString("firstSolutionStrategy")),
+                    LocalSearchMetaheuristic.Value.valueOf(json.getString("localSearchMetaheuristic")),
+                    json.getBoolean("useLnsOperators"),
+                    Duration.ofMillis(json.getLong("lnsTimeLimitMillis")));
+            return config.toBuilder()
+                    .setSearchProfile(profile)
+                    .setSolverTimeLimit(Duration.ofMillis(json.getLong("solverTimeLimitMillis")))
+                    .build();
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new IOException("Invalid search profile file " + path, e);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Travel durations depending on the time of day, for the zip pairs slowed down by the traffic.
+ * <p>
+ * The day is split in slots of equal length, and only the slots between the first and the last slot of the file
+ * are stored. The durations are kept in a single array of 16 bits seconds, the slots of a pair being contiguous,
+ * and the pairs are found with an open addressing table on the zip indexes, so a lookup doesn't allocate nor
+ * follow any reference. The slots without a duration use the static duration of the distance table.
+ */
+public class TravelTimeSlots {
+
+    private static final char NO_DURATION = Character.MAX_VALUE;
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int EMPTY = -1;
+
+    private final int slotSeconds;
+    private final int firstSlot;
+    private final int numberSlots;
+    private final Map<Zip, Integer> zipIndexes;
+    // open addressing table from the pair key to the pair row
+    private final int[] pairKeys;
+    private final int[] pairRows;
+    private final int mask;
+    // the durations in seconds of the pair of row r are at r * numberSlots + slot - firstSlot
+    private final char[] seconds;
+
+    private TravelTimeSlots(int slotSeconds, int firstSlot, int numberSlots, Map<Zip, Integer> zipIndexes,
+                            int[] pairKeys, int[] pairRows, char[] seconds) {
+        this.slotSeconds = slotSeconds;
+        this.firstSlot = firstSlot;
+        this.numberSlots = numberSlots;
+        this.zipIndexes = zipIndexes;
+        this.pairKeys = pairKeys;
+        this.pairRows = pairRows;
+        this.mask = pairKeys.length - 1;
+        this.seconds = seconds;
+    }
+
+    private record Line(int from, int to, int slot, char seconds) {}
+
+    /**
+     * Parse the travel time slots file. The file has a header line, then one line per zip pair and slot with the
+     * origin zip, the destination zip, the start of the slot as HH:mm and the duration in minutes, separated by
+     * semicolons.
+     *
+     * @param path       the path of the file
+     * @param slotLength the length of the slots, dividing a day
+     * @return the travel time slots
+     * @throws IOException              if an error occurs while reading the file or if a line is invalid
+     * @throws IllegalArgumentException if the slot length doesn't divide a day
+     */
+    public static TravelTimeSlots parse(Path path, Duration slotLength) throws IOException, IllegalArgumentException {
+        int slotSeconds = (int) slotLength.toSeconds();
+        if (slotSeconds <= 0 || SECONDS_PER_DAY % slotSeconds != 0)
+            throw new IllegalArgumentException("Slot length " + slotLength + " doesn't divide a day");
+
+        List<String> lines = Files.readAllLines(path);
+        lines.remove(0);
+
+        Map<String, Integer> zipIndexes = new HashMap<>();
+        List<Zip> zips = new ArrayList<>();
+        List<Line> parsed = new ArrayList<>(lines.size());
+        int firstSlot = Integer.MAX_VALUE;
+        int lastSlot = Integer.MIN_VALUE;
+        for (String line : lines) {
+            if (line.isBlank()) continue;
+            String[] data = line.split(";");
+            if (data.length != 4) throw new IOException("Invalid travel time slot line: " + line);
+            try {
+                int from = zipIndex(data[0], zipIndexes, zips);
+                int to = zipIndex(data[1], zipIndexes, zips);
+                int slot = LocalTime.parse(data[2]).toSecondOfDay() / slotSeconds;
+                long value = Math.round(Double.parseDouble(data[3]) * 60);
+                if (value < 0 || value >= NO_DURATION)
+                    throw new IOException("Travel time out of range: " + line);
+                parsed.add(new Line(from, to, slot, (char) value));
+                firstSlot = Math.min(firstSlot, slot);
+                lastSlot = Math.max(lastSlot, slot);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IOException("Invalid travel time slot line: " + line, e);
+            }
+        }
+        if (parsed.isEmpty()) firstSlot = lastSlot = 0;
+        return of(slotSeconds, firstSlot, lastSlot - firstSlot + 1, zips, parsed);
+    }
+
+    private static TravelTimeSlots of(int slotSeconds, int firstSlot, int numberSlots, List<Zip> zips,
+                                      List<Line> parsed) {
+        // sized for pairs with a duration in every slot, grown when the pairs have sparser slots
+        int[] pairKeys = new int[Integer.highestOneBit(Math.max(2, 2 * parsed.size() / numberSlots + 1)) << 1];
+        int[] pairRows = new int[pairKeys.length];
+        Arrays.fill(pairKeys, EMPTY);
+        int numberRows = 0;
+        char[] seconds = new char[16 * numberSlots];
+        for (Line line : parsed) {
+            int key = line.from() * zips.size() + line.to();
+            int position = find(pairKeys, pairKeys.length - 1, key);
+            if (pairKeys[position] == EMPTY) {
+                // the table is kept at most half full
+                if (2 * (numberRows + 1) > pairKeys.length) {
+                    int[] oldKeys = pairKeys;
+                    int[] oldRows = pairRows;
+                    pairKeys = new int[2 * oldKeys.length];
+                    pairRows = new int[pairKeys.length];
+                    Arrays.fill(pairKeys, EMPTY);
+                    for (int p = 0; p < oldKeys.length; ++p) {
+                        if (oldKeys[p] == EMPTY) continue;
+                        int moved = find(pairKeys, pairKeys.length - 1, oldKeys[p]);
+                        pairKeys[moved] = oldKeys[p];
+                        pairRows[moved] = oldRows[p];
+                    }
+                    position = find(pairKeys, pairKeys.length - 1, key);
+                }
+                pairKeys[position] = key;
+                pairRows[position] = numberRows++;
+                if (numberRows * numberSlots > seconds.length)
+                    seconds = Arrays.copyOf(seconds, 2 * seconds.length);
+                Arrays.fill(seconds, (numberRows - 1) * numberSlots, numberRows * numberSlots, NO_DURATION);
+            }
+            seconds[pairRows[position] * numberSlots + line.slot() - firstSlot] = line.seconds();
+        }
+
+        Map<Zip, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < zips.size(); ++i) indexes.put(zips.get(i), i);
+        return new TravelTimeSlots(slotSeconds, firstSlot, numberSlots, indexes, pairKeys, pairRows,
+                Arrays.copyOf(seconds, numberRows * numberSlots));
+    }
+
+    private static int zipIndex(String zip, Map<String, Integer> zipIndexes, List<Zip> zips) {
+        Integer index = zipIndexes.get(zip);
+        if (index != null) return index;
+        zips.add(Zip.of(zip));
+        zipIndexes.put(zip, zips.size() - 1);
+        return zips.size() - 1;
+    }
+
+    private static int find(int[] keys, int mask, int key) {
+        int position = (key * 0x9e3779b9) >>> 7 & mask;
+        while (keys[position] != EMPTY && keys[position] != key) position = (position + 1) & mask;
+        return position;
+    }
+
+    public Duration slotLength() {
+        return Duration.ofSeconds(slotSeconds);
+    }
+
+    /**
+     * Get the travel duration between two zip codes when leaving at a given time.
+     *
+     * @param from           the origin zip code
+     * @param to             the destination zip code
+     * @param departure      the departure time
+     * @param staticDuration the duration to use if the pair has no duration in the slot of the departure
+     * @return the travel duration
+     */
+    public Duration duration(Zip from, Zip to, LocalTime departure, Duration staticDuration) {
+        int slot = departure.toSecondOfDay() / slotSeconds - firstSlot;
+        if (slot < 0 || slot >= numberSlots) return staticDuration;
+        Integer fromIndex = zipIndexes.get(from);
+        Integer toIndex = zipIndexes.get(to);
+        if (fromIndex == null || toIndex == null) return staticDuration;
+
+        int position = find(pairKeys, mask, fromIndex * zipIndexes.size() + toIndex);
+        if (pairKeys[position] == EMPTY) return staticDuration;
+        char value = seconds[pairRows[position] * numberSlots + slot];
+        return value == NO_DURATION ? staticDuration : Duration.ofSeconds(value);
+    }
+
+    /**
+     * Write the durations of the pairs of some zip codes, sorted by zip codes, so that the same durations are
+     * written the same whatever the order of the lines of the file they were parsed from.
+     *
+     * @param out  the output
+     * @param zips the zip codes whose pairs are written
+     * @throws IOException if an error occurs while writing
+     */
+    public void write(DataOutput out, Set<Zip> zips) throws IOException {
+        Zip[] indexedZips = new Zip[zipIndexes.size()];
+        zipIndexes.forEach((zip, index) -> indexedZips[index] = zip);
+        // the zip codes of each pair and its row
+        List<int[]> pairs = new ArrayList<>();
+        for (int position = 0; position < pairKeys.length; ++position) {
+            if (pairKeys[position] == EMPTY) continue;
+            Zip from = indexedZips[pairKeys[position] / indexedZips.length];
+            Zip to = indexedZips[pairKeys[position] % indexedZips.length];
+            if (zips.contains(from) && zips.contains(to))
+                pairs.add(new int[]{Integer.parseInt(from.toString()), Integer.parseInt(to.toString()),
+                        pairRows[position]});
+        }
+        pairs.sort(Comparator.<int[]>comparingInt(pair -> pair[0]).thenComparingInt(pair -> pair[1]));
+
+        Varints.writeUnsigned(out, slotSeconds);
+        Varints.writeUnsigned(out, firstSlot);
+        Varints.writeUnsigned(out, numberSlots);
+        Varints.writeUnsigned(out, pairs.size());
+        for (int[] pair : pairs) {
+            Varints.writeUnsigned(out, pair[0]);
+            Varints.writeUnsigned(out, pair[1]);
+            for (int slot = 0; slot < numberSlots; ++slot)
+                Varints.writeUnsigned(out, seconds[pair[2] * numberSlots + slot]);
+        }
+    }
+
+    /**
+     * Read the durations written by {@link #write(DataOutput, Set)}.
+     *
+     * @param in the input
+     * @return the travel time slots
+     * @throws IOException if an error occurs while reading or if the slots are invalid
+     */
+    public static TravelTimeSlots read(DataInput in) throws IOException {
+        int slotSeconds = Varints.readUnsignedInt(in);
+        if (slotSeconds == 0 || SECONDS_PER_DAY % slotSeconds != 0)
+            throw new IOException("Invalid travel time slot length " + slotSeconds);
+        int firstSlot = Varints.readCount(in, SECONDS_PER_DAY / slotSeconds - 1);
+        int numberSlots = Varints.readCount(in, SECONDS_PER_DAY / slotSeconds - firstSlot);
+        if (numberSlots == 0) throw new IOException("No travel time slot");
+        int numberPairs = Varints.readUnsignedInt(in);
+
+        Map<String, Integer> zipIndexes = new HashMap<>();
+        List<Zip> zips = new ArrayList<>();
+        List<Line> lines = new ArrayList<>();
+        try {
+            for (int i = 0; i < numberPairs; ++i) {
+                int from = zipIndex(String.valueOf(Varints.readUnsignedInt(in)), zipIndexes, zips);
+                int to = zipIndex(String.valueOf(Varints.readUnsignedInt(in)), zipIndexes, zips);
+                for (int slot = 0; slot < numberSlots; ++slot) {
+                    int value = Varints.readCount(in, NO_DURATION);
+                    if (value != NO_DURATION) lines.add(new Line(from, to, firstSlot + slot, (char) value));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid travel time slots", e);
+        }
+        return of(slotSeconds, firstSlot, numberSlots, zips, lines);
+    }
+
+    public int numberPairs() {
+        return seconds.length / numberSlots;
+    }
+
+    /**
+     * Estimate the heap memory used by the slots.
+     *
+     * @return the estimated size in bytes
+     */
+    public long memoryBytes() {
+        return 2L * seconds.length + 8L * pairKeys.length + 48L * zipIndexes.size();
+    }
+}
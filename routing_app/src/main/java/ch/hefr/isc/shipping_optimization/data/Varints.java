@@ -0,0 +1,77 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length encoding of integers used by the binary codecs: seven bits per byte, the lowest bits first, the
+ * high bit of a byte telling if another byte follows. Small values take a single byte. Signed values are zigzag
+ * encoded first, so small negative values are short too.
+ */
+final class Varints {
+
+    private static final int MAX_BYTES = 10;
+
+    private Varints() {}
+
+    static void writeUnsigned(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static void writeSigned(DataOutput out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * @throws IOException if an error occurs while reading or if the varint is longer than ten bytes
+     */
+    static long readUnsigned(DataInput in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < MAX_BYTES; ++i) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7f) << (7 * i);
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readSigned(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Read an unsigned varint which has to fit in an int, like a count or an index.
+     *
+     * @throws IOException if an error occurs while reading or if the value doesn't fit in an int
+     */
+    static int readUnsignedInt(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        if (value < 0 || value > Integer.MAX_VALUE) throw new IOException("Varint " + value + " is not an int");
+        return (int) value;
+    }
+
+    /**
+     * Read a count of elements about to be read or allocated, so that a corrupt input can't exhaust the memory.
+     *
+     * @param max the largest valid count
+     * @throws IOException if an error occurs while reading or if the count is larger than max
+     */
+    static int readCount(DataInput in, int max) throws IOException {
+        int count = readUnsignedInt(in);
+        if (count > max) throw new IOException("Count " + count + " is larger than " + max);
+        return count;
+    }
+
+    static int readSignedInt(DataInput in) throws IOException {
+        long value = readSigned(in);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw new IOException("Varint " + value + " is not an int");
+        return (int) value;
+    }
+}
@@ -0,0 +1,67 @@
+package ch.hefr.isc.shipping_optimization.intake;
+
+import java.time.Duration;
+
+/**
+ * Configuration of the order intake.
+ *
+ * @param queueCapacity           the number of accepted orders waiting for a re-optimization above which the sources
+ *                                are blocked
+ * @param maxBatchOrders          the number of new orders re-optimized at once
+ * @param maxBatchDelay           the longest time an order waits for other orders before being re-optimized
+ * @param reoptimizationTimeLimit the solver time limit of a re-optimization
+ */
+public record IntakeConfig(int queueCapacity, int maxBatchOrders, Duration maxBatchDelay,
+                           Duration reoptimizationTimeLimit) {
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final int DEFAULT_MAX_BATCH_ORDERS = 200;
+    private static final Duration DEFAULT_MAX_BATCH_DELAY = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_REOPTIMIZATION_TIME_LIMIT = Duration.ofSeconds(10);
+
+    public static IntakeConfigBuilder builder() {
+        return new IntakeConfigBuilder();
+    }
+
+    public IntakeConfigBuilder toBuilder() {
+        return new IntakeConfigBuilder()
+                .setQueueCapacity(queueCapacity)
+                .setMaxBatchOrders(maxBatchOrders)
+                .setMaxBatchDelay(maxBatchDelay)
+                .setReoptimizationTimeLimit(reoptimizationTimeLimit);
+    }
+
+    public static class IntakeConfigBuilder {
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private int maxBatchOrders = DEFAULT_MAX_BATCH_ORDERS;
+        private Duration maxBatchDelay = DEFAULT_MAX_BATCH_DELAY;
+        private Duration reoptimizationTimeLimit = DEFAULT_REOPTIMIZATION_TIME_LIMIT;
+
+        private IntakeConfigBuilder() {}
+
+        public IntakeConfig build() {
+            if (queueCapacity < 1 || maxBatchOrders < 1)
+                throw new IllegalArgumentException("The queue capacity and the batch size have to be positive");
+            return new IntakeConfig(queueCapacity, maxBatchOrders, maxBatchDelay, reoptimizationTimeLimit);
+        }
+
+        public IntakeConfigBuilder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public IntakeConfigBuilder setMaxBatchOrders(int maxBatchOrders) {
+            this.maxBatchOrders = maxBatchOrders;
+            return this;
+        }
+
+        public IntakeConfigBuilder setMaxBatchDelay(Duration maxBatchDelay) {
+            this.maxBatchDelay = maxBatchDelay;
+            return this;
+        }
+
+        public IntakeConfigBuilder setReoptimizationTimeLimit(Duration reoptimizationTimeLimit) {
+            this.reoptimizationTimeLimit = reoptimizationTimeLimit;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package ch.hefr.isc.shipping_optimization.intake;
+
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.data.OrderLineParser;
+import ch.hefr.isc.shipping_optimization.metrics.RoutingMetrics;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Receives orders while the day goes on and keeps a plan of all of them up to date.
+ * <p>
+ * The order lines come from an orders file being appended to, see {@link #tail(Path, Duration)}, from a local socket,
+ * see {@link #listen(int)}, or directly from {@link #submit(String)}. Each line is validated and enriched by the
+ * {@link OrderLineParser}, the invalid lines and the duplicated order ids are rejected. The accepted orders are
+ * grouped in micro-batches, closed when they reach {@link IntakeConfig#maxBatchOrders()} orders or when their first
+ * order waited {@link IntakeConfig#maxBatchDelay()}, and each batch triggers a re-optimization of all the orders,
+ * bounded by {@link IntakeConfig#reoptimizationTimeLimit()} and starting from the routes of the previous plan. The
+ * new orders are appended to the model, so the route node indexes of the previous plan are still valid.
+ * <p>
+ * Only one re-optimization runs at a time. While it runs, the orders received wait in a queue, and once the queue
+ * holds {@link IntakeConfig#queueCapacity()} orders the sources are blocked until the next batch is taken, so a burst
+ * of orders slows down the sources instead of growing the memory.
+ */
+public class OrderIntake implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(OrderIntake.class.getName());
+
+    private final DistanceTable distanceMatrix;
+    private final RoutingConfig config;
+    private final OrderLineParser parser;
+    private final IntakeConfig intakeConfig;
+    private final BlockingQueue<Order> queue;
+    private final Set<String> orderIds = ConcurrentHashMap.newKeySet();
+    private final List<Thread> threads = new CopyOnWriteArrayList<>();
+    private final List<ServerSocket> serverSockets = new CopyOnWriteArrayList<>();
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<RoutingSolution>> planListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger numberAccepted = new AtomicInteger();
+    private final AtomicInteger numberRejected = new AtomicInteger();
+    // only used by the batcher thread
+    private final List<Order> plannedOrders = new ArrayList<>();
+    private long[][] routes;
+    private volatile RoutingSolver solver;
+    private volatile RoutingSolution plan;
+    private volatile int numberPlanned;
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    /**
+     * @param distanceMatrix the distances and durations between all the zip codes the orders can have
+     * @param config         the routing config, its solver time limit is replaced by the re-optimization time limit
+     * @param parser         the parser of the order lines
+     * @param intakeConfig   the intake config
+     */
+    public OrderIntake(DistanceTable distanceMatrix, RoutingConfig config, OrderLineParser parser,
+                       IntakeConfig intakeConfig) {
+        this.distanceMatrix = distanceMatrix;
+        this.config = config.toBuilder().setSolverTimeLimit(intakeConfig.reoptimizationTimeLimit()).build();
+        this.parser = parser;
+        this.intakeConfig = intakeConfig;
+        this.queue = new LinkedBlockingQueue<>(intakeConfig.queueCapacity());
+    }
+
+    /**
+     * Start the re-optimizations of the batches of orders.
+     *
+     * @throws IllegalStateException if the intake is closed or already started
+     */
+    public synchronized void start() throws IllegalStateException {
+        if (closed) throw new IllegalStateException("Intake is closed.");
+        if (started) throw new IllegalStateException("Intake is already started.");
+        started = true;
+        startThread(this::batch, "order-intake-batcher");
+    }
+
+    /**
+     * Add a listener called with the new plan after each re-optimization, from the re-optimization thread.
+     *
+     * @param listener the listener
+     */
+    public void addPlanListener(Consumer<RoutingSolution> listener) {
+        planListeners.add(listener);
+    }
+
+    /**
+     * Parse an order line and queue the order for the next re-optimization, waiting for room in the queue if it is
+     * full.
+     *
+     * @param line the order line, in the layout of the orders file
+     * @return true if the order was accepted, false if the line is invalid or the order id was already received
+     * @throws InterruptedException  if interrupted while waiting for room in the queue
+     * @throws IllegalStateException if the intake is closed
+     */
+    public boolean submit(String line) throws InterruptedException, IllegalStateException {
+        if (closed) throw new IllegalStateException("Intake is closed.");
+        Order order;
+        try {
+            order = parser.parse(line.strip());
+        } catch (IOException e) {
+            reject(e.getMessage());
+            return false;
+        }
+        if (!orderIds.add(order.id())) {
+            reject("Order " + order.id() + " was already received");
+            return false;
+        }
+        try {
+            queue.put(order);
+        } catch (InterruptedException e) {
+            // the order was not queued, so it can be sent again
+            orderIds.remove(order.id());
+            throw e;
+        }
+        numberAccepted.incrementAndGet();
+        RoutingMetrics.INTAKE_ACCEPTED.increment();
+        RoutingMetrics.INTAKE_QUEUED.set(queue.size());
+        return true;
+    }
+
+    private void reject(String reason) {
+        numberRejected.incrementAndGet();
+        RoutingMetrics.INTAKE_REJECTED.increment();
+        logger.warning("order rejected: " + reason);
+    }
+
+    /**
+     * Follow an orders file, submitting the lines appended to it. The header line is skipped, and a line is only
+     * submitted once its line separator is written. The file doesn't have to exist yet, and it is read again from the
+     * start if it is truncated.
+     *
+     * @param file         the orders file
+     * @param pollInterval the time between two checks for new lines
+     */
+    public void tail(Path file, Duration pollInterval) {
+        startThread(() -> tailFile(file, pollInterval), "order-intake-tail-" + file.getFileName());
+    }
+
+    private void tailFile(Path file, Duration pollInterval) {
+        long position = 0;
+        boolean header = true;
+        ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!closed) {
+            try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+                if (in.length() < position) {
+                    logger.info("orders file " + file + " was truncated, reading it again");
+                    position = 0;
+                    header = true;
+                    partialLine.reset();
+                }
+                in.seek(position);
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    position += read;
+                    for (int i = 0; i < read; ++i) {
+                        if (buffer[i] != '\n') {
+                            partialLine.write(buffer[i]);
+                            continue;
+                        }
+                        String line = partialLine.toString(StandardCharsets.UTF_8);
+                        partialLine.reset();
+                        if (header) header = false;
+                        else if (!line.isBlank()) submit(line);
+                    }
+                }
+            } catch (IOException e) {
+                // the file may not be created yet
+                logger.fine("cannot read orders file " + file + ": " + e.getMessage());
+            } catch (InterruptedException | IllegalStateException e) {
+                return;
+            }
+            try {
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Accept connections on a local port, each of them sending order lines, without header.
+     *
+     * @param port the port, 0 for any free port
+     * @return the port listened to
+     * @throws IOException if the socket cannot be opened
+     */
+    public int listen(int port) throws IOException {
+        if (closed) throw new IllegalStateException("Intake is closed.");
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        serverSockets.add(serverSocket);
+        startThread(() -> acceptConnections(serverSocket), "order-intake-acceptor-" + serverSocket.getLocalPort());
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections(ServerSocket serverSocket) {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                startThread(() -> readConnection(socket), "order-intake-connection-" + socket.getPort());
+            } catch (IOException e) {
+                if (!closed) logger.warning("order connection failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void readConnection(Socket socket) {
+        try (socket; BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while (!closed && (line = in.readLine()) != null)
+                if (!line.isBlank()) submit(line);
+        } catch (IOException e) {
+            if (!closed) logger.warning("order connection failed: " + e.getMessage());
+        } catch (InterruptedException | IllegalStateException ignored) {
+            // closed while waiting for room in the queue
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Take the batches of orders from the queue and re-optimize the plan after each of them.
+     */
+    private void batch() {
+        List<Order> batch = new ArrayList<>();
+        long delayNanos = intakeConfig.maxBatchDelay().toNanos();
+        while (!closed) {
+            try {
+                Order first = queue.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + delayNanos;
+                while (batch.size() < intakeConfig.maxBatchOrders()) {
+                    queue.drainTo(batch, intakeConfig.maxBatchOrders() - batch.size());
+                    if (batch.size() >= intakeConfig.maxBatchOrders()) break;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Order next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            RoutingMetrics.INTAKE_QUEUED.set(queue.size());
+            try {
+                reoptimize(batch);
+            } catch (RuntimeException e) {
+                // the next batch starts again from the last plan, like when no plan is found
+                solver = null;
+                logger.warning(String.format("re-optimization with %d new orders failed: %s", batch.size(), e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void reoptimize(List<Order> batch) {
+        plannedOrders.addAll(batch);
+        RoutingMetrics.INTAKE_BATCH_ORDERS.observe(batch.size());
+        RoutingSolver solver = new RoutingSolver(new CsvFileDataModel(new ArrayList<>(plannedOrders), distanceMatrix,
+                config));
+        this.solver = solver;
+        if (closed) return;
+        solver.solve(routes);
+        this.solver = null;
+        if (!solver.hasSolution()) {
+            // the next batch starts again from the last plan, which doesn't visit the new orders
+            logger.warning(String.format("no plan found with %d new orders, %d orders in total", batch.size(),
+                    plannedOrders.size()));
+            return;
+        }
+        routes = solver.routes();
+        RoutingSolution solution = solver.solution();
+        plan = solution;
+        numberPlanned = plannedOrders.size();
+        logger.info(String.format("plan updated with %d new orders: %d orders, %d dropped, cost %.2f",
+                batch.size(), plannedOrders.size(), solution.droppedOrders().size(),
+                solution.totalMonetaryCost()));
+        for (Consumer<RoutingSolution> listener : planListeners) listener.accept(solution);
+    }
+
+    /**
+     * Get the last plan, covering the orders of all the batches re-optimized so far.
+     *
+     * @return the plan, empty before the first re-optimization
+     */
+    public Optional<RoutingSolution> plan() {
+        return Optional.ofNullable(plan);
+    }
+
+    public int numberAccepted() {
+        return numberAccepted.get();
+    }
+
+    public int numberRejected() {
+        return numberRejected.get();
+    }
+
+    /**
+     * Get the number of orders covered by the last plan, routed or dropped.
+     *
+     * @return the number of orders
+     */
+    public int numberPlanned() {
+        return numberPlanned;
+    }
+
+    /**
+     * Stop the sources and the re-optimizations. The orders still queued are not planned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        RoutingSolver running = solver;
+        if (running != null) running.stop();
+        List<AutoCloseable> sockets = new ArrayList<>(serverSockets);
+        sockets.addAll(connections);
+        for (AutoCloseable socket : sockets) {
+            try {
+                socket.close();
+            } catch (Exception e) {
+                logger.warning("cannot close intake socket: " + e.getMessage());
+            }
+        }
+        for (Thread thread : threads) thread.interrupt();
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package ch.hefr.isc.shipping_optimization.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Registry of counters, gauges and histograms, exported in the Prometheus text format.
+ * <p>
+ * A metric is identified by its name and its labels, given as name and value pairs. Getting a metric registers it
+ * the first time and returns the same instance afterwards, so hot code should keep the instance in a field rather
+ * than getting it on every update. The updates only use adders and don't lock.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry global = new MetricsRegistry();
+
+    private enum Type {COUNTER, GAUGE, HISTOGRAM}
+
+    private record Family(String name, String help, Type type, Map<String, Object> metrics) {}
+
+    // by name, in registration order
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    /**
+     * Get the registry shared by the whole process, the one exposed by the {@link MetricsServer} of the app.
+     *
+     * @return the global registry
+     */
+    public static MetricsRegistry global() {
+        return global;
+    }
+
+    /**
+     * A value that only increases, like the number of solves.
+     */
+    public static class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            if (amount < 0) throw new IllegalArgumentException("A counter can't decrease");
+            value.add(amount);
+        }
+
+        public long value() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * A value that can go up and down, like the objective of the last solve.
+     */
+    public static class Gauge {
+        private volatile double value;
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double value() {
+            return value;
+        }
+    }
+
+    /**
+     * Distribution of observed values in buckets with fixed upper bounds, like the solve latencies.
+     */
+    public static class Histogram {
+        private final double[] upperBounds;
+        // the last bucket has no upper bound
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(double[] upperBounds) {
+            this.upperBounds = upperBounds.clone();
+            Arrays.sort(this.upperBounds);
+            buckets = new LongAdder[upperBounds.length + 1];
+            for (int i = 0; i < buckets.length; ++i) buckets[i] = new LongAdder();
+        }
+
+        public void observe(double value) {
+            int bucket = 0;
+            while (bucket < upperBounds.length && value > upperBounds[bucket]) ++bucket;
+            buckets[bucket].increment();
+            sum.add(value);
+        }
+
+        public long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) count += bucket.sum();
+            return count;
+        }
+
+        public double sum() {
+            return sum.sum();
+        }
+    }
+
+    /**
+     * Build upper bounds growing exponentially, for histograms of values spanning several orders of magnitude.
+     *
+     * @param start  the first upper bound
+     * @param factor the ratio between two upper bounds
+     * @param count  the number of upper bounds
+     * @return the upper bounds
+     */
+    public static double[] exponentialBuckets(double start, double factor, int count) {
+        double[] bounds = new double[count];
+        for (int i = 0; i < count; ++i) bounds[i] = start * Math.pow(factor, i);
+        return bounds;
+    }
+
+    /**
+     * Get or register a counter.
+     *
+     * @param name   the metric name, ending with _total by convention
+     * @param help   the description of the metric
+     * @param labels the label names and values, alternated
+     * @return the counter
+     * @throws IllegalArgumentException if the name is already registered with another type or the labels are odd
+     */
+    public Counter counter(String name, String help, String... labels) throws IllegalArgumentException {
+        return (Counter) metric(name, help, Type.COUNTER, labels, key -> new Counter());
+    }
+
+    /**
+     * Get or register a gauge.
+     *
+     * @param name   the metric name
+     * @param help   the description of the metric
+     * @param labels the label names and values, alternated
+     * @return the gauge
+     * @throws IllegalArgumentException if the name is already registered with another type or the labels are odd
+     */
+    public Gauge gauge(String name, String help, String... labels) throws IllegalArgumentException {
+        return (Gauge) metric(name, help, Type.GAUGE, labels, key -> new Gauge());
+    }
+
+    /**
+     * Get or register a histogram. The upper bounds are only used when the histogram is registered.
+     *
+     * @param name        the metric name
+     * @param help        the description of the metric
+     * @param upperBounds the upper bounds of the buckets, a last bucket without bound is added
+     * @param labels      the label names and values, alternated
+     * @return the histogram
+     * @throws IllegalArgumentException if the name is already registered with another type or the labels are odd
+     */
+    public Histogram histogram(String name, String help, double[] upperBounds, String... labels)
+            throws IllegalArgumentException {
+        return (Histogram) metric(name, help, Type.HISTOGRAM, labels, key -> new Histogram(upperBounds));
+    }
+
+    private synchronized Object metric(String name, String help, Type type, String[] labels,
+                                       Function<String, Object> factory) {
+        if (labels.length % 2 != 0) throw new IllegalArgumentException("Labels of " + name + " are not pairs");
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type, new LinkedHashMap<>()));
+        if (family.type() != type)
+            throw new IllegalArgumentException("Metric " + name + " is already a " + family.type());
+        return family.metrics().computeIfAbsent(labelSet(labels), factory);
+    }
+
+    private static String labelSet(String[] labels) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) builder.append(',');
+            builder.append(labels[i]).append("=\"").append(labels[i + 1]
+                    .replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n")).append('"');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Format all the metrics in the Prometheus text exposition format.
+     *
+     * @return the metrics text
+     */
+    public synchronized String toPrometheusText() {
+        StringBuilder out = new StringBuilder();
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ')
+                    .append(family.help().replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ')
+                    .append(family.type().name().toLowerCase(Locale.ROOT)).append('\n');
+            family.metrics().forEach((labels, metric) -> {
+                if (metric instanceof Counter counter)
+                    sample(out, family.name(), labels, counter.value());
+                else if (metric instanceof Gauge gauge)
+                    sample(out, family.name(), labels, gauge.value());
+                else if (metric instanceof Histogram histogram)
+                    histogramSamples(out, family.name(), labels, histogram);
+            });
+        }
+        return out.toString();
+    }
+
+    private static void histogramSamples(StringBuilder out, String name, String labels, Histogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < histogram.buckets.length; ++i) {
+            cumulative += histogram.buckets[i].sum();
+            String bound = i < histogram.upperBounds.length ? format(histogram.upperBounds[i]) : "+Inf";
+            sample(out, name + "_bucket", prefix + "le=\"" + bound + "\"", cumulative);
+        }
+        sample(out, name + "_sum", labels, histogram.sum());
+        // the count is the last cumulative bucket, so the samples of one scrape are consistent
+        sample(out, name + "_count", labels, cumulative);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) out.append('{').append(labels).append('}');
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    /**
+     * Write the metrics to a file in the Prometheus text format, for example for the node exporter textfile
+     * collector at the end of a batch. The file is replaced atomically.
+     *
+     * @param path the path of the file
+     * @throws IOException if an error occurs while writing the file
+     */
+    public void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temporary, toPrometheusText());
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
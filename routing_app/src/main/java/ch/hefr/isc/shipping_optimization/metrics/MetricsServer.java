@@ -0,0 +1,81 @@
+package ch.hefr.isc.shipping_optimization.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Small HTTP server exposing a metrics registry at /metrics in the Prometheus text format. The server only listens
+ * on the loopback address and answers from a single daemon thread.
+ */
+public class MetricsServer implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(MetricsServer.class.getName());
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final MetricsRegistry registry;
+
+    private MetricsServer(HttpServer server, ExecutorService executor, MetricsRegistry registry) {
+        this.server = server;
+        this.executor = executor;
+        this.registry = registry;
+    }
+
+    /**
+     * Start a metrics server.
+     *
+     * @param port     the port, 0 to use any free port
+     * @param registry the registry to expose
+     * @return the running server, to be closed once not needed anymore
+     * @throws IOException if the server can't listen on the port
+     */
+    public static MetricsServer start(int port, MetricsRegistry registry) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        MetricsServer metricsServer = new MetricsServer(server, executor, registry);
+        server.createContext("/metrics", metricsServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("metrics served at http://localhost:" + metricsServer.port() + "/metrics");
+        return metricsServer;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
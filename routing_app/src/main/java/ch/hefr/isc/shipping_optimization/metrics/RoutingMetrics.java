@@ -0,0 +1,81 @@
+package ch.hefr.isc.shipping_optimization.metrics;
+
+/**
+ * The metrics of the routing runs, all registered in the {@link MetricsRegistry#global() global registry}.
+ */
+public class RoutingMetrics {
+
+    private static final MetricsRegistry registry = MetricsRegistry.global();
+
+    public static final MetricsRegistry.Counter SOLVES_STARTED = registry.counter("routing_solves_started_total",
+            "Number of solves started");
+    public static final MetricsRegistry.Counter SOLVES_WITH_SOLUTION = registry.counter(
+            "routing_solves_finished_total", "Number of solves finished, by result", "result", "solution");
+    public static final MetricsRegistry.Counter SOLVES_WITHOUT_SOLUTION = registry.counter(
+            "routing_solves_finished_total", "Number of solves finished, by result", "result", "no_solution");
+    public static final MetricsRegistry.Histogram SOLVE_SECONDS = registry.histogram("routing_solve_seconds",
+            "Duration of the solves, from building the model to the end of the search",
+            MetricsRegistry.exponentialBuckets(0.1, 2, 14));
+    public static final MetricsRegistry.Histogram OBJECTIVE = registry.histogram("routing_objective_value",
+            "Objective value of the solutions found", MetricsRegistry.exponentialBuckets(100, 2, 16));
+    public static final MetricsRegistry.Gauge GAP = registry.gauge("routing_optimality_gap",
+            "Relative gap between the objective of the last solution and its lower bound");
+    public static final MetricsRegistry.Histogram DROPPED_ORDERS = registry.histogram("routing_dropped_orders",
+            "Number of orders left to direct delivery by the solutions found",
+            MetricsRegistry.exponentialBuckets(1, 2, 12));
+    public static final MetricsRegistry.Gauge ADMITTED_BYTES = registry.gauge("routing_admitted_memory_bytes",
+            "Estimated memory of the solves admitted by the admission control and still running");
+
+    public static final MetricsRegistry.Counter INTAKE_ACCEPTED = registry.counter("routing_intake_orders_total",
+            "Number of orders received by the intake, by result", "result", "accepted");
+    public static final MetricsRegistry.Counter INTAKE_REJECTED = registry.counter("routing_intake_orders_total",
+            "Number of orders received by the intake, by result", "result", "rejected");
+    public static final MetricsRegistry.Gauge INTAKE_QUEUED = registry.gauge("routing_intake_queued_orders",
+            "Number of accepted orders waiting for the next re-optimization");
+    public static final MetricsRegistry.Histogram INTAKE_BATCH_ORDERS = registry.histogram(
+            "routing_intake_batch_orders", "Number of new orders per re-optimization of the intake",
+            MetricsRegistry.exponentialBuckets(1, 2, 12));
+
+    public static final MetricsRegistry.Gauge POOL_QUEUED = registry.gauge("routing_pool_queued_requests",
+            "Number of requests waiting for a thread of the solver pool");
+    public static final MetricsRegistry.Histogram POOL_QUEUE_WAIT_SECONDS = registry.histogram(
+            "routing_pool_queue_wait_seconds", "Time the requests of the solver pool wait for a thread",
+            MetricsRegistry.exponentialBuckets(0.001, 2, 16));
+    public static final MetricsRegistry.Histogram POOL_SOLVE_SECONDS = registry.histogram(
+            "routing_pool_solve_seconds", "Duration of the solves of the solver pool, including the extraction",
+            MetricsRegistry.exponentialBuckets(0.001, 2, 16));
+
+    public static final MetricsRegistry.Counter TIME_CALLBACKS = callbacks("time");
+    public static final MetricsRegistry.Counter DISTANCE_CALLBACKS = callbacks("distance");
+    public static final MetricsRegistry.Counter DEMAND_CALLBACKS = callbacks("demand");
+    public static final MetricsRegistry.Counter MONETARY_CALLBACKS = callbacks("monetary");
+
+    private static final double[] PHASE_BUCKETS = MetricsRegistry.exponentialBuckets(0.001, 4, 12);
+
+    /**
+     * Get the counter of the admission decisions of a kind.
+     *
+     * @param decision the decision, in lower case
+     * @return the counter
+     */
+    public static MetricsRegistry.Counter admissions(String decision) {
+        return registry.counter("routing_admissions_total", "Number of solves by admission decision", "decision",
+                decision);
+    }
+
+    private static MetricsRegistry.Counter callbacks(String callback) {
+        return registry.counter("routing_callback_invocations_total", "Number of calls of the solver callbacks",
+                "callback", callback);
+    }
+
+    /**
+     * Get the histogram of the durations of a phase timed by the {@code PhaseTimer}.
+     *
+     * @param phase the name of the phase
+     * @return the histogram
+     */
+    public static MetricsRegistry.Histogram phaseSeconds(String phase) {
+        return registry.histogram("routing_phase_seconds", "Duration of the phases of the routing runs",
+                PHASE_BUCKETS, "phase", phase);
+    }
+}
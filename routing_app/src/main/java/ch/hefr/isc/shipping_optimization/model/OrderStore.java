@@ -0,0 +1,185 @@
+package ch.hefr.isc.shipping_optimization.model;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * List of orders stored column by column in primitive arrays.
+ * <p>
+ * An order takes about 40 bytes plus its id instead of the seven objects of an {@link Order}, so large batches and
+ * order histories fit in memory and can be scanned with the primitive accessors without creating any object. The
+ * {@link Order} returned by {@link #get(int)} is a view created on each call, equal to the stored order: the weights
+ * keep their unit and the time windows their nanoseconds. The primitive accessors give the weights in grams and the
+ * time windows in minutes, the seconds of a time window being truncated like {@link TimeWindow#startAsMinutes()}.
+ */
+public class OrderStore extends AbstractList<Order> implements RandomAccess {
+
+    private static final int MIN_ZIP = 1000;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private int size;
+    private String[] ids;
+    private short[] zipCodes;
+    private int[] numberBoxes;
+    private double[] weights;
+    private boolean[] weightsInKiloGrams;
+    // nanoseconds of the day
+    private long[] windowStarts;
+    private long[] windowEnds;
+    private float[] hubDeliveryCostsPerBox;
+    // the zips are shared by all the views, indexed by zip code minus 1000
+    private final Zip[] zips = new Zip[10_000 - MIN_ZIP];
+
+    public OrderStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public OrderStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new String[capacity];
+        zipCodes = new short[capacity];
+        numberBoxes = new int[capacity];
+        weights = new double[capacity];
+        weightsInKiloGrams = new boolean[capacity];
+        windowStarts = new long[capacity];
+        windowEnds = new long[capacity];
+        hubDeliveryCostsPerBox = new float[capacity];
+    }
+
+    /**
+     * Create an order store with the orders of a collection. An order store is returned as is.
+     *
+     * @param orders the orders
+     * @return the order store
+     */
+    public static OrderStore of(Collection<Order> orders) {
+        if (orders instanceof OrderStore store) return store;
+        OrderStore store = new OrderStore(orders.size());
+        store.addAll(orders);
+        return store;
+    }
+
+    /**
+     * Append an order to the store.
+     *
+     * @param order the order
+     * @return true
+     * @throws IllegalArgumentException if the weight doesn't fit in an int of grams
+     */
+    @Override
+    public boolean add(Order order) throws IllegalArgumentException {
+        long grams = Math.round(order.weight().grams());
+        if (grams < 0 || grams > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Weight of order " + order.id() + " is out of range");
+        if (size == ids.length) grow();
+
+        int zipCode = Integer.parseInt(order.zip().toString());
+        if (zips[zipCode - MIN_ZIP] == null) zips[zipCode - MIN_ZIP] = order.zip();
+        ids[size] = order.id();
+        zipCodes[size] = (short) zipCode;
+        numberBoxes[size] = order.numberBoxes();
+        weightsInKiloGrams[size] = order.weight().isKiloGrams();
+        weights[size] = order.weight().isKiloGrams() ? order.weight().kiloGrams() : order.weight().grams();
+        windowStarts[size] = order.timeWindow().start().toNanoOfDay();
+        windowEnds[size] = order.timeWindow().end().toNanoOfDay();
+        hubDeliveryCostsPerBox[size] = order.hubDeliveryCostPerBox();
+        ++size;
+        ++modCount;
+        return true;
+    }
+
+    private void grow() {
+        int capacity = 2 * ids.length;
+        ids = Arrays.copyOf(ids, capacity);
+        zipCodes = Arrays.copyOf(zipCodes, capacity);
+        numberBoxes = Arrays.copyOf(numberBoxes, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        weightsInKiloGrams = Arrays.copyOf(weightsInKiloGrams, capacity);
+        windowStarts = Arrays.copyOf(windowStarts, capacity);
+        windowEnds = Arrays.copyOf(windowEnds, capacity);
+        hubDeliveryCostsPerBox = Arrays.copyOf(hubDeliveryCostsPerBox, capacity);
+    }
+
+    @Override
+    public Order get(int index) {
+        checkIndex(index);
+        TimeWindow timeWindow = new TimeWindow(LocalTime.ofNanoOfDay(windowStarts[index]),
+                LocalTime.ofNanoOfDay(windowEnds[index]));
+        Weight weight = weightsInKiloGrams[index]
+                ? Weight.ofKiloGrams(weights[index])
+                : Weight.ofGrams(weights[index]);
+        return new Order(ids[index], zip(index), numberBoxes[index], timeWindow, weight,
+                hubDeliveryCostsPerBox[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public String id(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    public Zip zip(int index) {
+        return zips[zipCode(index) - MIN_ZIP];
+    }
+
+    public int zipCode(int index) {
+        checkIndex(index);
+        return zipCodes[index];
+    }
+
+    public int numberBoxes(int index) {
+        checkIndex(index);
+        return numberBoxes[index];
+    }
+
+    public int weightGrams(int index) {
+        checkIndex(index);
+        return (int) Math.round(weightsInKiloGrams[index] ? weights[index] * 1000 : weights[index]);
+    }
+
+    public int timeWindowStartMinutes(int index) {
+        checkIndex(index);
+        return (int) (windowStarts[index] / NANOS_PER_MINUTE);
+    }
+
+    public int timeWindowEndMinutes(int index) {
+        checkIndex(index);
+        return (int) (windowEnds[index] / NANOS_PER_MINUTE);
+    }
+
+    public float hubDeliveryCostPerBox(int index) {
+        checkIndex(index);
+        return hubDeliveryCostsPerBox[index];
+    }
+
+    public float totalHubDeliveryCost(int index) {
+        return numberBoxes(index) * hubDeliveryCostPerBox(index);
+    }
+
+    /**
+     * Estimate the heap memory used by the store, the ids being counted as compact strings.
+     *
+     * @return the estimated size in bytes
+     */
+    public long memoryBytes() {
+        long bytes = 4L * zips.length + (long) ids.length * (4 + 2 + 4 + 8 + 1 + 8 + 8 + 4);
+        for (int i = 0; i < size; ++i) bytes += 40 + ids[i].length();
+        return bytes;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+}
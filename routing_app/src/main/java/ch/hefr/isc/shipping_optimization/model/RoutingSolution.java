@@ -6,6 +6,7 @@ import ch.hefr.isc.shipping_optimization.model.utils.Zip;
 
 import java.time.Duration;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -121,6 +122,15 @@ public record RoutingSolution(List<Route> routes, Set<Order> droppedOrders) {
         return builder.toString();
     }
 
+    /**
+     * A return of a vehicle to the depot to be loaded again, between two trips of its route.
+     *
+     * @param stop      the index in the route nodes of the first stop of the next trip
+     * @param arrival   the arrival time at the depot
+     * @param departure the departure time from the depot for the next trip
+     */
+    public record Reload(int stop, LocalTime arrival, LocalTime departure) {}
+
     /**
      * A route for a given vehicle.
      *
@@ -131,11 +141,20 @@ public record RoutingSolution(List<Route> routes, Set<Order> droppedOrders) {
      * @param monetaryCost      the total hub delivery cost of the route
      * @param totalDistance     the total distance of the route
      * @param depotZip          the depot zip code
+     * @param reloads           the returns to the depot between the trips of the route, in route order, empty for a
+     *                          route of a single trip
      */
     public record Route(List<RouteNode> routeNodes, List<LocalTime> departureTimes, LocalTime startTime,
-                        LocalTime endTime, long monetaryCost, Distance totalDistance, Zip depotZip) {
-        public Route(List<RouteNode> routeNodes, List<LocalTime> departureTimes, LocalTime startTime, LocalTime endTime, long monetaryCost,
-                     Distance totalDistance, Zip depotZip) {
+                        LocalTime endTime, long monetaryCost, Distance totalDistance, Zip depotZip,
+                        List<Reload> reloads) {
+        public Route(List<RouteNode> routeNodes, List<LocalTime> departureTimes, LocalTime startTime,
+                     LocalTime endTime, long monetaryCost, Distance totalDistance, Zip depotZip,
+                     List<Reload> reloads) {
+            for (int i = 0; i < reloads.size(); ++i) {
+                int stop = reloads.get(i).stop();
+                if (stop < 2 || stop > routeNodes.size() - 2 || (i > 0 && stop <= reloads.get(i - 1).stop()))
+                    throw new IllegalArgumentException("Invalid reload before stop " + stop);
+            }
             this.routeNodes = Collections.unmodifiableList(routeNodes);
             this.departureTimes = Collections.unmodifiableList(departureTimes);
             this.startTime = startTime;
@@ -143,6 +162,12 @@ public record RoutingSolution(List<Route> routes, Set<Order> droppedOrders) {
             this.monetaryCost = monetaryCost;
             this.totalDistance = totalDistance;
             this.depotZip = depotZip;
+            this.reloads = List.copyOf(reloads);
+        }
+
+        public Route(List<RouteNode> routeNodes, List<LocalTime> departureTimes, LocalTime startTime, LocalTime endTime, long monetaryCost,
+                     Distance totalDistance, Zip depotZip) {
+            this(routeNodes, departureTimes, startTime, endTime, monetaryCost, totalDistance, depotZip, List.of());
         }
 
         public Duration totalDuration() {
@@ -158,6 +183,22 @@ public record RoutingSolution(List<Route> routes, Set<Order> droppedOrders) {
             return routeNodes.size();
         }
 
+        /**
+         * Get the orders of each trip of the route, the vehicle going back to the depot between two trips.
+         *
+         * @return the order nodes of each trip, without the depot
+         */
+        public List<List<RouteNode>> trips() {
+            List<List<RouteNode>> trips = new ArrayList<>();
+            int first = 1;
+            for (Reload reload : reloads) {
+                trips.add(routeNodes.subList(first, reload.stop()));
+                first = reload.stop();
+            }
+            trips.add(routeNodes.size() < 2 ? List.of() : routeNodes.subList(first, routeNodes.size() - 1));
+            return trips;
+        }
+
         /**
          * Get the total number of boxes of the route.
          *
@@ -190,8 +231,14 @@ public record RoutingSolution(List<Route> routes, Set<Order> droppedOrders) {
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder();
-            for (RouteNode node : routeNodes)
-                builder.append(node.zip()).append(" -> ");
+            int reload = 0;
+            for (int i = 0; i < routeNodes.size(); ++i) {
+                if (reload < reloads.size() && reloads.get(reload).stop() == i) {
+                    builder.append(depotZip).append(" -> ");
+                    ++reload;
+                }
+                builder.append(routeNodes.get(i).zip()).append(" -> ");
+            }
 
             builder.delete(builder.length() - 4, builder.length())
                     .append(String.format(" %s - %s", startTime, endTime))
@@ -25,6 +25,10 @@ public class Weight {
         return isKg ? weight * 1000 : weight;
     }
 
+    public boolean isKiloGrams() {
+        return isKg;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) return false;
@@ -0,0 +1,218 @@
+package ch.hefr.isc.shipping_optimization.preview;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Estimates the cost, the number of vehicles and the number of dropped orders of a plan in microseconds, from the
+ * orders aggregated by zone of a {@link ZoneHierarchy} level, for a preview long before the solver is done.
+ * <p>
+ * The estimate follows the continuous approximation of vehicle routing: the vehicles needed are the most of the
+ * capacity bound and of the working time bound, each route drives from the depot to its zones and back, and the
+ * orders of a zone are visited along a tour growing with the square root of the number of their zip codes, scaled by
+ * the mean travel time inside the zone. A zone whose hub delivery cost is lower than the cost of driving to it and
+ * visiting its orders is dropped, like the solver would, and when the fleet is too small the orders it cannot carry
+ * are dropped too, the cheapest zones to drop first. The route time is then scaled by a factor calibrated on
+ * historical solutions, which absorbs the time windows and the detours the approximation ignores.
+ */
+public class PlanEstimator {
+
+    // length of a tour through n random points of a zone, in mean distances between two points of the zone
+    private static final double TOUR_FACTOR = 1.37;
+    private static final int TIME_BOUND_ITERATIONS = 3;
+
+    private final ZoneHierarchy.Level level;
+    private final Calibration calibration;
+
+    /**
+     * The correction of the approximation, fitted on historical solutions.
+     *
+     * @param routeMinutesFactor the factor of the estimated route time
+     * @param vehiclesFactor     the factor of the estimated number of vehicles
+     */
+    public record Calibration(double routeMinutesFactor, double vehiclesFactor) {
+        public static final Calibration NONE = new Calibration(1, 1);
+    }
+
+    /**
+     * The estimated plan.
+     *
+     * @param totalMonetaryCost the cost of the routes plus the hub delivery cost of the dropped orders, comparable
+     *                          with {@link RoutingSolution#totalMonetaryCost()}
+     * @param routeMinutes      the driving and delivery time of all the routes
+     * @param vehicles          the number of vehicles used
+     * @param droppedOrders     the number of orders left to hub delivery
+     */
+    public record Estimate(double totalMonetaryCost, double routeMinutes, int vehicles, int droppedOrders) {}
+
+    /**
+     * A historical solution to calibrate on.
+     *
+     * @param orders   the orders of the instance
+     * @param config   the routing config of the instance
+     * @param solution the solution found by the solver
+     */
+    public record Observation(Collection<Order> orders, RoutingConfig config, RoutingSolution solution) {}
+
+    /**
+     * @param level       the zones the orders are aggregated by
+     * @param calibration the calibration, {@link Calibration#NONE} for the raw approximation
+     */
+    public PlanEstimator(ZoneHierarchy.Level level, Calibration calibration) {
+        this.level = level;
+        this.calibration = calibration;
+    }
+
+    /**
+     * Fit the calibration on historical solutions, by least squares through the origin of the actual route time and
+     * number of vehicles against the uncalibrated estimates.
+     *
+     * @param level        the zones the orders are aggregated by
+     * @param observations the historical solutions
+     * @return the calibration, {@link Calibration#NONE} without observation
+     */
+    public static Calibration calibrate(ZoneHierarchy.Level level, List<Observation> observations) {
+        PlanEstimator raw = new PlanEstimator(level, Calibration.NONE);
+        double minutesProducts = 0;
+        double minutesSquares = 0;
+        double vehiclesProducts = 0;
+        double vehiclesSquares = 0;
+        for (Observation observation : observations) {
+            Estimate estimate = raw.estimate(ZoneDemand.of(level, observation.orders()), observation.config());
+            RoutingSolution solution = observation.solution();
+            double actualMinutes = solution.routes().stream().mapToLong(RoutingSolution.Route::monetaryCost).sum()
+                    * 60.0 / observation.config().hourlyVehicleCost();
+            long actualVehicles = solution.routes().stream()
+                    .filter(route -> route.routeNodes().stream().anyMatch(Predicate.not(RouteNode::isDepot)))
+                    .count();
+            minutesProducts += estimate.routeMinutes() * actualMinutes;
+            minutesSquares += estimate.routeMinutes() * estimate.routeMinutes();
+            vehiclesProducts += (double) estimate.vehicles() * actualVehicles;
+            vehiclesSquares += (double) estimate.vehicles() * estimate.vehicles();
+        }
+        return new Calibration(minutesSquares > 0 ? minutesProducts / minutesSquares : 1,
+                vehiclesSquares > 0 ? vehiclesProducts / vehiclesSquares : 1);
+    }
+
+    public Estimate estimate(Collection<Order> orders, RoutingConfig config) {
+        return estimate(ZoneDemand.of(level, orders), config);
+    }
+
+    /**
+     * Estimate the plan of the orders of some zones.
+     *
+     * @param demand the orders aggregated by zone of the level of this estimator
+     * @param config the routing config
+     * @return the estimate
+     */
+    public Estimate estimate(ZoneDemand demand, RoutingConfig config) {
+        int numberZones = level.numberZones();
+        int depotZone = level.zoneOf(config.depotZip());
+        double deliveryMinutes = config.deliveryExecutionTime().toSeconds() / 60.0;
+        double costPerMinute = config.hourlyVehicleCost() / 60.0;
+        double shiftMinutes = Math.max(1, demand.latestEndMinutes() - demand.earliestStartMinutes());
+
+        // the orders of the unknown zip codes are never visited by the solver
+        double droppedCost = demand.unknownHubCost();
+        int droppedOrders = demand.unknownOrders();
+        boolean[] served = new boolean[numberZones];
+        for (int z = 0; z < numberZones; ++z) served[z] = demand.orders(z) > 0;
+
+        double[] stemMinutes = new double[numberZones];
+        double[] localMinutes = new double[numberZones];
+        for (int z = 0; z < numberZones; ++z) {
+            if (!served[z]) continue;
+            stemMinutes[z] = depotZone < 0 || depotZone == z
+                    ? level.intraZoneMinutes(z) / 2
+                    : (level.minutes(depotZone, z) + level.minutes(z, depotZone)) / 2;
+            int zips = demand.distinctZips(z);
+            localMinutes[z] = TOUR_FACTOR * level.intraZoneMinutes(z) * Math.sqrt(zips) * (zips - 1) / zips
+                    + demand.orders(z) * deliveryMinutes;
+        }
+
+        // each route carries a full load, so a zone pays its share of the round trips from the depot
+        double boxesPerRoute = config.maxBoxesPerVehicle();
+        double gramsPerRoute = config.maxWeightPerVehicle().grams();
+        for (int z = 0; z < numberZones; ++z) {
+            if (!served[z]) continue;
+            double trips = Math.max(demand.boxes(z) / boxesPerRoute, demand.grams(z) / gramsPerRoute);
+            double zoneCost = costPerMinute * calibration.routeMinutesFactor()
+                    * (2 * stemMinutes[z] * trips + localMinutes[z]);
+            if (demand.hubCost(z) < zoneCost) {
+                served[z] = false;
+                droppedCost += demand.hubCost(z);
+                droppedOrders += demand.orders(z);
+            }
+        }
+
+        Totals totals = totals(demand, served, stemMinutes, localMinutes, config, shiftMinutes);
+        if (totals.vehicles > config.numberVehicles()) {
+            // drop the zones saving the least per vehicle until the fleet is enough
+            Integer[] zones = new Integer[numberZones];
+            for (int z = 0; z < numberZones; ++z) zones[z] = z;
+            Arrays.sort(zones, Comparator.comparingDouble(z -> savingPerBox(demand, z,
+                    stemMinutes, localMinutes, costPerMinute)));
+            for (int z : zones) {
+                if (totals.vehicles <= config.numberVehicles()) break;
+                if (!served[z]) continue;
+                served[z] = false;
+                droppedCost += demand.hubCost(z);
+                droppedOrders += demand.orders(z);
+                totals = totals(demand, served, stemMinutes, localMinutes, config, shiftMinutes);
+            }
+        }
+
+        double routeMinutes = totals.minutes * calibration.routeMinutesFactor();
+        int vehicles = (int) Math.min(config.numberVehicles(), Math.ceil(totals.vehicles
+                * calibration.vehiclesFactor() - 1e-9));
+        return new Estimate(routeMinutes * costPerMinute + droppedCost, routeMinutes, vehicles, droppedOrders);
+    }
+
+    private record Totals(double minutes, double vehicles) {}
+
+    /**
+     * Get the route time and the vehicles needed to serve some zones: the vehicles are bounded by the boxes, the
+     * weight and the working time of the day, and each vehicle drives once from the depot to the mean zone and back.
+     */
+    private Totals totals(ZoneDemand demand, boolean[] served, double[] stemMinutes, double[] localMinutes,
+                          RoutingConfig config, double shiftMinutes) {
+        double boxes = 0;
+        double grams = 0;
+        double local = 0;
+        double stemSum = 0;
+        for (int z = 0; z < served.length; ++z) {
+            if (!served[z]) continue;
+            boxes += demand.boxes(z);
+            grams += demand.grams(z);
+            local += localMinutes[z];
+            stemSum += stemMinutes[z] * demand.boxes(z);
+        }
+        if (boxes == 0) return new Totals(0, 0);
+        double meanStem = stemSum / boxes;
+        double vehicles = Math.ceil(Math.max(boxes / config.maxBoxesPerVehicle(),
+                grams / config.maxWeightPerVehicle().grams()));
+        double minutes = local + 2 * meanStem * vehicles;
+        for (int i = 0; i < TIME_BOUND_ITERATIONS; ++i) {
+            double byTime = Math.ceil(minutes * calibration.routeMinutesFactor() / shiftMinutes);
+            if (byTime <= vehicles) break;
+            vehicles = byTime;
+            minutes = local + 2 * meanStem * vehicles;
+        }
+        return new Totals(minutes, vehicles);
+    }
+
+    private static double savingPerBox(ZoneDemand demand, int zone, double[] stemMinutes, double[] localMinutes,
+                                       double costPerMinute) {
+        if (demand.boxes(zone) == 0) return Double.POSITIVE_INFINITY;
+        double routeCost = costPerMinute * (2 * stemMinutes[zone] + localMinutes[zone]);
+        return (demand.hubCost(zone) - routeCost) / demand.boxes(zone);
+    }
+}
@@ -0,0 +1,133 @@
+package ch.hefr.isc.shipping_optimization.preview;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Orders aggregated by zone of a {@link ZoneHierarchy} level, the input of the {@link PlanEstimator}.
+ * <p>
+ * The demand is either aggregated from the orders, see {@link #of(ZoneHierarchy.Level, Collection)}, or added zone by
+ * zone when only the counts are known, see {@link #add(int, int, int, int, double, double, int, int)}.
+ */
+public class ZoneDemand {
+
+    private final int[] orders;
+    private final int[] distinctZips;
+    private final int[] boxes;
+    private final double[] grams;
+    private final double[] hubCost;
+    private int unknownOrders;
+    private double unknownHubCost;
+    private int earliestStartMinutes = Integer.MAX_VALUE;
+    private int latestEndMinutes = Integer.MIN_VALUE;
+
+    /**
+     * @param numberZones the number of zones of the level
+     */
+    public ZoneDemand(int numberZones) {
+        orders = new int[numberZones];
+        distinctZips = new int[numberZones];
+        boxes = new int[numberZones];
+        grams = new double[numberZones];
+        hubCost = new double[numberZones];
+    }
+
+    /**
+     * Aggregate orders by zone. The orders whose zip code is not in the hierarchy are counted apart.
+     *
+     * @param level  the level
+     * @param orders the orders
+     * @return the demand
+     */
+    public static ZoneDemand of(ZoneHierarchy.Level level, Collection<Order> orders) {
+        ZoneDemand demand = new ZoneDemand(level.numberZones());
+        Set<Zip> zips = new HashSet<>();
+        for (Order order : orders) {
+            int zone = level.zoneOf(order.zip());
+            boolean newZip = zips.add(order.zip());
+            if (zone < 0) {
+                demand.unknownOrders++;
+                demand.unknownHubCost += order.totalHubDeliveryCost();
+                continue;
+            }
+            demand.add(zone, 1, newZip ? 1 : 0, order.numberBoxes(), order.weight().grams(),
+                    order.totalHubDeliveryCost(), order.timeWindow().startAsMinutes(),
+                    order.timeWindow().endAsMinutes());
+        }
+        return demand;
+    }
+
+    /**
+     * Add orders to a zone.
+     *
+     * @param zone               the zone
+     * @param numberOrders       the number of orders
+     * @param numberDistinctZips the number of zip codes of the orders not in the zone yet
+     * @param numberBoxes        the total number of boxes
+     * @param weightGrams        the total weight in grams
+     * @param hubDeliveryCost    the total hub delivery cost
+     * @param windowStartMinutes the earliest time window start of the orders, in minutes of the day
+     * @param windowEndMinutes   the latest time window end of the orders, in minutes of the day
+     * @return this demand
+     */
+    public ZoneDemand add(int zone, int numberOrders, int numberDistinctZips, int numberBoxes, double weightGrams,
+                          double hubDeliveryCost, int windowStartMinutes, int windowEndMinutes) {
+        orders[zone] += numberOrders;
+        distinctZips[zone] += numberDistinctZips;
+        boxes[zone] += numberBoxes;
+        grams[zone] += weightGrams;
+        hubCost[zone] += hubDeliveryCost;
+        earliestStartMinutes = Math.min(earliestStartMinutes, windowStartMinutes);
+        latestEndMinutes = Math.max(latestEndMinutes, windowEndMinutes);
+        return this;
+    }
+
+    public int numberZones() {
+        return orders.length;
+    }
+
+    public int orders(int zone) {
+        return orders[zone];
+    }
+
+    public int distinctZips(int zone) {
+        return distinctZips[zone];
+    }
+
+    public int boxes(int zone) {
+        return boxes[zone];
+    }
+
+    public double grams(int zone) {
+        return grams[zone];
+    }
+
+    public double hubCost(int zone) {
+        return hubCost[zone];
+    }
+
+    /**
+     * Get the number of orders whose zip code is not in the hierarchy, always left to hub delivery.
+     *
+     * @return the number of orders
+     */
+    public int unknownOrders() {
+        return unknownOrders;
+    }
+
+    public double unknownHubCost() {
+        return unknownHubCost;
+    }
+
+    public int earliestStartMinutes() {
+        return earliestStartMinutes;
+    }
+
+    public int latestEndMinutes() {
+        return latestEndMinutes;
+    }
+}
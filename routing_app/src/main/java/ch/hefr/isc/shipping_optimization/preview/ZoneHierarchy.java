@@ -0,0 +1,362 @@
+package ch.hefr.isc.shipping_optimization.preview;
+
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Zones of zip codes at several levels of detail, with the travel times between the zones, precomputed from a
+ * {@link DistanceTable} so a plan can be estimated from order counts per zone without the table.
+ * <p>
+ * The finest level clusters the zip codes with k-medoids on the travel time both ways, seeded by farthest points, and
+ * each coarser level clusters the medoids of the previous one, so a zone of a coarse level is a union of zones of the
+ * finer levels. Each zone keeps its medoid, the zip code with the smallest travel times to the others, and the mean
+ * travel time between two of its zip codes. The travel time between two zones is the one between their medoids.
+ * The clustering is deterministic, the same table always gives the same zones.
+ */
+public class ZoneHierarchy {
+
+    private static final Logger logger = Logger.getLogger(ZoneHierarchy.class.getName());
+    static final int MAGIC = 0x5a4f4e45;
+    static final int VERSION = 1;
+    private static final int ITERATIONS = 5;
+    // zones larger than this are sampled when computing medoids and mean travel times
+    private static final int MAX_SAMPLED_MEMBERS = 64;
+    // zip codes have four digits
+    private static final int MAX_ZIPS = 9000;
+
+    private final Zip[] zips;
+    private final Map<Zip, Integer> zipIndexes = new HashMap<>();
+    private final List<Level> levels = new ArrayList<>();
+
+    private ZoneHierarchy(Zip[] zips) {
+        this.zips = zips;
+        for (int i = 0; i < zips.length; ++i) zipIndexes.put(zips[i], i);
+    }
+
+    /**
+     * The zones of one level.
+     */
+    public class Level {
+        private final int[] zoneOfZip;
+        private final int[] medoids;
+        private final float[] intraZoneMinutes;
+        // travel minutes between the medoids, row major
+        private final float[] minutes;
+
+        private Level(int[] zoneOfZip, int[] medoids, float[] intraZoneMinutes, float[] minutes) {
+            this.zoneOfZip = zoneOfZip;
+            this.medoids = medoids;
+            this.intraZoneMinutes = intraZoneMinutes;
+            this.minutes = minutes;
+        }
+
+        public int numberZones() {
+            return medoids.length;
+        }
+
+        /**
+         * Get the zone of a zip code.
+         *
+         * @param zip the zip code
+         * @return the zone, -1 if the zip code is not in the distance table the hierarchy was built from
+         */
+        public int zoneOf(Zip zip) {
+            Integer index = zipIndexes.get(zip);
+            return index == null ? -1 : zoneOfZip[index];
+        }
+
+        public Zip medoid(int zone) {
+            return zips[medoids[zone]];
+        }
+
+        /**
+         * Get the mean travel time between two zip codes of a zone.
+         *
+         * @param zone the zone
+         * @return the mean travel time in minutes, zero for a zone of a single zip code
+         */
+        public double intraZoneMinutes(int zone) {
+            return intraZoneMinutes[zone];
+        }
+
+        /**
+         * Get the travel time from a zone to another, between their medoids.
+         *
+         * @param from the origin zone
+         * @param to   the destination zone
+         * @return the travel time in minutes
+         */
+        public double minutes(int from, int to) {
+            return minutes[from * medoids.length + to];
+        }
+    }
+
+    /**
+     * Build the hierarchy of a distance table.
+     *
+     * @param distanceMatrix the distance table
+     * @param zonesPerLevel  the number of zones of each level, decreasing, the finest level first
+     * @return the hierarchy
+     * @throws IllegalArgumentException if the numbers of zones are not decreasing or the table has too few zip codes
+     */
+    public static ZoneHierarchy build(DistanceTable distanceMatrix, int... zonesPerLevel)
+            throws IllegalArgumentException {
+        Zip[] zips = distanceMatrix.zips().stream().sorted(Comparator.comparing(Zip::toString)).toArray(Zip[]::new);
+        if (zonesPerLevel.length == 0 || zonesPerLevel[0] > zips.length)
+            throw new IllegalArgumentException("Cannot build " + Arrays.toString(zonesPerLevel) + " zones of "
+                    + zips.length + " zip codes");
+        for (int l = 0; l < zonesPerLevel.length; ++l)
+            if (zonesPerLevel[l] < 1 || (l > 0 && zonesPerLevel[l] >= zonesPerLevel[l - 1]))
+                throw new IllegalArgumentException("The numbers of zones are not decreasing: "
+                        + Arrays.toString(zonesPerLevel));
+
+        long start = System.nanoTime();
+        List<int[]> zonesOfZips = new ArrayList<>();
+        List<int[]> levelMedoids = new ArrayList<>();
+        // the points clustered at each level, as zip indexes: all the zip codes, then the medoids of the level below
+        int[] points = new int[zips.length];
+        Arrays.setAll(points, i -> i);
+        int[] zoneOfZip = null;
+        for (int numberZones : zonesPerLevel) {
+            int[] medoids = new int[numberZones];
+            int[] zoneOfPoint = cluster(distanceMatrix, zips, points, medoids);
+            int[] zones = new int[zips.length];
+            for (int i = 0; i < zips.length; ++i)
+                zones[i] = zoneOfZip == null ? zoneOfPoint[i] : zoneOfPoint[zoneOfZip[i]];
+            zonesOfZips.add(zones);
+            levelMedoids.add(medoids);
+            zoneOfZip = zones;
+            points = medoids;
+        }
+
+        ZoneHierarchy hierarchy = new ZoneHierarchy(zips);
+        for (int l = 0; l < zonesPerLevel.length; ++l) {
+            int[] zones = zonesOfZips.get(l);
+            int[] medoids = levelMedoids.get(l);
+            float[] intra = new float[medoids.length];
+            for (int z = 0; z < medoids.length; ++z) {
+                int zone = z;
+                int[] members = IntStream.range(0, zips.length).filter(i -> zones[i] == zone).toArray();
+                intra[z] = (float) meanMinutes(distanceMatrix, zips, sampled(members));
+            }
+            float[] minutes = new float[medoids.length * medoids.length];
+            for (int a = 0; a < medoids.length; ++a)
+                for (int b = 0; b < medoids.length; ++b)
+                    if (a != b) minutes[a * medoids.length + b] = (float) minutes(distanceMatrix, zips[medoids[a]],
+                            zips[medoids[b]]);
+            hierarchy.levels.add(hierarchy.new Level(zones, medoids, intra, minutes));
+        }
+        logger.info(String.format("zone hierarchy of %d zip codes, %s zones, built in %dms", zips.length,
+                Arrays.toString(zonesPerLevel), (System.nanoTime() - start) / 1_000_000));
+        return hierarchy;
+    }
+
+    /**
+     * Cluster points with k-medoids, seeded with farthest points.
+     *
+     * @param points  the zip indexes of the points
+     * @param medoids filled with the zip index of the medoid of each cluster
+     * @return the cluster of each point, by position in the points
+     */
+    private static int[] cluster(DistanceTable distanceMatrix, Zip[] zips, int[] points, int[] medoids) {
+        int k = medoids.length;
+        double[] nearest = new double[points.length];
+        Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+        int next = 0;
+        for (int c = 0; c < k; ++c) {
+            medoids[c] = points[next];
+            int farthest = 0;
+            for (int p = 0; p < points.length; ++p) {
+                nearest[p] = Math.min(nearest[p], symmetricMinutes(distanceMatrix, zips[points[p]],
+                        zips[medoids[c]]));
+                if (nearest[p] > nearest[farthest]) farthest = p;
+            }
+            next = farthest;
+        }
+
+        int[] clusterOfPoint = new int[points.length];
+        for (int iteration = 0; iteration < ITERATIONS; ++iteration) {
+            for (int p = 0; p < points.length; ++p) {
+                double best = Double.POSITIVE_INFINITY;
+                for (int c = 0; c < k; ++c) {
+                    double minutes = symmetricMinutes(distanceMatrix, zips[points[p]], zips[medoids[c]]);
+                    if (minutes < best) {
+                        best = minutes;
+                        clusterOfPoint[p] = c;
+                    }
+                }
+            }
+            boolean changed = false;
+            for (int c = 0; c < k; ++c) {
+                int cluster = c;
+                int[] members = IntStream.range(0, points.length)
+                        .filter(p -> clusterOfPoint[p] == cluster)
+                        .map(p -> points[p])
+                        .toArray();
+                if (members.length == 0) continue;
+                int[] sample = sampled(members);
+                int medoid = medoids[c];
+                double bestSum = Double.POSITIVE_INFINITY;
+                for (int candidate : members) {
+                    double sum = 0;
+                    for (int other : sample) sum += symmetricMinutes(distanceMatrix, zips[candidate], zips[other]);
+                    if (sum < bestSum) {
+                        bestSum = sum;
+                        medoid = candidate;
+                    }
+                }
+                changed |= medoid != medoids[c];
+                medoids[c] = medoid;
+            }
+            if (!changed) break;
+        }
+        return clusterOfPoint;
+    }
+
+    /**
+     * Keep at most {@link #MAX_SAMPLED_MEMBERS} members, evenly spread.
+     */
+    private static int[] sampled(int[] members) {
+        if (members.length <= MAX_SAMPLED_MEMBERS) return members;
+        int[] sample = new int[MAX_SAMPLED_MEMBERS];
+        for (int i = 0; i < sample.length; ++i) sample[i] = members[(int) ((long) i * members.length / sample.length)];
+        return sample;
+    }
+
+    private static double meanMinutes(DistanceTable distanceMatrix, Zip[] zips, int[] members) {
+        if (members.length < 2) return 0;
+        double sum = 0;
+        for (int a : members)
+            for (int b : members)
+                if (a != b) sum += minutes(distanceMatrix, zips[a], zips[b]);
+        return sum / ((double) members.length * (members.length - 1));
+    }
+
+    private static double minutes(DistanceTable distanceMatrix, Zip from, Zip to) {
+        return distanceMatrix.duration(from, to).toSeconds() / 60.0;
+    }
+
+    private static double symmetricMinutes(DistanceTable distanceMatrix, Zip a, Zip b) {
+        if (a.equals(b)) return 0;
+        return (minutes(distanceMatrix, a, b) + minutes(distanceMatrix, b, a)) / 2;
+    }
+
+    public int numberLevels() {
+        return levels.size();
+    }
+
+    /**
+     * Get a level of the hierarchy.
+     *
+     * @param level the level, 0 for the finest
+     * @return the level
+     */
+    public Level level(int level) {
+        return levels.get(level);
+    }
+
+    public int numberZips() {
+        return zips.length;
+    }
+
+    /**
+     * Write the hierarchy to a file. The file is replaced atomically.
+     *
+     * @param path the path of the file
+     * @throws IOException if an error occurs while writing the file
+     */
+    public void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(zips.length);
+            for (Zip zip : zips) out.writeShort(Integer.parseInt(zip.toString()));
+            out.writeInt(levels.size());
+            for (Level level : levels) {
+                int numberZones = level.numberZones();
+                out.writeInt(numberZones);
+                for (int zone : level.zoneOfZip) out.writeShort(zone);
+                for (int z = 0; z < numberZones; ++z) {
+                    out.writeInt(level.medoids[z]);
+                    out.writeFloat(level.intraZoneMinutes[z]);
+                }
+                for (float minutes : level.minutes) out.writeFloat(minutes);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a hierarchy file.
+     *
+     * @param path the path of the file
+     * @return the hierarchy
+     * @throws IOException if an error occurs while reading the file or if the file is invalid
+     */
+    public static ZoneHierarchy read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a zone hierarchy " + path);
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported zone hierarchy version " + version);
+            Zip[] zips = new Zip[readCount(in, 0, MAX_ZIPS, path)];
+            try {
+                for (int i = 0; i < zips.length; ++i) zips[i] = Zip.of(String.valueOf(in.readShort()));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Invalid zip code in zone hierarchy " + path, e);
+            }
+            ZoneHierarchy hierarchy = new ZoneHierarchy(zips);
+            // the numbers of zones are decreasing, so there are at most as many levels as zip codes
+            int numberLevels = readCount(in, 0, zips.length, path);
+            int maxZones = zips.length;
+            for (int l = 0; l < numberLevels; ++l) {
+                int numberZones = readCount(in, 1, maxZones, path);
+                maxZones = numberZones - 1;
+                int[] zoneOfZip = new int[zips.length];
+                for (int i = 0; i < zips.length; ++i) {
+                    zoneOfZip[i] = in.readShort();
+                    if (zoneOfZip[i] < 0 || zoneOfZip[i] >= numberZones)
+                        throw new IOException("Invalid zone " + zoneOfZip[i] + " in zone hierarchy " + path);
+                }
+                int[] medoids = new int[numberZones];
+                float[] intra = new float[numberZones];
+                for (int z = 0; z < numberZones; ++z) {
+                    medoids[z] = in.readInt();
+                    if (medoids[z] < 0 || medoids[z] >= zips.length)
+                        throw new IOException("Invalid medoid " + medoids[z] + " in zone hierarchy " + path);
+                    intra[z] = in.readFloat();
+                }
+                float[] minutes = new float[numberZones * numberZones];
+                for (int i = 0; i < minutes.length; ++i) minutes[i] = in.readFloat();
+                hierarchy.levels.add(hierarchy.new Level(zoneOfZip, medoids, intra, minutes));
+            }
+            return hierarchy;
+        }
+    }
+
+    private static int readCount(DataInput in, int min, int max, Path path) throws IOException {
+        int count = in.readInt();
+        if (count < min || count > max)
+            throw new IOException("Count " + count + " is not between " + min + " and " + max + " in zone hierarchy "
+                    + path);
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package ch.hefr.isc.shipping_optimization.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a {@link PhaseTimer.Phase}, recorded when the phase ends. The event has the duration of
+ * the phase, so it shows up next to the garbage collections and the allocations of the same time range.
+ */
+@Name("ch.hefr.isc.shipping_optimization.Phase")
+@Label("Routing Phase")
+@Category("Shipping Optimization")
+@Description("A phase of a routing run: parse, build, search, extract or write")
+@StackTrace(false)
+class PhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Route Nodes")
+    int nodes;
+
+    @Label("Vehicles")
+    int vehicles;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Heap Used Before")
+    @DataAmount
+    long heapBefore;
+
+    @Label("Heap Used After")
+    @DataAmount
+    long heapAfter;
+
+    @Label("Resident Memory Before")
+    @Description("Resident set size of the process, including the native memory of the solver, -1 if unknown")
+    @DataAmount
+    long residentBefore;
+
+    @Label("Resident Memory After")
+    @Description("Resident set size of the process, including the native memory of the solver, -1 if unknown")
+    @DataAmount
+    long residentAfter;
+}
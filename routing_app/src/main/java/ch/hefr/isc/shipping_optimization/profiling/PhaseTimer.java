@@ -0,0 +1,169 @@
+package ch.hefr.isc.shipping_optimization.profiling;
+
+import ch.hefr.isc.shipping_optimization.metrics.RoutingMetrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Times the phases of the routing runs: parsing the files, building the routing model, searching, extracting the
+ * solution and writing it.
+ * <p>
+ * Each phase is timed with {@link #start(String)}, in a try-with-resources block. When it ends, the phase is
+ * recorded as a {@link PhaseEvent} for the flight recorder, observed by the routing_phase_seconds histogram of the
+ * {@link RoutingMetrics} and added to a summary of all the phases of the process. The phases of parallel solves are
+ * summed. A phase measures the heap and the resident memory when it starts and when it ends, about twenty
+ * microseconds, so the phases should stay coarse.
+ */
+public class PhaseTimer {
+
+    private static final Logger logger = Logger.getLogger(PhaseTimer.class.getName());
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    // the resident set size is read in kB from the status, /proc/self/statm counts pages of unknown size
+    private static final Path STATUS = Path.of("/proc/self/status");
+    private static final String RESIDENT_FIELD = "VmRSS:";
+
+    private static final Summary EMPTY = new Summary(0, 0, 0, 0, 0, -1);
+    // by phase name, in the order the phases are first started
+    private static final Map<String, Summary> summaries = new LinkedHashMap<>();
+
+    /**
+     * Accumulated measures of the phases with the same name.
+     *
+     * @param count            the number of times the phase ran
+     * @param totalNanos       the total duration
+     * @param maxNanos         the longest duration
+     * @param bytesRead        the total bytes read
+     * @param maxHeapAfter     the largest heap used at the end of the phase
+     * @param maxResidentAfter the largest resident memory at the end of the phase, -1 if unknown
+     */
+    public record Summary(int count, long totalNanos, long maxNanos, long bytesRead, long maxHeapAfter,
+                          long maxResidentAfter) {
+        private Summary add(Phase phase, long nanos) {
+            return new Summary(count + 1, totalNanos + nanos, Math.max(maxNanos, nanos),
+                    bytesRead + phase.event.bytesRead, Math.max(maxHeapAfter, phase.event.heapAfter),
+                    Math.max(maxResidentAfter, phase.event.residentAfter));
+        }
+    }
+
+    /**
+     * A running phase, ended by {@link #close()}.
+     */
+    public static class Phase implements AutoCloseable {
+        private final PhaseEvent event = new PhaseEvent();
+        private final long start;
+        private boolean closed;
+
+        private Phase(String name) {
+            event.phase = name;
+            event.heapBefore = memory.getHeapMemoryUsage().getUsed();
+            event.residentBefore = residentBytes();
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        public Phase nodes(int nodes) {
+            event.nodes = nodes;
+            return this;
+        }
+
+        public Phase vehicles(int vehicles) {
+            event.vehicles = vehicles;
+            return this;
+        }
+
+        public Phase bytesRead(long bytesRead) {
+            event.bytesRead += bytesRead;
+            return this;
+        }
+
+        /**
+         * End the phase, record its event and add it to the summary. Closing a phase twice has no effect.
+         */
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            long nanos = System.nanoTime() - start;
+            event.end();
+            event.heapAfter = memory.getHeapMemoryUsage().getUsed();
+            event.residentAfter = residentBytes();
+            event.commit();
+            synchronized (summaries) {
+                summaries.compute(event.phase,
+                        (name, previous) -> (previous == null ? EMPTY : previous).add(this, nanos));
+            }
+            RoutingMetrics.phaseSeconds(event.phase).observe(nanos / 1e9);
+            logger.fine(() -> String.format("phase %s took %.1f ms", event.phase, nanos / 1e6));
+        }
+    }
+
+    /**
+     * Start a phase.
+     *
+     * @param name the name of the phase, the phases with the same name are summed in the summary
+     * @return the running phase, to be closed when the phase ends
+     */
+    public static Phase start(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Get the accumulated measures of each phase since the start of the process or the last reset.
+     *
+     * @return the summaries by phase name, in the order the phases were first started
+     */
+    public static Map<String, Summary> summaries() {
+        synchronized (summaries) {
+            return new LinkedHashMap<>(summaries);
+        }
+    }
+
+    public static void reset() {
+        synchronized (summaries) {
+            summaries.clear();
+        }
+    }
+
+    /**
+     * Format the summaries as a table, one line per phase.
+     *
+     * @return the table
+     */
+    public static String summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-16s %6s %12s %12s %12s %12s %12s", "phase", "count", "total ms", "max ms",
+                "read MB", "heap MB", "resident MB"));
+        summaries().forEach((name, summary) -> lines.add(String.format(
+                "%-16s %6d %12.1f %12.1f %12.1f %12.1f %12s", name, summary.count(), summary.totalNanos() / 1e6,
+                summary.maxNanos() / 1e6, summary.bytesRead() / 1e6, summary.maxHeapAfter() / 1e6,
+                summary.maxResidentAfter() < 0 ? "-" : String.format("%.1f", summary.maxResidentAfter() / 1e6))));
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    /**
+     * Get the resident set size of the process from /proc/self/status, only available on Linux.
+     *
+     * @return the resident memory in bytes, -1 if unknown
+     */
+    public static long residentBytes() {
+        try {
+            for (String line : Files.readAllLines(STATUS)) {
+                if (!line.startsWith(RESIDENT_FIELD)) continue;
+                String[] fields = line.substring(RESIDENT_FIELD.length()).trim().split("\\s+");
+                return Long.parseLong(fields[0]) * 1024;
+            }
+            return -1;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.metrics.RoutingMetrics;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the concurrent solves of a process within a memory budget, using the {@link MemoryEstimate} of each
+ * instance before its routing model is built.
+ * <p>
+ * An instance is admitted when its estimate fits in the memory left, and queued until it does otherwise. An instance
+ * which can't fit even alone is either refused or decomposed into parts which fit: the orders are sorted by zip code,
+ * so the parts cover neighboring areas, and the vehicles and the time limit are shared between the parts, which are
+ * solved one after the other and merged into one solution. Routes never cross parts, so a decomposed solution is
+ * usually more expensive than a solution of the whole instance.
+ */
+public class AdmissionControl {
+
+    private static final Logger logger = Logger.getLogger(AdmissionControl.class.getName());
+    private static final int MEGA_BYTE = 1 << 20;
+    private static final Duration MIN_PART_TIME_LIMIT = Duration.ofSeconds(1);
+
+    public enum Decision {
+        /** The instance fits in the memory left. */
+        ADMIT,
+        /** The instance fits in the budget once running solves end. */
+        QUEUE,
+        /** The instance doesn't fit in the budget and is solved in parts. */
+        DECOMPOSE,
+        /** The instance doesn't fit in the budget and is not solved. */
+        REFUSE
+    }
+
+    /**
+     * What to do with the instances which don't fit in the budget.
+     */
+    public enum Overflow {
+        REFUSE,
+        DECOMPOSE
+    }
+
+    /**
+     * Memory reserved for a solve, released by {@link #close()}.
+     */
+    public class Permit implements AutoCloseable {
+        private final int permits;
+        private boolean closed;
+
+        private Permit(int permits) {
+            this.permits = permits;
+            RoutingMetrics.ADMITTED_BYTES.set(admittedBytes.addAndGet((long) permits * MEGA_BYTE));
+        }
+
+        /**
+         * Release the memory of the solve. Closing a permit twice has no effect.
+         */
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            RoutingMetrics.ADMITTED_BYTES.set(admittedBytes.addAndGet(-(long) permits * MEGA_BYTE));
+            memory.release(permits);
+        }
+    }
+
+    private final long budgetBytes;
+    private final Overflow overflow;
+    // in megabytes, fair so that large instances are not overtaken forever by small ones
+    private final Semaphore memory;
+    private final AtomicLong admittedBytes = new AtomicLong();
+
+    /**
+     * @param budgetBytes the memory budget of the concurrent solves
+     * @param overflow    what to do with the instances which don't fit in the budget
+     */
+    public AdmissionControl(long budgetBytes, Overflow overflow) {
+        if (budgetBytes < MEGA_BYTE) throw new IllegalArgumentException("The memory budget is below 1MB");
+        this.budgetBytes = budgetBytes;
+        this.overflow = overflow;
+        this.memory = new Semaphore(toPermits(budgetBytes), true);
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Decide what to do with an instance, given the memory left now.
+     *
+     * @param estimate the memory estimate of the instance
+     * @return the decision
+     */
+    public Decision decide(MemoryEstimate estimate) {
+        if (estimate.totalBytes() > budgetBytes)
+            return overflow == Overflow.DECOMPOSE ? Decision.DECOMPOSE : Decision.REFUSE;
+        return toPermits(estimate.totalBytes()) <= memory.availablePermits() ? Decision.ADMIT : Decision.QUEUE;
+    }
+
+    /**
+     * Reserve the memory of a solve, waiting for the running solves to release it if needed.
+     *
+     * @param estimate the memory estimate of the solve
+     * @return the permit, to be closed when the solve ends
+     * @throws IllegalArgumentException if the estimate exceeds the budget
+     * @throws InterruptedException     if the thread is interrupted while waiting
+     */
+    public Permit acquire(MemoryEstimate estimate) throws IllegalArgumentException, InterruptedException {
+        int permits = checkedPermits(estimate);
+        memory.acquire(permits);
+        return new Permit(permits);
+    }
+
+    /**
+     * Reserve the memory of a solve, waiting at most some time for the running solves to release it.
+     *
+     * @param estimate the memory estimate of the solve
+     * @param timeout  the maximum time to wait
+     * @return the permit, to be closed when the solve ends, or empty if the memory was not released in time
+     * @throws IllegalArgumentException if the estimate exceeds the budget
+     * @throws InterruptedException     if the thread is interrupted while waiting
+     */
+    public Optional<Permit> tryAcquire(MemoryEstimate estimate, Duration timeout)
+            throws IllegalArgumentException, InterruptedException {
+        int permits = checkedPermits(estimate);
+        if (!memory.tryAcquire(permits, timeout.toNanos(), TimeUnit.NANOSECONDS))
+            return Optional.empty();
+        return Optional.of(new Permit(permits));
+    }
+
+    private int checkedPermits(MemoryEstimate estimate) throws IllegalArgumentException {
+        if (estimate.totalBytes() > budgetBytes)
+            throw new IllegalArgumentException("The solve needs " + estimate + ", more than the budget of "
+                    + budgetBytes / MEGA_BYTE + "MB");
+        return toPermits(estimate.totalBytes());
+    }
+
+    /**
+     * Solve an instance within the budget: wait for its memory if it fits, otherwise refuse or decompose it.
+     *
+     * @param data the data model
+     * @return the solution, empty if the solver found none
+     * @throws IllegalArgumentException if the instance doesn't fit in the budget and is refused or can't be
+     *                                  decomposed
+     * @throws InterruptedException     if the thread is interrupted while waiting for memory
+     */
+    public Optional<RoutingSolution> solve(DataModel data) throws IllegalArgumentException, InterruptedException {
+        MemoryEstimate estimate = MemoryEstimate.of(data);
+        Decision decision = decide(estimate);
+        RoutingMetrics.admissions(decision.name().toLowerCase()).increment();
+        logger.info(String.format("%d orders, estimated %s: %s", data.numberRouteNodes() - 1, estimate, decision));
+        switch (decision) {
+            case REFUSE -> throw new IllegalArgumentException("Refused: the solve needs " + estimate
+                    + ", more than the budget of " + budgetBytes / MEGA_BYTE + "MB");
+            case DECOMPOSE -> {
+                return solveParts(decompose(data));
+            }
+            default -> {
+                return solveAdmitted(data, estimate);
+            }
+        }
+    }
+
+    @SuppressWarnings("try")
+    private Optional<RoutingSolution> solveAdmitted(DataModel data, MemoryEstimate estimate)
+            throws InterruptedException {
+        try (Permit ignored = acquire(estimate)) {
+            RoutingSolver solver = new RoutingSolver(data);
+            solver.solve();
+            return solver.hasSolution() ? Optional.of(solver.solution()) : Optional.empty();
+        }
+    }
+
+    private Optional<RoutingSolution> solveParts(List<DataModel> parts) throws InterruptedException {
+        List<RoutingSolution.Route> routes = new ArrayList<>();
+        Set<Order> dropped = new HashSet<>();
+        for (DataModel part : parts) {
+            Optional<RoutingSolution> solution = solveAdmitted(part, MemoryEstimate.of(part));
+            if (solution.isEmpty()) return Optional.empty();
+            routes.addAll(solution.get().routes());
+            dropped.addAll(solution.get().droppedOrders());
+        }
+        return Optional.of(new RoutingSolution(routes, dropped));
+    }
+
+    /**
+     * Split an instance into the fewest parts fitting the budget, sharing the vehicles and the time limit.
+     *
+     * @param data the data model
+     * @return the parts, a single one if the instance fits
+     * @throws IllegalArgumentException if the parts can't fit with at least one vehicle each
+     */
+    public List<DataModel> decompose(DataModel data) throws IllegalArgumentException {
+        RoutingConfig config = data.config();
+        OrderStore orders = data.orders();
+        int numberVehicles = config.numberVehicles();
+        int numberParts = 1;
+        // the largest part has the most orders and the most vehicles
+        while (numberParts <= numberVehicles && MemoryEstimate.of(ceilDiv(orders.size(), numberParts),
+                config.toBuilder().setNumberVehicles(ceilDiv(numberVehicles, numberParts)).build())
+                .totalBytes() > budgetBytes)
+            ++numberParts;
+        if (numberParts > numberVehicles)
+            throw new IllegalArgumentException(String.format("%d orders can't be split in parts of %dMB with %d "
+                    + "vehicles", orders.size(), budgetBytes / MEGA_BYTE, numberVehicles));
+        if (numberParts == 1) return List.of(data);
+
+        int[] byZip = IntStream.range(0, orders.size())
+                .boxed()
+                .sorted(Comparator.comparingInt(orders::zipCode))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Duration timeLimit = config.solverTimeLimit().dividedBy(numberParts);
+        if (timeLimit.compareTo(MIN_PART_TIME_LIMIT) < 0) timeLimit = MIN_PART_TIME_LIMIT;
+        List<DataModel> parts = new ArrayList<>();
+        for (int part = 0; part < numberParts; ++part) {
+            int from = (int) ((long) orders.size() * part / numberParts);
+            int to = (int) ((long) orders.size() * (part + 1) / numberParts);
+            int vehicles = numberVehicles * (part + 1) / numberParts - numberVehicles * part / numberParts;
+            int[] orderIndexes = Arrays.copyOfRange(byZip, from, to);
+            parts.add(data.subset(orderIndexes, config.toBuilder()
+                    .setNumberVehicles(vehicles)
+                    .setSolverTimeLimit(timeLimit)
+                    .build()));
+        }
+        logger.info(String.format("%d orders decomposed in %d parts", orders.size(), numberParts));
+        return parts;
+    }
+
+    private static int ceilDiv(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private static int toPermits(long bytes) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (bytes + MEGA_BYTE - 1) / MEGA_BYTE));
+    }
+}
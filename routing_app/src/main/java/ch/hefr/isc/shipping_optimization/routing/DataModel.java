@@ -1,9 +1,12 @@
 package ch.hefr.isc.shipping_optimization.routing;
 
+import ch.hefr.isc.shipping_optimization.data.TravelTimeSlots;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
 import ch.hefr.isc.shipping_optimization.model.RouteNode;
 import ch.hefr.isc.shipping_optimization.model.utils.Distance;
 
 import java.time.Duration;
+import java.time.LocalTime;
 
 public interface DataModel {
     RoutingConfig config();
@@ -15,4 +18,233 @@ public interface DataModel {
     Distance distance(RouteNode from, RouteNode to);
 
     Duration duration(RouteNode from, RouteNode to);
+
+    /**
+     * Get the travel duration between two route nodes when leaving at a given time. Data models without time
+     * dependent durations return the static duration.
+     *
+     * @param from      the origin route node
+     * @param to        the destination route node
+     * @param departure the departure time from the origin
+     * @return the travel duration
+     */
+    default Duration duration(RouteNode from, RouteNode to, LocalTime departure) {
+        return duration(from, to);
+    }
+
+    /**
+     * Get the distance between two route nodes by index, without creating the route nodes. The solver callbacks
+     * call it for every arc they evaluate, data models able to look up the zips of their nodes directly override it.
+     *
+     * @param fromNode the index of the origin route node
+     * @param toNode   the index of the destination route node
+     * @return the distance
+     */
+    default Distance distance(int fromNode, int toNode) {
+        return distance(routeNodeAt(fromNode), routeNodeAt(toNode));
+    }
+
+    /**
+     * Get the duration between two route nodes by index, when leaving at a given time.
+     *
+     * @param fromNode  the index of the origin route node
+     * @param toNode    the index of the destination route node
+     * @param departure the departure time from the origin, null for the static duration
+     * @return the travel duration
+     * @see #distance(int, int)
+     */
+    default Duration duration(int fromNode, int toNode, LocalTime departure) {
+        RouteNode from = routeNodeAt(fromNode);
+        RouteNode to = routeNodeAt(toNode);
+        return departure == null ? duration(from, to) : duration(from, to, departure);
+    }
+
+    /**
+     * Check if the travel durations depend on the departure time.
+     *
+     * @return true if {@link #duration(RouteNode, RouteNode, LocalTime)} can differ from the static duration
+     */
+    default boolean hasTimeDependentDurations() {
+        return false;
+    }
+
+    /**
+     * Get the time dependent durations, to copy or fingerprint the data model.
+     *
+     * @return the travel time slots, null if the durations don't depend on the departure time
+     */
+    default TravelTimeSlots travelTimeSlots() {
+        return null;
+    }
+
+    /**
+     * Get the orders of the route nodes as columns, the order at index i being the one of the route node i + 1.
+     * Data models not backed by an order store build it from the route nodes.
+     *
+     * @return the orders of the data model
+     */
+    default OrderStore orders() {
+        OrderStore orders = new OrderStore(numberRouteNodes() - 1);
+        for (int i = 1; i < numberRouteNodes(); ++i) orders.add(routeNodeAt(i).order());
+        return orders;
+    }
+
+    /**
+     * Get a view of this data model using another routing config. The route nodes and the distances are shared.
+     *
+     * @param config the routing config of the view
+     * @return the data model view
+     */
+    default DataModel withConfig(RoutingConfig config) {
+        DataModel parent = this;
+        return new DataModel() {
+            @Override
+            public RoutingConfig config() {
+                return config;
+            }
+
+            @Override
+            public int numberRouteNodes() {
+                return parent.numberRouteNodes();
+            }
+
+            @Override
+            public RouteNode routeNodeAt(int index) {
+                return parent.routeNodeAt(index);
+            }
+
+            @Override
+            public OrderStore orders() {
+                return parent.orders();
+            }
+
+            @Override
+            public Distance distance(RouteNode from, RouteNode to) {
+                return parent.distance(from, to);
+            }
+
+            @Override
+            public Duration duration(RouteNode from, RouteNode to) {
+                return parent.duration(from, to);
+            }
+
+            @Override
+            public Duration duration(RouteNode from, RouteNode to, LocalTime departure) {
+                return parent.duration(from, to, departure);
+            }
+
+            @Override
+            public Distance distance(int fromNode, int toNode) {
+                return parent.distance(fromNode, toNode);
+            }
+
+            @Override
+            public Duration duration(int fromNode, int toNode, LocalTime departure) {
+                return parent.duration(fromNode, toNode, departure);
+            }
+
+            @Override
+            public boolean hasTimeDependentDurations() {
+                return parent.hasTimeDependentDurations();
+            }
+
+            @Override
+            public TravelTimeSlots travelTimeSlots() {
+                return parent.travelTimeSlots();
+            }
+        };
+    }
+
+    /**
+     * Get a view of this data model restricted to some of its orders, for example to solve a part of the instance
+     * with a part of the fleet. The depot and the distances are shared.
+     *
+     * @param orderIndexes the indexes of the orders in {@link #orders()}, the order at index i of the view being
+     *                     the one at orderIndexes[i]
+     * @param config       the routing config of the view
+     * @return the data model view
+     */
+    default DataModel subset(int[] orderIndexes, RoutingConfig config) {
+        OrderStore parentOrders = orders();
+        OrderStore orders = new OrderStore(orderIndexes.length);
+        for (int index : orderIndexes) orders.add(parentOrders.get(index));
+        return subset(orderIndexes, orders, config);
+    }
+
+    /**
+     * Get a view of this data model restricted to some of its orders, the solver using other columns for them, for
+     * example with narrower time windows. The route nodes of the view keep the orders of this data model.
+     *
+     * @param orderIndexes the indexes of the orders in {@link #orders()}, the order at index i of the view being
+     *                     the one at orderIndexes[i]
+     * @param orders       the orders seen by the solver, the order at index i standing for the one at
+     *                     orderIndexes[i]
+     * @param config       the routing config of the view
+     * @return the data model view
+     */
+    default DataModel subset(int[] orderIndexes, OrderStore orders, RoutingConfig config) {
+        if (orders.size() != orderIndexes.length)
+            throw new IllegalArgumentException(orders.size() + " orders for " + orderIndexes.length + " indexes");
+        DataModel parent = this;
+        return new DataModel() {
+            @Override
+            public RoutingConfig config() {
+                return config;
+            }
+
+            @Override
+            public int numberRouteNodes() {
+                return orderIndexes.length + 1;
+            }
+
+            @Override
+            public RouteNode routeNodeAt(int index) {
+                return parent.routeNodeAt(parentNode(index));
+            }
+
+            private int parentNode(int index) {
+                return index == 0 ? 0 : orderIndexes[index - 1] + 1;
+            }
+
+            @Override
+            public OrderStore orders() {
+                return orders;
+            }
+
+            @Override
+            public Distance distance(RouteNode from, RouteNode to) {
+                return parent.distance(from, to);
+            }
+
+            @Override
+            public Duration duration(RouteNode from, RouteNode to) {
+                return parent.duration(from, to);
+            }
+
+            @Override
+            public Duration duration(RouteNode from, RouteNode to, LocalTime departure) {
+                return parent.duration(from, to, departure);
+            }
+
+            @Override
+            public Distance distance(int fromNode, int toNode) {
+                return parent.distance(parentNode(fromNode), parentNode(toNode));
+            }
+
+            @Override
+            public Duration duration(int fromNode, int toNode, LocalTime departure) {
+                return parent.duration(parentNode(fromNode), parentNode(toNode), departure);
+            }
+
+            @Override
+            public boolean hasTimeDependentDurations() {
+                return parent.hasTimeDependentDurations();
+            }
+
+            @Override
+            public TravelTimeSlots travelTimeSlots() {
+                return parent.travelTimeSlots();
+            }
+        };
+    }
 }
@@ -0,0 +1,193 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Finds the smallest number of vehicles that serves the same orders as the configured fleet (or reaches a cost
+ * within a tolerance of it).
+ * <p>
+ * The configured fleet is solved once to get a reference solution. Candidate fleet sizes between a capacity lower
+ * bound and the number of vehicles used by the best known solution are then solved concurrently, each one starting
+ * from the best known routes trimmed to the candidate size, which narrows the search interval at every round.
+ */
+public class FleetSizeMinimizer {
+
+    private static final Logger logger = Logger.getLogger(FleetSizeMinimizer.class.getName());
+    private final DataModel data;
+    private final double costTolerance;
+    private final int parallelism;
+    private final Duration candidateTimeLimit;
+
+    /**
+     * @param data               the data model, its config gives the largest fleet size
+     * @param costTolerance      the relative cost increase accepted over the reference solution (0.05 for 5%)
+     * @param parallelism        the number of fleet sizes solved concurrently
+     * @param candidateTimeLimit the solver time limit of each warm started candidate
+     */
+    public FleetSizeMinimizer(DataModel data, double costTolerance, int parallelism, Duration candidateTimeLimit) {
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism has to be at least 1");
+        this.data = data;
+        this.costTolerance = costTolerance;
+        this.parallelism = parallelism;
+        this.candidateTimeLimit = candidateTimeLimit;
+    }
+
+    /**
+     * Search the smallest fleet.
+     *
+     * @return the smallest accepted fleet and its solution
+     * @throws IllegalStateException if no solution is found with the configured fleet
+     * @throws InterruptedException  if the thread is interrupted while waiting for the candidates
+     */
+    public Result minimize() throws IllegalStateException, InterruptedException {
+        Candidate reference = solveCandidate(data.config().numberVehicles(), null, data.config().solverTimeLimit());
+        if (reference == null) throw new IllegalStateException("No solution found with the configured fleet.");
+
+        Candidate best = reference;
+        int low = capacityLowerBound(reference.solution());
+        int high = usedVehicles(reference.routes());
+        int solvedCandidates = 1;
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            while (low < high) {
+                List<Integer> sizes = candidateSizes(low, high - 1);
+                logger.info(String.format("fleet sizes [%d, %d], solving %s", low, high, sizes));
+
+                List<Callable<Candidate>> tasks = new ArrayList<>();
+                for (int size : sizes) {
+                    long[][] initialRoutes = trimRoutes(best.routes(), size);
+                    tasks.add(() -> solveCandidate(size, initialRoutes, candidateTimeLimit));
+                }
+                List<Future<Candidate>> futures = executor.invokeAll(tasks);
+                solvedCandidates += sizes.size();
+
+                int newHigh = high;
+                int newLow = low;
+                for (int i = 0; i < sizes.size(); ++i) {
+                    Candidate candidate = result(futures.get(i));
+                    if (candidate != null && accepts(candidate.solution(), reference.solution())) {
+                        int used = usedVehicles(candidate.routes());
+                        if (used < newHigh) {
+                            newHigh = used;
+                            best = candidate;
+                        }
+                    } else {
+                        newLow = Math.max(newLow, sizes.get(i) + 1);
+                    }
+                }
+                high = newHigh;
+                low = Math.min(newLow, high);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Result(high, best.solution(), reference.solution(), solvedCandidates);
+    }
+
+    private Candidate solveCandidate(int numberVehicles, long[][] initialRoutes, Duration timeLimit) {
+        RoutingConfig config = data.config().toBuilder()
+                .setNumberVehicles(numberVehicles)
+                .setSolverTimeLimit(timeLimit)
+                .build();
+        RoutingSolver solver = new RoutingSolver(data.withConfig(config));
+        solver.solve(initialRoutes);
+        if (!solver.hasSolution()) return null;
+        return new Candidate(solver.solution(), solver.routes());
+    }
+
+    private static Candidate result(Future<Candidate> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Fleet size candidate failed", e.getCause());
+        }
+    }
+
+    private boolean accepts(RoutingSolution candidate, RoutingSolution reference) {
+        if (candidate.droppedOrders().equals(reference.droppedOrders())) return true;
+        return candidate.totalMonetaryCost() <= reference.totalMonetaryCost() * (1 + costTolerance);
+    }
+
+    /**
+     * Spread at most parallelism fleet sizes over [low, high], always including high so that a round where every
+     * candidate is rejected still closes the interval.
+     */
+    private List<Integer> candidateSizes(int low, int high) {
+        List<Integer> sizes = new ArrayList<>();
+        int range = high - low + 1;
+        if (range <= parallelism) {
+            for (int size = low; size <= high; ++size) sizes.add(size);
+            return sizes;
+        }
+        for (int i = 1; i <= parallelism; ++i) {
+            int size = low + (int) ((long) range * i / parallelism) - 1;
+            if (sizes.isEmpty() || sizes.get(sizes.size() - 1) != size) sizes.add(size);
+        }
+        return sizes;
+    }
+
+    /**
+     * Keep the routes with the most orders, the orders of the removed routes are left to the solver.
+     */
+    private static long[][] trimRoutes(long[][] routes, int numberVehicles) {
+        return Arrays.stream(routes)
+                .sorted(Comparator.comparingInt((long[] route) -> route.length).reversed())
+                .limit(numberVehicles)
+                .toArray(long[][]::new);
+    }
+
+    private static int usedVehicles(long[][] routes) {
+        return (int) Arrays.stream(routes).filter(route -> route.length > 0).count();
+    }
+
+    private int capacityLowerBound(RoutingSolution solution) {
+        int totalBoxes = 0;
+        double totalGrams = 0;
+        for (RoutingSolution.Route route : solution.routes()) {
+            totalBoxes += route.totalNumberBoxes();
+            totalGrams += route.totalWeight().grams();
+        }
+        int byBoxes = (int) Math.ceil((double) totalBoxes / data.config().maxBoxesPerVehicle());
+        int byWeight = (int) Math.ceil(totalGrams / data.config().maxWeightPerVehicle().grams());
+        return Math.max(1, Math.max(byBoxes, byWeight));
+    }
+
+    private record Candidate(RoutingSolution solution, long[][] routes) {}
+
+    /**
+     * The result of the fleet minimisation.
+     *
+     * @param numberVehicles    the smallest accepted number of vehicles
+     * @param solution          the solution using that number of vehicles
+     * @param referenceSolution the solution with the configured fleet
+     * @param solvedCandidates  the number of solver runs, including the reference
+     */
+    public record Result(int numberVehicles, RoutingSolution solution, RoutingSolution referenceSolution,
+                         int solvedCandidates) {
+        /**
+         * Get the orders served by the reference solution but not by the minimised one.
+         *
+         * @return the additionally dropped orders
+         */
+        public List<Order> additionallyDroppedOrders() {
+            return solution.droppedOrders().stream()
+                    .filter(order -> !referenceSolution.droppedOrders().contains(order))
+                    .toList();
+        }
+    }
+}
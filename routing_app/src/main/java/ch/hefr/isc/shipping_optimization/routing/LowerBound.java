@@ -0,0 +1,105 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
+
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Lower bound of the objective minimized by the {@link RoutingSolver}: the monetary cost of the arcs plus the hub
+ * delivery cost of the dropped orders.
+ * <p>
+ * Every order is either dropped, paying its hub delivery cost, or visited, with exactly one arc entering it and one
+ * arc leaving it. Charging half the cost of each arc to both of its ends, a visited order pays at least half the
+ * sum of its cheapest entering and leaving arcs, and the charges of the depot are not negative. Since the fleet
+ * can't carry more than its total boxes and weight capacity, the orders which save the most by being visited are
+ * chosen with a fractional knapsack relaxation over each capacity, the tighter of the two bounds being kept. The
+ * bound ignores the time windows and the route lengths, so it is weak when they bind, but it only needs the cheapest
+ * arcs of each route node.
+ */
+public class LowerBound {
+
+    private LowerBound() {}
+
+    /**
+     * Compute the lower bound of the objective of a data model, in parallel over the route nodes.
+     *
+     * @param data the data model
+     * @return the lower bound, in the unit of the solver objective
+     */
+    public static long compute(DataModel data) {
+        RoutingConfig config = data.config();
+        OrderStore orders = data.orders();
+        LocalTime[] departures = RoutingSolver.expectedDepartures(data, orders);
+        int numberNodes = data.numberRouteNodes();
+
+        long[] cheapestOut = new long[numberNodes];
+        // the rows are computed in parallel, each row gives the cheapest leaving arc of its node, and the cheapest
+        // entering arcs are reduced from the columns of the rows of each split
+        long[] cheapestIn = IntStream.range(0, numberNodes).parallel()
+                .collect(() -> filled(numberNodes), (columns, from) -> {
+                    long out = Long.MAX_VALUE;
+                    for (int to = 0; to < numberNodes; ++to) {
+                        if (to == from) continue;
+                        long cost = RoutingSolver.monetaryCost(config,
+                                RoutingSolver.travelMinutes(data, departures, from, to));
+                        out = Math.min(out, cost);
+                        columns[to] = Math.min(columns[to], cost);
+                    }
+                    cheapestOut[from] = out;
+                }, (columns, other) -> {
+                    for (int to = 0; to < numberNodes; ++to) columns[to] = Math.min(columns[to], other[to]);
+                });
+
+        double totalPenalty = 0;
+        double[] savings = new double[orders.size()];
+        for (int i = 0; i < orders.size(); ++i) {
+            long penalty = RoutingSolver.hubDeliveryPenalty(orders, i);
+            totalPenalty += penalty;
+            double visitCost = (cheapestIn[i + 1] / 2.0) + (cheapestOut[i + 1] / 2.0);
+            boolean fits = orders.numberBoxes(i) <= config.maxBoxesPerVehicle()
+                    && orders.weightGrams(i) <= config.maxWeightPerVehicle().grams();
+            savings[i] = fits ? Math.max(0, penalty - visitCost) : 0;
+        }
+
+        double boxesSavings = maxSavings(savings, orders::numberBoxes,
+                (double) config.numberVehicles() * config.maxBoxesPerVehicle());
+        double weightSavings = maxSavings(savings, orders::weightGrams,
+                config.numberVehicles() * config.maxWeightPerVehicle().grams());
+        // the objective is an integer, the epsilon absorbs the rounding of the sums
+        return Math.max(0, (long) Math.ceil(totalPenalty - Math.min(boxesSavings, weightSavings) - 1e-6));
+    }
+
+    private static long[] filled(int length) {
+        long[] values = new long[length];
+        Arrays.fill(values, Long.MAX_VALUE);
+        return values;
+    }
+
+    /**
+     * Solve the fractional knapsack of the savings of the visited orders over one capacity.
+     */
+    private static double maxSavings(double[] savings, IntUnaryOperator demand, double capacity) {
+        Integer[] byRatio = IntStream.range(0, savings.length)
+                .filter(i -> savings[i] > 0)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -savings[i] / Math.max(demand.applyAsInt(i), 1e-9)))
+                .toArray(Integer[]::new);
+        double total = 0;
+        double left = capacity;
+        for (int i : byRatio) {
+            int need = demand.applyAsInt(i);
+            if (need <= left) {
+                total += savings[i];
+                left -= need;
+            } else {
+                total += savings[i] * left / need;
+                break;
+            }
+        }
+        return total;
+    }
+}
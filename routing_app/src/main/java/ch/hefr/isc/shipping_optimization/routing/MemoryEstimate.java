@@ -0,0 +1,62 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+/**
+ * Estimated memory of a solve by the {@link RoutingSolver}, known before building the routing model.
+ * <p>
+ * The native memory is taken by the routing model: its five dimensions hold variables for every routing index (one
+ * per order and two per vehicle), and the local search keeps neighborhoods and deltas for them. It was measured as
+ * the resident memory growth of solves of 100 to 3000 orders with 4 to 30 vehicles, and grows linearly with the
+ * routing indexes since the transit callbacks are not cached in matrices. The Java heap holds the order columns
+ * copied by the solver, the expected departures, the lower bound arrays and the extracted solutions. The shared
+ * distance matrix is not counted.
+ *
+ * @param heapBytes   the estimated Java heap taken by the solve
+ * @param nativeBytes the estimated native memory taken by the routing model
+ */
+public record MemoryEstimate(long heapBytes, long nativeBytes) {
+
+    private static final long MEGA_BYTE = 1L << 20;
+    // solver, search parameters and first solution structures
+    private static final long BASE_NATIVE_BYTES = 16 * MEGA_BYTE;
+    // the measured growth, about 9.6KB per dimension and routing index for the five dimensions
+    private static final long NATIVE_BYTES_PER_ROUTING_INDEX = 48L * 1024;
+    private static final long BASE_HEAP_BYTES = MEGA_BYTE;
+    private static final long HEAP_BYTES_PER_ROUTING_INDEX = 1024;
+
+    /**
+     * Estimate the memory of solving a data model.
+     *
+     * @param data the data model
+     * @return the estimate
+     */
+    public static MemoryEstimate of(DataModel data) {
+        return of(data.numberRouteNodes() - 1, data.config());
+    }
+
+    /**
+     * Estimate the memory of solving some orders with a routing config.
+     *
+     * @param numberOrders the number of orders
+     * @param config       the routing config
+     * @return the estimate
+     */
+    public static MemoryEstimate of(int numberOrders, RoutingConfig config) {
+        long routingIndexes = routingIndexes(numberOrders, config.numberVehicles());
+        return new MemoryEstimate(BASE_HEAP_BYTES + routingIndexes * HEAP_BYTES_PER_ROUTING_INDEX,
+                BASE_NATIVE_BYTES + routingIndexes * NATIVE_BYTES_PER_ROUTING_INDEX);
+    }
+
+    private static long routingIndexes(int numberOrders, int numberVehicles) {
+        return numberOrders + 2L * numberVehicles;
+    }
+
+    public long totalBytes() {
+        return heapBytes + nativeBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1fMB heap + %.1fMB native", heapBytes / (double) MEGA_BYTE,
+                nativeBytes / (double) MEGA_BYTE);
+    }
+}
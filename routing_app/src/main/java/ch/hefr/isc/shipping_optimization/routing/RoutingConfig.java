@@ -7,7 +7,8 @@ import ch.hefr.isc.shipping_optimization.model.utils.Zip;
 import java.time.Duration;
 
 public record RoutingConfig (int numberVehicles, Zip depotZip, Duration deliveryExecutionTime, float hourlyVehicleCost,
-                             int maxBoxesPerVehicle, Weight maxWeightPerVehicle, Duration solverTimeLimit) {
+                             int maxBoxesPerVehicle, Weight maxWeightPerVehicle, Duration solverTimeLimit,
+                             SearchProfile searchProfile, double targetGap) {
     private static final int DEFAULT_VEHICLE_NUMBER = 30;
     private static final Zip DEFAULT_DEPOT_ZIP = Zip.of("3000");
     private static final Duration DEFAULT_DELIVERY_EXECUTION_TIME = Duration.ofMinutes(10);
@@ -15,11 +16,26 @@ public record RoutingConfig (int numberVehicles, Zip depotZip, Duration delivery
     private static final int DEFAULT_MAX_BOXES_PER_VEHICLE = 64;
     private static final Weight DEFAULT_MAX_WEIGHT_PER_VEHICLE = Weight.ofKiloGrams(1000);
     private static final Duration DEFAULT_SOLVER_TIME_LIMIT = Duration.ofSeconds(30);
+    private static final SearchProfile DEFAULT_SEARCH_PROFILE = SearchProfile.DEFAULT;
+    private static final double DEFAULT_TARGET_GAP = 0;
 
     public static RoutingConfigBuilder builder() {
         return new RoutingConfigBuilder();
     }
 
+    public RoutingConfigBuilder toBuilder() {
+        return new RoutingConfigBuilder()
+                .setNumberVehicles(numberVehicles)
+                .setDepotZip(depotZip)
+                .setDeliveryExecutionTime(deliveryExecutionTime)
+                .setHourlyVehicleCost(hourlyVehicleCost)
+                .setMaxBoxesPerVehicle(maxBoxesPerVehicle)
+                .setMaxWeightPerVehicle(maxWeightPerVehicle)
+                .setSolverTimeLimit(solverTimeLimit)
+                .setSearchProfile(searchProfile)
+                .setTargetGap(targetGap);
+    }
+
     public static class RoutingConfigBuilder {
         private int numberVehicles = DEFAULT_VEHICLE_NUMBER;
         private Zip depotZip = DEFAULT_DEPOT_ZIP;
@@ -28,12 +44,14 @@ public record RoutingConfig (int numberVehicles, Zip depotZip, Duration delivery
         private int maxBoxesPerVehicle = DEFAULT_MAX_BOXES_PER_VEHICLE;
         private Weight maxWeightPerVehicle = DEFAULT_MAX_WEIGHT_PER_VEHICLE;
         private Duration solverTimeLimit = DEFAULT_SOLVER_TIME_LIMIT;
+        private SearchProfile searchProfile = DEFAULT_SEARCH_PROFILE;
+        private double targetGap = DEFAULT_TARGET_GAP;
 
         private RoutingConfigBuilder() {}
 
         public RoutingConfig build() {
             return new RoutingConfig(numberVehicles, depotZip, deliveryExecutionTime, hourlyVehicleCost,
-                    maxBoxesPerVehicle, maxWeightPerVehicle, solverTimeLimit);
+                    maxBoxesPerVehicle, maxWeightPerVehicle, solverTimeLimit, searchProfile, targetGap);
         }
 
         public RoutingConfigBuilder setNumberVehicles(int numberVehicles) {
@@ -70,5 +88,23 @@ public record RoutingConfig (int numberVehicles, Zip depotZip, Duration delivery
             this.solverTimeLimit = solverTimeLimit;
             return this;
         }
+
+        public RoutingConfigBuilder setSearchProfile(SearchProfile searchProfile) {
+            this.searchProfile = searchProfile;
+            return this;
+        }
+
+        /**
+         * Stop the search before the time limit once the relative gap between the best solution and the lower bound
+         * of the objective is at most the target gap, see {@link LowerBound}. A target gap of 0 only stops at the
+         * time limit.
+         *
+         * @param targetGap the target gap, for example 0.05 for 5%
+         * @return the builder
+         */
+        public RoutingConfigBuilder setTargetGap(double targetGap) {
+            this.targetGap = targetGap;
+            return this;
+        }
     }
 }
@@ -1,31 +1,197 @@
 package ch.hefr.isc.shipping_optimization.routing;
 
 import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
 import ch.hefr.isc.shipping_optimization.model.RouteNode;
 import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.metrics.MetricsRegistry;
+import ch.hefr.isc.shipping_optimization.metrics.RoutingMetrics;
 import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.profiling.PhaseTimer;
 import com.google.ortools.Loader;
 import com.google.ortools.constraintsolver.*;
+import com.google.ortools.util.OptionalBoolean;
 
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.ToLongFunction;
 import java.util.logging.Logger;
 
 public class RoutingSolver {
 
     private static final Logger logger = Logger.getLogger(RoutingSolver.class.getName());
+    // the longest route the solver allows
+    static final long MAX_ROUTE_METERS = 1_000_000;
+    // computes the lower bounds in parallel with the searches that stop at a target gap
+    private static final Executor LOWER_BOUND_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "lower-bound");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final DataModel data;
+    private final OrderStore orders;
     private RoutingModel routing;
     private RoutingIndexManager manager;
     private Assignment solution;
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private final List<Consumer<RoutingSolution>> solutionListeners = new CopyOnWriteArrayList<>();
+    // referenced so that the limit and its callback live as long as the search
+    private SearchLimit stopLimit;
+    private long bestNotifiedCost = Long.MAX_VALUE;
+    private final AtomicLong bestCost = new AtomicLong(Long.MAX_VALUE);
+    // the bound only depends on the data model, so it is computed once for all the solves
+    private final AtomicReference<CompletableFuture<Long>> lowerBound = new AtomicReference<>();
+    private Consumer<long[][]> checkpointHandler;
+    private Duration checkpointInterval;
+    private long checkpointedCost = Long.MAX_VALUE;
+    private long lastCheckpointNanos;
+    // the last improvement found too soon after the previous checkpoint, saved once the interval has passed
+    private long[][] pendingCheckpoint;
+    private long pendingCheckpointCost = Long.MAX_VALUE;
+    private LocalTime[] vehicleAvailability;
 
     public RoutingSolver(DataModel data) {
         this.data = data;
+        this.orders = data.orders();
+    }
+
+    /**
+     * Add a listener called from the solving thread every time the search finds a solution cheaper than the
+     * previous ones. Listeners have to be added before solving.
+     *
+     * @param listener the listener receiving the improving solutions
+     */
+    public void addSolutionListener(Consumer<RoutingSolution> listener) {
+        solutionListeners.add(listener);
+    }
+
+    /**
+     * Periodically hand the routes of the best solution found so far to a handler, to persist them while a long
+     * search is running. The handler is called from the solving thread at most once per interval with the cheapest
+     * solution found since the last checkpoint, as soon as the interval has passed even if the search finds nothing
+     * better meanwhile, and once more with the final solution if it is cheaper.
+     * The routes can be given back to {@link #solve(long[][])} to resume the search.
+     *
+     * @param interval the minimum time between two checkpoints
+     * @param handler  the handler receiving the route node indexes visited by each vehicle (without the depot)
+     */
+    public void setCheckpointHandler(Duration interval, Consumer<long[][]> handler) {
+        this.checkpointInterval = interval;
+        this.checkpointHandler = handler;
+    }
+
+    /**
+     * Set the time from which each vehicle is available, for example the end of its previous route. The routes of
+     * the vehicles can't start earlier. Has to be set before solving.
+     *
+     * @param availableFrom the time from which each vehicle is available, null for a vehicle available all day
+     */
+    public void setVehicleAvailability(LocalTime[] availableFrom) {
+        if (availableFrom.length != data.config().numberVehicles())
+            throw new IllegalArgumentException(availableFrom.length + " availabilities for "
+                    + data.config().numberVehicles() + " vehicles");
+        this.vehicleAvailability = availableFrom.clone();
+    }
+
+    /**
+     * Stop the search as soon as possible, the solve then keeps the best solution found so far. Can be called from
+     * any thread, also before the search starts.
+     */
+    public void stop() {
+        stopRequested.set(true);
+    }
+
+    /**
+     * Solve the routing problem on the given executor.
+     * <p>
+     * Cancelling the returned future stops the search. To stop early and still get the best solution found so
+     * far, call {@link #stop()} instead.
+     *
+     * @param executor the executor running the solve
+     * @return the future solution, completed exceptionally if no solution is found
+     */
+    public CompletableFuture<RoutingSolution> solveAsync(Executor executor) {
+        CompletableFuture<RoutingSolution> future = new CompletableFuture<>();
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) stop();
+        });
+        executor.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                solve();
+                future.complete(solution());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Get the lower bound of the objective, computed by {@link LowerBound} the first time it is needed: in parallel
+     * with the search when the config has a target gap, otherwise by the first call, which then waits for it.
+     *
+     * @return the lower bound, empty while it is being computed in parallel with the search or if it failed
+     */
+    public OptionalLong lowerBound() {
+        CompletableFuture<Long> bound = computeLowerBound(Runnable::run);
+        if (!bound.isDone() || bound.isCompletedExceptionally()) return OptionalLong.empty();
+        return OptionalLong.of(bound.join());
+    }
+
+    private CompletableFuture<Long> computeLowerBound(Executor executor) {
+        CompletableFuture<Long> bound = lowerBound.get();
+        if (bound != null) return bound;
+        CompletableFuture<Long> computed = new CompletableFuture<>();
+        if (!lowerBound.compareAndSet(null, computed)) return lowerBound.get();
+        computed.whenComplete((value, e) -> {
+            if (e != null) logger.warning("lower bound failed: " + e);
+            else logger.info("objective lower bound: " + value);
+        });
+        executor.execute(() -> {
+            try {
+                computed.complete(LowerBound.compute(data));
+            } catch (RuntimeException e) {
+                computed.completeExceptionally(e);
+            }
+        });
+        return computed;
+    }
+
+    /**
+     * Get the relative gap between the cheapest solution found so far and the lower bound of the objective. The
+     * optimal solution is at most this fraction cheaper than the cheapest solution. Can be called from any thread,
+     * also during the search, and computes the lower bound like {@link #lowerBound()} if it is not known yet.
+     *
+     * @return the gap, NaN if there is no solution or no lower bound yet
+     */
+    public double gap() {
+        long cost = bestCost.get();
+        if (cost == Long.MAX_VALUE) return Double.NaN;
+        OptionalLong bound = lowerBound();
+        if (bound.isEmpty()) return Double.NaN;
+        if (cost <= 0) return 0;
+        return (double) (cost - bound.getAsLong()) / cost;
+    }
+
+    private boolean targetGapReached() {
+        double targetGap = data.config().targetGap();
+        return targetGap > 0 && gap() <= targetGap;
     }
 
     public boolean wasRun() {
@@ -36,56 +202,195 @@ public class RoutingSolver {
         return solution != null;
     }
 
-    // TODO : clean up the magic numbers
     public void solve() {
-        logger.info("routing init");
-        Loader.loadNativeLibraries();
+        solve(null);
+    }
 
-        // Create Routing Index Manager
-        this.manager = new RoutingIndexManager(data.numberRouteNodes(), data.config().numberVehicles(), 0);
+    /**
+     * Solve the routing problem starting the local search from the given routes.
+     *
+     * @param initialRoutes the route node indexes visited by each vehicle (without the depot), may contain fewer
+     *                      routes than vehicles, null to build the first solution from scratch
+     */
+    // TODO : clean up the magic numbers
+    @SuppressWarnings("try")
+    public void solve(long[][] initialRoutes) {
+        logger.info("routing init");
+        RoutingMetrics.SOLVES_STARTED.increment();
+        long start = System.nanoTime();
+        bestCost.set(Long.MAX_VALUE);
+        bestNotifiedCost = Long.MAX_VALUE;
+        checkpointedCost = Long.MAX_VALUE;
+        pendingCheckpoint = null;
+        pendingCheckpointCost = Long.MAX_VALUE;
+        if (data.config().targetGap() > 0) computeLowerBound(LOWER_BOUND_EXECUTOR);
+        RoutingSearchParameters searchParameters;
+        Assignment initialAssignment = null;
+        try (PhaseTimer.Phase ignored = startPhase("build")) {
+            Loader.loadNativeLibraries();
+
+            // Create Routing Index Manager
+            this.manager = new RoutingIndexManager(data.numberRouteNodes(), data.config().numberVehicles(), 0);
+
+            // Create Routing Model
+            this.routing = new RoutingModel(manager);
+
+            addDistanceConstraint();
+
+            LongBinaryOperator timeCallback = addTimeWindowConstraint();
+
+            addCapacityConstraint();
+
+            addHubCostDeliveryCostConstraint();
+
+            addMonetaryConstraint(timeCallback);
+
+            searchParameters = searchParameters();
+
+            // the limit is polled all along the search, so a pending checkpoint is saved even on a plateau
+            this.stopLimit = routing.solver().makeCustomLimit(() -> {
+                if (checkpointHandler != null) saveCheckpoint();
+                return stopRequested.get() || targetGapReached();
+            });
+            routing.addSearchMonitor(stopLimit);
+            routing.addAtSolutionCallback(() -> bestCost.accumulateAndGet(routing.costVar().min(), Math::min));
+            if (!solutionListeners.isEmpty())
+                routing.addAtSolutionCallback(this::notifySolutionListeners);
+            if (checkpointHandler != null) {
+                lastCheckpointNanos = System.nanoTime();
+                routing.addAtSolutionCallback(this::checkpoint);
+            }
 
-        // Create Routing Model
-        this.routing = new RoutingModel(manager);
+            if (initialRoutes != null) {
+                routing.closeModelWithParameters(searchParameters);
+                initialAssignment = routing.readAssignmentFromRoutes(toRoutingIndexes(initialRoutes), true);
+                if (initialAssignment == null)
+                    logger.warning("initial routes are not feasible, solving from scratch");
+            }
+        }
 
-        addDistanceConstraint();
+        // Solve the problem.
+        logger.info("routing solver start");
+        try (PhaseTimer.Phase ignored = startPhase("search")) {
+            if (initialAssignment != null)
+                this.solution = routing.solveFromAssignmentWithParameters(initialAssignment, searchParameters);
+            else
+                this.solution = routing.solveWithParameters(searchParameters);
+        }
+        logger.info("routing solver end");
+        if (solution != null) bestCost.accumulateAndGet(solution.objectiveValue(), Math::min);
+        if (targetGapReached()) logger.info(String.format("target gap reached, gap %.2f%%", 100 * gap()));
+        recordSolveMetrics(start);
+
+        pendingCheckpoint = null;
+        if (checkpointHandler != null && solution != null && solution.objectiveValue() < checkpointedCost) {
+            checkpointedCost = solution.objectiveValue();
+            try {
+                checkpointHandler.accept(extractRoutes(solution::value));
+            } catch (RuntimeException e) {
+                logger.warning("checkpoint failed: " + e);
+            }
+        }
+    }
 
-        LongBinaryOperator timeCallback = addTimeWindowConstraint();
+    private void recordSolveMetrics(long start) {
+        RoutingMetrics.SOLVE_SECONDS.observe((System.nanoTime() - start) / 1e9);
+        if (solution == null) {
+            RoutingMetrics.SOLVES_WITHOUT_SOLUTION.increment();
+            return;
+        }
+        RoutingMetrics.SOLVES_WITH_SOLUTION.increment();
+        RoutingMetrics.OBJECTIVE.observe(solution.objectiveValue());
+        // the gap is only published when the bound was needed, it's not worth computing for the metric alone
+        if (lowerBound.get() != null && !Double.isNaN(gap())) RoutingMetrics.GAP.set(gap());
+        int droppedOrders = 0;
+        for (int i = 1; i < data.numberRouteNodes(); ++i)
+            if (solution.value(routing.activeVar(manager.nodeToIndex(i))) == 0) ++droppedOrders;
+        RoutingMetrics.DROPPED_ORDERS.observe(droppedOrders);
+    }
 
-        addCapacityConstraint();
+    private void checkpoint() {
+        long cost = routing.costVar().min();
+        if (cost >= Math.min(checkpointedCost, pendingCheckpointCost)) return;
+        // the routes can only be read while the search is at the solution
+        pendingCheckpoint = extractRoutes(IntVar::min);
+        pendingCheckpointCost = cost;
+        saveCheckpoint();
+    }
 
-        addHubCostDeliveryCostConstraint();
+    private void saveCheckpoint() {
+        if (pendingCheckpoint == null || System.nanoTime() - lastCheckpointNanos < checkpointInterval.toNanos())
+            return;
+        long[][] routes = pendingCheckpoint;
+        checkpointedCost = pendingCheckpointCost;
+        pendingCheckpoint = null;
+        pendingCheckpointCost = Long.MAX_VALUE;
+        lastCheckpointNanos = System.nanoTime();
+        try {
+            checkpointHandler.accept(routes);
+        } catch (RuntimeException e) {
+            logger.warning("checkpoint failed: " + e);
+        }
+    }
 
-        addMonetaryConstraint(timeCallback);
+    private void notifySolutionListeners() {
+        long cost = routing.costVar().min();
+        if (cost >= bestNotifiedCost) return;
+        bestNotifiedCost = cost;
+
+        RoutingSolution current = extractSolution(IntVar::min);
+        for (Consumer<RoutingSolution> listener : solutionListeners) {
+            try {
+                listener.accept(current);
+            } catch (RuntimeException e) {
+                logger.warning("solution listener failed: " + e);
+            }
+        }
+    }
 
-        // Setting first solution heuristic.
-        RoutingSearchParameters searchParameters = main.defaultRoutingSearchParameters()
+    private RoutingSearchParameters searchParameters() {
+        SearchProfile profile = data.config().searchProfile();
+        RoutingSearchParameters.Builder builder = main.defaultRoutingSearchParameters()
                 .toBuilder()
-                .setFirstSolutionStrategy(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC)
-                .setLocalSearchMetaheuristic(LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH)
-                .setTimeLimit(com.google.protobuf.Duration.newBuilder()
-                        .setSeconds(data.config().solverTimeLimit().getSeconds()).build())
+                .setFirstSolutionStrategy(profile.firstSolutionStrategy())
+                .setLocalSearchMetaheuristic(profile.localSearchMetaheuristic())
+                .setLnsTimeLimit(toProtoDuration(profile.lnsTimeLimit()))
+                .setTimeLimit(toProtoDuration(data.config().solverTimeLimit()));
+        if (profile.useLnsOperators()) {
+            builder.getLocalSearchOperatorsBuilder()
+                    .setUsePathLns(OptionalBoolean.BOOL_TRUE)
+                    .setUseInactiveLns(OptionalBoolean.BOOL_TRUE);
+        }
+        return builder.build();
+    }
+
+    private static com.google.protobuf.Duration toProtoDuration(Duration duration) {
+        return com.google.protobuf.Duration.newBuilder()
+                .setSeconds(duration.getSeconds())
+                .setNanos(duration.getNano())
                 .build();
+    }
 
-        // Solve the problem.
-        logger.info("routing solver start");
-        this.solution = routing.solveWithParameters(searchParameters);
-        logger.info("routing solver end");
+    private long[][] toRoutingIndexes(long[][] routes) {
+        long[][] indexes = new long[data.config().numberVehicles()][];
+        for (int i = 0; i < indexes.length; ++i) {
+            long[] route = i < routes.length ? routes[i] : new long[0];
+            indexes[i] = new long[route.length];
+            for (int j = 0; j < route.length; ++j)
+                indexes[i][j] = manager.nodeToIndex((int) route[j]);
+        }
+        return indexes;
     }
 
     private LongBinaryOperator addTimeWindowConstraint() {
         // Add Time dimension.
-        LongBinaryOperator timeCallback = (long fromIndex, long toIndex) -> {
-            RouteNode from = data.routeNodeAt(manager.indexToNode(fromIndex));
-            RouteNode to = data.routeNodeAt(manager.indexToNode(toIndex));
-
-            Duration duration = data.duration(from, to);
-
-            if (!to.isDepot())
-                duration = duration.plus(data.config().deliveryExecutionTime());
-
-            return Math.round(duration.toSeconds() / 60.0);
-        };
-        final int timeCallbackIndex = routing.registerTransitCallback(timeCallback);
+        // the transit of an arc can't depend on the cumul, so time dependent durations are taken at the expected
+        // departure from the origin: the start of its time window, the earliest window for the depot
+        LocalTime[] departures = expectedDepartures(data, orders);
+        LongBinaryOperator timeCallback = (long fromIndex, long toIndex) ->
+                travelMinutes(data, departures, manager.indexToNode(fromIndex), manager.indexToNode(toIndex));
+        final int timeCallbackIndex = routing.registerTransitCallback(counted(timeCallback,
+                RoutingMetrics.TIME_CALLBACKS));
 
         routing.addDimension(timeCallbackIndex, 0,  // no slack
                 24 * 60,                            // no max time per vehicle (set to 24 hours)
@@ -96,9 +401,13 @@ public class RoutingSolver {
         // Add time window constraints for each location except depot.
         for (int i = 1; i < data.numberRouteNodes(); ++i) {
             long index = manager.nodeToIndex(i);
-            Order order = data.routeNodeAt(i).order();
-            timeDimension.cumulVar(index).setRange(order.timeWindow().startAsMinutes(),
-                    order.timeWindow().endAsMinutes());
+            timeDimension.cumulVar(index).setRange(orders.timeWindowStartMinutes(i - 1),
+                    orders.timeWindowEndMinutes(i - 1));
+        }
+        if (vehicleAvailability != null) {
+            for (int i = 0; i < vehicleAvailability.length; ++i)
+                if (vehicleAvailability[i] != null)
+                    timeDimension.cumulVar(routing.start(i)).setMin(vehicleAvailability[i].toSecondOfDay() / 60);
         }
 
 //        // Instantiate route start and end times to produce feasible times.
@@ -109,37 +418,50 @@ public class RoutingSolver {
         return timeCallback;
     }
 
+    /**
+     * Get the expected departure time from each route node, null if the data model has no time dependent durations.
+     */
+    static LocalTime[] expectedDepartures(DataModel data, OrderStore orders) {
+        if (!data.hasTimeDependentDurations()) return null;
+        LocalTime[] departures = new LocalTime[data.numberRouteNodes()];
+        int earliest = 24 * 60 - 1;
+        for (int i = 1; i < data.numberRouteNodes(); ++i) {
+            int start = orders.timeWindowStartMinutes(i - 1);
+            departures[i] = LocalTime.ofSecondOfDay(60L * start).plus(data.config().deliveryExecutionTime());
+            earliest = Math.min(earliest, start);
+        }
+        departures[0] = data.numberRouteNodes() > 1 ? LocalTime.ofSecondOfDay(60L * earliest) : LocalTime.MIDNIGHT;
+        return departures;
+    }
+
     private void addDistanceConstraint() {
-        final int distanceCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
-            Distance distance = data.distance(
-                    data.routeNodeAt(manager.indexToNode(fromIndex)),
-                    data.routeNodeAt(manager.indexToNode(toIndex)));
-            return Math.round(distance.meters());
-        });
+        final int distanceCallbackIndex = routing.registerTransitCallback(counted((long fromIndex, long toIndex) ->
+                arcMeters(data, manager.indexToNode(fromIndex), manager.indexToNode(toIndex)),
+                RoutingMetrics.DISTANCE_CALLBACKS));
         routing.addDimension(distanceCallbackIndex, 0,  // no slack
-                1_000_000,                              // max distance per vehicle is not very important for now
+                MAX_ROUTE_METERS,                       // max distance per vehicle is not very important for now
                 true,                                   // start cumul to zero
                 "Distance");
     }
 
     private void addCapacityConstraint() {
         // Add boxes dimension.
-        final int boxesCallbackIndex = routing.registerUnaryTransitCallback((long index) -> {
-            RouteNode node = data.routeNodeAt(manager.indexToNode(index));
-            if (node.isDepot()) return 0;
-            return node.order().numberBoxes();
-        });
+        final int boxesCallbackIndex = routing.registerUnaryTransitCallback(counted((long index) -> {
+            int node = manager.indexToNode(index);
+            if (node == 0) return 0;
+            return orders.numberBoxes(node - 1);
+        }, RoutingMetrics.DEMAND_CALLBACKS));
         routing.addDimension(boxesCallbackIndex, 0, // no slack
                 data.config().maxBoxesPerVehicle(), // maximum boxes for all vehicles
                 true,                               // start cumul to zero
                 "Boxes");
 
         // Add weight dimension.
-        final int weightCallbackIndex = routing.registerUnaryTransitCallback((long index) -> {
-            RouteNode node = data.routeNodeAt(manager.indexToNode(index));
-            if (node.isDepot()) return 0;
-            return Math.round(node.order().weight().grams());
-        });
+        final int weightCallbackIndex = routing.registerUnaryTransitCallback(counted((long index) -> {
+            int node = manager.indexToNode(index);
+            if (node == 0) return 0;
+            return orders.weightGrams(node - 1);
+        }, RoutingMetrics.DEMAND_CALLBACKS));
         routing.addDimension(weightCallbackIndex, 0,                        // no slack
                 Math.round(data.config().maxWeightPerVehicle().grams()),    // maximum weight for all vehicles
                 true,                                                       // start cumul to zero
@@ -149,31 +471,127 @@ public class RoutingSolver {
     private void addHubCostDeliveryCostConstraint() {
         // add hub delivery cost disjunction
         for (int i = 1; i < data.numberRouteNodes(); ++i) {
-            // convert hub delivery cost to time in minutes because the arc cost evaluator is in minutes
-            long hubDeliveryCost = Math.round(data.routeNodeAt(i).order().totalHubDeliveryCost());
-            routing.addDisjunction(new long[]{manager.nodeToIndex(i)}, hubDeliveryCost);
+            routing.addDisjunction(new long[]{manager.nodeToIndex(i)}, hubDeliveryPenalty(orders, i - 1));
         }
     }
 
     private void addMonetaryConstraint(LongBinaryOperator timeCallback) {
         // Use the monetary cost as arc cost evaluator for all vehicles.
-        final int monetaryCallbackIndex = routing.registerTransitCallback((long fromIndex, long toIndex) -> {
-            long durationInMinutes = timeCallback.applyAsLong(fromIndex, toIndex);
-            return Math.round(data.config().hourlyVehicleCost() * durationInMinutes / 60);
-        });
+        final int monetaryCallbackIndex = routing.registerTransitCallback(counted((long fromIndex, long toIndex) -> {
+            return monetaryCost(data.config(), timeCallback.applyAsLong(fromIndex, toIndex));
+        }, RoutingMetrics.MONETARY_CALLBACKS));
         routing.setArcCostEvaluatorOfAllVehicles(monetaryCallbackIndex);
 
         // Add monetary cost dimension.
         routing.addDimension(monetaryCallbackIndex, 0,              // no slack
-                Math.round(8 * data.config().hourlyVehicleCost()),  // represents the travel cost for 8 hours
+                maxRouteCost(data.config()),                        // represents the travel cost for 8 hours
                 true,                                               // start cumul to zero
                 "MonetaryCost");
     }
 
+    /**
+     * Get the most a route can cost as seen by the solver, the travel cost of 8 hours.
+     */
+    static long maxRouteCost(RoutingConfig config) {
+        return Math.round(8 * config.hourlyVehicleCost());
+    }
+
+    /**
+     * Get the distance of an arc in meters as seen by the solver.
+     */
+    static long arcMeters(DataModel data, int fromNode, int toNode) {
+        return Math.round(data.distance(fromNode, toNode).meters());
+    }
+
+    /**
+     * Get the time of an arc in minutes as seen by the solver: the travel duration, plus the delivery execution time
+     * if the arc ends at an order.
+     *
+     * @param departures the expected departures from each route node, null for static durations
+     */
+    static long travelMinutes(DataModel data, LocalTime[] departures, int fromNode, int toNode) {
+        Duration duration = data.duration(fromNode, toNode, departures == null ? null : departures[fromNode]);
+
+        // the route node 0 is the depot
+        if (toNode != 0)
+            duration = duration.plus(data.config().deliveryExecutionTime());
+
+        return Math.round(duration.toSeconds() / 60.0);
+    }
+
+    /**
+     * Get the cost of an arc as seen by the solver, the time of the arc paid at the hourly vehicle cost.
+     */
+    static long monetaryCost(RoutingConfig config, long minutes) {
+        return Math.round(config.hourlyVehicleCost() * minutes / 60);
+    }
+
+    /**
+     * Get the penalty of dropping an order as seen by the solver, its hub delivery cost.
+     */
+    static long hubDeliveryPenalty(OrderStore orders, int order) {
+        // convert hub delivery cost to time in minutes because the arc cost evaluator is in minutes
+        return Math.round(orders.totalHubDeliveryCost(order));
+    }
+
+    private static LongBinaryOperator counted(LongBinaryOperator callback, MetricsRegistry.Counter invocations) {
+        return (long fromIndex, long toIndex) -> {
+            invocations.increment();
+            return callback.applyAsLong(fromIndex, toIndex);
+        };
+    }
+
+    private static LongUnaryOperator counted(LongUnaryOperator callback, MetricsRegistry.Counter invocations) {
+        return (long index) -> {
+            invocations.increment();
+            return callback.applyAsLong(index);
+        };
+    }
+
+    @SuppressWarnings("try")
     public RoutingSolution solution() throws IllegalStateException {
         if (!wasRun()) throw new IllegalStateException("Routing wasn't executed.");
         if (!hasSolution()) throw new IllegalStateException("No solution found.");
+        try (PhaseTimer.Phase ignored = startPhase("extract")) {
+            return extractSolution(solution::value);
+        }
+    }
 
+    private PhaseTimer.Phase startPhase(String name) {
+        return PhaseTimer.start(name).nodes(data.numberRouteNodes()).vehicles(data.config().numberVehicles());
+    }
+
+    /**
+     * Get the objective value of the solution, the cost the solver minimized: the monetary cost of the arcs plus the
+     * hub delivery cost of the dropped orders.
+     *
+     * @return the objective value
+     * @throws IllegalStateException if the routing wasn't executed or no solution was found
+     */
+    public long objectiveValue() throws IllegalStateException {
+        if (!wasRun()) throw new IllegalStateException("Routing wasn't executed.");
+        if (!hasSolution()) throw new IllegalStateException("No solution found.");
+        return solution.objectiveValue();
+    }
+
+    /**
+     * Get the route node indexes visited by each vehicle in the solution, without the depot. The result can be used
+     * as initial routes of another solve on the same route nodes.
+     *
+     * @return the route node indexes for each vehicle
+     * @throws IllegalStateException if the routing wasn't executed or no solution was found
+     */
+    public long[][] routes() throws IllegalStateException {
+        if (!wasRun()) throw new IllegalStateException("Routing wasn't executed.");
+        if (!hasSolution()) throw new IllegalStateException("No solution found.");
+        return extractRoutes(solution::value);
+    }
+
+    /**
+     * Build the solution from the values of the routing variables, either from the final assignment or from the
+     * variables themselves while the search is at a solution.
+     */
+    private RoutingSolution extractSolution(ToLongFunction<IntVar> value) {
         RoutingDimension timeDimension = routing.getMutableDimension("Time");
         RoutingDimension distanceDimension = routing.getMutableDimension("Distance");
 
@@ -185,19 +603,20 @@ public class RoutingSolver {
             long index = routing.start(i);
             while (!routing.isEnd(index)) {
                 route.add(data.routeNodeAt(manager.indexToNode(index)));
-                departureTimes.add(LocalTime.ofSecondOfDay(solution.value(timeDimension.cumulVar(index)) * 60));
+                departureTimes.add(LocalTime.ofSecondOfDay(value.applyAsLong(timeDimension.cumulVar(index)) * 60));
                 long previousIndex = index;
-                index = solution.value(routing.nextVar(index));
+                index = value.applyAsLong(routing.nextVar(index));
                 totalMonetaryCost += routing.getArcCostForVehicle(previousIndex, index, i);
             }
             route.add(data.routeNodeAt(manager.indexToNode(index)));
-            departureTimes.add(LocalTime.ofSecondOfDay(solution.value(timeDimension.cumulVar(index)) * 60));
+            departureTimes.add(LocalTime.ofSecondOfDay(value.applyAsLong(timeDimension.cumulVar(index)) * 60));
             long monetaryCost = totalMonetaryCost;
 
-            LocalTime startTime = LocalTime.ofSecondOfDay(solution.value(timeDimension.cumulVar(routing.start(i))) * 60);
-            LocalTime endTime = LocalTime.ofSecondOfDay(solution.value(timeDimension.cumulVar(index)) * 60);
+            LocalTime startTime = LocalTime.ofSecondOfDay(
+                    value.applyAsLong(timeDimension.cumulVar(routing.start(i))) * 60);
+            LocalTime endTime = LocalTime.ofSecondOfDay(value.applyAsLong(timeDimension.cumulVar(index)) * 60);
 
-            Distance totalDistance = Distance.ofMeters(solution.value(distanceDimension.cumulVar(index)));
+            Distance totalDistance = Distance.ofMeters(value.applyAsLong(distanceDimension.cumulVar(index)));
             routes.add(new RoutingSolution.Route(route, departureTimes, startTime, endTime, monetaryCost,
                     totalDistance, data.config().depotZip()));
         }
@@ -206,9 +625,23 @@ public class RoutingSolver {
         for (int i = 1; i < routing.nodes(); ++i) {
             RouteNode routeNode = data.routeNodeAt(manager.indexToNode(i));
             if (routeNode.isDepot()) continue;
-            if (solution.value(routing.activeVar(i)) == 0) droppedOrders.add(routeNode.order());
+            if (value.applyAsLong(routing.activeVar(i)) == 0) droppedOrders.add(routeNode.order());
         }
 
         return new RoutingSolution(routes, droppedOrders);
     }
+
+    private long[][] extractRoutes(ToLongFunction<IntVar> value) {
+        long[][] routes = new long[data.config().numberVehicles()][];
+        for (int i = 0; i < routes.length; ++i) {
+            List<Long> route = new ArrayList<>();
+            long index = value.applyAsLong(routing.nextVar(routing.start(i)));
+            while (!routing.isEnd(index)) {
+                route.add((long) manager.indexToNode(index));
+                index = value.applyAsLong(routing.nextVar(index));
+            }
+            routes[i] = route.stream().mapToLong(Long::longValue).toArray();
+        }
+        return routes;
+    }
 }
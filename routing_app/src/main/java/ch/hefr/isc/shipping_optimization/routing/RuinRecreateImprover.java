@@ -0,0 +1,358 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Improves routes with ruin and recreate, on all the cores.
+ * <p>
+ * Each worker repeatedly removes a cluster of orders from its current plan, either orders close to a random order
+ * or orders with a time window starting close to it, and inserts them back where they cost the least, the orders
+ * fitting nowhere being dropped. The worker keeps the new plan if it is not more expensive. The workers share the
+ * best plan through an atomic reference to an immutable snapshot: a worker publishes its plan when it beats the
+ * best one and regularly restarts from the best one when it is behind.
+ * <p>
+ * The plans are evaluated like the {@link RoutingSolver} objective and checked against its constraints, including
+ * its cost and distance caps per route, from matrices of the travel minutes and meters between the route nodes
+ * computed once per improver, so an improver takes eight bytes per pair of route nodes. The improved routes can be
+ * given back to {@link RoutingSolver#solve(long[][])} to get a {@code RoutingSolution}.
+ */
+public class RuinRecreateImprover {
+
+    private static final Logger logger = Logger.getLogger(RuinRecreateImprover.class.getName());
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int NEIGHBORS = 40;
+    private static final int MIN_RUIN = 2;
+    private static final int MAX_RUIN = 15;
+    // iterations between two looks at the shared best plan
+    private static final int EXCHANGE_INTERVAL = 64;
+
+    private final RoutingConfig config;
+    private final int numberNodes;
+    // travel minutes from i to j at i * numberNodes + j, including the execution time at j
+    private final int[] minutes;
+    // travel meters from i to j at i * numberNodes + j
+    private final int[] meters;
+    private final int[] boxes;
+    private final long[] grams;
+    private final int[] windowStarts;
+    private final int[] windowEnds;
+    private final long[] penalties;
+    private final long maxWeightGrams;
+    private final long maxRouteCost;
+    // the closest order nodes of each order node, and the order nodes sorted by time window start
+    private final int[][] neighbors;
+    private final int[] byWindowStart;
+
+    /**
+     * An immutable plan.
+     *
+     * @param routes    the route node indexes of each route, without the depot
+     * @param objective the objective of the plan
+     */
+    private record Plan(int[][] routes, long objective) {}
+
+    /**
+     * The result of an improvement.
+     *
+     * @param routes       the route node indexes of each route, without the depot
+     * @param objective    the objective of the routes, as computed by the solver
+     * @param iterations   the number of ruin and recreate iterations of all the workers
+     * @param improvements the number of times a worker found a new best plan
+     */
+    public record Result(long[][] routes, long objective, long iterations, long improvements) {}
+
+    /**
+     * Create an improver, computing the travel minutes and meters between all the route nodes in parallel.
+     *
+     * @param data the data model
+     */
+    public RuinRecreateImprover(DataModel data) {
+        config = data.config();
+        numberNodes = data.numberRouteNodes();
+        OrderStore orders = data.orders();
+        LocalTime[] departures = RoutingSolver.expectedDepartures(data, orders);
+        minutes = new int[numberNodes * numberNodes];
+        meters = new int[numberNodes * numberNodes];
+        IntStream.range(0, numberNodes).parallel().forEach(from -> {
+            for (int to = 0; to < numberNodes; ++to) {
+                minutes[from * numberNodes + to] = (int) Math.min(Integer.MAX_VALUE,
+                        RoutingSolver.travelMinutes(data, departures, from, to));
+                meters[from * numberNodes + to] = (int) Math.min(Integer.MAX_VALUE,
+                        RoutingSolver.arcMeters(data, from, to));
+            }
+        });
+
+        boxes = new int[numberNodes];
+        grams = new long[numberNodes];
+        windowStarts = new int[numberNodes];
+        windowEnds = new int[numberNodes];
+        penalties = new long[numberNodes];
+        for (int i = 1; i < numberNodes; ++i) {
+            boxes[i] = orders.numberBoxes(i - 1);
+            grams[i] = orders.weightGrams(i - 1);
+            windowStarts[i] = orders.timeWindowStartMinutes(i - 1);
+            windowEnds[i] = orders.timeWindowEndMinutes(i - 1);
+            penalties[i] = RoutingSolver.hubDeliveryPenalty(orders, i - 1);
+        }
+        maxWeightGrams = Math.round(config.maxWeightPerVehicle().grams());
+        maxRouteCost = RoutingSolver.maxRouteCost(config);
+
+        neighbors = new int[numberNodes][];
+        IntStream.range(1, numberNodes).parallel().forEach(node -> neighbors[node] = IntStream.range(1, numberNodes)
+                .filter(other -> other != node)
+                .boxed()
+                .sorted(Comparator.comparingInt(other -> minutes[node * numberNodes + other]
+                        + minutes[other * numberNodes + node]))
+                .limit(NEIGHBORS)
+                .mapToInt(Integer::intValue)
+                .toArray());
+        byWindowStart = IntStream.range(1, numberNodes)
+                .boxed()
+                .sorted(Comparator.comparingInt(node -> windowStarts[node]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Improve routes until the time limit.
+     *
+     * @param routes    the route node indexes of each route without the depot, for example the routes of
+     *                  {@link RoutingSolver#routes()}, or no routes to build the plan from scratch
+     * @param timeLimit the time limit
+     * @param workers   the number of workers running in parallel
+     * @return the best routes found, at least as cheap as the given ones
+     * @throws IllegalArgumentException if the given routes are not feasible or have more routes than vehicles
+     * @throws InterruptedException     if the thread is interrupted while waiting for the workers
+     */
+    public Result improve(long[][] routes, Duration timeLimit, int workers)
+            throws IllegalArgumentException, InterruptedException {
+        if (routes.length > config.numberVehicles())
+            throw new IllegalArgumentException(routes.length + " routes for " + config.numberVehicles() + " vehicles");
+        int[][] initial = new int[config.numberVehicles()][0];
+        for (int r = 0; r < routes.length; ++r) {
+            initial[r] = Arrays.stream(routes[r]).mapToInt(Math::toIntExact).toArray();
+            for (int node : initial[r])
+                if (node < 1 || node >= numberNodes)
+                    throw new IllegalArgumentException("Route node " + node + " is not an order");
+            if (routeCost(initial[r]) < 0) throw new IllegalArgumentException("Route " + r + " is not feasible");
+        }
+        AtomicReference<Plan> best = new AtomicReference<>(new Plan(initial, objective(initial)));
+        long initialObjective = best.get().objective();
+
+        long deadline = System.nanoTime() + timeLimit.toNanos();
+        AtomicLong iterations = new AtomicLong();
+        AtomicLong improvements = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; ++w) {
+                long seed = 31L * w + 17;
+                futures.add(executor.submit(() -> new Worker(best, new SplittableRandom(seed), iterations,
+                        improvements).run(deadline)));
+            }
+            for (Future<?> future : futures) future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ruin and recreate worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Plan plan = best.get();
+        logger.info(String.format("ruin and recreate: objective %d -> %d in %d iterations", initialObjective,
+                plan.objective(), iterations.get()));
+        long[][] result = Arrays.stream(plan.routes())
+                .map(route -> Arrays.stream(route).asLongStream().toArray())
+                .toArray(long[][]::new);
+        return new Result(result, plan.objective(), iterations.get(), improvements.get());
+    }
+
+    private long arcCost(int from, int to) {
+        return RoutingSolver.monetaryCost(config, minutes[from * numberNodes + to]);
+    }
+
+    /**
+     * Get the cost of a route, -1 if it breaks a capacity, a time window or the cost or distance cap of the solver.
+     */
+    private long routeCost(int[] route) {
+        if (route.length == 0) return 0;
+        long cost = 0;
+        long metersSum = 0;
+        long boxesSum = 0;
+        long gramsSum = 0;
+        long offset = 0;
+        long latestStart = 0;
+        long earliestEnd = MINUTES_PER_DAY;
+        int previous = 0;
+        for (int node : route) {
+            cost += arcCost(previous, node);
+            metersSum += meters[previous * numberNodes + node];
+            offset += minutes[previous * numberNodes + node];
+            latestStart = Math.max(latestStart, windowStarts[node] - offset);
+            earliestEnd = Math.min(earliestEnd, windowEnds[node] - offset);
+            boxesSum += boxes[node];
+            gramsSum += grams[node];
+            previous = node;
+        }
+        cost += arcCost(previous, 0);
+        metersSum += meters[previous * numberNodes];
+        offset += minutes[previous * numberNodes];
+        earliestEnd = Math.min(earliestEnd, MINUTES_PER_DAY - offset);
+        if (boxesSum > config.maxBoxesPerVehicle() || gramsSum > maxWeightGrams || latestStart > earliestEnd)
+            return -1;
+        if (cost > maxRouteCost || metersSum > RoutingSolver.MAX_ROUTE_METERS) return -1;
+        return cost;
+    }
+
+    private long objective(int[][] routes) {
+        boolean[] visited = new boolean[numberNodes];
+        long objective = 0;
+        for (int[] route : routes) {
+            objective += routeCost(route);
+            for (int node : route) visited[node] = true;
+        }
+        for (int i = 1; i < numberNodes; ++i)
+            if (!visited[i]) objective += penalties[i];
+        return objective;
+    }
+
+    private class Worker {
+        private final AtomicReference<Plan> best;
+        private final SplittableRandom random;
+        private final AtomicLong iterations;
+        private final AtomicLong improvements;
+        private int[][] routes;
+        private long objective;
+
+        private Worker(AtomicReference<Plan> best, SplittableRandom random, AtomicLong iterations,
+                       AtomicLong improvements) {
+            this.best = best;
+            this.random = random;
+            this.iterations = iterations;
+            this.improvements = improvements;
+            adopt(best.get());
+        }
+
+        private void adopt(Plan plan) {
+            routes = Arrays.stream(plan.routes()).map(int[]::clone).toArray(int[][]::new);
+            objective = plan.objective();
+        }
+
+        void run(long deadline) {
+            if (numberNodes < 2) return;
+            long count = 0;
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                int[][] candidate = Arrays.stream(routes).map(int[]::clone).toArray(int[][]::new);
+                int[] removed = ruin(candidate);
+                recreate(candidate, removed);
+                long candidateObjective = objective(candidate);
+                if (candidateObjective <= objective) {
+                    routes = candidate;
+                    objective = candidateObjective;
+                    publish();
+                }
+                if (++count % EXCHANGE_INTERVAL == 0) {
+                    Plan shared = best.get();
+                    if (shared.objective() < objective) adopt(shared);
+                }
+            }
+            iterations.addAndGet(count);
+        }
+
+        private void publish() {
+            Plan shared = best.get();
+            while (objective < shared.objective()) {
+                Plan plan = new Plan(Arrays.stream(routes).map(int[]::clone).toArray(int[][]::new), objective);
+                if (best.compareAndSet(shared, plan)) {
+                    improvements.incrementAndGet();
+                    return;
+                }
+                shared = best.get();
+            }
+        }
+
+        /**
+         * Remove a cluster of orders from the routes, visited or not, and return them.
+         */
+        private int[] ruin(int[][] candidate) {
+            int size = Math.min(numberNodes - 1, MIN_RUIN + random.nextInt(MAX_RUIN - MIN_RUIN + 1));
+            int seed = 1 + random.nextInt(numberNodes - 1);
+            int[] cluster;
+            if (random.nextBoolean()) {
+                cluster = new int[Math.min(size, neighbors[seed].length + 1)];
+                cluster[0] = seed;
+                System.arraycopy(neighbors[seed], 0, cluster, 1, cluster.length - 1);
+            } else {
+                int first = Math.max(0, Math.min(byWindowStart.length - size, random.nextInt(byWindowStart.length)));
+                cluster = Arrays.copyOfRange(byWindowStart, first, first + size);
+            }
+            boolean[] inCluster = new boolean[numberNodes];
+            for (int node : cluster) inCluster[node] = true;
+            for (int r = 0; r < candidate.length; ++r)
+                candidate[r] = Arrays.stream(candidate[r]).filter(node -> !inCluster[node]).toArray();
+            return cluster;
+        }
+
+        /**
+         * Insert the orders at their cheapest feasible position, in random order or by decreasing penalty, the
+         * orders costing more to visit than their penalty being dropped.
+         */
+        private void recreate(int[][] candidate, int[] removed) {
+            Integer[] order = Arrays.stream(removed).boxed().toArray(Integer[]::new);
+            if (random.nextBoolean()) {
+                for (int i = order.length - 1; i > 0; --i) {
+                    int j = random.nextInt(i + 1);
+                    Integer swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                }
+            } else {
+                Arrays.sort(order, Comparator.comparingLong((Integer node) -> -penalties[node]));
+            }
+            for (int node : order) {
+                long bestDelta = penalties[node];
+                int bestRoute = -1;
+                int bestPosition = -1;
+                for (int r = 0; r < candidate.length; ++r) {
+                    int[] route = candidate[r];
+                    for (int p = 0; p <= route.length; ++p) {
+                        int before = p == 0 ? 0 : route[p - 1];
+                        int after = p == route.length ? 0 : route[p];
+                        // an unused vehicle costs nothing, not the cost of its depot to depot arc
+                        long delta = arcCost(before, node) + arcCost(node, after)
+                                - (route.length == 0 ? 0 : arcCost(before, after));
+                        if (delta >= bestDelta) continue;
+                        if (routeCost(inserted(route, p, node)) < 0) continue;
+                        bestDelta = delta;
+                        bestRoute = r;
+                        bestPosition = p;
+                    }
+                }
+                if (bestRoute >= 0) candidate[bestRoute] = inserted(candidate[bestRoute], bestPosition, node);
+            }
+        }
+
+        private int[] inserted(int[] route, int position, int node) {
+            int[] result = new int[route.length + 1];
+            System.arraycopy(route, 0, result, 0, position);
+            result[position] = node;
+            System.arraycopy(route, position, result, position + 1, route.length - position);
+            return result;
+        }
+    }
+}
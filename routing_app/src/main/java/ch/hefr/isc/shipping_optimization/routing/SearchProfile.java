@@ -0,0 +1,27 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+
+import java.time.Duration;
+
+/**
+ * The search strategy used by the routing solver.
+ *
+ * @param firstSolutionStrategy    the heuristic building the first solution
+ * @param localSearchMetaheuristic the metaheuristic improving the first solution
+ * @param useLnsOperators          whether the path and inactive large neighborhood search operators are enabled
+ * @param lnsTimeLimit             the time limit of each large neighborhood search sub-problem
+ */
+public record SearchProfile(FirstSolutionStrategy.Value firstSolutionStrategy,
+                            LocalSearchMetaheuristic.Value localSearchMetaheuristic, boolean useLnsOperators,
+                            Duration lnsTimeLimit) {
+    public static final SearchProfile DEFAULT = new SearchProfile(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC,
+            LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH, false, Duration.ofMillis(100));
+
+    @Override
+    public String toString() {
+        return String.format("%s/%s/lns=%b/%dms", firstSolutionStrategy, localSearchMetaheuristic, useLnsOperators,
+                lnsTimeLimit.toMillis());
+    }
+}
@@ -0,0 +1,269 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Checks routes against the constraints of a data model and recomputes their cost, the way the {@link RoutingSolver}
+ * would evaluate them, for solutions coming from the solution cache, checkpoints, JSON files or other tools.
+ * <p>
+ * The order columns are copied into primitive arrays once per verifier, so a verifier should be reused for all the
+ * plans of a data model. Each route is checked in a single pass: the time dimension has no slack, so the departure
+ * time from each stop is the start of the route plus a fixed offset, and a route fits the time windows if some
+ * start of the route fits all of them. A route may go back to the depot to reload between two trips, as the routes of
+ * the {@link TimeWaveSolver}: each trip is then checked against the capacities and the caps of a vehicle on its own,
+ * and starts once the previous trip is back. The routes of large plans are checked in parallel.
+ */
+public class SolutionVerifier {
+
+    private static final int PARALLEL_STOPS = 2_000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    public enum Kind {
+        /** A route node index or order of the plan is not in the data model. */
+        UNKNOWN_ORDER,
+        /** An order is visited more than once. */
+        DUPLICATE_ORDER,
+        /** The plan has more routes than vehicles. */
+        TOO_MANY_ROUTES,
+        BOXES_CAPACITY,
+        WEIGHT_CAPACITY,
+        /** No start time of the route fits all the time windows within the day. */
+        TIME_WINDOWS,
+        /** The travel cost of a trip exceeds the travel cost of 8 hours, the most the solver allows. */
+        ROUTE_COST,
+        /** A trip is longer than the solver allows. */
+        ROUTE_DISTANCE,
+        /** The route costs more than delivering its orders through the hub, allowed but never worth it. */
+        UNPROFITABLE_ROUTE
+    }
+
+    /**
+     * A violation of a constraint.
+     *
+     * @param kind    the kind of violation
+     * @param route   the index of the route, -1 for the whole plan
+     * @param message the description of the violation
+     */
+    public record Violation(Kind kind, int route, String message) {}
+
+    /**
+     * The result of a verification.
+     *
+     * @param objective  the objective of the plan as computed by the solver: the cost of the routes plus the hub
+     *                   delivery cost of the orders not visited
+     * @param routeCosts the cost of each route
+     * @param violations the violations, empty if the plan is valid
+     */
+    public record Report(long objective, long[] routeCosts, List<Violation> violations) {
+        /**
+         * Check if the plan respects all the constraints of the solver, unprofitable routes being allowed.
+         *
+         * @return true if the plan is feasible
+         */
+        public boolean feasible() {
+            return violations.stream().allMatch(violation -> violation.kind() == Kind.UNPROFITABLE_ROUTE);
+        }
+    }
+
+    private record RouteResult(long cost, List<Violation> violations) {}
+
+    private final DataModel data;
+    private final LocalTime[] departures;
+    private final Map<String, Integer> nodeIndexes = new HashMap<>();
+    private final int[] boxes;
+    private final long[] grams;
+    private final int[] windowStarts;
+    private final int[] windowEnds;
+    private final long[] penalties;
+    private final long maxWeightGrams;
+    private final long maxRouteCost;
+
+    public SolutionVerifier(DataModel data) {
+        this.data = data;
+        OrderStore orders = data.orders();
+        int numberNodes = data.numberRouteNodes();
+        departures = RoutingSolver.expectedDepartures(data, orders);
+        boxes = new int[numberNodes];
+        grams = new long[numberNodes];
+        windowStarts = new int[numberNodes];
+        windowEnds = new int[numberNodes];
+        penalties = new long[numberNodes];
+        for (int i = 1; i < numberNodes; ++i) {
+            nodeIndexes.put(orders.id(i - 1), i);
+            boxes[i] = orders.numberBoxes(i - 1);
+            grams[i] = orders.weightGrams(i - 1);
+            windowStarts[i] = orders.timeWindowStartMinutes(i - 1);
+            windowEnds[i] = orders.timeWindowEndMinutes(i - 1);
+            penalties[i] = RoutingSolver.hubDeliveryPenalty(orders, i - 1);
+        }
+        maxWeightGrams = Math.round(data.config().maxWeightPerVehicle().grams());
+        maxRouteCost = RoutingSolver.maxRouteCost(data.config());
+    }
+
+    /**
+     * Verify a solution, matching its orders to the route nodes of the data model by id. The reloads of a route
+     * separate its trips.
+     *
+     * @param solution the solution
+     * @return the report
+     */
+    public Report verify(RoutingSolution solution) {
+        List<Violation> unknown = new ArrayList<>();
+        long[][] routes = new long[solution.routes().size()][];
+        for (int r = 0; r < routes.length; ++r) {
+            RoutingSolution.Route solutionRoute = solution.routes().get(r);
+            List<RouteNode> nodes = solutionRoute.routeNodes();
+            long[] route = new long[nodes.size() + solutionRoute.reloads().size()];
+            int length = 0;
+            int reload = 0;
+            for (int i = 0; i < nodes.size(); ++i) {
+                if (reload < solutionRoute.reloads().size() && solutionRoute.reloads().get(reload).stop() == i) {
+                    route[length++] = 0;
+                    ++reload;
+                }
+                RouteNode node = nodes.get(i);
+                if (node.isDepot()) continue;
+                Integer index = nodeIndexes.get(node.order().id());
+                if (index == null)
+                    unknown.add(new Violation(Kind.UNKNOWN_ORDER, r, "order " + node.order().id() + " is unknown"));
+                else
+                    route[length++] = index;
+            }
+            routes[r] = Arrays.copyOf(route, length);
+        }
+        Report report = verify(routes);
+        if (unknown.isEmpty()) return report;
+        unknown.addAll(report.violations());
+        return new Report(report.objective(), report.routeCosts(), unknown);
+    }
+
+    /**
+     * Verify a plan given as the route node indexes visited by each vehicle, without the depot, like the routes of
+     * {@link RoutingSolver#routes()}. A 0 between two stops is a return to the depot to reload, ending a trip.
+     *
+     * @param routes the route node indexes of each route
+     * @return the report
+     */
+    public Report verify(long[][] routes) {
+        List<Violation> violations = new ArrayList<>();
+        if (routes.length > data.config().numberVehicles())
+            violations.add(new Violation(Kind.TOO_MANY_ROUTES, -1,
+                    routes.length + " routes for " + data.config().numberVehicles() + " vehicles"));
+
+        int stops = 0;
+        for (long[] route : routes) stops += route.length;
+        IntStream indexes = IntStream.range(0, routes.length);
+        if (stops >= PARALLEL_STOPS) indexes = indexes.parallel();
+        RouteResult[] results = indexes.mapToObj(r -> verifyRoute(r, routes[r])).toArray(RouteResult[]::new);
+
+        boolean[] visited = new boolean[data.numberRouteNodes()];
+        long objective = 0;
+        long[] routeCosts = new long[routes.length];
+        for (int r = 0; r < routes.length; ++r) {
+            routeCosts[r] = results[r].cost();
+            objective += routeCosts[r];
+            violations.addAll(results[r].violations());
+            for (long node : routes[r]) {
+                if (!isOrderNode(node)) continue;
+                if (visited[(int) node])
+                    violations.add(new Violation(Kind.DUPLICATE_ORDER, r, "route node " + node + " is visited twice"));
+                visited[(int) node] = true;
+            }
+        }
+        for (int i = 1; i < visited.length; ++i)
+            if (!visited[i]) objective += penalties[i];
+        return new Report(objective, routeCosts, violations);
+    }
+
+    private boolean isOrderNode(long node) {
+        return node >= 1 && node < data.numberRouteNodes();
+    }
+
+    private RouteResult verifyRoute(int r, long[] route) {
+        List<Violation> violations = new ArrayList<>();
+        int numberTrips = 1;
+        for (int i = 0; i < route.length; ++i) {
+            long node = route[i];
+            if (node == 0 && i > 0 && i < route.length - 1 && route[i - 1] != 0) {
+                ++numberTrips;
+            } else if (!isOrderNode(node)) {
+                violations.add(new Violation(Kind.UNKNOWN_ORDER, r, "route node " + node + " is not an order"));
+                return new RouteResult(0, violations);
+            }
+        }
+        if (route.length == 0) return new RouteResult(0, Collections.emptyList());
+
+        long cost = 0;
+        long penaltiesSum = 0;
+        long tripCost = 0;
+        long meters = 0;
+        long boxesSum = 0;
+        long gramsSum = 0;
+        // a trip starts at the depot at time s, the departure from a stop is s + offset, so s has to be in
+        // [latestStart, earliestEnd] to fit all the windows; the trip can't start before the previous one is back
+        long offset = 0;
+        long latestStart = 0;
+        long earliestEnd = MINUTES_PER_DAY;
+        int previous = 0;
+        int trip = 0;
+        for (int i = 0; i <= route.length; ++i) {
+            int node = i < route.length ? (int) route[i] : 0;
+            long minutes = RoutingSolver.travelMinutes(data, departures, previous, node);
+            tripCost += RoutingSolver.monetaryCost(data.config(), minutes);
+            meters += RoutingSolver.arcMeters(data, previous, node);
+            offset += minutes;
+            previous = node;
+            if (node != 0) {
+                latestStart = Math.max(latestStart, windowStarts[node] - offset);
+                earliestEnd = Math.min(earliestEnd, windowEnds[node] - offset);
+                boxesSum += boxes[node];
+                gramsSum += grams[node];
+                penaltiesSum += penalties[node];
+                continue;
+            }
+            earliestEnd = Math.min(earliestEnd, MINUTES_PER_DAY - offset);
+
+            String where = numberTrips > 1 ? " on trip " + trip : "";
+            if (boxesSum > data.config().maxBoxesPerVehicle())
+                violations.add(new Violation(Kind.BOXES_CAPACITY, r, boxesSum + " boxes" + where));
+            if (gramsSum > maxWeightGrams)
+                violations.add(new Violation(Kind.WEIGHT_CAPACITY, r, gramsSum + " grams" + where));
+            if (latestStart > earliestEnd)
+                violations.add(new Violation(Kind.TIME_WINDOWS, r, String.format(
+                        "the route would have to start after minute %d and before minute %d%s",
+                        latestStart, earliestEnd, where)));
+            if (tripCost > maxRouteCost)
+                violations.add(new Violation(Kind.ROUTE_COST, r,
+                        "route cost " + tripCost + " exceeds " + maxRouteCost + where));
+            if (meters > RoutingSolver.MAX_ROUTE_METERS)
+                violations.add(new Violation(Kind.ROUTE_DISTANCE, r, meters + " meters" + where));
+
+            cost += tripCost;
+            long ready = latestStart + offset;
+            tripCost = 0;
+            meters = 0;
+            boxesSum = 0;
+            gramsSum = 0;
+            offset = 0;
+            latestStart = ready;
+            earliestEnd = MINUTES_PER_DAY;
+            ++trip;
+        }
+
+        if (cost > penaltiesSum)
+            violations.add(new Violation(Kind.UNPROFITABLE_ROUTE, r,
+                    "route cost " + cost + " exceeds hub delivery cost " + penaltiesSum));
+        return new RouteResult(cost, violations);
+    }
+}
@@ -0,0 +1,205 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.OrderStore;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Solves a day in time waves, for example morning, midday and afternoon, instead of one model over the whole day.
+ * <p>
+ * Each order goes to the wave its time window overlaps the most, and its window is narrowed to the wave, so the
+ * routes of a wave stay within it. The waves are solved one after the other, as smaller models, each with its share
+ * of the time limit: a vehicle is available in a wave from the end of its route in the previous waves, and it is
+ * loaded again at the depot between two waves. The routes of a vehicle in all the waves are chained into one route
+ * of the solution, with a {@link RoutingSolution.Reload} at the depot between two waves, so each trip of the route
+ * still respects the capacities and the cost cap of a vehicle on its own. Orders are never moved between waves, so
+ * the solution is usually a bit more expensive than the one of a converged monolithic model, but it is found much
+ * faster.
+ */
+public class TimeWaveSolver {
+
+    private static final Logger logger = Logger.getLogger(TimeWaveSolver.class.getName());
+    private static final int LAST_MINUTE = 24 * 60 - 1;
+    private static final Duration MIN_WAVE_TIME_LIMIT = Duration.ofSeconds(1);
+
+    private final DataModel data;
+    // first and last minute of each wave
+    private final int[] waveStarts;
+    private final int[] waveEnds;
+    private final int[][] waves;
+
+    /**
+     * @param data       the data model
+     * @param boundaries the times between two waves, in increasing order, no boundary for a single wave
+     * @throws IllegalArgumentException if the boundaries are not increasing
+     */
+    public TimeWaveSolver(DataModel data, List<LocalTime> boundaries) throws IllegalArgumentException {
+        this.data = data;
+        int numberWaves = boundaries.size() + 1;
+        waveStarts = new int[numberWaves];
+        waveEnds = new int[numberWaves];
+        waveEnds[numberWaves - 1] = LAST_MINUTE;
+        for (int k = 0; k < boundaries.size(); ++k) {
+            int boundary = boundaries.get(k).toSecondOfDay() / 60;
+            if (boundary <= waveStarts[k])
+                throw new IllegalArgumentException("The wave boundaries are not increasing: " + boundaries);
+            waveEnds[k] = boundary;
+            waveStarts[k + 1] = boundary;
+        }
+
+        OrderStore orders = data.orders();
+        int[] waveOfOrder = new int[orders.size()];
+        for (int i = 0; i < orders.size(); ++i)
+            waveOfOrder[i] = waveOf(orders.timeWindowStartMinutes(i), orders.timeWindowEndMinutes(i));
+        waves = new int[numberWaves][];
+        for (int k = 0; k < numberWaves; ++k) {
+            int wave = k;
+            waves[k] = IntStream.range(0, orders.size()).filter(i -> waveOfOrder[i] == wave).toArray();
+        }
+    }
+
+    /**
+     * Split the span of the time windows of the orders in waves of the same length.
+     *
+     * @param data        the data model
+     * @param numberWaves the number of waves
+     * @return the boundaries between the waves
+     */
+    public static List<LocalTime> evenBoundaries(DataModel data, int numberWaves) {
+        OrderStore orders = data.orders();
+        int first = IntStream.range(0, orders.size()).map(orders::timeWindowStartMinutes).min().orElse(0);
+        int last = IntStream.range(0, orders.size()).map(orders::timeWindowEndMinutes).max().orElse(LAST_MINUTE);
+        return IntStream.range(1, numberWaves)
+                .map(k -> first + (last - first) * k / numberWaves)
+                .distinct()
+                .filter(minute -> minute > 0)
+                .mapToObj(minute -> LocalTime.ofSecondOfDay(60L * minute))
+                .toList();
+    }
+
+    /**
+     * Get the wave with the largest overlap with a time window, the earliest one on ties.
+     */
+    private int waveOf(int windowStart, int windowEnd) {
+        int best = 0;
+        int bestOverlap = -1;
+        for (int k = 0; k < waveStarts.length; ++k) {
+            int overlap = Math.min(windowEnd, waveEnds[k]) - Math.max(windowStart, waveStarts[k]);
+            if (overlap > bestOverlap) {
+                best = k;
+                bestOverlap = overlap;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the orders of each wave.
+     *
+     * @return the indexes in {@link DataModel#orders()} of the orders of each wave
+     */
+    public int[][] waves() {
+        return waves.clone();
+    }
+
+    /**
+     * Solve the waves one after the other and chain their routes.
+     *
+     * @return the solution, with one route per vehicle, made of one trip per wave the vehicle is used in
+     * @throws IllegalStateException if no solution is found for a wave
+     */
+    public RoutingSolution solve() throws IllegalStateException {
+        RoutingConfig config = data.config();
+        OrderStore orders = data.orders();
+        int numberVehicles = config.numberVehicles();
+        LocalTime[] availability = new LocalTime[numberVehicles];
+        List<List<RoutingSolution.Route>> trips = new ArrayList<>();
+        for (int v = 0; v < numberVehicles; ++v) trips.add(new ArrayList<>());
+        Set<Order> droppedOrders = new HashSet<>();
+        List<RoutingSolution.Route> lastRoutes = null;
+
+        for (int k = 0; k < waves.length; ++k) {
+            // empty waves are skipped, unless all of them are empty, to still get the unused routes
+            if (waves[k].length == 0 && (lastRoutes != null || k < waves.length - 1)) continue;
+            OrderStore waveOrders = new OrderStore(waves[k].length);
+            for (int i : waves[k]) waveOrders.add(narrowed(orders.get(i), k));
+            Duration timeLimit = orders.isEmpty()
+                    ? MIN_WAVE_TIME_LIMIT
+                    : config.solverTimeLimit().multipliedBy(waves[k].length).dividedBy(orders.size());
+            if (timeLimit.compareTo(MIN_WAVE_TIME_LIMIT) < 0) timeLimit = MIN_WAVE_TIME_LIMIT;
+            DataModel wave = data.subset(waves[k], waveOrders, config.toBuilder().setSolverTimeLimit(timeLimit)
+                    .build());
+
+            RoutingSolver solver = new RoutingSolver(wave);
+            solver.setVehicleAvailability(availability);
+            solver.solve();
+            if (!solver.hasSolution()) throw new IllegalStateException("No solution found for wave " + k);
+            RoutingSolution solution = solver.solution();
+            logger.info(String.format("wave %d: %d orders, %d dropped, cost %.2f", k, waves[k].length,
+                    solution.droppedOrders().size(), solution.totalMonetaryCost()));
+
+            droppedOrders.addAll(solution.droppedOrders());
+            lastRoutes = new ArrayList<>();
+            for (int v = 0; v < numberVehicles; ++v) {
+                RoutingSolution.Route route = solution.routes().get(v);
+                lastRoutes.add(route);
+                if (route.numberOfStops() <= 2) continue;
+                trips.get(v).add(route);
+                availability[v] = route.endTime();
+            }
+        }
+
+        List<RoutingSolution.Route> routes = new ArrayList<>();
+        for (int v = 0; v < numberVehicles; ++v)
+            routes.add(trips.get(v).isEmpty() ? lastRoutes.get(v) : chained(trips.get(v)));
+        return new RoutingSolution(routes, droppedOrders);
+    }
+
+    private Order narrowed(Order order, int wave) {
+        int start = Math.max(order.timeWindow().startAsMinutes(), waveStarts[wave]);
+        int end = Math.min(order.timeWindow().endAsMinutes(), waveEnds[wave]);
+        // a window outside of all the waves is kept
+        if (start > end) return order;
+        TimeWindow window = new TimeWindow(LocalTime.ofSecondOfDay(60L * start), LocalTime.ofSecondOfDay(60L * end));
+        return new Order(order.id(), order.zip(), order.numberBoxes(), window, order.weight(),
+                order.hubDeliveryCostPerBox());
+    }
+
+    private static RoutingSolution.Route chained(List<RoutingSolution.Route> trips) {
+        if (trips.size() == 1) return trips.get(0);
+        List<RouteNode> routeNodes = new ArrayList<>();
+        List<LocalTime> departureTimes = new ArrayList<>();
+        List<RoutingSolution.Reload> reloads = new ArrayList<>();
+        long monetaryCost = 0;
+        double kiloMeters = 0;
+        for (int t = 0; t < trips.size(); ++t) {
+            RoutingSolution.Route trip = trips.get(t);
+            // the depot between two trips is a reload, not a stop
+            int from = t == 0 ? 0 : 1;
+            int to = t == trips.size() - 1 ? trip.numberOfStops() : trip.numberOfStops() - 1;
+            if (t > 0)
+                reloads.add(new RoutingSolution.Reload(routeNodes.size(), trips.get(t - 1).endTime(),
+                        trip.startTime()));
+            routeNodes.addAll(trip.routeNodes().subList(from, to));
+            departureTimes.addAll(trip.departureTimes().subList(from, to));
+            monetaryCost += trip.monetaryCost();
+            kiloMeters += trip.totalDistance().kiloMeters();
+        }
+        RoutingSolution.Route first = trips.get(0);
+        return new RoutingSolution.Route(routeNodes, departureTimes, first.startTime(),
+                trips.get(trips.size() - 1).endTime(), monetaryCost, Distance.ofKiloMeters(kiloMeters),
+                first.depotZip(), reloads);
+    }
+}
@@ -0,0 +1,188 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import ch.hefr.isc.shipping_optimization.data.CompactDistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.CsvFileConfig;
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.CsvFileParser;
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.profiling.PhaseTimer;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import com.google.ortools.Loader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Runs a fixed suite of orders files and records a {@link PerformanceBaseline}, or compares the run with a baseline.
+ * <p>
+ * The instances are solved one after the other, each alone on the host, so the times are not disturbed by other
+ * solves. The search of the solver has no random seed: with the same code and the same time limit, the differences
+ * between two runs on the same host come from the speed of the code. For each instance the run records the parse
+ * time, the model building time, the time to the first solution, the cost of the best solution at fixed
+ * checkpoints and the peak memory of the phases.
+ */
+public class BaselineRunner {
+
+    private static final Logger logger = Logger.getLogger(BaselineRunner.class.getName());
+
+    private final CsvFileConfig csvConfig;
+    private final RoutingConfig routingConfig;
+    private final List<Duration> checkpoints;
+
+    /**
+     * @param csvConfig     the data files, the orders path is replaced by the one of each instance
+     * @param routingConfig the routing config of all the instances
+     * @param checkpoints   the increasing times since the start of the solves at which the costs are recorded
+     */
+    public BaselineRunner(CsvFileConfig csvConfig, RoutingConfig routingConfig, List<Duration> checkpoints) {
+        this.csvConfig = csvConfig;
+        this.routingConfig = routingConfig;
+        this.checkpoints = List.copyOf(checkpoints);
+    }
+
+    /**
+     * Get the checkpoints at a quarter, half and all of a time limit.
+     *
+     * @param timeLimit the solver time limit
+     * @return the checkpoints
+     */
+    public static List<Duration> defaultCheckpoints(Duration timeLimit) {
+        return List.of(timeLimit.dividedBy(4), timeLimit.dividedBy(2), timeLimit);
+    }
+
+    /**
+     * Run the suite.
+     *
+     * @param ordersFiles the orders files of the suite
+     * @param label       the code version, stored in the baseline
+     * @return the results
+     * @throws IOException if an error occurs while parsing the files
+     */
+    public PerformanceBaseline run(List<Path> ordersFiles, String label) throws IOException {
+        Loader.loadNativeLibraries();
+        PhaseTimer.reset();
+        long start = System.nanoTime();
+        DistanceTable distanceMatrix = CompactDistanceMatrix.of(CsvFileParser.parseDistanceMatrix(csvConfig));
+        Duration matrixParseTime = Duration.ofNanos(System.nanoTime() - start);
+
+        List<PerformanceBaseline.InstanceResult> results = new ArrayList<>();
+        for (Path ordersFile : ordersFiles) {
+            PerformanceBaseline.InstanceResult result = runInstance(ordersFile, distanceMatrix);
+            logger.info(String.format("%s: %d orders, parse %dms, build %dms, first solution %s, cost %.2f",
+                    result.name(), result.numberOrders(), result.parseTime().toMillis(),
+                    result.buildTime().toMillis(), result.firstSolutionTime() == null ? "-"
+                            : result.firstSolutionTime().toMillis() + "ms", result.finalCost()));
+            results.add(result);
+        }
+        return new PerformanceBaseline(label, System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors(), routingConfig.solverTimeLimit(), checkpoints,
+                matrixParseTime, results);
+    }
+
+    private PerformanceBaseline.InstanceResult runInstance(Path ordersFile, DistanceTable distanceMatrix)
+            throws IOException {
+        PhaseTimer.reset();
+        long parseStart = System.nanoTime();
+        List<Order> orders = CsvFileParser.parseOrders(csvConfig.toBuilder().setOrdersPath(ordersFile.toString())
+                .build());
+        Duration parseTime = Duration.ofNanos(System.nanoTime() - parseStart);
+
+        RoutingSolver solver = new RoutingSolver(new CsvFileDataModel(orders, distanceMatrix, routingConfig));
+        List<Improvement> improvements = new ArrayList<>();
+        long solveStart = System.nanoTime();
+        solver.addSolutionListener(solution -> improvements.add(
+                new Improvement(System.nanoTime() - solveStart, solution.totalMonetaryCost())));
+        solver.solve();
+
+        double[] checkpointCosts = new double[checkpoints.size()];
+        Arrays.fill(checkpointCosts, Double.NaN);
+        for (int k = 0; k < checkpoints.size(); ++k)
+            for (Improvement improvement : improvements)
+                if (improvement.nanos <= checkpoints.get(k).toNanos()) checkpointCosts[k] = improvement.cost;
+        double finalCost = solver.hasSolution() ? solver.solution().totalMonetaryCost() : Double.NaN;
+
+        Map<String, PhaseTimer.Summary> phases = PhaseTimer.summaries();
+        PhaseTimer.Summary build = phases.get("build");
+        long maxHeapBytes = phases.values().stream().mapToLong(PhaseTimer.Summary::maxHeapAfter).max().orElse(0);
+        long maxResidentBytes = phases.values().stream().mapToLong(PhaseTimer.Summary::maxResidentAfter).max()
+                .orElse(-1);
+        return new PerformanceBaseline.InstanceResult(ordersFile.getFileName().toString(), orders.size(), parseTime,
+                build == null ? Duration.ZERO : Duration.ofNanos(build.totalNanos()),
+                improvements.isEmpty() ? null : Duration.ofNanos(improvements.get(0).nanos), checkpointCosts,
+                finalCost, maxHeapBytes, maxResidentBytes);
+    }
+
+    /**
+     * A solution cheaper than the previous ones, found some nanoseconds after the start of the solve.
+     */
+    private record Improvement(long nanos, double cost) {}
+
+    private static List<Path> ordersFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".csv")).sorted().toList();
+        }
+    }
+
+    /**
+     * Record or check a baseline on a directory of orders files, using the default data files for the rest.
+     * <p>
+     * Arguments: record, orders directory, baseline file, time limit in seconds (defaults to the default solver time
+     * limit) and label (defaults to "unknown"); or compare, orders directory, baseline file and the file the current
+     * run is written to (optional). A comparison runs with the time limit and checkpoints of the baseline, prints
+     * the regressions and exits with status 2 if there are any.
+     *
+     * @param args the arguments
+     * @throws IOException if an error occurs while reading the data files or the baseline or writing the results
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !List.of("record", "compare").contains(args[0])) {
+            System.err.println("Usage: BaselineRunner record <orders directory> <baseline file> "
+                    + "[time limit in seconds] [label]");
+            System.err.println("       BaselineRunner compare <orders directory> <baseline file> [current file]");
+            System.exit(1);
+        }
+        List<Path> ordersFiles = ordersFiles(Path.of(args[1]));
+        Path baselineFile = Path.of(args[2]);
+
+        if (args[0].equals("record")) {
+            RoutingConfig.RoutingConfigBuilder builder = RoutingConfig.builder();
+            if (args.length > 3) builder.setSolverTimeLimit(Duration.ofSeconds(Long.parseLong(args[3])));
+            RoutingConfig routingConfig = builder.build();
+            PerformanceBaseline baseline = new BaselineRunner(CsvFileConfig.DEFAULT_CONFIG_FULL, routingConfig,
+                    defaultCheckpoints(routingConfig.solverTimeLimit()))
+                    .run(ordersFiles, args.length > 4 ? args[4] : "unknown");
+            baseline.write(baselineFile);
+            System.out.println("Baseline of " + ordersFiles.size() + " instances written to " + baselineFile);
+            return;
+        }
+
+        PerformanceBaseline baseline = PerformanceBaseline.read(baselineFile);
+        if (baseline.processors() != Runtime.getRuntime().availableProcessors())
+            logger.warning(String.format("baseline recorded with %d processors, running with %d",
+                    baseline.processors(), Runtime.getRuntime().availableProcessors()));
+        RoutingConfig routingConfig = RoutingConfig.builder().setSolverTimeLimit(baseline.timeLimit()).build();
+        PerformanceBaseline current = new BaselineRunner(CsvFileConfig.DEFAULT_CONFIG_FULL, routingConfig,
+                baseline.checkpoints()).run(ordersFiles, "current");
+        if (args.length > 3) current.write(Path.of(args[3]));
+
+        List<PerformanceBaseline.Regression> regressions = baseline.compare(current,
+                PerformanceBaseline.Thresholds.DEFAULT);
+        if (regressions.isEmpty()) {
+            System.out.println("No regression against baseline " + baseline.label());
+            return;
+        }
+        System.out.println(regressions.size() + " regressions against baseline " + baseline.label() + ":");
+        regressions.forEach(System.out::println);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,245 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import ch.hefr.isc.shipping_optimization.data.CsvFileConfig;
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.CsvFileParser;
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.data.LazyDistanceMatrix;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.profiling.PhaseTimer;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import com.google.ortools.Loader;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Load test of the routing solver: how many simultaneous solves a host sustains before the latency collapses.
+ * <p>
+ * The requests arrive at a fixed rate, whether the previous ones are done or not, and wait for one of the
+ * {@code concurrency} solver threads, so an overloaded host shows up as a growing queue wait. With a rate of zero
+ * the test is a closed loop instead, each thread starting a new solve as soon as its previous one ends, which gives
+ * the saturation throughput. The instances are solved in turn. While the test runs, the heap and the resident
+ * memory of the process are sampled, the latter including the native memory of the routing models.
+ * <p>
+ * The solves under contention get less CPU time within the same time limit, so they may find worse solutions:
+ * each instance can first be solved alone, and the cost of each request is compared with that reference cost.
+ */
+public class LoadGenerator {
+
+    private static final Logger logger = Logger.getLogger(LoadGenerator.class.getName());
+    private static final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private static final Duration SAMPLING_INTERVAL = Duration.ofMillis(100);
+
+    private final List<DataModel> instances;
+    private final double requestsPerSecond;
+    private final int concurrency;
+    private final boolean measureReference;
+
+    /**
+     * @param instances         the instances solved in turn
+     * @param requestsPerSecond the arrival rate of the requests, zero for a closed loop
+     * @param concurrency       the number of solver threads
+     * @param measureReference  whether each instance is first solved alone to compare the costs under contention
+     * @throws IllegalArgumentException if there is no instance, the rate is negative or the concurrency is not
+     *                                  positive
+     */
+    public LoadGenerator(List<DataModel> instances, double requestsPerSecond, int concurrency,
+                         boolean measureReference) throws IllegalArgumentException {
+        if (instances.isEmpty()) throw new IllegalArgumentException("No instance to solve");
+        if (requestsPerSecond < 0) throw new IllegalArgumentException("The request rate cannot be negative");
+        if (concurrency < 1) throw new IllegalArgumentException("Concurrency has to be at least 1");
+        this.instances = instances;
+        this.requestsPerSecond = requestsPerSecond;
+        this.concurrency = concurrency;
+        this.measureReference = measureReference;
+    }
+
+    /**
+     * Build instances from random subsets of a day of orders.
+     *
+     * @param orders            the orders to sample
+     * @param distanceMatrix    the distance matrix of the orders
+     * @param config            the routing config of the instances
+     * @param numberInstances   the number of instances
+     * @param ordersPerInstance the number of orders of each instance, at most the number of orders
+     * @param seed              the seed of the sampling
+     * @return the instances
+     */
+    public static List<DataModel> sample(List<Order> orders, DistanceTable distanceMatrix, RoutingConfig config,
+                                         int numberInstances, int ordersPerInstance, long seed) {
+        Random random = new Random(seed);
+        List<Order> shuffled = new ArrayList<>(orders);
+        List<DataModel> instances = new ArrayList<>();
+        for (int i = 0; i < numberInstances; ++i) {
+            Collections.shuffle(shuffled, random);
+            List<Order> subset = new ArrayList<>(shuffled.subList(0, Math.min(ordersPerInstance, shuffled.size())));
+            instances.add(new CsvFileDataModel(subset, distanceMatrix, config));
+        }
+        return instances;
+    }
+
+    /**
+     * Run the load test.
+     *
+     * @param duration the time during which requests are started, the last ones end after it
+     * @return the report
+     * @throws InterruptedException if the thread is interrupted while waiting for the requests
+     */
+    public LoadReport run(Duration duration) throws InterruptedException {
+        Loader.loadNativeLibraries();
+        double[] referenceCosts = new double[instances.size()];
+        Arrays.fill(referenceCosts, Double.NaN);
+        if (measureReference) {
+            for (int i = 0; i < instances.size(); ++i) {
+                RoutingSolver solver = new RoutingSolver(instances.get(i));
+                solver.solve();
+                if (solver.hasSolution()) referenceCosts[i] = solver.solution().totalMonetaryCost();
+            }
+            logger.info("reference costs: " + Arrays.toString(referenceCosts));
+        }
+
+        AtomicLong maxHeapBytes = new AtomicLong();
+        AtomicLong maxResidentBytes = new AtomicLong(-1);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-generator-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            maxHeapBytes.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            maxResidentBytes.accumulateAndGet(PhaseTimer.residentBytes(), Math::max);
+        }, 0, SAMPLING_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+        logger.info(String.format("load test of %ds at %s with concurrency %d on %d instances", duration.toSeconds(),
+                requestsPerSecond > 0 ? requestsPerSecond + " requests/s" : "closed loop", concurrency,
+                instances.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<List<LoadReport.Request>>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try {
+            if (requestsPerSecond > 0) {
+                for (int i = 0; ; ++i) {
+                    long arrival = start + (long) (i * 1e9 / requestsPerSecond);
+                    if (arrival >= end) break;
+                    long wait = arrival - System.nanoTime();
+                    if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                    int instance = i % instances.size();
+                    futures.add(executor.submit(() -> List.of(solve(instance, start, arrival, referenceCosts))));
+                }
+            } else {
+                AtomicInteger next = new AtomicInteger();
+                for (int t = 0; t < concurrency; ++t) {
+                    futures.add(executor.submit(() -> {
+                        List<LoadReport.Request> requests = new ArrayList<>();
+                        for (long arrival = System.nanoTime(); arrival < end; arrival = System.nanoTime())
+                            requests.add(solve(next.getAndIncrement() % instances.size(), start, arrival,
+                                    referenceCosts));
+                        return requests;
+                    }));
+                }
+            }
+            List<LoadReport.Request> requests = new ArrayList<>();
+            for (Future<List<LoadReport.Request>> future : futures) requests.addAll(result(future));
+            Duration wallTime = Duration.ofNanos(System.nanoTime() - start);
+            // the closed loop requests are collected by thread
+            requests.sort(Comparator.comparing(LoadReport.Request::arrival));
+            return new LoadReport(requests, wallTime, requestsPerSecond, concurrency, maxHeapBytes.get(),
+                    maxResidentBytes.get());
+        } finally {
+            executor.shutdownNow();
+            sampler.shutdownNow();
+        }
+    }
+
+    private LoadReport.Request solve(int instance, long start, long arrival, double[] referenceCosts) {
+        DataModel data = instances.get(instance);
+        int numberOrders = data.numberRouteNodes() - 1;
+        long solveStart = System.nanoTime();
+        Duration queueWait = Duration.ofNanos(solveStart - arrival);
+        try {
+            RoutingSolver solver = new RoutingSolver(data);
+            solver.solve();
+            boolean solved = solver.hasSolution();
+            double cost = solved ? solver.solution().totalMonetaryCost() : Double.NaN;
+            return new LoadReport.Request(instance, numberOrders, Duration.ofNanos(arrival - start), solved,
+                    queueWait, Duration.ofNanos(System.nanoTime() - arrival), cost, referenceCosts[instance],
+                    solved ? null : "No solution found");
+        } catch (RuntimeException e) {
+            logger.warning(String.format("request on instance %d failed: %s", instance, e));
+            return new LoadReport.Request(instance, numberOrders, Duration.ofNanos(arrival - start), false,
+                    queueWait, Duration.ofNanos(System.nanoTime() - arrival), Double.NaN, referenceCosts[instance],
+                    e.toString());
+        }
+    }
+
+    private static List<LoadReport.Request> result(Future<List<LoadReport.Request>> future)
+            throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load test request failed", e.getCause());
+        }
+    }
+
+    /**
+     * Run a load test on instances sampled from the default orders file.
+     * <p>
+     * Arguments: requests per second (0 for a closed loop), concurrency, duration in seconds, orders per instance,
+     * solver time limit in seconds, output report file and number of instances (defaults to 10).
+     *
+     * @param args the arguments
+     * @throws IOException          if an error occurs while reading the data files or writing the report
+     * @throws InterruptedException if the thread is interrupted while the test runs
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 6) {
+            System.err.println("Usage: LoadGenerator <requests per second | 0> <concurrency> <duration in seconds> "
+                    + "<orders per instance> <time limit in seconds> <output report> [instances]");
+            System.exit(1);
+        }
+        double requestsPerSecond = Double.parseDouble(args[0]);
+        int concurrency = Integer.parseInt(args[1]);
+        Duration duration = Duration.ofSeconds(Long.parseLong(args[2]));
+        int ordersPerInstance = Integer.parseInt(args[3]);
+        RoutingConfig config = RoutingConfig.builder()
+                .setSolverTimeLimit(Duration.ofSeconds(Long.parseLong(args[4])))
+                .build();
+        int numberInstances = args.length > 6 ? Integer.parseInt(args[6]) : 10;
+
+        CsvFileConfig csvConfig = CsvFileConfig.DEFAULT_CONFIG_FULL;
+        DistanceTable distanceMatrix = CsvFileParser.parseSharedDistanceMatrix(csvConfig);
+        LoadReport report;
+        try {
+            List<DataModel> instances = sample(CsvFileParser.parseOrders(csvConfig), distanceMatrix, config,
+                    numberInstances, ordersPerInstance, 42);
+            report = new LoadGenerator(instances, requestsPerSecond, concurrency, true).run(duration);
+        } finally {
+            if (distanceMatrix instanceof LazyDistanceMatrix lazyMatrix) lazyMatrix.close();
+        }
+        Files.writeString(Path.of(args[5]), report.toJson().toString(4));
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,143 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The report of a load test.
+ *
+ * @param requests          the result of each request, in the order they were submitted
+ * @param wallTime          the wall time from the first submission to the end of the last request
+ * @param requestsPerSecond the target arrival rate, zero for a closed loop
+ * @param concurrency       the maximum number of solves running at the same time
+ * @param maxHeapBytes      the largest heap used seen while sampling
+ * @param maxResidentBytes  the largest resident memory seen while sampling, heap and native, -1 if unknown
+ */
+public record LoadReport(List<Request> requests, Duration wallTime, double requestsPerSecond, int concurrency,
+                         long maxHeapBytes, long maxResidentBytes) {
+
+    public int numberSolved() {
+        return (int) requests.stream().filter(Request::solved).count();
+    }
+
+    /**
+     * Get the number of solved requests per second of wall time.
+     *
+     * @return the throughput in requests per second
+     */
+    public double throughput() {
+        if (wallTime.isZero()) return 0;
+        return numberSolved() / (wallTime.toNanos() / 1e9);
+    }
+
+    /**
+     * Get a percentile of the latency of the solved requests, using the nearest rank method.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency percentile, zero if nothing was solved
+     */
+    public Duration latencyPercentile(double percentile) {
+        long[] nanos = requests.stream()
+                .filter(Request::solved)
+                .mapToLong(request -> request.latency().toNanos())
+                .sorted()
+                .toArray();
+        if (nanos.length == 0) return Duration.ZERO;
+        int rank = (int) Math.ceil(percentile / 100 * nanos.length);
+        return Duration.ofNanos(nanos[Math.max(0, Math.min(nanos.length, rank) - 1)]);
+    }
+
+    /**
+     * Get the mean time the solved requests waited for a free solver.
+     *
+     * @return the mean queue wait, zero if nothing was solved
+     */
+    public Duration meanQueueWait() {
+        return Duration.ofNanos((long) requests.stream()
+                .filter(Request::solved)
+                .mapToLong(request -> request.queueWait().toNanos())
+                .average()
+                .orElse(0));
+    }
+
+    /**
+     * Get the mean cost plus one of the solved requests divided by the cost plus one of their instance solved alone,
+     * so that the instances of zero cost count too.
+     *
+     * @return the mean relative cost, 1 when the contention doesn't degrade the solutions, NaN without reference
+     */
+    public double meanRelativeCost() {
+        return requests.stream()
+                .filter(request -> request.solved() && !Double.isNaN(request.referenceCost()))
+                .mapToDouble(request -> (request.cost() + 1) / (request.referenceCost() + 1))
+                .average()
+                .orElse(Double.NaN);
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("requests", requests.size());
+        json.put("solved", numberSolved());
+        json.put("requestsPerSecond", requestsPerSecond);
+        json.put("concurrency", concurrency);
+        json.put("wallTimeSeconds", wallTime.toMillis() / 1000.0);
+        json.put("throughputPerSecond", throughput());
+        json.put("latencyP50Seconds", latencyPercentile(50).toMillis() / 1000.0);
+        json.put("latencyP95Seconds", latencyPercentile(95).toMillis() / 1000.0);
+        json.put("latencyP99Seconds", latencyPercentile(99).toMillis() / 1000.0);
+        json.put("latencyMaxSeconds", latencyPercentile(100).toMillis() / 1000.0);
+        json.put("meanQueueWaitSeconds", meanQueueWait().toMillis() / 1000.0);
+        if (!Double.isNaN(meanRelativeCost())) json.put("meanRelativeCost", meanRelativeCost());
+        json.put("maxHeapBytes", maxHeapBytes);
+        if (maxResidentBytes >= 0) json.put("maxResidentBytes", maxResidentBytes);
+
+        JSONArray results = new JSONArray();
+        for (Request request : requests) {
+            JSONObject result = new JSONObject();
+            result.put("instance", request.instance());
+            result.put("numberOrders", request.numberOrders());
+            result.put("arrivalSeconds", request.arrival().toMillis() / 1000.0);
+            result.put("solved", request.solved());
+            result.put("queueWaitSeconds", request.queueWait().toMillis() / 1000.0);
+            result.put("latencySeconds", request.latency().toMillis() / 1000.0);
+            if (request.solved()) result.put("cost", request.cost());
+            if (!Double.isNaN(request.referenceCost())) result.put("referenceCost", request.referenceCost());
+            if (request.error() != null) result.put("error", request.error());
+            results.put(result);
+        }
+        json.put("results", results);
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d / %d requests solved in %.1fs at %s with concurrency %d: %.2f requests/s, "
+                        + "latency p50 %.2fs p95 %.2fs p99 %.2fs, queue wait %.2fs, relative cost %.4f, "
+                        + "max heap %.0fMB, max resident %s", numberSolved(), requests.size(),
+                wallTime.toMillis() / 1000.0,
+                requestsPerSecond > 0 ? String.format("%.2f requests/s", requestsPerSecond) : "closed loop",
+                concurrency, throughput(), latencyPercentile(50).toMillis() / 1000.0,
+                latencyPercentile(95).toMillis() / 1000.0, latencyPercentile(99).toMillis() / 1000.0,
+                meanQueueWait().toMillis() / 1000.0, meanRelativeCost(), maxHeapBytes / 1e6,
+                maxResidentBytes < 0 ? "-" : String.format("%.0fMB", maxResidentBytes / 1e6));
+    }
+
+    /**
+     * The result of one request.
+     *
+     * @param instance      the index of the instance solved
+     * @param numberOrders  the number of orders of the instance
+     * @param arrival       the arrival time of the request since the start of the test
+     * @param solved        whether a solution was found
+     * @param queueWait     the time between the arrival of the request and the start of its solve
+     * @param latency       the time between the arrival of the request and the end of its solve
+     * @param cost          the total monetary cost of the solution, NaN if not solved
+     * @param referenceCost the cost of the instance solved alone, NaN if not measured
+     * @param error         the error message if the solve failed, null otherwise
+     */
+    public record Request(int instance, int numberOrders, Duration arrival, boolean solved, Duration queueWait,
+                          Duration latency, double cost, double referenceCost, String error) {}
+}
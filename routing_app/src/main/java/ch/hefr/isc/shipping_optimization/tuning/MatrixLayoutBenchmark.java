@@ -0,0 +1,77 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import ch.hefr.isc.shipping_optimization.data.CompactDistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.CsvFileConfig;
+import ch.hefr.isc.shipping_optimization.data.CsvFileParser;
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.DistanceTable;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the memory use and the lookup throughput of the {@link DistanceMatrix} and the
+ * {@link CompactDistanceMatrix} on the distance matrix files.
+ */
+public class MatrixLayoutBenchmark {
+
+    private static final int NUMBER_LOOKUPS = 5_000_000;
+    private static final int ROUNDS = 5;
+    // read by nobody, keeps the lookups from being optimized away
+    private static volatile long sink;
+
+    /**
+     * Arguments: optionally the directory of the completed matrix cache, to benchmark the completed matrix.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        DistanceMatrix distanceMatrix = args.length > 0
+                ? CsvFileParser.parseCompletedDistanceMatrix(CsvFileConfig.DEFAULT_CONFIG_FULL, Path.of(args[0]))
+                : CsvFileParser.parseDistanceMatrix(CsvFileConfig.DEFAULT_CONFIG_FULL);
+
+        long start = System.nanoTime();
+        CompactDistanceMatrix compactMatrix = CompactDistanceMatrix.of(distanceMatrix);
+        long pairs = (long) distanceMatrix.zips().size() * (distanceMatrix.zips().size() - 1);
+        System.out.printf("compact matrix built in %dms, %.1f%% of the durations asymmetric%n",
+                (System.nanoTime() - start) / 1_000_000, 100.0 * compactMatrix.asymmetricDurations() / pairs);
+
+        List<Zip> zips = new ArrayList<>(distanceMatrix.zips());
+        Random random = new Random(42);
+        Zip[] from = new Zip[NUMBER_LOOKUPS];
+        Zip[] to = new Zip[NUMBER_LOOKUPS];
+        for (int i = 0; i < NUMBER_LOOKUPS; ++i) {
+            from[i] = zips.get(random.nextInt(zips.size()));
+            to[i] = zips.get(random.nextInt(zips.size()));
+        }
+
+        long mismatches = 0;
+        for (int i = 0; i < NUMBER_LOOKUPS; ++i) {
+            if (!distanceMatrix.duration(from[i], to[i]).equals(compactMatrix.duration(from[i], to[i]))
+                    || Math.abs(distanceMatrix.distance(from[i], to[i]).meters()
+                    - compactMatrix.distance(from[i], to[i]).meters()) > 0.5)
+                ++mismatches;
+        }
+
+        System.out.printf("%d zips, %d lookups, %d mismatches%n", zips.size(), NUMBER_LOOKUPS, mismatches);
+        report("hash map", distanceMatrix, from, to);
+        report("compact", compactMatrix, from, to);
+    }
+
+    private static void report(String name, DistanceTable table, Zip[] from, Zip[] to) {
+        double best = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < from.length; ++i)
+                checksum += table.duration(from[i], to[i]).getSeconds() + (long) table.distance(from[i], to[i])
+                        .meters();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            best = Math.max(best, from.length / seconds);
+            sink = checksum;
+        }
+        System.out.printf("%-10s %8.1f MB %12.0f lookups/s%n", name, table.memoryBytes() / 1e6, best);
+    }
+}
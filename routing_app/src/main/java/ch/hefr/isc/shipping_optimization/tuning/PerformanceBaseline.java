@@ -0,0 +1,230 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The performance of the solver on a fixed suite of instances, recorded by the {@link BaselineRunner} and compared
+ * with the next runs to catch regressions before deploying.
+ *
+ * @param label             the code version the baseline was recorded with, for example a commit
+ * @param javaVersion       the java version of the run
+ * @param processors        the number of processors of the host
+ * @param timeLimit         the solver time limit of each instance
+ * @param checkpoints       the times since the start of the solves at which the costs are recorded
+ * @param matrixParseTime   the time spent parsing the distance matrix
+ * @param instances         the results of the instances, in the order of the suite
+ */
+public record PerformanceBaseline(String label, String javaVersion, int processors, Duration timeLimit,
+                                  List<Duration> checkpoints, Duration matrixParseTime,
+                                  List<InstanceResult> instances) {
+
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * The results of one instance.
+     *
+     * @param name              the name of the instance, its orders file name
+     * @param numberOrders      the number of orders
+     * @param parseTime         the time spent parsing the orders
+     * @param buildTime         the time spent building the routing model
+     * @param firstSolutionTime the time from the start of the solve, model building included, to the first
+     *                          solution, null if no solution was found
+     * @param checkpointCosts   the cost of the best solution found at each checkpoint, NaN if none yet
+     * @param finalCost         the cost of the solution, NaN if no solution was found
+     * @param maxHeapBytes      the largest heap used at the end of a phase
+     * @param maxResidentBytes  the largest resident memory at the end of a phase, -1 if unknown
+     */
+    public record InstanceResult(String name, int numberOrders, Duration parseTime, Duration buildTime,
+                                 Duration firstSolutionTime, double[] checkpointCosts, double finalCost,
+                                 long maxHeapBytes, long maxResidentBytes) {}
+
+    /**
+     * The tolerated degradations of a run compared with the baseline.
+     *
+     * @param time         the tolerated relative slowdown of the parse, build and first solution times
+     * @param minTimeDelta the slowdown always tolerated, so the noise of short phases is not reported
+     * @param cost         the tolerated relative cost increase
+     * @param memory       the tolerated relative increase of the resident memory
+     */
+    public record Thresholds(double time, Duration minTimeDelta, double cost, double memory) {
+        public static final Thresholds DEFAULT = new Thresholds(0.2, Duration.ofMillis(100), 0.01, 0.2);
+    }
+
+    /**
+     * A degradation beyond the thresholds.
+     *
+     * @param instance the instance name, or "matrix" for the distance matrix
+     * @param metric   the metric which degraded
+     * @param baseline the value in the baseline
+     * @param current  the value in the current run
+     */
+    public record Regression(String instance, String metric, double baseline, double current) {
+        @Override
+        public String toString() {
+            return String.format("%s %s: %.4g -> %.4g (%+.1f%%)", instance, metric, baseline, current,
+                    100 * (current / baseline - 1));
+        }
+    }
+
+    /**
+     * Compare a run with this baseline. The instances missing from the run, or solved in the baseline but not in the
+     * run, are reported too.
+     *
+     * @param current    the current run
+     * @param thresholds the tolerated degradations
+     * @return the regressions, empty if the run is as good as the baseline
+     */
+    public List<Regression> compare(PerformanceBaseline current, Thresholds thresholds) {
+        List<Regression> regressions = new ArrayList<>();
+        compareTime(regressions, thresholds, "matrix", "parseSeconds", matrixParseTime, current.matrixParseTime);
+
+        Map<String, InstanceResult> currentResults = current.instances.stream()
+                .collect(Collectors.toMap(InstanceResult::name, Function.identity()));
+        for (InstanceResult before : instances) {
+            InstanceResult after = currentResults.get(before.name);
+            if (after == null) {
+                regressions.add(new Regression(before.name, "missing", 1, 0));
+                continue;
+            }
+            compareTime(regressions, thresholds, before.name, "parseSeconds", before.parseTime, after.parseTime);
+            compareTime(regressions, thresholds, before.name, "buildSeconds", before.buildTime, after.buildTime);
+            if (before.firstSolutionTime != null && after.firstSolutionTime == null)
+                regressions.add(new Regression(before.name, "solved", 1, 0));
+            if (before.firstSolutionTime != null && after.firstSolutionTime != null)
+                compareTime(regressions, thresholds, before.name, "firstSolutionSeconds", before.firstSolutionTime,
+                        after.firstSolutionTime);
+            // only the checkpoints both runs share are compared
+            for (int k = 0; k < checkpoints.size() && k < current.checkpoints.size(); ++k) {
+                if (!checkpoints.get(k).equals(current.checkpoints.get(k))) break;
+                compareCost(regressions, thresholds, before.name, "cost@" + checkpoints.get(k).toMillis() + "ms",
+                        before.checkpointCosts[k], after.checkpointCosts[k]);
+            }
+            compareCost(regressions, thresholds, before.name, "finalCost", before.finalCost, after.finalCost);
+            if (before.maxResidentBytes > 0 && after.maxResidentBytes > 0
+                    && after.maxResidentBytes > before.maxResidentBytes * (1 + thresholds.memory()))
+                regressions.add(new Regression(before.name, "maxResidentBytes", before.maxResidentBytes,
+                        after.maxResidentBytes));
+        }
+        return regressions;
+    }
+
+    private static void compareTime(List<Regression> regressions, Thresholds thresholds, String instance,
+                                    String metric, Duration before, Duration after) {
+        long tolerated = Math.max((long) (before.toNanos() * thresholds.time()), thresholds.minTimeDelta().toNanos());
+        if (after.toNanos() > before.toNanos() + tolerated)
+            regressions.add(new Regression(instance, metric, before.toNanos() / 1e9, after.toNanos() / 1e9));
+    }
+
+    private static void compareCost(List<Regression> regressions, Thresholds thresholds, String instance,
+                                    String metric, double before, double after) {
+        if (Double.isNaN(before)) return;
+        // a solution found in the baseline but not yet in the run is a regression
+        if (Double.isNaN(after) || after > before * (1 + thresholds.cost()))
+            regressions.add(new Regression(instance, metric, before, Double.isNaN(after) ? Double.POSITIVE_INFINITY
+                    : after));
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("formatVersion", FORMAT_VERSION);
+        json.put("label", label);
+        json.put("javaVersion", javaVersion);
+        json.put("processors", processors);
+        json.put("timeLimitMillis", timeLimit.toMillis());
+        json.put("checkpointsMillis", new JSONArray(checkpoints.stream().map(Duration::toMillis).toList()));
+        json.put("matrixParseNanos", matrixParseTime.toNanos());
+        JSONArray results = new JSONArray();
+        for (InstanceResult result : instances) {
+            JSONObject instance = new JSONObject();
+            instance.put("name", result.name);
+            instance.put("numberOrders", result.numberOrders);
+            instance.put("parseNanos", result.parseTime.toNanos());
+            instance.put("buildNanos", result.buildTime.toNanos());
+            if (result.firstSolutionTime != null)
+                instance.put("firstSolutionNanos", result.firstSolutionTime.toNanos());
+            JSONArray costs = new JSONArray();
+            // json has no NaN, a checkpoint without solution is null
+            for (double cost : result.checkpointCosts) costs.put(Double.isNaN(cost) ? JSONObject.NULL : cost);
+            instance.put("checkpointCosts", costs);
+            if (!Double.isNaN(result.finalCost)) instance.put("finalCost", result.finalCost);
+            instance.put("maxHeapBytes", result.maxHeapBytes);
+            instance.put("maxResidentBytes", result.maxResidentBytes);
+            results.put(instance);
+        }
+        json.put("instances", results);
+        return json;
+    }
+
+    /**
+     * Read a baseline from its json.
+     *
+     * @param json the json
+     * @return the baseline
+     * @throws IOException if the json is not a baseline or has another format version
+     */
+    public static PerformanceBaseline fromJson(JSONObject json) throws IOException {
+        try {
+            int version = json.getInt("formatVersion");
+            if (version != FORMAT_VERSION)
+                throw new IOException("Unsupported baseline format version " + version);
+            List<Duration> checkpoints = new ArrayList<>();
+            JSONArray checkpointsMillis = json.getJSONArray("checkpointsMillis");
+            for (int k = 0; k < checkpointsMillis.length(); ++k)
+                checkpoints.add(Duration.ofMillis(checkpointsMillis.getLong(k)));
+
+            List<InstanceResult> instances = new ArrayList<>();
+            JSONArray results = json.getJSONArray("instances");
+            for (int i = 0; i < results.length(); ++i) {
+                JSONObject instance = results.getJSONObject(i);
+                JSONArray costs = instance.getJSONArray("checkpointCosts");
+                double[] checkpointCosts = new double[costs.length()];
+                for (int k = 0; k < costs.length(); ++k)
+                    checkpointCosts[k] = costs.isNull(k) ? Double.NaN : costs.getDouble(k);
+                instances.add(new InstanceResult(instance.getString("name"), instance.getInt("numberOrders"),
+                        Duration.ofNanos(instance.getLong("parseNanos")),
+                        Duration.ofNanos(instance.getLong("buildNanos")),
+                        instance.has("firstSolutionNanos")
+                                ? Duration.ofNanos(instance.getLong("firstSolutionNanos"))
+                                : null,
+                        checkpointCosts, instance.optDouble("finalCost", Double.NaN),
+                        instance.getLong("maxHeapBytes"), instance.getLong("maxResidentBytes")));
+            }
+            return new PerformanceBaseline(json.getString("label"), json.getString("javaVersion"),
+                    json.getInt("processors"), Duration.ofMillis(json.getLong("timeLimitMillis")), checkpoints,
+                    Duration.ofNanos(json.getLong("matrixParseNanos")), instances);
+        } catch (JSONException e) {
+            throw new IOException("Invalid baseline: " + e.getMessage(), e);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        Files.writeString(file, toJson().toString(4));
+    }
+
+    /**
+     * Read a baseline file.
+     *
+     * @param file the baseline file
+     * @return the baseline
+     * @throws IOException if an error occurs while reading or if the file is not a baseline of this format version
+     */
+    public static PerformanceBaseline read(Path file) throws IOException {
+        try {
+            return fromJson(new JSONObject(Files.readString(file)));
+        } catch (JSONException e) {
+            throw new IOException("Invalid baseline file " + file + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import ch.hefr.isc.shipping_optimization.data.CsvFileConfig;
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.CsvFileParser;
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.SearchProfileFile;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import ch.hefr.isc.shipping_optimization.routing.SearchProfile;
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Offline tuner of the solver search profile on historical order files.
+ * <p>
+ * Every candidate profile is solved with every time limit on every instance, in parallel. For each instance the
+ * cost of a run is divided by the best cost any run reached on it, and the candidates are ranked by their mean
+ * relative cost. Candidates reaching the same quality are ranked by their time limit, so the shortest budget
+ * giving the best plans wins.
+ */
+public class SearchProfileTuner {
+
+    private static final Logger logger = Logger.getLogger(SearchProfileTuner.class.getName());
+    private static final List<FirstSolutionStrategy.Value> FIRST_SOLUTION_STRATEGIES = List.of(
+            FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC,
+            FirstSolutionStrategy.Value.SAVINGS,
+            FirstSolutionStrategy.Value.PARALLEL_CHEAPEST_INSERTION,
+            FirstSolutionStrategy.Value.LOCAL_CHEAPEST_INSERTION);
+    private static final List<LocalSearchMetaheuristic.Value> LOCAL_SEARCH_METAHEURISTICS = List.of(
+            LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH,
+            LocalSearchMetaheuristic.Value.SIMULATED_ANNEALING,
+            LocalSearchMetaheuristic.Value.TABU_SEARCH);
+    private static final List<Duration> LNS_TIME_LIMITS = List.of(Duration.ofMillis(100), Duration.ofSeconds(1));
+    // relative costs closer than this are considered equal when ranking
+    private static final double RELATIVE_COST_EPSILON = 1e-3;
+
+    private final List<DataModel> instances;
+    private final List<SearchProfile> profiles;
+    private final List<Duration> timeLimits;
+    private final int parallelism;
+
+    /**
+     * @param instances   the historical instances
+     * @param profiles    the candidate search profiles
+     * @param timeLimits  the candidate solver time limits
+     * @param parallelism the number of solver runs executed concurrently
+     */
+    public SearchProfileTuner(List<DataModel> instances, List<SearchProfile> profiles, List<Duration> timeLimits,
+                              int parallelism) {
+        if (instances.isEmpty()) throw new IllegalArgumentException("No instance to tune on");
+        if (parallelism < 1) throw new IllegalArgumentException("Parallelism has to be at least 1");
+        this.instances = instances;
+        this.profiles = profiles;
+        this.timeLimits = timeLimits;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Get every combination of the default first solution strategies, metaheuristics and LNS options.
+     *
+     * @return the candidate search profiles
+     */
+    public static List<SearchProfile> defaultProfiles() {
+        List<SearchProfile> profiles = new ArrayList<>();
+        for (FirstSolutionStrategy.Value strategy : FIRST_SOLUTION_STRATEGIES) {
+            for (LocalSearchMetaheuristic.Value metaheuristic : LOCAL_SEARCH_METAHEURISTICS) {
+                profiles.add(new SearchProfile(strategy, metaheuristic, false, LNS_TIME_LIMITS.get(0)));
+                for (Duration lnsTimeLimit : LNS_TIME_LIMITS)
+                    profiles.add(new SearchProfile(strategy, metaheuristic, true, lnsTimeLimit));
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Run every candidate on every instance.
+     *
+     * @return the scores of the candidates, best first
+     * @throws InterruptedException if the thread is interrupted while waiting for the runs
+     */
+    public List<Score> tune() throws InterruptedException {
+        List<Callable<Run>> tasks = new ArrayList<>();
+        for (SearchProfile profile : profiles)
+            for (Duration timeLimit : timeLimits)
+                for (DataModel instance : instances)
+                    tasks.add(() -> run(instance, profile, timeLimit));
+        logger.info(String.format("tuning %d profiles x %d time limits on %d instances", profiles.size(),
+                timeLimits.size(), instances.size()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Run> runs = new ArrayList<>();
+        try {
+            for (Future<Run> future : executor.invokeAll(tasks))
+                runs.add(result(future));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return rank(runs, instances.size());
+    }
+
+    /**
+     * Score and rank the runs of the candidates. An instance no run solved does not tell the candidates apart and
+     * is left out, and a candidate failing to solve an instance someone solved gets an infinite relative cost.
+     *
+     * @param runs            the runs, ordered by profile, time limit then instance
+     * @param numberInstances the number of instances
+     * @return the scores of the candidates, best first
+     */
+    static List<Score> rank(List<Run> runs, int numberInstances) {
+        double[] bestCosts = new double[numberInstances];
+        Arrays.fill(bestCosts, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < runs.size(); ++i) {
+            int instance = i % numberInstances;
+            bestCosts[instance] = Math.min(bestCosts[instance], runs.get(i).cost());
+        }
+
+        List<Score> scores = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += numberInstances) {
+            double relativeCost = 0;
+            int compared = 0;
+            double seconds = 0;
+            for (int instance = 0; instance < numberInstances; ++instance) {
+                Run run = runs.get(i + instance);
+                seconds += run.seconds();
+                if (Double.isInfinite(bestCosts[instance])) continue;
+                relativeCost += (run.cost() + 1) / (bestCosts[instance] + 1);
+                ++compared;
+            }
+            Run first = runs.get(i);
+            scores.add(new Score(first.profile(), first.timeLimit(),
+                    compared > 0 ? relativeCost / compared : Double.POSITIVE_INFINITY, seconds / numberInstances));
+        }
+        scores.sort(Score.RANKING);
+        return scores;
+    }
+
+    private static Run run(DataModel instance, SearchProfile profile, Duration timeLimit) {
+        RoutingConfig config = instance.config().toBuilder()
+                .setSearchProfile(profile)
+                .setSolverTimeLimit(timeLimit)
+                .build();
+        RoutingSolver solver = new RoutingSolver(instance.withConfig(config));
+        long start = System.nanoTime();
+        solver.solve();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double cost = solver.hasSolution() ? solver.solution().totalMonetaryCost() : Double.POSITIVE_INFINITY;
+        return new Run(profile, timeLimit, cost, seconds);
+    }
+
+    private static Run result(Future<Run> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Tuning run failed", e.getCause());
+        }
+    }
+
+    /**
+     * The result of a candidate on an instance.
+     *
+     * @param profile   the search profile
+     * @param timeLimit the solver time limit
+     * @param cost      the total monetary cost of the solution, infinite if no solution was found
+     * @param seconds   the wall time of the run
+     */
+    record Run(SearchProfile profile, Duration timeLimit, double cost, double seconds) {}
+
+    /**
+     * The score of a candidate over all the instances.
+     *
+     * @param profile          the search profile
+     * @param timeLimit        the solver time limit
+     * @param meanRelativeCost the mean of the cost plus one divided by the best cost plus one of each instance, so
+     *                         that instances of zero cost count, 1 is the best and infinite if a solved instance
+     *                         was not solved
+     * @param meanSeconds      the mean wall time of a run
+     */
+    public record Score(SearchProfile profile, Duration timeLimit, double meanRelativeCost, double meanSeconds) {
+        private static final Comparator<Score> RANKING = (a, b) -> {
+            // infinite costs are equal and ranked by time limit too
+            boolean equal = a.meanRelativeCost == b.meanRelativeCost
+                    || Math.abs(a.meanRelativeCost - b.meanRelativeCost) <= RELATIVE_COST_EPSILON;
+            if (!equal) return Double.compare(a.meanRelativeCost, b.meanRelativeCost);
+            return a.timeLimit.compareTo(b.timeLimit);
+        };
+
+        @Override
+        public String toString() {
+            return String.format("%s in %ds: relative cost %.4f, %.1fs per run", profile, timeLimit.toSeconds(),
+                    meanRelativeCost, meanSeconds);
+        }
+    }
+
+    /**
+     * Tune the search profile on a directory of order files using the default data files for the rest.
+     * <p>
+     * Arguments: orders directory, output profile file, time limits in seconds (comma separated, defaults to the
+     * default solver time limit) and number of parallel runs (defaults to the number of processors).
+     *
+     * @param args the arguments
+     * @throws IOException          if an error occurs while reading the data files or writing the profile
+     * @throws InterruptedException if the thread is interrupted while tuning
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: SearchProfileTuner <orders directory> <output profile> "
+                    + "[time limits in seconds] [parallelism]");
+            System.exit(1);
+        }
+        RoutingConfig routingConfig = RoutingConfig.builder().build();
+        List<Duration> timeLimits = args.length > 2
+                ? Arrays.stream(args[2].split(",")).map(s -> Duration.ofSeconds(Long.parseLong(s.trim()))).toList()
+                : List.of(routingConfig.solverTimeLimit());
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        DistanceMatrix distanceMatrix = CsvFileParser.parseDistanceMatrix(CsvFileConfig.DEFAULT_CONFIG_FULL);
+        List<DataModel> instances = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Path.of(args[0]))) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".csv")).sorted().toList()) {
+                CsvFileConfig csvConfig = CsvFileConfig.builder().setOrdersPath(file.toString()).build();
+                instances.add(new CsvFileDataModel(CsvFileParser.parseOrders(csvConfig), distanceMatrix,
+                        routingConfig));
+            }
+        }
+
+        List<Score> scores = new SearchProfileTuner(instances, defaultProfiles(), timeLimits, parallelism).tune();
+        scores.stream().limit(10).forEach(System.out::println);
+
+        Score best = scores.get(0);
+        SearchProfileFile.write(Path.of(args[1]), best.profile(), best.timeLimit());
+        System.out.println("Best profile written to " + args[1]);
+    }
+}
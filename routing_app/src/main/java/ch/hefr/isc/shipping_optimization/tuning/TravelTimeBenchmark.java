@@ -0,0 +1,99 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import ch.hefr.isc.shipping_optimization.data.CompactDistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.TravelTimeSlots;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the cost of the duration lookups done by the time callback of the solver with static durations and
+ * with travel time slots on every pair, the worst case.
+ */
+public class TravelTimeBenchmark {
+
+    private static final int NUMBER_ZIPS = 400;
+    private static final int NUMBER_LOOKUPS = 5_000_000;
+    private static final int ROUNDS = 5;
+    private static final Duration SLOT_LENGTH = Duration.ofMinutes(15);
+
+    public static void main(String[] args) throws IOException {
+        List<Zip> zips = IntStream.range(0, NUMBER_ZIPS)
+                .mapToObj(i -> Zip.of(String.valueOf(1000 + i)))
+                .toList();
+        Random random = new Random(42);
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (Zip from : zips)
+            for (Zip to : zips)
+                distanceMatrix.setZipData(from, to, Distance.ofMeters(random.nextInt(100_000)),
+                        Duration.ofSeconds(random.nextInt(7200)));
+
+        Path file = Files.createTempFile("travel_time_slots", ".csv");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("from;to;start;duration");
+            for (Zip from : zips)
+                for (Zip to : zips)
+                    for (LocalTime slot = LocalTime.of(6, 0); slot.isBefore(LocalTime.of(10, 0));
+                         slot = slot.plus(SLOT_LENGTH))
+                        writer.printf("%s;%s;%s;%d%n", from, to, slot, random.nextInt(120));
+        }
+        TravelTimeSlots slots = TravelTimeSlots.parse(file, SLOT_LENGTH);
+        Files.delete(file);
+
+        RoutingConfig config = RoutingConfig.builder().setDepotZip(zips.get(0)).build();
+        List<Order> orders = zips.stream()
+                .skip(1)
+                .map(zip -> new Order(zip.toString(), zip, 1, TimeWindow.of(8, 0, 12, 0), Weight.ofKiloGrams(1), 10))
+                .toList();
+        CompactDistanceMatrix compactMatrix = CompactDistanceMatrix.of(distanceMatrix);
+        DataModel staticModel = new CsvFileDataModel(orders, compactMatrix, config);
+        DataModel slotModel = new CsvFileDataModel(orders, compactMatrix, config, slots);
+
+        int[] from = new int[NUMBER_LOOKUPS];
+        int[] to = new int[NUMBER_LOOKUPS];
+        LocalTime[] departures = new LocalTime[NUMBER_ZIPS];
+        for (int i = 0; i < NUMBER_ZIPS; ++i)
+            departures[i] = LocalTime.ofSecondOfDay(random.nextInt(6 * 3600, 11 * 3600));
+        for (int i = 0; i < NUMBER_LOOKUPS; ++i) {
+            from[i] = random.nextInt(NUMBER_ZIPS);
+            to[i] = random.nextInt(NUMBER_ZIPS);
+        }
+
+        double staticNanos = Double.MAX_VALUE;
+        double slotNanos = Double.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (int i = 0; i < NUMBER_LOOKUPS; ++i)
+                checksum += staticModel.duration(from[i], to[i], null).toSeconds();
+            staticNanos = Math.min(staticNanos, (double) (System.nanoTime() - start) / NUMBER_LOOKUPS);
+
+            start = System.nanoTime();
+            for (int i = 0; i < NUMBER_LOOKUPS; ++i)
+                checksum += slotModel.duration(from[i], to[i], departures[from[i]]).toSeconds();
+            slotNanos = Math.min(slotNanos, (double) (System.nanoTime() - start) / NUMBER_LOOKUPS);
+        }
+
+        System.out.printf("%d pairs with %d slots of %s (checksum %d)%n", slots.numberPairs(),
+                Duration.ofDays(1).dividedBy(SLOT_LENGTH), SLOT_LENGTH, checksum);
+        System.out.printf("static durations: %6.1f ns per lookup%n", staticNanos);
+        System.out.printf("time slots:       %6.1f ns per lookup (%+.0f%%)%n", slotNanos,
+                100 * (slotNanos / staticNanos - 1));
+    }
+}
@@ -0,0 +1,285 @@
+package ch.hefr.isc.shipping_optimization.worker;
+
+import ch.hefr.isc.shipping_optimization.data.DataModelCodec;
+import ch.hefr.isc.shipping_optimization.data.RoutingSolutionCodec;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Solves data models in separate worker JVMs.
+ * <p>
+ * Each worker is a {@link SolverWorker} process connected to the coordinator over a local socket, so the native
+ * memory of its routing models is released with the process and a native crash only loses the job it was solving.
+ * Idle workers take the next job from a shared queue, which balances the load between them. When a worker dies
+ * its job is put back at the head of the queue and the worker is restarted.
+ */
+public class SolverCoordinator implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(SolverCoordinator.class.getName());
+    private static final int MAX_ATTEMPTS = 3;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration RESTART_DELAY = Duration.ofSeconds(1);
+
+    private final List<String> jvmOptions;
+    private final ServerSocket serverSocket;
+    private final BlockingDeque<Job> queue = new LinkedBlockingDeque<>();
+    private final Map<Long, CompletableFuture<Socket>> pendingConnections = new ConcurrentHashMap<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger restarts = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Start the coordinator, the workers are launched in the background.
+     *
+     * @param numberWorkers the number of worker processes
+     * @param jvmOptions    the options of the worker JVMs, for example their maximum heap size
+     * @throws IOException if the coordinator socket cannot be opened
+     */
+    public SolverCoordinator(int numberWorkers, List<String> jvmOptions) throws IOException {
+        if (numberWorkers < 1) throw new IllegalArgumentException("There has to be at least one worker");
+        this.jvmOptions = List.copyOf(jvmOptions);
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::acceptConnections, "solver-coordinator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (int i = 0; i < numberWorkers; ++i) {
+            Worker worker = new Worker(i);
+            workers.add(worker);
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Queue a data model to be solved by the next idle worker.
+     *
+     * @param data the data model
+     * @return the future solution, completed exceptionally if no solution is found or the job keeps crashing
+     * @throws IllegalStateException if the coordinator is closed
+     */
+    public CompletableFuture<RoutingSolution> submit(DataModel data) throws IllegalStateException {
+        if (closed) throw new IllegalStateException("Coordinator is closed.");
+        Job job = new Job(nextId.incrementAndGet(), data, new CompletableFuture<>(), new AtomicInteger());
+        queue.add(job);
+        return job.result;
+    }
+
+    public int numberWorkers() {
+        return workers.size();
+    }
+
+    /**
+     * Get the number of times a worker process was restarted after dying.
+     *
+     * @return the number of restarts
+     */
+    public int restarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Stop the workers and fail the jobs that are still queued.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Worker worker : workers) worker.thread.interrupt();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.warning("cannot close coordinator socket: " + e.getMessage());
+        }
+        for (Worker worker : workers) worker.stop();
+        for (Job job : queue) job.result.completeExceptionally(new IllegalStateException("Coordinator is closed."));
+        queue.clear();
+    }
+
+    boolean isBusy(int worker) {
+        return workers.get(worker).currentJob != null;
+    }
+
+    void killWorker(int worker) {
+        Process process = workers.get(worker).process;
+        if (process != null) process.destroyForcibly();
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) CONNECT_TIMEOUT.toMillis());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                int type = in.readByte();
+                long token = in.readLong();
+                socket.setSoTimeout(0);
+                CompletableFuture<Socket> pending = pendingConnections.remove(token);
+                if (type != WorkerProtocol.HELLO || pending == null) {
+                    logger.warning("rejected unknown worker connection");
+                    socket.close();
+                } else {
+                    pending.complete(socket);
+                }
+            } catch (IOException e) {
+                if (!closed) logger.warning("worker connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private record Job(long id, DataModel data, CompletableFuture<RoutingSolution> result, AtomicInteger attempts) {}
+
+    private class Worker {
+        private final int index;
+        private final Thread thread;
+        private volatile Process process;
+        private volatile Job currentJob;
+        private volatile Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        private Worker(int index) {
+            this.index = index;
+            this.thread = new Thread(this::run, "solver-coordinator-worker-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            while (!closed) {
+                try {
+                    if (process == null || !process.isAlive()) start();
+                    Job job = queue.take();
+                    if (job.result.isDone()) continue;
+                    Process current = process;
+                    if (current == null || !current.isAlive()) {
+                        if (closed) {
+                            job.result.completeExceptionally(new IllegalStateException("Coordinator is closed."));
+                            return;
+                        }
+                        // died while idle, restart it before sending the job
+                        queue.addFirst(job);
+                        stop();
+                        restarts.incrementAndGet();
+                        continue;
+                    }
+                    currentJob = job;
+                    try {
+                        solve(job);
+                    } catch (IOException e) {
+                        if (closed) {
+                            job.result.completeExceptionally(new IllegalStateException("Coordinator is closed."));
+                            return;
+                        }
+                        logger.warning(String.format("worker %d died while solving job %d: %s", index, job.id, e));
+                        if (job.attempts.incrementAndGet() >= MAX_ATTEMPTS)
+                            job.result.completeExceptionally(new IllegalStateException(
+                                    "Job crashed " + MAX_ATTEMPTS + " workers", e));
+                        else
+                            queue.addFirst(job);
+                        stop();
+                        restarts.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // the job can't be encoded or its answer decoded, the stream is left mid-frame
+                        logger.warning(String.format("worker %d failed job %d: %s", index, job.id, e));
+                        job.result.completeExceptionally(e);
+                        stop();
+                        restarts.incrementAndGet();
+                    } finally {
+                        currentJob = null;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException | TimeoutException | ExecutionException e) {
+                    if (closed) return;
+                    logger.warning(String.format("worker %d cannot start: %s", index, e.getMessage()));
+                    stop();
+                    try {
+                        Thread.sleep(RESTART_DELAY.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void start() throws IOException, InterruptedException, TimeoutException, ExecutionException {
+            long token = nextId.incrementAndGet();
+            CompletableFuture<Socket> connection = new CompletableFuture<>();
+            pendingConnections.put(token, connection);
+
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(jvmOptions);
+            command.addAll(List.of("-cp", System.getProperty("java.class.path"), SolverWorker.class.getName(),
+                    serverSocket.getInetAddress().getHostAddress(), String.valueOf(serverSocket.getLocalPort()),
+                    String.valueOf(token)));
+            process = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+            try {
+                socket = connection.get(CONNECT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } finally {
+                pendingConnections.remove(token);
+            }
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            logger.info(String.format("worker %d started (pid %d)", index, process.pid()));
+        }
+
+        private void solve(Job job) throws IOException {
+            WorkerProtocol.writeHeader(out, WorkerProtocol.SOLVE, job.id);
+            DataModelCodec.write(out, job.data);
+            out.flush();
+
+            int type = in.readByte();
+            long jobId = in.readLong();
+            if (jobId != job.id) throw new IOException("Unexpected job " + jobId + " instead of " + job.id);
+            switch (type) {
+                case WorkerProtocol.SOLUTION -> job.result.complete(RoutingSolutionCodec.read(in, job.data));
+                case WorkerProtocol.NO_SOLUTION ->
+                        job.result.completeExceptionally(new IllegalStateException("No solution found."));
+                case WorkerProtocol.ERROR -> job.result.completeExceptionally(new IllegalStateException(in.readUTF()));
+                default -> throw new IOException("Unexpected message type " + type);
+            }
+        }
+
+        private void stop() {
+            Socket current = socket;
+            try {
+                if (current != null) current.close();
+            } catch (IOException e) {
+                logger.warning(String.format("cannot close worker %d socket: %s", index, e.getMessage()));
+            }
+            socket = null;
+            if (process != null) process.destroyForcibly();
+            process = null;
+        }
+    }
+}
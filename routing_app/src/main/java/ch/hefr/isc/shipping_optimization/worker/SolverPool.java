@@ -0,0 +1,182 @@
+package ch.hefr.isc.shipping_optimization.worker;
+
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.metrics.RoutingMetrics;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import com.google.ortools.Loader;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Solves data models on warm solver threads of this process, for the small requests which have to be answered fast.
+ * <p>
+ * A fresh process spends most of the time of a small solve loading the native libraries and running the model
+ * building, callback and extraction code in the interpreter. The pool loads the native libraries once, and each of
+ * its threads solves a few synthetic instances before taking requests, so that code is compiled by the time the
+ * first request comes. The requests wait in a shared queue for the next idle thread. Unlike the
+ * {@link SolverCoordinator}, a native crash takes the whole process down, so the pool is meant for small models.
+ * <p>
+ * The latency of a request is its wait in the queue plus its solve time, mostly the solver time limit of its config:
+ * requests expecting an answer in tens of milliseconds have to come with a time limit of that order.
+ */
+public class SolverPool implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(SolverPool.class.getName());
+    private static final int WARM_UP_SOLVES = 5;
+    private static final int WARM_UP_ORDERS = 30;
+    private static final Duration WARM_UP_TIME_LIMIT = Duration.ofMillis(50);
+
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final CountDownLatch warmedUp;
+    private volatile boolean closed;
+
+    /**
+     * Start the pool, the threads warm up in the background and take requests once warm.
+     *
+     * @param size the number of requests solved concurrently
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public SolverPool(int size) throws IllegalArgumentException {
+        if (size < 1) throw new IllegalArgumentException("There has to be at least one solver thread");
+        Loader.loadNativeLibraries();
+        warmedUp = new CountDownLatch(size);
+        DataModel warmUpData = warmUpDataModel();
+        for (int i = 0; i < size; ++i) {
+            Thread thread = new Thread(() -> run(warmUpData), "solver-pool-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queue a data model to be solved by the next idle thread.
+     *
+     * @param data the data model
+     * @return the future solution, completed exceptionally if no solution is found or the solve fails
+     * @throws IllegalStateException if the pool is closed
+     */
+    public CompletableFuture<RoutingSolution> submit(DataModel data) throws IllegalStateException {
+        if (closed) throw new IllegalStateException("Solver pool is closed.");
+        Job job = new Job(data, new CompletableFuture<>(), System.nanoTime());
+        queue.add(job);
+        // a close between the check and the add may have drained the queue before the job was added
+        if (closed && queue.remove(job)) job.result.completeExceptionally(closedException());
+        RoutingMetrics.POOL_QUEUED.set(queue.size());
+        return job.result;
+    }
+
+    /**
+     * Wait for all the threads to be warm.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the threads are warm, false if the timeout elapsed before
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitWarmUp(Duration timeout) throws InterruptedException {
+        return warmedUp.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public int size() {
+        return threads.size();
+    }
+
+    /**
+     * Stop the threads once their current solve is done and fail the requests that are still queued.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread thread : threads) thread.interrupt();
+        Job job;
+        while ((job = queue.poll()) != null) job.result.completeExceptionally(closedException());
+        RoutingMetrics.POOL_QUEUED.set(0);
+    }
+
+    private static IllegalStateException closedException() {
+        return new IllegalStateException("Solver pool is closed.");
+    }
+
+    private void run(DataModel warmUpData) {
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < WARM_UP_SOLVES && !closed; ++i) {
+                RoutingSolver solver = new RoutingSolver(warmUpData);
+                solver.solve();
+                if (solver.hasSolution()) solver.solution();
+            }
+        } catch (RuntimeException e) {
+            logger.warning("solver pool warm up failed: " + e);
+        }
+        logger.info(String.format("%s warm in %dms", Thread.currentThread().getName(),
+                (System.nanoTime() - start) / 1_000_000));
+        warmedUp.countDown();
+
+        while (!closed) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            RoutingMetrics.POOL_QUEUED.set(queue.size());
+            long solveStart = System.nanoTime();
+            RoutingMetrics.POOL_QUEUE_WAIT_SECONDS.observe((solveStart - job.queuedNanos) / 1e9);
+            try {
+                RoutingSolver solver = new RoutingSolver(job.data);
+                solver.solve();
+                if (solver.hasSolution()) job.result.complete(solver.solution());
+                else job.result.completeExceptionally(new IllegalStateException("No solution found."));
+            } catch (RuntimeException e) {
+                job.result.completeExceptionally(e);
+            } finally {
+                RoutingMetrics.POOL_SOLVE_SECONDS.observe((System.nanoTime() - solveStart) / 1e9);
+            }
+        }
+    }
+
+    /**
+     * Build a small instance on a line of zip codes, with time windows and enough orders to drop some.
+     */
+    private static DataModel warmUpDataModel() {
+        List<Zip> zips = IntStream.rangeClosed(0, WARM_UP_ORDERS)
+                .mapToObj(i -> Zip.of(String.valueOf(1000 + i)))
+                .toList();
+        List<Order> orders = IntStream.range(0, WARM_UP_ORDERS)
+                .mapToObj(i -> new Order("warm-up-" + i, zips.get(i + 1), 1 + i % 4,
+                        TimeWindow.of(8 + i % 6, 0, 14 + i % 4, 0), Weight.ofKiloGrams(2 + i % 5), 20 + i % 7))
+                .toList();
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (int i = 0; i < zips.size(); ++i)
+            for (int j = 0; j < zips.size(); ++j)
+                distanceMatrix.setZipData(zips.get(i), zips.get(j), Distance.ofMeters(2000L * Math.abs(i - j)),
+                        Duration.ofSeconds(180L * Math.abs(i - j)));
+        RoutingConfig config = RoutingConfig.builder()
+                .setNumberVehicles(3)
+                .setDepotZip(zips.get(0))
+                .setSolverTimeLimit(WARM_UP_TIME_LIMIT)
+                .build();
+        return new CsvFileDataModel(orders, distanceMatrix, config);
+    }
+
+    private record Job(DataModel data, CompletableFuture<RoutingSolution> result, long queuedNanos) {}
+}
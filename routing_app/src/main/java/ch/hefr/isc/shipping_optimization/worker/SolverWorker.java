@@ -0,0 +1,84 @@
+package ch.hefr.isc.shipping_optimization.worker;
+
+import ch.hefr.isc.shipping_optimization.data.DataModelCodec;
+import ch.hefr.isc.shipping_optimization.data.RoutingSolutionCodec;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import com.google.ortools.Loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.logging.Logger;
+
+/**
+ * Worker process solving the data models sent by a {@link SolverCoordinator}.
+ * <p>
+ * The worker connects to the coordinator, introduces itself with its token and then solves one data model at a
+ * time until the coordinator closes the connection.
+ */
+public class SolverWorker {
+
+    private static final Logger logger = Logger.getLogger(SolverWorker.class.getName());
+
+    /**
+     * Arguments: coordinator host, coordinator port and worker token.
+     *
+     * @param args the arguments
+     * @throws IOException if the connection to the coordinator fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SolverWorker <host> <port> <token>");
+            System.exit(1);
+        }
+        Loader.loadNativeLibraries();
+
+        try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            WorkerProtocol.writeHeader(out, WorkerProtocol.HELLO, Long.parseLong(args[2]));
+            out.flush();
+
+            while (true) {
+                int type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                long jobId = in.readLong();
+                if (type != WorkerProtocol.SOLVE) throw new IOException("Unexpected message type " + type);
+
+                DataModel data = DataModelCodec.read(in);
+                try {
+                    RoutingSolver solver = new RoutingSolver(data);
+                    solver.solve();
+                    if (solver.hasSolution()) {
+                        // encoded before the header, so a failing encoding is reported without a partial payload
+                        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                        DataOutputStream payloadOut = new DataOutputStream(payload);
+                        RoutingSolutionCodec.write(payloadOut, data, solver.solution());
+                        payloadOut.flush();
+                        WorkerProtocol.writeHeader(out, WorkerProtocol.SOLUTION, jobId);
+                        payload.writeTo(out);
+                    } else {
+                        WorkerProtocol.writeHeader(out, WorkerProtocol.NO_SOLUTION, jobId);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warning(String.format("job %d failed: %s", jobId, e));
+                    WorkerProtocol.writeHeader(out, WorkerProtocol.ERROR, jobId);
+                    out.writeUTF(String.valueOf(e));
+                }
+                out.flush();
+            }
+        }
+    }
+}
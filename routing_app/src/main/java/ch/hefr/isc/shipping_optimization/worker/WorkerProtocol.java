@@ -0,0 +1,27 @@
+package ch.hefr.isc.shipping_optimization.worker;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The binary messages exchanged between the coordinator and its workers.
+ * <p>
+ * Every message is a frame made of a type, a job id and a payload. A data model is sent with the
+ * {@link ch.hefr.isc.shipping_optimization.data.DataModelCodec} and a solution with the
+ * {@link ch.hefr.isc.shipping_optimization.data.RoutingSolutionCodec}.
+ */
+final class WorkerProtocol {
+
+    static final int HELLO = 1;
+    static final int SOLVE = 2;
+    static final int SOLUTION = 3;
+    static final int NO_SOLUTION = 4;
+    static final int ERROR = 5;
+
+    private WorkerProtocol() {}
+
+    static void writeHeader(DataOutputStream out, int type, long jobId) throws IOException {
+        out.writeByte(type);
+        out.writeLong(jobId);
+    }
+}
@@ -0,0 +1,62 @@
+package ch.hefr.isc.shipping_optimization.batch;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class BatchJobTest {
+
+    @Test
+    public void testManifest(@TempDir Path directory) throws IOException {
+        RoutingConfig defaults = RoutingConfig.builder().build();
+        Path manifest = directory.resolve("manifest.csv");
+        Files.writeString(manifest, """
+                ordersPath;depotZip;numberVehicles;solverTimeLimitSeconds;searchProfilePath
+                monday.csv;1700;12;5;
+                
+                days/tuesday.csv;;;;
+                """);
+        List<BatchJob> jobs = BatchJob.fromManifest(manifest, defaults);
+        Assertions.assertEquals(2, jobs.size());
+        Assertions.assertEquals("monday", jobs.get(0).name());
+        Assertions.assertEquals(directory.toAbsolutePath().resolve("monday.csv"), jobs.get(0).ordersPath());
+        Assertions.assertEquals(Zip.of("1700"), jobs.get(0).config().depotZip());
+        Assertions.assertEquals(12, jobs.get(0).config().numberVehicles());
+        Assertions.assertEquals(Duration.ofSeconds(5), jobs.get(0).config().solverTimeLimit());
+        Assertions.assertEquals("tuesday", jobs.get(1).name());
+        Assertions.assertEquals(defaults, jobs.get(1).config());
+
+        Files.writeString(manifest, "ordersPath;depotZip\nmonday.csv;\n;1700\n");
+        Assertions.assertThrows(IOException.class, () -> BatchJob.fromManifest(manifest, defaults));
+        Files.writeString(manifest, "ordersPath;depotZip;numberVehicles\nmonday.csv;;many\n");
+        Assertions.assertThrows(IOException.class, () -> BatchJob.fromManifest(manifest, defaults));
+    }
+
+    /**
+     * Test that two jobs writing the same solution file are rejected.
+     */
+    @Test
+    public void testDuplicateNames(@TempDir Path directory) throws IOException {
+        RoutingConfig defaults = RoutingConfig.builder().build();
+        Path manifest = directory.resolve("manifest.csv");
+        Files.writeString(manifest, "ordersPath;depotZip\nweek1/monday.csv;1700\nweek2/Monday.csv;3000\n");
+        IOException e = Assertions.assertThrows(IOException.class, () -> BatchJob.fromManifest(manifest, defaults));
+        Assertions.assertTrue(e.getMessage().contains("Monday"), e.getMessage());
+
+        Assertions.assertDoesNotThrow(() -> BatchJob.checkUniqueNames(List.of(
+                new BatchJob(Path.of("monday.csv"), defaults), new BatchJob(Path.of("tuesday.csv"), defaults))));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchSolver(null, 1, 0)
+                .run(List.of(new BatchJob(Path.of("a/monday.csv"), defaults),
+                        new BatchJob(Path.of("b/monday.csv"), defaults)), directory.resolve("out")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BatchSolver(null, 1, 0)
+                .run(List.of(new BatchJob(Path.of("batch_report.csv"), defaults)), directory.resolve("out")));
+    }
+}
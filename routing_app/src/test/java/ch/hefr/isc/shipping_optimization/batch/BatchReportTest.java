@@ -0,0 +1,42 @@
+package ch.hefr.isc.shipping_optimization.batch;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BatchReportTest {
+
+    @Test
+    public void testThroughputAndPercentiles() {
+        List<BatchReport.JobResult> results = new ArrayList<>();
+        for (int i = 1; i <= 10; ++i)
+            results.add(new BatchReport.JobResult("day" + i, true, 100, Duration.ofMillis(50),
+                    Duration.ofSeconds(i), 1000 + i, null));
+        results.add(new BatchReport.JobResult("broken", false, 0, Duration.ofMillis(50), Duration.ofHours(1),
+                Double.NaN, "cannot parse"));
+        BatchReport report = new BatchReport(results, Duration.ofMinutes(1), 4);
+
+        Assertions.assertEquals(10, report.numberSolved());
+        Assertions.assertEquals(600, report.instancesPerHour(), 1e-9);
+        // nearest rank, the failed job is ignored
+        Assertions.assertEquals(Duration.ofSeconds(5), report.solveTimePercentile(50));
+        Assertions.assertEquals(Duration.ofSeconds(10), report.solveTimePercentile(95));
+        Assertions.assertEquals(Duration.ofSeconds(1), report.solveTimePercentile(0));
+        Assertions.assertEquals(Duration.ofSeconds(10), report.solveTimePercentile(100));
+
+        JSONObject json = report.toJson();
+        Assertions.assertEquals(11, json.getInt("instances"));
+        Assertions.assertEquals(0.55, json.getDouble("totalParseTimeSeconds"), 1e-9);
+        JSONObject broken = json.getJSONArray("jobs").getJSONObject(10);
+        Assertions.assertFalse(broken.has("totalMonetaryCost"));
+        Assertions.assertEquals("cannot parse", broken.getString("error"));
+
+        BatchReport empty = new BatchReport(List.of(), Duration.ZERO, 1);
+        Assertions.assertEquals(0, empty.instancesPerHour());
+        Assertions.assertEquals(Duration.ZERO, empty.solveTimePercentile(50));
+    }
+}
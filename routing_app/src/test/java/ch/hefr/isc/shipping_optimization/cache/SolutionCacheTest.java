@@ -0,0 +1,145 @@
+package ch.hefr.isc.shipping_optimization.cache;
+
+import ch.hefr.isc.shipping_optimization.data.TravelTimeSlots;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolverTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+public class SolutionCacheTest {
+
+    private static final RoutingConfig CONFIG = RoutingConfig.builder()
+            .setNumberVehicles(2)
+            .setDepotZip(Zip.of("1000"))
+            .setSolverTimeLimit(Duration.ofMillis(300))
+            .build();
+
+    private static DataModel dataModel(int firstOrder, int numberOrders) {
+        return RoutingSolverTest.scatteredDataModel(firstOrder, numberOrders, CONFIG, null);
+    }
+
+    /**
+     * Test that a solved instance is served from the cache, also by a new cache on the same directory.
+     */
+    @Test
+    public void testHitAfterSolve(@TempDir Path directory) throws Exception {
+        DataModel dataModel = dataModel(0, 6);
+        SolutionCache cache = new SolutionCache(directory, 1 << 20);
+        Assertions.assertTrue(cache.get(dataModel).isEmpty());
+
+        RoutingSolution solution = cache.solve(dataModel, 0);
+        Assertions.assertEquals(1, cache.size());
+        RoutingSolution cached = cache.solve(dataModel, 0);
+        Assertions.assertEquals(1, cache.hits());
+        Assertions.assertEquals(solution.totalMonetaryCost(), cached.totalMonetaryCost());
+        Assertions.assertEquals(solution.routes(), cached.routes());
+
+        SolutionCache reopened = new SolutionCache(directory, 1 << 20);
+        Optional<RoutingSolution> persisted = reopened.get(dataModel(0, 6));
+        Assertions.assertTrue(persisted.isPresent());
+        Assertions.assertEquals(solution.routes(), persisted.get().routes());
+
+        DataModel otherTimeLimit = dataModel.withConfig(dataModel.config().toBuilder()
+                .setSolverTimeLimit(Duration.ofSeconds(1))
+                .build());
+        Assertions.assertNotEquals(InstanceFingerprint.of(dataModel), InstanceFingerprint.of(otherTimeLimit));
+        Assertions.assertTrue(reopened.get(otherTimeLimit).isEmpty());
+    }
+
+    /**
+     * Test that the least recently used entries are evicted once the cache is full.
+     */
+    @Test
+    public void testEviction(@TempDir Path directory) throws Exception {
+        SolutionCache unbounded = new SolutionCache(directory.resolve("unbounded"), Long.MAX_VALUE);
+        unbounded.solve(dataModel(0, 4), 0);
+        long entryBytes = unbounded.totalBytes();
+
+        SolutionCache cache = new SolutionCache(directory.resolve("bounded"), 2 * entryBytes + entryBytes / 2);
+        DataModel first = dataModel(0, 4);
+        DataModel second = dataModel(1, 4);
+        DataModel third = dataModel(2, 4);
+        cache.solve(first, 0);
+        cache.solve(second, 0);
+        Assertions.assertTrue(cache.get(first).isPresent());
+        cache.solve(third, 0);
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertTrue(cache.totalBytes() <= 2 * entryBytes + entryBytes / 2);
+        Assertions.assertTrue(cache.get(first).isPresent());
+        Assertions.assertTrue(cache.get(second).isEmpty());
+        Assertions.assertTrue(cache.get(third).isPresent());
+    }
+
+    /**
+     * Test that the routes of an overlapping cached instance are mapped onto the indexes of a new instance.
+     */
+    @Test
+    public void testNearMatchRoutes(@TempDir Path directory) throws Exception {
+        SolutionCache cache = new SolutionCache(directory, 1 << 20);
+        DataModel cachedModel = dataModel(0, 8);
+        RoutingSolution cachedSolution = cache.solve(cachedModel, 0);
+
+        DataModel dataModel = dataModel(1, 8);
+        Assertions.assertTrue(cache.nearMatchRoutes(dataModel, 0.9).isEmpty());
+        long[][] routes = cache.nearMatchRoutes(dataModel, 0.5).orElseThrow();
+
+        List<String> routedIds = Arrays.stream(routes)
+                .flatMapToLong(Arrays::stream)
+                .mapToObj(index -> dataModel.routeNodeAt((int) index).order().id())
+                .sorted()
+                .toList();
+        List<String> expectedIds = cachedSolution.routes().stream()
+                .flatMap(route -> route.routeNodes().stream())
+                .filter(node -> !node.isDepot())
+                .map(node -> node.order().id())
+                .filter(id -> !id.equals("0"))
+                .sorted()
+                .toList();
+        Assertions.assertEquals(expectedIds, routedIds);
+
+        RoutingSolution solution = cache.solve(dataModel, 0.5);
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(solution.routes(), cache.get(dataModel).orElseThrow().routes());
+    }
+
+    /**
+     * Test that the time dependent durations are part of the fingerprint, whatever the order of their lines.
+     */
+    @Test
+    public void testTravelTimeSlotsFingerprint(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("slots.csv");
+        Files.writeString(file, """
+                from;to;start;duration
+                1000;1001;08:00;60
+                1001;1002;08:30;20
+                1000;1001;09:00;45
+                4000;4001;08:00;10
+                """);
+        Path reordered = directory.resolve("reordered.csv");
+        Files.writeString(reordered, """
+                from;to;start;duration
+                4000;4001;08:00;10
+                1000;1001;09:00;45
+                1001;1002;08:30;20
+                1000;1001;08:00;60
+                """);
+        TravelTimeSlots slots = TravelTimeSlots.parse(file, Duration.ofMinutes(30));
+
+        String fingerprint = InstanceFingerprint.of(RoutingSolverTest.scatteredDataModel(0, 4, CONFIG, slots));
+        Assertions.assertNotEquals(InstanceFingerprint.of(dataModel(0, 4)), fingerprint);
+        Assertions.assertEquals(fingerprint, InstanceFingerprint.of(RoutingSolverTest.scatteredDataModel(0, 4, CONFIG,
+                TravelTimeSlots.parse(reordered, Duration.ofMinutes(30)))));
+    }
+}
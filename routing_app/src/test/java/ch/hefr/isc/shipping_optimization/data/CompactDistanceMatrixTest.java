@@ -0,0 +1,116 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class CompactDistanceMatrixTest {
+
+    private static final List<Zip> ZIPS = IntStream.range(0, 60)
+            .mapToObj(i -> Zip.of(String.valueOf(1000 + i)))
+            .toList();
+
+    private static void assertSameTable(DistanceMatrix expected, CompactDistanceMatrix actual) {
+        Assertions.assertEquals(expected.zips(), actual.zips());
+        for (Zip from : ZIPS) {
+            Assertions.assertEquals(expected.destinations(from), actual.destinations(from));
+            for (Zip to : ZIPS) {
+                Assertions.assertEquals(expected.hasZipData(from, to), actual.hasZipData(from, to));
+                Assertions.assertEquals(expected.duration(from, to), actual.duration(from, to));
+                Assertions.assertEquals(expected.distance(from, to).meters(), actual.distance(from, to).meters(),
+                        0.5);
+            }
+        }
+    }
+
+    /**
+     * Test that an asymmetric matrix with missing pairs and rows of any spread is decoded exactly.
+     */
+    @Test
+    public void testAsymmetricMatrix() {
+        Random random = new Random(7);
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (int i = 0; i < ZIPS.size(); ++i) {
+            // rows needing 1, 2 and 4 bytes per value
+            int spread = i % 3 == 0 ? 200 : i % 3 == 1 ? 60_000 : 5_000_000;
+            for (Zip to : ZIPS) {
+                if (random.nextInt(10) == 0) continue;
+                distanceMatrix.setZipData(ZIPS.get(i), to, Distance.ofMeters(1000 + random.nextInt(spread) + 0.3),
+                        Duration.ofSeconds(random.nextInt(spread)));
+            }
+        }
+
+        CompactDistanceMatrix compactMatrix = CompactDistanceMatrix.of(distanceMatrix);
+        Assertions.assertFalse(compactMatrix.isSymmetric());
+        assertSameTable(distanceMatrix, compactMatrix);
+        Assertions.assertEquals(DistanceTable.UNREACHABLE_DURATION,
+                compactMatrix.duration(ZIPS.get(0), Zip.of("9999")));
+    }
+
+    /**
+     * Test that a symmetric matrix only stores half of the pairs.
+     */
+    @Test
+    public void testSymmetricMatrix() {
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (int i = 0; i < ZIPS.size(); ++i) {
+            for (int j = i; j < ZIPS.size(); ++j) {
+                if ((i + j) % 7 == 0) continue;
+                Distance distance = Distance.ofKiloMeters(1 + i + 2 * j);
+                Duration duration = Duration.ofSeconds(60L * (i + j));
+                distanceMatrix.setZipData(ZIPS.get(i), ZIPS.get(j), distance, duration);
+                distanceMatrix.setZipData(ZIPS.get(j), ZIPS.get(i), distance, duration);
+            }
+        }
+
+        CompactDistanceMatrix compactMatrix = CompactDistanceMatrix.of(distanceMatrix);
+        Assertions.assertTrue(compactMatrix.isSymmetric());
+        assertSameTable(distanceMatrix, compactMatrix);
+        Assertions.assertTrue(compactMatrix.memoryBytes() * 10 < distanceMatrix.memoryBytes());
+    }
+
+    /**
+     * Test that a road-like matrix, symmetric but for some pairs, only stores the differing pairs twice.
+     */
+    @Test
+    public void testMostlySymmetricMatrix() {
+        Random random = new Random(11);
+        DistanceMatrix mostlySymmetric = new DistanceMatrix();
+        DistanceMatrix asymmetric = new DistanceMatrix();
+        for (int i = 0; i < ZIPS.size(); ++i) {
+            for (int j = i; j < ZIPS.size(); ++j) {
+                Distance distance = Distance.ofMeters(500 + random.nextInt(100_000));
+                Duration duration = Duration.ofSeconds(60 + random.nextInt(5_000));
+                Zip a = ZIPS.get(i);
+                Zip b = ZIPS.get(j);
+                mostlySymmetric.setZipData(a, b, distance, duration);
+                asymmetric.setZipData(a, b, distance, duration);
+                asymmetric.setZipData(b, a, Distance.ofMeters(distance.meters() + 1), duration.plusSeconds(1));
+                // one pair in ten differs, and some pairs are only known in one direction
+                if ((i + 3 * j) % 50 == 0) continue;
+                if (random.nextInt(10) == 0)
+                    mostlySymmetric.setZipData(b, a, Distance.ofMeters(distance.meters() + 700),
+                            duration.plusSeconds(random.nextInt(600)));
+                else
+                    mostlySymmetric.setZipData(b, a, distance, duration);
+            }
+        }
+
+        CompactDistanceMatrix compactMatrix = CompactDistanceMatrix.of(mostlySymmetric);
+        Assertions.assertFalse(compactMatrix.isSymmetric());
+        Assertions.assertTrue(compactMatrix.asymmetricDurations() > 0);
+        assertSameTable(mostlySymmetric, compactMatrix);
+
+        CompactDistanceMatrix asymmetricMatrix = CompactDistanceMatrix.of(asymmetric);
+        assertSameTable(asymmetric, asymmetricMatrix);
+        Assertions.assertEquals((long) ZIPS.size() * (ZIPS.size() - 1), asymmetricMatrix.asymmetricDurations());
+        Assertions.assertTrue(compactMatrix.memoryBytes() < 0.7 * asymmetricMatrix.memoryBytes(),
+                compactMatrix.memoryBytes() + " / " + asymmetricMatrix.memoryBytes());
+    }
+}
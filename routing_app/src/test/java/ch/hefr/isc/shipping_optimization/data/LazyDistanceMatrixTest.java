@@ -0,0 +1,141 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+public class LazyDistanceMatrixTest {
+
+    /**
+     * Test that the rows are loaded on demand, that the cache stays bounded and that prefetched rows are hits.
+     */
+    @Test
+    public void testLoadRowsOnDemand(@TempDir Path directory) throws Exception {
+        List<Zip> zips = IntStream.range(0, 40)
+                .mapToObj(i -> Zip.of(String.valueOf(1000 + i)))
+                .toList();
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (int i = 0; i < zips.size(); ++i)
+            for (int j = 0; j < zips.size(); ++j)
+                if ((i * j) % 5 != 1)
+                    distanceMatrix.setZipData(zips.get(i), zips.get(j), Distance.ofMeters(100 * i + j + 0.5),
+                            Duration.ofSeconds(60L * i + j));
+        Path file = directory.resolve("matrix.bin");
+        DistanceMatrixFile.write(file, distanceMatrix, "key");
+
+        // room for about 5 rows
+        long maxBytes = 5 * (64 + 20 * 40);
+        try (LazyDistanceMatrix lazyMatrix = LazyDistanceMatrix.open(file, maxBytes)) {
+            Assertions.assertEquals(0, lazyMatrix.cachedRows());
+            for (Zip from : zips) {
+                Assertions.assertEquals(distanceMatrix.destinations(from), lazyMatrix.destinations(from));
+                for (Zip to : zips) {
+                    Assertions.assertEquals(distanceMatrix.hasZipData(from, to), lazyMatrix.hasZipData(from, to));
+                    Assertions.assertEquals(distanceMatrix.duration(from, to), lazyMatrix.duration(from, to));
+                    Assertions.assertEquals(distanceMatrix.distance(from, to), lazyMatrix.distance(from, to));
+                }
+            }
+            Assertions.assertEquals(zips.size(), lazyMatrix.misses());
+            Assertions.assertTrue(lazyMatrix.cachedRows() <= 5);
+            Assertions.assertTrue(lazyMatrix.memoryBytes() < distanceMatrix.memoryBytes());
+
+            List<Zip> batch = zips.subList(0, 4);
+            lazyMatrix.prefetch(batch);
+            long misses = lazyMatrix.misses();
+            for (Zip from : batch) lazyMatrix.duration(from, zips.get(0));
+            Assertions.assertEquals(misses, lazyMatrix.misses());
+        }
+    }
+
+    /**
+     * Test that threads looking up rows while others are evicted read the right values and keep the cache bounded.
+     */
+    @Test
+    public void testConcurrentLookups(@TempDir Path directory) throws Exception {
+        List<Zip> zips = IntStream.range(0, 50)
+                .mapToObj(i -> Zip.of(String.valueOf(2000 + i)))
+                .toList();
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (int i = 0; i < zips.size(); ++i)
+            for (int j = 0; j < zips.size(); ++j)
+                distanceMatrix.setZipData(zips.get(i), zips.get(j), Distance.ofMeters(1000 * i + j),
+                        Duration.ofSeconds(100L * i + j));
+        Path file = directory.resolve("matrix.bin");
+        DistanceMatrixFile.write(file, distanceMatrix, "key");
+
+        long maxBytes = 8 * (64 + 20 * 50);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (LazyDistanceMatrix lazyMatrix = LazyDistanceMatrix.open(file, maxBytes)) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    int mismatches = 0;
+                    for (int k = 0; k < 20_000; ++k) {
+                        // a few hot rows and some cold ones
+                        int i = random.nextInt(4) == 0 ? random.nextInt(zips.size()) : random.nextInt(4);
+                        int j = random.nextInt(zips.size());
+                        if (lazyMatrix.duration(zips.get(i), zips.get(j)).toSeconds() != 100L * i + j
+                                || lazyMatrix.distance(zips.get(i), zips.get(j)).meters() != 1000 * i + j)
+                            ++mismatches;
+                    }
+                    return mismatches;
+                }));
+            }
+            for (Future<Integer> future : futures) Assertions.assertEquals(0, future.get());
+            Assertions.assertTrue(lazyMatrix.cachedRows() <= 8, lazyMatrix.cachedRows() + " rows");
+            Assertions.assertEquals(4 * 20_000 * 2, lazyMatrix.hits() + lazyMatrix.misses());
+            // the hot rows stay cached
+            Assertions.assertTrue(lazyMatrix.hits() > lazyMatrix.misses() * 2,
+                    lazyMatrix.hits() + " hits, " + lazyMatrix.misses() + " misses");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that the shared distance matrix is completed and cached, and loaded row by row with the row cache
+     * property.
+     */
+    @Test
+    public void testSharedDistanceMatrix(@TempDir Path directory) throws Exception {
+        Path locations = directory.resolve("locations.csv");
+        Files.writeString(locations, "zip;km;hours\n1000;1.5;0.1\n1001;2;0.2\n1002;1;0.05\n");
+        Path matrix = directory.resolve("matrix.json");
+        // 1000 -> 1002 is missing and completed through 1001
+        Files.writeString(matrix, "{\"1000\": {\"1001\": {\"length\": 10, \"duration\": 12}},"
+                + " \"1001\": {\"1002\": {\"length\": 5, \"duration\": 6}, \"1000\": {\"length\": 10,"
+                + " \"duration\": 12}}, \"1002\": {\"1001\": {\"length\": 5, \"duration\": 6}}}");
+        CsvFileConfig csvConfig = CsvFileConfig.builder()
+                .setZipDistancesPath(locations.toString())
+                .setDistanceMatrixPath(matrix.toString())
+                .build();
+        Assertions.assertEquals(directory.resolve("cache"), csvConfig.matrixCacheDirectory());
+
+        DistanceTable compactMatrix = CsvFileParser.parseSharedDistanceMatrix(csvConfig);
+        Assertions.assertInstanceOf(CompactDistanceMatrix.class, compactMatrix);
+        Assertions.assertTrue(compactMatrix.hasZipData(Zip.of("1000"), Zip.of("1002")));
+
+        System.setProperty(CsvFileParser.ROW_CACHE_BYTES_PROPERTY, "100000");
+        try (LazyDistanceMatrix lazyMatrix = (LazyDistanceMatrix) CsvFileParser.parseSharedDistanceMatrix(csvConfig)) {
+            for (Zip from : compactMatrix.zips())
+                for (Zip to : compactMatrix.zips())
+                    Assertions.assertEquals(compactMatrix.duration(from, to), lazyMatrix.duration(from, to));
+        } finally {
+            System.clearProperty(CsvFileParser.ROW_CACHE_BYTES_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class MatrixCompletionTest {
+
+    /**
+     * Test that the missing pairs get the fastest path and that zip codes without any path stay unreachable.
+     */
+    @Test
+    public void testCompleteWithFastestPaths(@TempDir Path directory) throws Exception {
+        Zip a = Zip.of("1000");
+        Zip b = Zip.of("2000");
+        Zip c = Zip.of("3000");
+        Zip d = Zip.of("4000");
+        Zip e = Zip.of("5000");
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        distanceMatrix.setZipData(a, a, Distance.ofKiloMeters(1), Duration.ofMinutes(2));
+        distanceMatrix.setZipData(a, b, Distance.ofKiloMeters(10), Duration.ofMinutes(10));
+        distanceMatrix.setZipData(b, c, Distance.ofKiloMeters(10), Duration.ofMinutes(10));
+        distanceMatrix.setZipData(a, d, Distance.ofKiloMeters(5), Duration.ofMinutes(30));
+        distanceMatrix.setZipData(d, c, Distance.ofKiloMeters(5), Duration.ofMinutes(30));
+        distanceMatrix.setZipData(c, a, Distance.ofKiloMeters(20), Duration.ofMinutes(20));
+        distanceMatrix.setZipData(e, a, Distance.ofKiloMeters(1), Duration.ofMinutes(1));
+
+        MatrixCompletion.Result result = MatrixCompletion.complete(distanceMatrix, 2);
+
+        // a -> c goes through b, which is faster than through d
+        Assertions.assertEquals(Duration.ofMinutes(20), distanceMatrix.duration(a, c));
+        Assertions.assertEquals(20_000, distanceMatrix.distance(a, c).meters(), 1e-6);
+        Assertions.assertEquals(Duration.ofMinutes(30), distanceMatrix.duration(b, a));
+        Assertions.assertEquals(Duration.ofMinutes(2), distanceMatrix.duration(a, a));
+        Assertions.assertEquals(Duration.ofMinutes(60), distanceMatrix.duration(b, d));
+        Assertions.assertEquals(Duration.ofMinutes(50), distanceMatrix.duration(d, a));
+        Assertions.assertEquals(Duration.ofMinutes(21), distanceMatrix.duration(e, c));
+        // nothing leads to e
+        for (Zip from : new Zip[]{a, b, c, d}) Assertions.assertFalse(distanceMatrix.hasZipData(from, e));
+        Assertions.assertEquals(4, result.unreachablePairs());
+        Assertions.assertEquals(10, result.filledPairs());
+
+        Path file = directory.resolve("matrix.bin");
+        DistanceMatrixFile.write(file, distanceMatrix, "key");
+        DistanceMatrix read = DistanceMatrixFile.read(file, "key");
+        for (Zip from : distanceMatrix.zips()) {
+            Assertions.assertEquals(distanceMatrix.destinations(from), read.destinations(from));
+            for (Zip to : distanceMatrix.destinations(from))
+                Assertions.assertEquals(distanceMatrix.duration(from, to), read.duration(from, to));
+        }
+        Assertions.assertThrows(IOException.class, () -> DistanceMatrixFile.read(file, "other key"));
+    }
+}
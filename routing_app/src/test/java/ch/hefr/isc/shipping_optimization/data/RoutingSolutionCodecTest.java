@@ -0,0 +1,251 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolverTest;
+import ch.hefr.isc.shipping_optimization.routing.TimeWaveSolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+public class RoutingSolutionCodecTest {
+
+    private static final RoutingConfig CONFIG = RoutingConfig.builder()
+            .setNumberVehicles(3)
+            .setDepotZip(Zip.of("1000"))
+            .build();
+
+    private static DataModel dataModel(int numberOrders) {
+        return RoutingSolverTest.scatteredDataModel(0, numberOrders, CONFIG, null);
+    }
+
+    /**
+     * Build a solution with two routes visiting some orders each, an unused vehicle and the other orders dropped.
+     */
+    private static RoutingSolution solution(DataModel data, int perRoute) {
+        List<RoutingSolution.Route> routes = new ArrayList<>();
+        int next = 1;
+        for (int r = 0; r < 3; ++r) {
+            int stops = r < 2 ? perRoute : 0;
+            List<RouteNode> nodes = new ArrayList<>();
+            List<LocalTime> departures = new ArrayList<>();
+            LocalTime time = LocalTime.of(8, 0);
+            nodes.add(data.routeNodeAt(0));
+            departures.add(time);
+            for (int i = 0; i < stops; ++i) {
+                time = time.plusMinutes(11);
+                nodes.add(data.routeNodeAt(next++));
+                departures.add(time);
+            }
+            time = time.plusMinutes(9);
+            nodes.add(data.routeNodeAt(0));
+            departures.add(time);
+            routes.add(new RoutingSolution.Route(nodes, departures, departures.get(0), time, 40L * stops,
+                    Distance.ofMeters(1234 * stops), data.config().depotZip()));
+        }
+        Set<Order> dropped = new HashSet<>();
+        for (int i = next; i < data.numberRouteNodes(); ++i) dropped.add(data.routeNodeAt(i).order());
+        return new RoutingSolution(routes, dropped);
+    }
+
+    private static byte[] encode(DataModel data, RoutingSolution solution) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            RoutingSolutionCodec.write(out, data, solution);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertSameSolution(RoutingSolution expected, RoutingSolution actual) {
+        Assertions.assertEquals(expected.routes().size(), actual.routes().size());
+        for (int r = 0; r < expected.routes().size(); ++r) {
+            RoutingSolution.Route route = expected.routes().get(r);
+            RoutingSolution.Route read = actual.routes().get(r);
+            Assertions.assertEquals(route.routeNodes().stream().map(RouteNode::zip).toList(),
+                    read.routeNodes().stream().map(RouteNode::zip).toList());
+            Assertions.assertEquals(route.departureTimes(), read.departureTimes());
+            Assertions.assertEquals(route.startTime(), read.startTime());
+            Assertions.assertEquals(route.endTime(), read.endTime());
+            Assertions.assertEquals(route.monetaryCost(), read.monetaryCost());
+            Assertions.assertEquals(route.totalDistance().meters(), read.totalDistance().meters());
+            Assertions.assertEquals(route.reloads(), read.reloads());
+        }
+        Assertions.assertEquals(expected.droppedOrders(), actual.droppedOrders());
+    }
+
+    @Test
+    public void testSolutionRoundTrip(@TempDir Path directory) throws IOException {
+        DataModel data = dataModel(200);
+        RoutingSolution solution = solution(data, 60);
+
+        byte[] bytes = encode(data, solution);
+        RoutingSolution read = RoutingSolutionCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), data);
+        assertSameSolution(solution, read);
+        long[][] routes = RoutingSolutionCodec.readRouteIndexes(new DataInputStream(new ByteArrayInputStream(bytes)),
+                data.numberRouteNodes());
+        Assertions.assertArrayEquals(LongStream.range(1, 61).toArray(), routes[0]);
+        Assertions.assertArrayEquals(LongStream.range(61, 121).toArray(), routes[1]);
+        Assertions.assertEquals(0, routes[2].length);
+
+        // a few bytes per stop, far from the json
+        int jsonBytes = RoutingSolutionToJson.parseSolution(solution).toString()
+                .getBytes(StandardCharsets.UTF_8).length;
+        Assertions.assertTrue(bytes.length < 400, bytes.length + " bytes");
+        Assertions.assertTrue(bytes.length * 20 < jsonBytes, bytes.length + " bytes, json " + jsonBytes);
+
+        Path file = directory.resolve("solution.bin");
+        RoutingSolutionCodec.write(file, data, solution);
+        assertSameSolution(solution, RoutingSolutionCodec.read(file, data));
+        Assertions.assertThrows(IOException.class, () -> DataModelCodec.read(file));
+    }
+
+    @Test
+    public void testSolutionWithSecondsRoundTrip() throws IOException {
+        DataModel data = dataModel(10);
+        RoutingSolution solution = solution(data, 3);
+        RoutingSolution.Route route = solution.routes().get(0);
+        List<LocalTime> departures = new ArrayList<>(route.departureTimes());
+        departures.set(1, departures.get(1).plusSeconds(17));
+        RoutingSolution.Route withSeconds = new RoutingSolution.Route(route.routeNodes(), departures,
+                route.startTime(), route.endTime(), route.monetaryCost(), Distance.ofMeters(12.5),
+                route.depotZip());
+        RoutingSolution edited = new RoutingSolution(List.of(withSeconds, solution.routes().get(1),
+                solution.routes().get(2)), solution.droppedOrders());
+
+        byte[] bytes = encode(data, edited);
+        assertSameSolution(edited, RoutingSolutionCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)),
+                data));
+    }
+
+    /**
+     * Test that the routes of the time waves, with more stops than orders when counting the depot between the waves,
+     * are read back with their reloads.
+     */
+    @Test
+    public void testTimeWaveSolutionRoundTrip() throws IOException {
+        TimeWindow[] windows = {TimeWindow.of(8, 0, 11, 0), TimeWindow.of(13, 0, 18, 0)};
+        DataModel scattered = RoutingSolverTest.scatteredDataModel(20, Duration.ofSeconds(2), i -> windows[i % 2]);
+        // a single vehicle serves both waves
+        DataModel data = scattered.withConfig(scattered.config().toBuilder().setNumberVehicles(1).build());
+        RoutingSolution solution = new TimeWaveSolver(data, TimeWaveSolver.evenBoundaries(data, 2)).solve();
+        Assertions.assertTrue(solution.routes().stream().anyMatch(route -> !route.reloads().isEmpty()));
+
+        byte[] bytes = encode(data, solution);
+        assertSameSolution(solution, RoutingSolutionCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)),
+                data));
+        long[][] routes = RoutingSolutionCodec.readRouteIndexes(new DataInputStream(new ByteArrayInputStream(bytes)),
+                data.numberRouteNodes());
+        for (int r = 0; r < routes.length; ++r)
+            Assertions.assertEquals(solution.routes().get(r).numberOfStops() - 2, routes[r].length);
+    }
+
+    @Test
+    public void testDataModelSnapshotRoundTrip(@TempDir Path directory) throws IOException {
+        DataModel data = dataModel(50);
+        Path file = directory.resolve("data.bin");
+        DataModelCodec.write(file, data);
+        DataModel read = DataModelCodec.read(file);
+
+        Assertions.assertEquals(data.config().numberVehicles(), read.config().numberVehicles());
+        Assertions.assertEquals(data.config().depotZip(), read.config().depotZip());
+        Assertions.assertEquals(data.config().searchProfile(), read.config().searchProfile());
+        Assertions.assertEquals(data.config().maxWeightPerVehicle().grams(), read.config().maxWeightPerVehicle().grams(),
+                1e-6);
+        Assertions.assertEquals(data.numberRouteNodes(), read.numberRouteNodes());
+        for (int i = 1; i < data.numberRouteNodes(); ++i) {
+            // the snapshot keeps the weights in grams, whatever their unit
+            Order order = data.routeNodeAt(i).order();
+            Order readOrder = read.routeNodeAt(i).order();
+            Assertions.assertEquals(order.weight().grams(), readOrder.weight().grams());
+            Assertions.assertEquals(order, new Order(readOrder.id(), readOrder.zip(), readOrder.numberBoxes(),
+                    readOrder.timeWindow(), order.weight(), readOrder.hubDeliveryCostPerBox()));
+        }
+        for (int i = 0; i < data.numberRouteNodes(); i += 7) {
+            for (int j = 0; j < data.numberRouteNodes(); j += 5) {
+                Assertions.assertEquals(data.distance(data.routeNodeAt(i), data.routeNodeAt(j)).meters(),
+                        read.distance(read.routeNodeAt(i), read.routeNodeAt(j)).meters());
+                Assertions.assertEquals(data.duration(data.routeNodeAt(i), data.routeNodeAt(j)),
+                        read.duration(read.routeNodeAt(i), read.routeNodeAt(j)));
+            }
+        }
+        // a few bytes per pair of zips instead of sixteen
+        long pairs = (long) data.numberRouteNodes() * data.numberRouteNodes();
+        Assertions.assertTrue(Files.size(file) < 6 * pairs, Files.size(file) + " bytes");
+    }
+
+    /**
+     * Test that the time dependent durations of a snapshot are kept.
+     */
+    @Test
+    public void testDataModelSnapshotWithSlots(@TempDir Path directory) throws IOException {
+        Path slotsFile = directory.resolve("slots.csv");
+        Files.writeString(slotsFile, """
+                from;to;start;duration
+                1000;1001;08:00;60
+                1001;1002;09:30;20
+                5000;5001;08:00;10
+                """);
+        DataModel data = RoutingSolverTest.scatteredDataModel(0, 5, CONFIG,
+                TravelTimeSlots.parse(slotsFile, Duration.ofMinutes(30)));
+        Path file = directory.resolve("data.bin");
+        DataModelCodec.write(file, data);
+        DataModel read = DataModelCodec.read(file);
+
+        Assertions.assertTrue(read.hasTimeDependentDurations());
+        Assertions.assertEquals(2, read.travelTimeSlots().numberPairs());
+        for (LocalTime departure : List.of(LocalTime.of(8, 10), LocalTime.of(9, 40), LocalTime.of(12, 0)))
+            for (int i = 0; i < data.numberRouteNodes(); ++i)
+                for (int j = 0; j < data.numberRouteNodes(); ++j)
+                    Assertions.assertEquals(data.duration(i, j, departure), read.duration(i, j, departure));
+        Assertions.assertEquals(Duration.ofMinutes(60), read.duration(0, 1, LocalTime.of(8, 10)));
+    }
+
+    /**
+     * Test that counts larger than the data model are rejected before allocating anything.
+     */
+    @Test
+    public void testCorruptCounts() throws IOException {
+        DataModel data = dataModel(10);
+        byte[] bytes = encode(data, solution(data, 3));
+        // the route count follows the version and the flags
+        byte[] corrupt = Arrays.copyOf(bytes, bytes.length);
+        corrupt[2] = 0x7f;
+        Assertions.assertThrows(IOException.class, () -> RoutingSolutionCodec.read(new DataInputStream(
+                new ByteArrayInputStream(corrupt)), data));
+
+        // a route of 2^28 stops
+        byte[] hugeRoute = Arrays.copyOf(bytes, 8);
+        hugeRoute[3] = (byte) 0x80;
+        hugeRoute[4] = (byte) 0x80;
+        hugeRoute[5] = (byte) 0x80;
+        hugeRoute[6] = (byte) 0x80;
+        hugeRoute[7] = 0x01;
+        Assertions.assertThrows(IOException.class, () -> RoutingSolutionCodec.read(new DataInputStream(
+                new ByteArrayInputStream(hugeRoute)), data));
+        Assertions.assertThrows(IOException.class, () -> RoutingSolutionCodec.readRouteIndexes(new DataInputStream(
+                new ByteArrayInputStream(hugeRoute)), data.numberRouteNodes()));
+    }
+}
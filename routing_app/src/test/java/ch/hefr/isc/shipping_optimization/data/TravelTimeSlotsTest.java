@@ -0,0 +1,94 @@
+package ch.hefr.isc.shipping_optimization.data;
+
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+
+public class TravelTimeSlotsTest {
+
+    /**
+     * Test that the rush hour slot of a pair is used by the solver, and the static duration outside of it.
+     */
+    @Test
+    public void testRushHourSlot(@TempDir Path directory) throws Exception {
+        Zip depot = Zip.of("3000");
+        Zip customer = Zip.of("3001");
+        Path file = directory.resolve("slots.csv");
+        Files.writeString(file, """
+                from;to;start;duration
+                3000;3001;08:00;60
+                3000;3001;08:30;45.5
+                """);
+        TravelTimeSlots slots = TravelTimeSlots.parse(file, Duration.ofMinutes(30));
+        Assertions.assertEquals(1, slots.numberPairs());
+
+        Duration staticDuration = Duration.ofMinutes(10);
+        Assertions.assertEquals(Duration.ofMinutes(60), slots.duration(depot, customer, LocalTime.of(8, 10),
+                staticDuration));
+        Assertions.assertEquals(Duration.ofSeconds(45 * 60 + 30), slots.duration(depot, customer,
+                LocalTime.of(8, 59), staticDuration));
+        Assertions.assertEquals(staticDuration, slots.duration(depot, customer, LocalTime.of(9, 0), staticDuration));
+        Assertions.assertEquals(staticDuration, slots.duration(customer, depot, LocalTime.of(8, 0), staticDuration));
+
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (Zip from : List.of(depot, customer))
+            for (Zip to : List.of(depot, customer))
+                distanceMatrix.setZipData(from, to, Distance.ofKiloMeters(1), staticDuration);
+        RoutingConfig config = RoutingConfig.builder()
+                .setNumberVehicles(1)
+                .setDepotZip(depot)
+                .setSolverTimeLimit(Duration.ofSeconds(1))
+                .build();
+        Order order = new Order("0", customer, 1, TimeWindow.of(8, 0, 18, 0), Weight.ofKiloGrams(1), 500);
+        RoutingSolver solver = new RoutingSolver(new CsvFileDataModel(List.of(order), distanceMatrix, config, slots));
+        solver.solve();
+
+        RoutingSolution.Route route = solver.solution().routes().get(0);
+        Assertions.assertEquals(3, route.numberOfStops());
+        Duration travel = Duration.between(route.departureTimes().get(0), route.departureTimes().get(1));
+        Assertions.assertTrue(travel.compareTo(Duration.ofMinutes(60)) >= 0);
+    }
+
+    /**
+     * Test that pairs with a duration in a few slots of a long day are all stored.
+     */
+    @Test
+    public void testSparseSlots(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("slots.csv");
+        StringBuilder content = new StringBuilder("from;to;start;duration\n");
+        content.append("3000;3001;00:00;5\n3001;3002;05:00;15\n3002;3000;10:00;25\n");
+        // many pairs, each slowed down in a single slot of the day
+        for (int i = 0; i < 200; ++i)
+            content.append(String.format("%d;%d;%02d:%02d;%d%n", 4000 + i, 5000 + i, i % 24, 30 * (i % 2), 1 + i));
+        Files.writeString(file, content.toString());
+
+        TravelTimeSlots slots = TravelTimeSlots.parse(file, Duration.ofMinutes(30));
+        Assertions.assertEquals(203, slots.numberPairs());
+        Duration staticDuration = Duration.ofMinutes(1);
+        Assertions.assertEquals(Duration.ofMinutes(5), slots.duration(Zip.of("3000"), Zip.of("3001"),
+                LocalTime.of(0, 10), staticDuration));
+        Assertions.assertEquals(Duration.ofMinutes(15), slots.duration(Zip.of("3001"), Zip.of("3002"),
+                LocalTime.of(5, 29), staticDuration));
+        Assertions.assertEquals(staticDuration, slots.duration(Zip.of("3001"), Zip.of("3002"),
+                LocalTime.of(10, 0), staticDuration));
+        Assertions.assertEquals(Duration.ofMinutes(25), slots.duration(Zip.of("3002"), Zip.of("3000"),
+                LocalTime.of(10, 0), staticDuration));
+        for (int i = 0; i < 200; ++i)
+            Assertions.assertEquals(Duration.ofMinutes(1 + i), slots.duration(Zip.of(String.valueOf(4000 + i)),
+                    Zip.of(String.valueOf(5000 + i)), LocalTime.of(i % 24, 30 * (i % 2)), staticDuration));
+    }
+}
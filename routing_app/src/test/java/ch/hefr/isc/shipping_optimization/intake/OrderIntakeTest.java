@@ -0,0 +1,132 @@
+package ch.hefr.isc.shipping_optimization.intake;
+
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.data.OrderLineParser;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolverTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class OrderIntakeTest {
+
+    private static final int NUMBER_ZIPS = 20;
+
+    private static String line(int i) {
+        return String.format("order-%d,%d,%d,08:00,18:00,site", i, 1 + i % 3, 1001 + i % NUMBER_ZIPS);
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static OrderIntake intake(int numberOrders) {
+        DistanceMatrix distanceMatrix = RoutingSolverTest.scatteredDistanceMatrix(NUMBER_ZIPS);
+        Map<String, Float> weights = new HashMap<>();
+        for (int i = 0; i < numberOrders; ++i) weights.put("order-" + i, 2.5f);
+        RoutingConfig config = RoutingConfig.builder()
+                .setNumberVehicles(3)
+                .setDepotZip(Zip.of("1000"))
+                .build();
+        IntakeConfig intakeConfig = IntakeConfig.builder()
+                .setMaxBatchOrders(5)
+                .setMaxBatchDelay(Duration.ofMillis(200))
+                .setReoptimizationTimeLimit(Duration.ofSeconds(1))
+                .build();
+        return new OrderIntake(distanceMatrix, config, new OrderLineParser(weights, Map.of("site", 10f)),
+                intakeConfig);
+    }
+
+    private static void awaitPlanned(OrderIntake intake, int numberOrders) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (intake.numberPlanned() < numberOrders && System.nanoTime() < deadline) Thread.sleep(50);
+    }
+
+    @Test
+    public void testStreamedOrdersArePlanned(@TempDir Path directory) throws Exception {
+        Set<Integer> planSizes = new HashSet<>();
+        try (OrderIntake intake = intake(12)) {
+            intake.addPlanListener(plan -> planSizes.add(plan.numberOfDirectDeliveredOrders()
+                    + plan.droppedOrders().size()));
+            intake.start();
+
+            Path file = directory.resolve("orders.csv");
+            intake.tail(file, Duration.ofMillis(20));
+            append(file, "id,boxes,zip,start,end,site\n" + line(0) + "\n" + line(1) + "\n");
+            // a line written in two parts is only read once complete
+            String partial = line(2);
+            append(file, partial.substring(0, 10));
+            Thread.sleep(100);
+            append(file, partial.substring(10) + "\n" + line(3) + "\nnot,an,order\n");
+
+            int port = intake.listen(0);
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+                for (int i = 4; i < 12; ++i) out.println(line(i));
+                out.println(line(5));
+            }
+
+            awaitPlanned(intake, 12);
+
+            Assertions.assertEquals(12, intake.numberAccepted());
+            Assertions.assertEquals(2, intake.numberRejected());
+            Assertions.assertEquals(12, intake.numberPlanned());
+            RoutingSolution plan = intake.plan().orElseThrow();
+            Set<String> planned = plan.routes().stream()
+                    .flatMap(route -> route.routeNodes().stream())
+                    .filter(Predicate.not(RouteNode::isDepot))
+                    .map(node -> node.order().id())
+                    .collect(Collectors.toSet());
+            plan.droppedOrders().forEach(order -> planned.add(order.id()));
+            Assertions.assertEquals(IntStream.range(0, 12).mapToObj(i -> "order-" + i).collect(Collectors.toSet()),
+                    planned);
+            Assertions.assertTrue(planSizes.size() >= 2, "re-optimized " + planSizes.size() + " times");
+        }
+    }
+
+    /**
+     * Test that a failing plan listener doesn't stop the re-optimization of the next batches.
+     */
+    @Test
+    public void testFailingListenerKeepsBatching() throws Exception {
+        try (OrderIntake intake = intake(6)) {
+            CountDownLatch plans = new CountDownLatch(2);
+            intake.addPlanListener(plan -> {
+                plans.countDown();
+                if (plans.getCount() == 1) throw new IllegalStateException("listener failure");
+            });
+            intake.start();
+
+            for (int i = 0; i < 3; ++i) Assertions.assertTrue(intake.submit(line(i)));
+            awaitPlanned(intake, 3);
+            Assertions.assertEquals(3, intake.numberPlanned());
+            for (int i = 3; i < 6; ++i) Assertions.assertTrue(intake.submit(line(i)));
+            awaitPlanned(intake, 6);
+            Assertions.assertEquals(6, intake.numberPlanned());
+            Assertions.assertTrue(plans.await(1, TimeUnit.MINUTES));
+            Assertions.assertFalse(intake.submit(line(0)));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ch.hefr.isc.shipping_optimization.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class MetricsRegistryTest {
+
+    /**
+     * Test the Prometheus text of the metrics and that the server exposes it.
+     */
+    @Test
+    public void testExportMetrics() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("solves_total", "Solves", "result", "ok").add(3);
+        registry.counter("solves_total", "Solves", "result", "ok").increment();
+        registry.counter("solves_total", "Solves", "result", "say \"no\"").increment();
+        registry.gauge("objective", "Last objective").set(12.5);
+        MetricsRegistry.Histogram histogram = registry.histogram("latency_seconds", "Latency",
+                new double[]{0.1, 1, 10});
+        for (double value : new double[]{0.05, 0.5, 0.7, 5, 50}) histogram.observe(value);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> registry.gauge("solves_total", "Solves"));
+
+        String text = registry.toPrometheusText();
+        Assertions.assertEquals(1, text.split("# TYPE solves_total counter", -1).length - 1);
+        Assertions.assertTrue(text.contains("solves_total{result=\"ok\"} 4\n"));
+        Assertions.assertTrue(text.contains("solves_total{result=\"say \\\"no\\\"\"} 1\n"));
+        Assertions.assertTrue(text.contains("# TYPE objective gauge\nobjective 12.5\n"));
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"0.1\"} 1\n"));
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"1\"} 3\n"));
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"10\"} 4\n"));
+        Assertions.assertTrue(text.contains("latency_seconds_bucket{le=\"+Inf\"} 5\n"));
+        Assertions.assertTrue(text.contains("latency_seconds_sum 56.25\n"));
+        Assertions.assertTrue(text.contains("latency_seconds_count 5\n"));
+
+        try (MetricsServer server = MetricsServer.start(0, registry)) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, response.statusCode());
+            Assertions.assertEquals(text, response.body());
+        }
+    }
+}
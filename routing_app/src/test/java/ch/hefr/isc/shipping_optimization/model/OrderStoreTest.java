@@ -0,0 +1,69 @@
+package ch.hefr.isc.shipping_optimization.model;
+
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+public class OrderStoreTest {
+
+    /**
+     * Test that the columns and the order views keep the data of the stored orders.
+     */
+    @Test
+    public void testStoreOrders() {
+        List<Order> orders = IntStream.range(0, 100)
+                .mapToObj(i -> new Order("order" + i, Zip.of(String.valueOf(1700 + i % 7)), 1 + i % 5,
+                        TimeWindow.of(6 + i % 4, i % 60, 14, 30), Weight.ofKiloGrams(0.25 * i), 2.5f + i))
+                .toList();
+        OrderStore store = OrderStore.of(orders);
+        Assertions.assertSame(store, OrderStore.of(store));
+        Assertions.assertEquals(orders.size(), store.size());
+
+        for (int i = 0; i < orders.size(); ++i) {
+            Order order = orders.get(i);
+            Order view = store.get(i);
+            Assertions.assertEquals(order.id(), view.id());
+            Assertions.assertEquals(order.zip(), view.zip());
+            Assertions.assertEquals(order.numberBoxes(), view.numberBoxes());
+            Assertions.assertEquals(order.timeWindow(), view.timeWindow());
+            Assertions.assertEquals(order.weight().grams(), view.weight().grams());
+            Assertions.assertEquals(order.totalHubDeliveryCost(), view.totalHubDeliveryCost());
+
+            Assertions.assertEquals(Integer.parseInt(order.zip().toString()), store.zipCode(i));
+            Assertions.assertEquals(order.timeWindow().startAsMinutes(), store.timeWindowStartMinutes(i));
+            Assertions.assertEquals(order.timeWindow().endAsMinutes(), store.timeWindowEndMinutes(i));
+            Assertions.assertEquals(250 * i, store.weightGrams(i));
+        }
+        // the views share the zips
+        Assertions.assertSame(store.get(0).zip(), store.get(7).zip());
+        Assertions.assertEquals(store.get(3), store.get(3));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> store.numberBoxes(orders.size()));
+    }
+
+    /**
+     * Test that the views are equal to the stored orders, whatever the weight unit and the precision of the time
+     * window, so that they can be compared to the input orders.
+     */
+    @Test
+    public void testViewsEqualOrders() {
+        Order kiloGrams = new Order("kg", Zip.of("1700"), 2, TimeWindow.of(8, 0, 12, 0), Weight.ofKiloGrams(1.5), 3);
+        Order grams = new Order("g", Zip.of("1701"), 1, new TimeWindow(LocalTime.of(8, 15, 30),
+                LocalTime.of(12, 0, 0, 500)), Weight.ofGrams(1500), 3);
+        OrderStore store = OrderStore.of(List.of(kiloGrams, grams));
+
+        Assertions.assertEquals(kiloGrams, store.get(0));
+        Assertions.assertEquals(grams, store.get(1));
+        Assertions.assertEquals(Set.of(kiloGrams, grams), Set.copyOf(store));
+        Assertions.assertEquals(RouteNode.orderNode(kiloGrams), RouteNode.orderNode(store.get(0)));
+        Assertions.assertEquals(1500, store.weightGrams(0));
+        Assertions.assertEquals(1500, store.weightGrams(1));
+        Assertions.assertEquals(8 * 60 + 15, store.timeWindowStartMinutes(1));
+        Assertions.assertEquals(12 * 60, store.timeWindowEndMinutes(1));
+    }
+}
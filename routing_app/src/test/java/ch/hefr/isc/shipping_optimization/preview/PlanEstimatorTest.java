@@ -0,0 +1,210 @@
+package ch.hefr.isc.shipping_optimization.preview;
+
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import ch.hefr.isc.shipping_optimization.routing.RoutingConfig;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class PlanEstimatorTest {
+
+    // ten zip codes around the depot, one minute apart, and ten others three hours away
+    private static final List<Zip> NEAR = zips(2000);
+    private static final List<Zip> FAR = zips(3000);
+
+    private static List<Zip> zips(int first) {
+        List<Zip> zips = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) zips.add(Zip.of(String.valueOf(first + i)));
+        return zips;
+    }
+
+    private static int position(Zip zip) {
+        int code = Integer.parseInt(zip.toString());
+        return code < 3000 ? code - 2000 : 180 + code - 3000;
+    }
+
+    private static ZoneHierarchy hierarchy() {
+        List<Zip> zips = new ArrayList<>(NEAR);
+        zips.addAll(FAR);
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (Zip from : zips)
+            for (Zip to : zips) {
+                int minutes = Math.abs(position(from) - position(to));
+                distanceMatrix.setZipData(from, to, Distance.ofMeters(1000L * minutes), Duration.ofMinutes(minutes));
+            }
+        return ZoneHierarchy.build(distanceMatrix, 4, 2);
+    }
+
+    @Test
+    public void testHierarchyRoundTrip(@TempDir Path directory) throws IOException {
+        ZoneHierarchy hierarchy = hierarchy();
+        Assertions.assertEquals(2, hierarchy.numberLevels());
+        Assertions.assertEquals(20, hierarchy.numberZips());
+
+        // the coarsest level separates the zip codes around the depot from the far ones
+        ZoneHierarchy.Level coarse = hierarchy.level(1);
+        int near = coarse.zoneOf(NEAR.get(0));
+        int far = coarse.zoneOf(FAR.get(0));
+        Assertions.assertNotEquals(near, far);
+        for (Zip zip : NEAR) Assertions.assertEquals(near, coarse.zoneOf(zip));
+        for (Zip zip : FAR) Assertions.assertEquals(far, coarse.zoneOf(zip));
+        Assertions.assertTrue(coarse.minutes(near, far) > 150);
+        Assertions.assertEquals(-1, coarse.zoneOf(Zip.of("9999")));
+
+        Path file = directory.resolve("zones.bin");
+        hierarchy.write(file);
+        ZoneHierarchy read = ZoneHierarchy.read(file);
+        Assertions.assertEquals(hierarchy.numberLevels(), read.numberLevels());
+        for (int l = 0; l < hierarchy.numberLevels(); ++l) {
+            ZoneHierarchy.Level before = hierarchy.level(l);
+            ZoneHierarchy.Level after = read.level(l);
+            Assertions.assertEquals(before.numberZones(), after.numberZones());
+            for (Zip zip : NEAR) Assertions.assertEquals(before.zoneOf(zip), after.zoneOf(zip));
+            for (Zip zip : FAR) Assertions.assertEquals(before.zoneOf(zip), after.zoneOf(zip));
+            for (int z = 0; z < before.numberZones(); ++z) {
+                Assertions.assertEquals(before.medoid(z), after.medoid(z));
+                Assertions.assertEquals(before.intraZoneMinutes(z), after.intraZoneMinutes(z), 1e-3);
+                for (int y = 0; y < before.numberZones(); ++y)
+                    Assertions.assertEquals(before.minutes(z, y), after.minutes(z, y), 1e-3);
+            }
+        }
+    }
+
+    /**
+     * Test that counts read from a corrupt file are rejected before allocating anything.
+     */
+    @Test
+    public void testCorruptHierarchy(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("zones.bin");
+        hierarchy().write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        // the zip count follows the magic and the version
+        for (int count : List.of(-1, Integer.MAX_VALUE)) {
+            Path corrupt = directory.resolve("corrupt.bin");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(corrupt))) {
+                out.write(bytes, 0, 8);
+                out.writeInt(count);
+                out.write(bytes, 12, bytes.length - 12);
+            }
+            IOException e = Assertions.assertThrows(IOException.class, () -> ZoneHierarchy.read(corrupt));
+            Assertions.assertTrue(e.getMessage().startsWith("Count " + count), e.getMessage());
+        }
+        // a level of more zones than zip codes, after the 20 zip codes and the level count
+        int zones = 12 + 20 * 2 + 4;
+        for (int count : List.of(-1, 0, 21)) {
+            Path corrupt = directory.resolve("corrupt.bin");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(corrupt))) {
+                out.write(bytes, 0, zones);
+                out.writeInt(count);
+                out.write(bytes, zones + 4, bytes.length - zones - 4);
+            }
+            IOException e = Assertions.assertThrows(IOException.class, () -> ZoneHierarchy.read(corrupt));
+            Assertions.assertTrue(e.getMessage().startsWith("Count " + count), e.getMessage());
+        }
+    }
+
+    private static List<Order> nearOrders(int numberOrders) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < numberOrders; ++i)
+            orders.add(new Order("near" + i, NEAR.get(i % NEAR.size()), 10, TimeWindow.of(8, 0, 18, 0),
+                    Weight.ofGrams(5000), 50));
+        return orders;
+    }
+
+    /**
+     * Build a solution of some vehicles, each visiting one order, of a total route time, and an unused vehicle.
+     */
+    private static RoutingSolution solution(List<Order> orders, RoutingConfig config, int vehicles,
+                                            double routeMinutes) {
+        List<RoutingSolution.Route> routes = new ArrayList<>();
+        LocalTime start = LocalTime.of(8, 0);
+        for (int v = 0; v <= vehicles; ++v) {
+            List<RouteNode> nodes = new ArrayList<>();
+            nodes.add(RouteNode.depotNode(config.depotZip()));
+            if (v < vehicles) nodes.add(RouteNode.orderNode(orders.get(v)));
+            nodes.add(RouteNode.depotNode(config.depotZip()));
+            long cost = v < vehicles ? Math.round(routeMinutes / vehicles * config.hourlyVehicleCost() / 60) : 0;
+            routes.add(new RoutingSolution.Route(nodes, nodes.stream().map(node -> start).toList(), start, start,
+                    cost, Distance.ofMeters(0), config.depotZip()));
+        }
+        return new RoutingSolution(routes, Set.of());
+    }
+
+    @Test
+    public void testCalibrate() {
+        ZoneHierarchy.Level level = hierarchy().level(0);
+        RoutingConfig config = RoutingConfig.builder().setDepotZip(NEAR.get(0)).setNumberVehicles(30).build();
+        PlanEstimator raw = new PlanEstimator(level, PlanEstimator.Calibration.NONE);
+
+        // the solver needs 30% more time and twice the vehicles of the approximation on every instance
+        List<PlanEstimator.Observation> observations = new ArrayList<>();
+        for (int numberOrders : List.of(10, 20, 40)) {
+            List<Order> orders = nearOrders(numberOrders);
+            PlanEstimator.Estimate estimate = raw.estimate(orders, config);
+            observations.add(new PlanEstimator.Observation(orders, config,
+                    solution(orders, config, 2 * estimate.vehicles(), 1.3 * estimate.routeMinutes())));
+        }
+        PlanEstimator.Calibration calibration = PlanEstimator.calibrate(level, observations);
+        Assertions.assertEquals(1.3, calibration.routeMinutesFactor(), 1e-2);
+        Assertions.assertEquals(2, calibration.vehiclesFactor(), 1e-9);
+
+        // the calibrated estimator reproduces the observations
+        List<Order> orders = nearOrders(20);
+        PlanEstimator.Estimate calibrated = new PlanEstimator(level, calibration).estimate(orders, config);
+        Assertions.assertEquals(2 * raw.estimate(orders, config).vehicles(), calibrated.vehicles());
+
+        Assertions.assertEquals(PlanEstimator.Calibration.NONE, PlanEstimator.calibrate(level, List.of()));
+    }
+
+    @Test
+    public void testEstimate() {
+        ZoneHierarchy.Level level = hierarchy().level(0);
+        RoutingConfig config = RoutingConfig.builder().setDepotZip(NEAR.get(0)).build();
+        List<Order> orders = new ArrayList<>();
+        // 200 boxes worth serving around the depot, at least four vehicles of 64 boxes
+        for (int i = 0; i < 20; ++i)
+            orders.add(new Order("near" + i, NEAR.get(i % NEAR.size()), 10, TimeWindow.of(8, 0, 18, 0),
+                    Weight.ofGrams(5000), 50));
+        // far orders cheaper to leave to the hub, and an order of an unknown zip code
+        for (int i = 0; i < 5; ++i)
+            orders.add(new Order("far" + i, FAR.get(i), 1, TimeWindow.of(8, 0, 18, 0), Weight.ofGrams(500), 1));
+        orders.add(new Order("unknown", Zip.of("9999"), 1, TimeWindow.of(8, 0, 18, 0), Weight.ofGrams(500), 1));
+
+        PlanEstimator.Estimate estimate = new PlanEstimator(level, PlanEstimator.Calibration.NONE)
+                .estimate(orders, config);
+        Assertions.assertEquals(6, estimate.droppedOrders());
+        Assertions.assertTrue(estimate.vehicles() >= 4, estimate.toString());
+        Assertions.assertTrue(estimate.routeMinutes() >= 20 * 10, estimate.toString());
+        Assertions.assertEquals(estimate.routeMinutes() * config.hourlyVehicleCost() / 60 + 6,
+                estimate.totalMonetaryCost(), 1e-6);
+
+        // a calibrated estimator scales the route time and the vehicles
+        PlanEstimator.Estimate calibrated = new PlanEstimator(level, new PlanEstimator.Calibration(1.5, 1.5))
+                .estimate(orders, config);
+        Assertions.assertEquals(estimate.routeMinutes() * 1.5, calibrated.routeMinutes(), 1e-6);
+        Assertions.assertEquals((int) Math.ceil(estimate.vehicles() * 1.5), calibrated.vehicles());
+
+        // a fleet too small drops orders instead of exceeding it
+        PlanEstimator.Estimate small = new PlanEstimator(level, PlanEstimator.Calibration.NONE)
+                .estimate(orders, config.toBuilder().setNumberVehicles(2).build());
+        Assertions.assertTrue(small.vehicles() <= 2, small.toString());
+        Assertions.assertTrue(small.droppedOrders() > 6, small.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package ch.hefr.isc.shipping_optimization.profiling;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class PhaseTimerTest {
+
+    /**
+     * Test that the phases are summed by name in the summary and recorded as flight recorder events.
+     */
+    @Test
+    public void testRecordPhases(@TempDir Path directory) throws Exception {
+        PhaseTimer.reset();
+        Path file = directory.resolve("phases.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PhaseEvent.class);
+            recording.start();
+            for (int i = 0; i < 3; ++i) {
+                try (PhaseTimer.Phase phase = PhaseTimer.start("test parse")) {
+                    phase.bytesRead(100).nodes(10);
+                    Thread.sleep(5);
+                }
+            }
+            try (PhaseTimer.Phase phase = PhaseTimer.start("test search")) {
+                phase.vehicles(4);
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        PhaseTimer.Summary parse = PhaseTimer.summaries().get("test parse");
+        Assertions.assertEquals(3, parse.count());
+        Assertions.assertEquals(300, parse.bytesRead());
+        Assertions.assertTrue(parse.totalNanos() >= 15_000_000);
+        Assertions.assertTrue(parse.maxNanos() <= parse.totalNanos());
+        Assertions.assertEquals(List.of("test parse", "test search"), List.copyOf(PhaseTimer.summaries().keySet()));
+        Assertions.assertTrue(PhaseTimer.summary().contains("test search"));
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("ch.hefr.isc.shipping_optimization.Phase"))
+                .toList();
+        Assertions.assertEquals(4, events.size());
+        Assertions.assertEquals("test parse", events.get(0).getString("phase"));
+        Assertions.assertEquals(10, events.get(0).getInt("nodes"));
+        Assertions.assertEquals(100, events.get(0).getLong("bytesRead"));
+        Assertions.assertTrue(events.get(0).getLong("heapAfter") > 0);
+        if (Files.exists(Path.of("/proc/self/status")))
+            Assertions.assertTrue(events.get(0).getLong("residentAfter") > parse.maxHeapAfter() / 2);
+    }
+}
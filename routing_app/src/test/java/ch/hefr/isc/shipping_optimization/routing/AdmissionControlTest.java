@@ -0,0 +1,50 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class AdmissionControlTest {
+
+    /**
+     * Test that the admission control queues instances when the budget is taken and decomposes the ones too large
+     * for it into parts sharing the vehicles.
+     */
+    @Test
+    @SuppressWarnings("try")
+    public void testAdmissionControl() throws Exception {
+        DataModel dataModel = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(2));
+        MemoryEstimate estimate = MemoryEstimate.of(dataModel);
+        Assertions.assertTrue(estimate.nativeBytes() > estimate.heapBytes());
+
+        AdmissionControl fitting = new AdmissionControl(estimate.totalBytes(), AdmissionControl.Overflow.REFUSE);
+        Assertions.assertEquals(AdmissionControl.Decision.ADMIT, fitting.decide(estimate));
+        try (AdmissionControl.Permit ignored = fitting.acquire(estimate)) {
+            Assertions.assertEquals(AdmissionControl.Decision.QUEUE, fitting.decide(estimate));
+            Assertions.assertTrue(fitting.tryAcquire(estimate, Duration.ofMillis(10)).isEmpty());
+        }
+        Assertions.assertEquals(AdmissionControl.Decision.ADMIT, fitting.decide(estimate));
+
+        long budget = estimate.totalBytes() - (1 << 19);
+        AdmissionControl refusing = new AdmissionControl(budget, AdmissionControl.Overflow.REFUSE);
+        Assertions.assertEquals(AdmissionControl.Decision.REFUSE, refusing.decide(estimate));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> refusing.solve(dataModel));
+
+        AdmissionControl decomposing = new AdmissionControl(budget, AdmissionControl.Overflow.DECOMPOSE);
+        Assertions.assertEquals(AdmissionControl.Decision.DECOMPOSE, decomposing.decide(estimate));
+        List<DataModel> parts = decomposing.decompose(dataModel);
+        Assertions.assertEquals(2, parts.size());
+        Assertions.assertEquals(4, parts.stream().mapToInt(part -> part.config().numberVehicles()).sum());
+        Assertions.assertEquals(30, parts.stream().mapToInt(part -> part.numberRouteNodes() - 1).sum());
+        for (DataModel part : parts)
+            Assertions.assertTrue(MemoryEstimate.of(part).totalBytes() <= budget);
+
+        RoutingSolution solution = decomposing.solve(dataModel).orElseThrow();
+        Assertions.assertEquals(4, solution.routes().size());
+        Assertions.assertEquals(30, solution.numberOfDirectDeliveredOrders() + solution.droppedOrders().size());
+        Assertions.assertTrue(new SolutionVerifier(dataModel).verify(solution).feasible());
+    }
+}
@@ -0,0 +1,71 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.data.CsvFileDataModel;
+import ch.hefr.isc.shipping_optimization.data.DistanceMatrix;
+import ch.hefr.isc.shipping_optimization.model.Order;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import ch.hefr.isc.shipping_optimization.model.utils.Distance;
+import ch.hefr.isc.shipping_optimization.model.utils.Weight;
+import ch.hefr.isc.shipping_optimization.model.utils.Zip;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class FleetSizeMinimizerTest {
+
+    /**
+     * Test that a fleet larger than needed is reduced while serving the same orders. The orders are far from each
+     * other but close to the depot, so the reference solution uses as many vehicles as it can.
+     */
+    @Test
+    public void testMinimizeOversizedFleet() throws InterruptedException {
+        final RoutingConfig config = RoutingConfig.builder()
+                .setNumberVehicles(6)
+                .setDepotZip(Zip.of("1000"))
+                .setHourlyVehicleCost(60)
+                .setMaxBoxesPerVehicle(4)
+                .setMaxWeightPerVehicle(Weight.ofKiloGrams(100))
+                .setSolverTimeLimit(Duration.ofSeconds(1))
+                .build();
+        final int NUM_ORDERS = 8;
+
+        List<Zip> zips = IntStream.rangeClosed(0, NUM_ORDERS)
+                .mapToObj(i -> Zip.of(String.valueOf(1000 + i)))
+                .toList();
+        TimeWindow timeWindow = TimeWindow.of(8, 0, 18, 0);
+        List<Order> orders = IntStream.range(0, NUM_ORDERS)
+                .mapToObj(i -> new Order(String.valueOf(i), zips.get(i + 1), 1, timeWindow,
+                        Weight.ofKiloGrams(1), 100))
+                .toList();
+
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (Zip from : zips) {
+            for (Zip to : zips) {
+                boolean fromOrToDepot = from.equals(zips.get(0)) || to.equals(zips.get(0));
+                distanceMatrix.setZipData(from, to, Distance.ofKiloMeters(1),
+                        Duration.ofMinutes(fromOrToDepot ? 5 : 60));
+            }
+        }
+
+        DataModel dataModel = new CsvFileDataModel(orders, distanceMatrix, config);
+        FleetSizeMinimizer.Result result = new FleetSizeMinimizer(dataModel, 0, 3, Duration.ofSeconds(1))
+                .minimize();
+
+        Assertions.assertTrue(result.referenceSolution().routes().stream()
+                .filter(route -> route.numberOfStops() > 2)
+                .count() > 2);
+        Assertions.assertEquals(result.referenceSolution().droppedOrders(), result.solution().droppedOrders());
+        Assertions.assertTrue(result.additionallyDroppedOrders().isEmpty());
+        Assertions.assertEquals(2, result.numberVehicles());
+        long usedRoutes = result.solution().routes().stream()
+                .filter(route -> route.numberOfStops() > 2)
+                .count();
+        Assertions.assertEquals(result.numberVehicles(), usedRoutes);
+        for (RoutingSolution.Route route : result.solution().routes())
+            Assertions.assertTrue(route.totalNumberBoxes() <= config.maxBoxesPerVehicle());
+    }
+}
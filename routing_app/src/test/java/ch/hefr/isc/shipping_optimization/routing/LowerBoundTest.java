@@ -0,0 +1,47 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class LowerBoundTest {
+
+    /**
+     * Test that the search stops once the gap to the lower bound reaches the target gap.
+     */
+    @Test
+    public void testTargetGapStopsSearch() {
+        DataModel scattered = RoutingSolverTest.scatteredDataModel(30, Duration.ofMinutes(2));
+        DataModel dataModel = scattered.withConfig(scattered.config().toBuilder().setTargetGap(0.5).build());
+
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        long start = System.nanoTime();
+        solver.solve();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        RoutingSolution solution = solver.solution();
+        RoutingSolverTest.simpleSolutionTests(dataModel, solution);
+        Assertions.assertTrue(solver.lowerBound().isPresent());
+        Assertions.assertTrue(solver.lowerBound().getAsLong() > 0);
+        // the lower bound can't exceed the objective of a solution
+        Assertions.assertTrue(solver.gap() >= 0 && solver.gap() <= 0.5);
+        Assertions.assertTrue(elapsed.compareTo(Duration.ofMinutes(1)) < 0);
+    }
+
+    /**
+     * Test that without a target gap the lower bound is computed when it is asked for, after the search.
+     */
+    @Test
+    public void testLowerBoundOnRequest() {
+        DataModel dataModel = RoutingSolverTest.scatteredDataModel(10, Duration.ofSeconds(1));
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        Assertions.assertTrue(Double.isNaN(solver.gap()));
+        solver.solve();
+
+        Assertions.assertTrue(solver.lowerBound().isPresent());
+        Assertions.assertTrue(solver.lowerBound().getAsLong() <= solver.objectiveValue());
+        Assertions.assertTrue(solver.gap() >= 0 && solver.gap() < 1, String.valueOf(solver.gap()));
+    }
+}
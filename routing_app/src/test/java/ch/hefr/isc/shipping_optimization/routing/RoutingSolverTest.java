@@ -10,20 +10,29 @@ import ch.hefr.isc.shipping_optimization.model.utils.Weight;
 import ch.hefr.isc.shipping_optimization.model.utils.Zip;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 public class RoutingSolverTest {
 
-    private static void simpleSolutionTests(DataModel dataModel, RoutingSolution solution) {
+    static void simpleSolutionTests(DataModel dataModel, RoutingSolution solution) {
         // TODO: add test on empty routes -> is distance and time 0?
         Assertions.assertEquals(dataModel.numberRouteNodes() - 1,
                 solution.numberOfDirectDeliveredOrders() + solution.droppedOrders().size());
@@ -198,4 +207,149 @@ public class RoutingSolverTest {
 
         simpleSolutionTests(dataModel, solution);
     }
+
+    public static DataModel scatteredDataModel(int numberOrders, Duration solverTimeLimit) {
+        return scatteredDataModel(numberOrders, solverTimeLimit, i -> TimeWindow.of(8, 0, 18, 0));
+    }
+
+    public static DataModel scatteredDataModel(int numberOrders, Duration solverTimeLimit,
+                                               IntFunction<TimeWindow> timeWindows) {
+        final RoutingConfig config = RoutingConfig.builder()
+                .setNumberVehicles(4)
+                .setDepotZip(Zip.of("1000"))
+                .setSolverTimeLimit(solverTimeLimit)
+                .build();
+        List<Order> orders = IntStream.range(0, numberOrders)
+                .mapToObj(i -> scatteredOrder(i, timeWindows.apply(i)))
+                .toList();
+        return new CsvFileDataModel(orders, scatteredDistanceMatrix(numberOrders), config);
+    }
+
+    /**
+     * Build a data model on the scattered zips, with the orders of a range of zips, so two models can share orders.
+     *
+     * @param firstOrder   the index of the first order
+     * @param numberOrders the number of orders
+     * @param config       the config, with the depot at zip 1000
+     * @param slots        the time dependent durations, null for none
+     * @return the data model
+     */
+    public static DataModel scatteredDataModel(int firstOrder, int numberOrders, RoutingConfig config,
+                                               TravelTimeSlots slots) {
+        List<Order> orders = IntStream.range(firstOrder, firstOrder + numberOrders)
+                .mapToObj(i -> scatteredOrder(i, TimeWindow.of(8, 0, 18, 0)))
+                .toList();
+        return new CsvFileDataModel(orders, scatteredDistanceMatrix(firstOrder + numberOrders), config, slots);
+    }
+
+    /**
+     * Build the order at zip 1001 + i, one box of one kilogram.
+     */
+    public static Order scatteredOrder(int i, TimeWindow timeWindow) {
+        return new Order(String.valueOf(i), Zip.of(String.valueOf(1001 + i)), 1, timeWindow, Weight.ofKiloGrams(1),
+                100);
+    }
+
+    /**
+     * Build the distances between the zips 1000 to 1000 + numberZips, scattered so the routes are not trivial.
+     */
+    public static DistanceMatrix scatteredDistanceMatrix(int numberZips) {
+        List<Zip> zips = IntStream.rangeClosed(0, numberZips)
+                .mapToObj(i -> Zip.of(String.valueOf(1000 + i)))
+                .toList();
+        DistanceMatrix distanceMatrix = new DistanceMatrix();
+        for (int i = 0; i < zips.size(); ++i)
+            for (int j = 0; j < zips.size(); ++j)
+                distanceMatrix.setZipData(zips.get(i), zips.get(j), Distance.ofKiloMeters(1 + (i * j) % 7),
+                        Duration.ofMinutes(5 + (i * 7 + j * 3) % 11));
+        return distanceMatrix;
+    }
+
+    /**
+     * Test that stopping a long asynchronous solve returns the last improving solution sent to the listeners.
+     */
+    @Test
+    public void testStopAsyncSolve() throws Exception {
+        DataModel dataModel = scatteredDataModel(30, Duration.ofMinutes(5));
+
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        List<Double> costs = new CopyOnWriteArrayList<>();
+        CountDownLatch firstSolution = new CountDownLatch(1);
+        solver.addSolutionListener(solution -> {
+            costs.add(solution.totalMonetaryCost());
+            firstSolution.countDown();
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<RoutingSolution> future = solver.solveAsync(executor);
+            Assertions.assertTrue(firstSolution.await(1, TimeUnit.MINUTES));
+            solver.stop();
+            RoutingSolution solution = future.get(1, TimeUnit.MINUTES);
+
+            simpleSolutionTests(dataModel, solution);
+            for (int i = 1; i < costs.size(); ++i)
+                Assertions.assertTrue(costs.get(i) < costs.get(i - 1));
+            Assertions.assertEquals(costs.get(costs.size() - 1), solution.totalMonetaryCost());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that the checkpointed routes are the routes of the best solution and that they can be resumed.
+     */
+    @Test
+    public void testCheckpointResume(@TempDir Path directory) throws Exception {
+        DataModel dataModel = scatteredDataModel(30, Duration.ofSeconds(2));
+        Path checkpoint = directory.resolve("checkpoint.json");
+
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        List<long[][]> checkpoints = new CopyOnWriteArrayList<>();
+        solver.setCheckpointHandler(Duration.ZERO, routes -> {
+            checkpoints.add(routes);
+            CheckpointFile.writer(checkpoint, dataModel).accept(routes);
+        });
+        solver.solve();
+        Assertions.assertTrue(solver.hasSolution());
+        Assertions.assertFalse(checkpoints.isEmpty());
+        Assertions.assertArrayEquals(solver.routes(), checkpoints.get(checkpoints.size() - 1));
+
+        long[][] resumedRoutes = CheckpointFile.read(checkpoint, dataModel);
+        Assertions.assertArrayEquals(solver.routes(), resumedRoutes);
+
+        RoutingSolver resumed = new RoutingSolver(dataModel.withConfig(dataModel.config().toBuilder()
+                .setSolverTimeLimit(Duration.ofMillis(500))
+                .build()));
+        resumed.solve(resumedRoutes);
+        Assertions.assertTrue(resumed.solution().totalMonetaryCost() <= solver.solution().totalMonetaryCost());
+    }
+
+    /**
+     * Test that an improvement found right after a checkpoint is saved once the interval has passed, even if the
+     * search finds nothing better, and that a reused solver checkpoints and notifies again.
+     */
+    @Test
+    public void testCheckpointOnPlateau() {
+        // the best routes of a few orders are found at once, the rest of the search is a plateau
+        DataModel dataModel = scatteredDataModel(3, Duration.ofSeconds(3));
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        List<Long> checkpointNanos = new CopyOnWriteArrayList<>();
+        List<RoutingSolution> notified = new CopyOnWriteArrayList<>();
+        solver.setCheckpointHandler(Duration.ofMillis(500), routes -> checkpointNanos.add(System.nanoTime()));
+        solver.addSolutionListener(notified::add);
+
+        solver.solve();
+        long end = System.nanoTime();
+        Assertions.assertTrue(solver.hasSolution());
+        Assertions.assertFalse(checkpointNanos.isEmpty());
+        Assertions.assertTrue(end - checkpointNanos.get(0) > TimeUnit.SECONDS.toNanos(1),
+                (end - checkpointNanos.get(0)) / 1_000_000 + "ms before the end");
+
+        int firstCheckpoints = checkpointNanos.size();
+        int firstNotified = notified.size();
+        solver.solve();
+        Assertions.assertTrue(checkpointNanos.size() > firstCheckpoints);
+        Assertions.assertTrue(notified.size() > firstNotified);
+    }
 }
@@ -0,0 +1,61 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class RuinRecreateImproverTest {
+
+    /**
+     * Test that ruin and recreate builds feasible routes from scratch and never worsens the routes of the solver.
+     */
+    @Test
+    public void testRuinRecreateImprover() throws Exception {
+        DataModel dataModel = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(1));
+        SolutionVerifier verifier = new SolutionVerifier(dataModel);
+        RuinRecreateImprover improver = new RuinRecreateImprover(dataModel);
+
+        RuinRecreateImprover.Result fromScratch = improver.improve(new long[0][], Duration.ofSeconds(1), 4);
+        SolutionVerifier.Report report = verifier.verify(fromScratch.routes());
+        Assertions.assertTrue(report.feasible(), report.violations().toString());
+        Assertions.assertEquals(report.objective(), fromScratch.objective());
+        Assertions.assertTrue(fromScratch.objective() < verifier.verify(new long[0][]).objective());
+        Assertions.assertTrue(fromScratch.iterations() > 0);
+
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        solver.solve();
+        RuinRecreateImprover.Result improved = improver.improve(solver.routes(), Duration.ofSeconds(1), 4);
+        report = verifier.verify(improved.routes());
+        Assertions.assertTrue(report.feasible(), report.violations().toString());
+        Assertions.assertEquals(report.objective(), improved.objective());
+        Assertions.assertTrue(improved.objective() <= solver.objectiveValue());
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> improver.improve(new long[5][0], Duration.ofSeconds(1), 1));
+    }
+
+    /**
+     * Test that the improved routes stay within the cost cap of the solver, so the solver accepts them.
+     */
+    @Test
+    public void testRouteCostCap() throws Exception {
+        DataModel scattered = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(1));
+        // a single vehicle that could carry all the orders and visit them within their windows, but not in 8 hours
+        DataModel dataModel = scattered.withConfig(scattered.config().toBuilder()
+                .setNumberVehicles(1).setMaxBoxesPerVehicle(100).setDeliveryExecutionTime(Duration.ofMinutes(15))
+                .build());
+        RuinRecreateImprover.Result result = new RuinRecreateImprover(dataModel)
+                .improve(new long[0][], Duration.ofSeconds(1), 2);
+
+        SolutionVerifier.Report report = new SolutionVerifier(dataModel).verify(result.routes());
+        Assertions.assertTrue(report.feasible(), report.violations().toString());
+        Assertions.assertTrue(result.routes()[0].length > 0);
+        Assertions.assertTrue(result.routes()[0].length < 30);
+
+        RoutingSolver solver = new RoutingSolver(dataModel.withConfig(dataModel.config().toBuilder()
+                .setSolverTimeLimit(Duration.ofMillis(200)).build()));
+        solver.solve(result.routes());
+        Assertions.assertTrue(solver.objectiveValue() <= result.objective());
+    }
+}
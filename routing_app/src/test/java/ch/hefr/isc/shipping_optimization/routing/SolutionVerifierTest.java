@@ -0,0 +1,73 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+public class SolutionVerifierTest {
+
+    /**
+     * Test that the verifier recomputes the objective of the solver and finds the violations of edited plans.
+     */
+    @Test
+    public void testVerifySolution() {
+        DataModel dataModel = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(2));
+        RoutingSolver solver = new RoutingSolver(dataModel);
+        solver.solve();
+
+        SolutionVerifier verifier = new SolutionVerifier(dataModel);
+        SolutionVerifier.Report report = verifier.verify(solver.solution());
+        Assertions.assertTrue(report.feasible(), report.violations().toString());
+        Assertions.assertEquals(solver.objectiveValue(), report.objective());
+        Assertions.assertEquals(report.objective(), verifier.verify(solver.routes()).objective());
+
+        long[][] routes = Arrays.stream(solver.routes()).filter(route -> route.length > 0).toArray(long[][]::new);
+        long[][] duplicated = routes.clone();
+        duplicated[0] = LongStream.concat(Arrays.stream(routes[0]), LongStream.of(routes[0][0])).toArray();
+        Assertions.assertTrue(kinds(verifier.verify(duplicated)).contains(SolutionVerifier.Kind.DUPLICATE_ORDER));
+
+        // a visit of an hour at each order doesn't fit in the day
+        DataModel slowDeliveries = dataModel.withConfig(dataModel.config().toBuilder()
+                .setDeliveryExecutionTime(Duration.ofHours(1)).build());
+        Assertions.assertTrue(kinds(new SolutionVerifier(slowDeliveries).verify(routes))
+                .contains(SolutionVerifier.Kind.TIME_WINDOWS));
+        Assertions.assertTrue(verifier.verify(new long[][]{{dataModel.numberRouteNodes()}}).violations().stream()
+                .anyMatch(violation -> violation.kind() == SolutionVerifier.Kind.UNKNOWN_ORDER));
+
+        DataModel smallVans = dataModel.withConfig(dataModel.config().toBuilder().setMaxBoxesPerVehicle(2).build());
+        Assertions.assertTrue(kinds(new SolutionVerifier(smallVans).verify(routes))
+                .contains(SolutionVerifier.Kind.BOXES_CAPACITY));
+    }
+
+    /**
+     * Test that a route costing more than the solver allows is not feasible.
+     */
+    @Test
+    public void testRouteCostCap() {
+        DataModel scattered = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(1));
+        // a visit of 20 minutes at each order, a single route of all the orders drives for more than 8 hours
+        DataModel dataModel = scattered.withConfig(scattered.config().toBuilder()
+                .setDeliveryExecutionTime(Duration.ofMinutes(20)).setMaxBoxesPerVehicle(100).build());
+        long[][] routes = {LongStream.range(1, dataModel.numberRouteNodes()).toArray()};
+
+        SolutionVerifier.Report report = new SolutionVerifier(dataModel).verify(routes);
+        Assertions.assertFalse(report.feasible());
+        Assertions.assertTrue(kinds(report).contains(SolutionVerifier.Kind.ROUTE_COST), report.violations().toString());
+        Assertions.assertTrue(report.routeCosts()[0] > RoutingSolver.maxRouteCost(dataModel.config()));
+        Assertions.assertFalse(kinds(report).contains(SolutionVerifier.Kind.ROUTE_DISTANCE));
+
+        // a few orders fit in 8 hours
+        long[][] few = {LongStream.range(1, 9).toArray()};
+        Assertions.assertFalse(kinds(new SolutionVerifier(dataModel).verify(few))
+                .contains(SolutionVerifier.Kind.ROUTE_COST));
+    }
+
+    private static Set<SolutionVerifier.Kind> kinds(SolutionVerifier.Report report) {
+        return report.violations().stream().map(SolutionVerifier.Violation::kind).collect(Collectors.toSet());
+    }
+}
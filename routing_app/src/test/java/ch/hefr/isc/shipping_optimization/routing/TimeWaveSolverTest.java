@@ -0,0 +1,74 @@
+package ch.hefr.isc.shipping_optimization.routing;
+
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.model.TimeWindow;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimeWaveSolverTest {
+
+    /**
+     * Test that the time waves chain the routes of each vehicle and keep the orders of each wave in their wave.
+     */
+    @Test
+    public void testTimeWaves() {
+        TimeWindow[] windows = {TimeWindow.of(8, 0, 11, 0), TimeWindow.of(10, 0, 14, 0), TimeWindow.of(13, 0, 18, 0)};
+        DataModel dataModel = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(3), i -> windows[i % 3]);
+
+        List<LocalTime> boundaries = TimeWaveSolver.evenBoundaries(dataModel, 3);
+        Assertions.assertEquals(List.of(LocalTime.of(11, 20), LocalTime.of(14, 40)), boundaries);
+        TimeWaveSolver solver = new TimeWaveSolver(dataModel, boundaries);
+        int[][] waves = solver.waves();
+        Assertions.assertEquals(3, waves.length);
+        for (int k = 0; k < waves.length; ++k) {
+            int wave = k;
+            Assertions.assertTrue(Arrays.stream(waves[k]).allMatch(i -> i % 3 == wave));
+        }
+
+        RoutingSolution solution = solver.solve();
+        Assertions.assertEquals(4, solution.routes().size());
+        Assertions.assertEquals(30, solution.numberOfDirectDeliveredOrders() + solution.droppedOrders().size());
+        for (RoutingSolution.Route route : solution.routes()) {
+            for (int i = 1; i < route.departureTimes().size(); ++i)
+                Assertions.assertFalse(route.departureTimes().get(i).isBefore(route.departureTimes().get(i - 1)));
+            for (int i = 0; i < route.routeNodes().size(); ++i) {
+                RouteNode node = route.routeNodes().get(i);
+                if (!node.isDepot())
+                    Assertions.assertTrue(node.order().timeWindow().contains(route.departureTimes().get(i)));
+            }
+        }
+    }
+
+    /**
+     * Test that the chained routes go back to the depot between the waves, so each trip fits a vehicle on its own and
+     * the whole solution passes the verifier.
+     */
+    @Test
+    public void testVerifiedTimeWaves() {
+        TimeWindow[] windows = {TimeWindow.of(8, 0, 11, 0), TimeWindow.of(10, 0, 14, 0), TimeWindow.of(13, 0, 18, 0)};
+        DataModel scattered = RoutingSolverTest.scatteredDataModel(30, Duration.ofSeconds(3), i -> windows[i % 3]);
+        // a vehicle can't carry more than a wave worth of orders, only the reloads make the routes fit
+        DataModel dataModel = scattered.withConfig(scattered.config().toBuilder().setMaxBoxesPerVehicle(10).build());
+
+        RoutingSolution solution = new TimeWaveSolver(dataModel, TimeWaveSolver.evenBoundaries(dataModel, 3)).solve();
+        SolutionVerifier.Report report = new SolutionVerifier(dataModel).verify(solution);
+        Assertions.assertTrue(report.feasible(), report.violations().toString());
+        Assertions.assertTrue(solution.routes().stream().anyMatch(route -> !route.reloads().isEmpty()));
+        for (RoutingSolution.Route route : solution.routes()) {
+            List<List<RouteNode>> trips = route.trips();
+            Assertions.assertEquals(route.reloads().size() + 1, trips.size());
+            for (List<RouteNode> trip : trips) {
+                Assertions.assertTrue(trip.stream().noneMatch(RouteNode::isDepot));
+                Assertions.assertTrue(trip.stream().mapToInt(node -> node.order().numberBoxes()).sum() <= 10);
+            }
+        }
+        Assertions.assertEquals(30 - solution.droppedOrders().size(), solution.routes().stream()
+                .mapToInt(route -> route.numberOfStops() - 2).sum());
+    }
+}
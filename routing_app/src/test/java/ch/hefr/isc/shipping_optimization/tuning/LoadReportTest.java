@@ -0,0 +1,61 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoadReportTest {
+
+    @Test
+    public void testThroughputAndPercentiles() {
+        List<LoadReport.Request> requests = new ArrayList<>();
+        for (int i = 1; i <= 20; ++i)
+            requests.add(new LoadReport.Request(i % 4, 50, Duration.ofMillis(100L * i), true,
+                    Duration.ofMillis(10L * i), Duration.ofSeconds(i), 99, i % 2 == 0 ? 99 : 199, null));
+        requests.add(new LoadReport.Request(0, 50, Duration.ofSeconds(3), false, Duration.ofSeconds(1),
+                Duration.ofHours(1), Double.NaN, 99, "No solution found."));
+        LoadReport report = new LoadReport(requests, Duration.ofSeconds(10), 2, 4, 1 << 20, -1);
+
+        Assertions.assertEquals(20, report.numberSolved());
+        Assertions.assertEquals(2, report.throughput(), 1e-9);
+        // nearest rank on the solved requests only
+        Assertions.assertEquals(Duration.ofSeconds(10), report.latencyPercentile(50));
+        Assertions.assertEquals(Duration.ofSeconds(19), report.latencyPercentile(95));
+        Assertions.assertEquals(Duration.ofSeconds(20), report.latencyPercentile(99));
+        Assertions.assertEquals(Duration.ofSeconds(20), report.latencyPercentile(100));
+        Assertions.assertEquals(Duration.ofSeconds(1), report.latencyPercentile(0));
+        Assertions.assertEquals(Duration.ofMillis(105), report.meanQueueWait());
+        // half of the requests at their reference cost, half at (99 + 1) / (199 + 1)
+        Assertions.assertEquals(0.75, report.meanRelativeCost(), 1e-9);
+
+        JSONObject json = report.toJson();
+        Assertions.assertEquals(21, json.getInt("requests"));
+        Assertions.assertEquals(20, json.getInt("solved"));
+        Assertions.assertEquals(0.75, json.getDouble("meanRelativeCost"), 1e-9);
+        Assertions.assertFalse(json.has("maxResidentBytes"));
+        JSONObject failed = json.getJSONArray("results").getJSONObject(20);
+        Assertions.assertFalse(failed.has("cost"));
+        Assertions.assertEquals("No solution found.", failed.getString("error"));
+
+        LoadReport empty = new LoadReport(List.of(), Duration.ZERO, 0, 1, 0, -1);
+        Assertions.assertEquals(0, empty.throughput());
+        Assertions.assertEquals(Duration.ZERO, empty.latencyPercentile(50));
+        Assertions.assertTrue(Double.isNaN(empty.meanRelativeCost()));
+        Assertions.assertFalse(empty.toJson().has("meanRelativeCost"));
+    }
+
+    /**
+     * Test that an instance of zero cost solved at zero cost counts as a relative cost of 1.
+     */
+    @Test
+    public void testZeroCostReference() {
+        LoadReport.Request request = new LoadReport.Request(0, 0, Duration.ZERO, true, Duration.ZERO,
+                Duration.ofMillis(5), 0, 0, null);
+        LoadReport report = new LoadReport(List.of(request), Duration.ofSeconds(1), 0, 1, 0, -1);
+        Assertions.assertEquals(1, report.meanRelativeCost(), 1e-9);
+    }
+}
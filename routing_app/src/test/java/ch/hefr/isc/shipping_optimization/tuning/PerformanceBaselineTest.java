@@ -0,0 +1,70 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class PerformanceBaselineTest {
+
+    private static PerformanceBaseline baseline(Duration parseTime, Duration firstSolution, double[] costs,
+                                                long residentBytes) {
+        PerformanceBaseline.InstanceResult result = new PerformanceBaseline.InstanceResult("day1.csv", 120,
+                parseTime, Duration.ofMillis(400), firstSolution, costs, costs[costs.length - 1], 64_000_000,
+                residentBytes);
+        PerformanceBaseline.InstanceResult unsolved = new PerformanceBaseline.InstanceResult("day2.csv", 3,
+                Duration.ofMillis(5), Duration.ofMillis(10), null, new double[]{Double.NaN, Double.NaN, Double.NaN},
+                Double.NaN, 1_000_000, -1);
+        return new PerformanceBaseline("abc123", "17", 8, Duration.ofSeconds(4),
+                List.of(Duration.ofSeconds(1), Duration.ofSeconds(2), Duration.ofSeconds(4)), Duration.ofSeconds(3),
+                List.of(result, unsolved));
+    }
+
+    @Test
+    public void testJsonRoundTrip(@TempDir Path directory) throws IOException {
+        PerformanceBaseline baseline = baseline(Duration.ofMillis(250), Duration.ofMillis(600),
+                new double[]{Double.NaN, 1200.5, 1100.25}, 300_000_000);
+        Path file = directory.resolve("baseline.json");
+        baseline.write(file);
+        PerformanceBaseline read = PerformanceBaseline.read(file);
+
+        Assertions.assertEquals(baseline.label(), read.label());
+        Assertions.assertEquals(baseline.timeLimit(), read.timeLimit());
+        Assertions.assertEquals(baseline.checkpoints(), read.checkpoints());
+        Assertions.assertEquals(baseline.matrixParseTime(), read.matrixParseTime());
+        Assertions.assertEquals(2, read.instances().size());
+        PerformanceBaseline.InstanceResult result = read.instances().get(0);
+        Assertions.assertEquals(Duration.ofMillis(600), result.firstSolutionTime());
+        Assertions.assertArrayEquals(new double[]{Double.NaN, 1200.5, 1100.25}, result.checkpointCosts());
+        Assertions.assertNull(read.instances().get(1).firstSolutionTime());
+        Assertions.assertTrue(Double.isNaN(read.instances().get(1).finalCost()));
+        Assertions.assertTrue(baseline.compare(read, PerformanceBaseline.Thresholds.DEFAULT).isEmpty());
+
+        Files.writeString(file, Files.readString(file).replace("\"formatVersion\": 1", "\"formatVersion\": 99"));
+        Assertions.assertThrows(IOException.class, () -> PerformanceBaseline.read(file));
+    }
+
+    @Test
+    public void testCompareReportsRegressionsBeyondThresholds() {
+        PerformanceBaseline baseline = baseline(Duration.ofMillis(250), Duration.ofMillis(600),
+                new double[]{Double.NaN, 1200, 1100}, 300_000_000);
+
+        // within the thresholds: 40ms slower parse is noise, cost 0.5% higher
+        PerformanceBaseline noise = baseline(Duration.ofMillis(290), Duration.ofMillis(650),
+                new double[]{1300, 1200, 1105}, 310_000_000);
+        Assertions.assertTrue(baseline.compare(noise, PerformanceBaseline.Thresholds.DEFAULT).isEmpty());
+
+        PerformanceBaseline slower = baseline(Duration.ofMillis(600), Duration.ofMillis(1500),
+                new double[]{Double.NaN, Double.NaN, 1200}, 500_000_000);
+        List<String> metrics = baseline.compare(slower, PerformanceBaseline.Thresholds.DEFAULT).stream()
+                .map(PerformanceBaseline.Regression::metric)
+                .toList();
+        Assertions.assertEquals(List.of("parseSeconds", "firstSolutionSeconds", "cost@2000ms", "cost@4000ms",
+                "finalCost", "maxResidentBytes"), metrics);
+    }
+}
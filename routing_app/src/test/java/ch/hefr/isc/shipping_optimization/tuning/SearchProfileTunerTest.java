@@ -0,0 +1,58 @@
+package ch.hefr.isc.shipping_optimization.tuning;
+
+import ch.hefr.isc.shipping_optimization.routing.SearchProfile;
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import com.google.ortools.constraintsolver.LocalSearchMetaheuristic;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchProfileTunerTest {
+
+    private static SearchProfile profile(FirstSolutionStrategy.Value strategy) {
+        return new SearchProfile(strategy, LocalSearchMetaheuristic.Value.GUIDED_LOCAL_SEARCH, false,
+                Duration.ofMillis(100));
+    }
+
+    private static void addRuns(List<SearchProfileTuner.Run> runs, SearchProfile profile, Duration timeLimit,
+                                double... costs) {
+        for (double cost : costs) runs.add(new SearchProfileTuner.Run(profile, timeLimit, cost, 1));
+    }
+
+    /**
+     * Test that the candidates are ranked by relative cost then time limit, that a candidate failing an instance is
+     * ranked last without NaN, and that an instance nobody solved is left out.
+     */
+    @Test
+    public void testRank() {
+        SearchProfile savings = profile(FirstSolutionStrategy.Value.SAVINGS);
+        SearchProfile cheapestArc = profile(FirstSolutionStrategy.Value.PATH_CHEAPEST_ARC);
+        SearchProfile insertion = profile(FirstSolutionStrategy.Value.PARALLEL_CHEAPEST_INSERTION);
+        double unsolved = Double.POSITIVE_INFINITY;
+
+        List<SearchProfileTuner.Run> runs = new ArrayList<>();
+        addRuns(runs, savings, Duration.ofSeconds(2), 100, 200, unsolved);
+        addRuns(runs, savings, Duration.ofSeconds(1), 100, 200, unsolved);
+        addRuns(runs, insertion, Duration.ofSeconds(1), unsolved, unsolved, unsolved);
+        addRuns(runs, cheapestArc, Duration.ofSeconds(1), 150, 200, unsolved);
+
+        List<SearchProfileTuner.Score> scores = SearchProfileTuner.rank(runs, 3);
+        Assertions.assertEquals(4, scores.size());
+
+        Assertions.assertEquals(savings, scores.get(0).profile());
+        Assertions.assertEquals(Duration.ofSeconds(1), scores.get(0).timeLimit());
+        Assertions.assertEquals(1, scores.get(0).meanRelativeCost(), 1e-9);
+        Assertions.assertEquals(savings, scores.get(1).profile());
+        Assertions.assertEquals(Duration.ofSeconds(2), scores.get(1).timeLimit());
+
+        Assertions.assertEquals(cheapestArc, scores.get(2).profile());
+        Assertions.assertEquals((151.0 / 101 + 1) / 2, scores.get(2).meanRelativeCost(), 1e-9);
+
+        Assertions.assertEquals(insertion, scores.get(3).profile());
+        Assertions.assertEquals(Double.POSITIVE_INFINITY, scores.get(3).meanRelativeCost());
+        for (SearchProfileTuner.Score score : scores) Assertions.assertFalse(Double.isNaN(score.meanRelativeCost()));
+    }
+}
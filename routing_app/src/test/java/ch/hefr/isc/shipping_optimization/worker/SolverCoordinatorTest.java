@@ -0,0 +1,91 @@
+package ch.hefr.isc.shipping_optimization.worker;
+
+import ch.hefr.isc.shipping_optimization.model.RouteNode;
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolverTest;
+import ch.hefr.isc.shipping_optimization.routing.SearchProfile;
+import com.google.ortools.constraintsolver.FirstSolutionStrategy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class SolverCoordinatorTest {
+
+    private static void checkSolution(DataModel dataModel, RoutingSolution solution) {
+        Assertions.assertEquals(dataModel.config().numberVehicles(), solution.routes().size());
+        Assertions.assertEquals(dataModel.numberRouteNodes() - 1,
+                solution.numberOfDirectDeliveredOrders() + solution.droppedOrders().size());
+        for (RoutingSolution.Route route : solution.routes()) {
+            Assertions.assertEquals(dataModel.config().depotZip(), route.depotZip());
+            Assertions.assertTrue(route.routeNodes().get(0).isDepot());
+            for (RouteNode node : route.routeNodes())
+                if (!node.isDepot()) Assertions.assertFalse(solution.droppedOrders().contains(node.order()));
+        }
+    }
+
+    /**
+     * Test that jobs are spread over the worker processes and their solutions read back.
+     */
+    @Test
+    public void testSolveOnWorkers() throws Exception {
+        try (SolverCoordinator coordinator = new SolverCoordinator(2, List.of("-Xmx256m"))) {
+            List<DataModel> dataModels = new ArrayList<>();
+            List<CompletableFuture<RoutingSolution>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                DataModel dataModel = RoutingSolverTest.scatteredDataModel(6 + i, Duration.ofMillis(500));
+                dataModels.add(dataModel);
+                futures.add(coordinator.submit(dataModel));
+            }
+            for (int i = 0; i < futures.size(); ++i)
+                checkSolution(dataModels.get(i), futures.get(i).get(2, TimeUnit.MINUTES));
+            Assertions.assertEquals(0, coordinator.restarts());
+        }
+    }
+
+    /**
+     * Test that a job whose worker is killed is solved again by the restarted worker.
+     */
+    @Test
+    public void testRestartCrashedWorker() throws Exception {
+        try (SolverCoordinator coordinator = new SolverCoordinator(1, List.of("-Xmx256m"))) {
+            DataModel dataModel = RoutingSolverTest.scatteredDataModel(8, Duration.ofSeconds(3));
+            CompletableFuture<RoutingSolution> future = coordinator.submit(dataModel);
+
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (!coordinator.isBusy(0) && System.nanoTime() < deadline) Thread.sleep(50);
+            Assertions.assertTrue(coordinator.isBusy(0));
+            coordinator.killWorker(0);
+
+            checkSolution(dataModel, future.get(2, TimeUnit.MINUTES));
+            Assertions.assertEquals(1, coordinator.restarts());
+        }
+    }
+
+    /**
+     * Test that a job failing to be sent fails alone and the worker goes on with the next jobs.
+     */
+    @Test
+    public void testFailedJobKeepsWorker() throws Exception {
+        try (SolverCoordinator coordinator = new SolverCoordinator(1, List.of("-Xmx256m"))) {
+            DataModel dataModel = RoutingSolverTest.scatteredDataModel(6, Duration.ofMillis(500));
+            // an unknown strategy has no number to be encoded with
+            SearchProfile unknown = new SearchProfile(FirstSolutionStrategy.Value.UNRECOGNIZED,
+                    SearchProfile.DEFAULT.localSearchMetaheuristic(), false, SearchProfile.DEFAULT.lnsTimeLimit());
+            CompletableFuture<RoutingSolution> failing = coordinator.submit(dataModel.withConfig(
+                    dataModel.config().toBuilder().setSearchProfile(unknown).build()));
+            CompletableFuture<RoutingSolution> next = coordinator.submit(dataModel);
+
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                    () -> failing.get(2, TimeUnit.MINUTES));
+            Assertions.assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            checkSolution(dataModel, next.get(2, TimeUnit.MINUTES));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ch.hefr.isc.shipping_optimization.worker;
+
+import ch.hefr.isc.shipping_optimization.model.RoutingSolution;
+import ch.hefr.isc.shipping_optimization.routing.DataModel;
+import ch.hefr.isc.shipping_optimization.routing.RoutingSolverTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class SolverPoolTest {
+
+    /**
+     * Test that the warm threads answer small requests quickly, and that a closed pool refuses requests.
+     */
+    @Test
+    public void testWarmPoolSolvesSmallRequests() throws Exception {
+        try (SolverPool pool = new SolverPool(2)) {
+            Assertions.assertTrue(pool.awaitWarmUp(Duration.ofMinutes(1)));
+
+            List<CompletableFuture<RoutingSolution>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < 6; ++i)
+                futures.add(pool.submit(RoutingSolverTest.scatteredDataModel(5 + i, Duration.ofMillis(100))));
+            for (int i = 0; i < futures.size(); ++i) {
+                RoutingSolution solution = futures.get(i).get(1, TimeUnit.MINUTES);
+                Assertions.assertEquals(5 + i, solution.numberOfDirectDeliveredOrders()
+                        + solution.droppedOrders().size());
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            // three rounds of two requests, each bounded by its time limit once the threads are warm
+            Assertions.assertTrue(millis < 3000, millis + "ms");
+        }
+
+        SolverPool closed = new SolverPool(1);
+        closed.close();
+        DataModel dataModel = RoutingSolverTest.scatteredDataModel(3, Duration.ofMillis(20));
+        Assertions.assertThrows(IllegalStateException.class, () -> closed.submit(dataModel));
+    }
+
+    /**
+     * Test that the requests still queued when the pool is closed are failed instead of waiting forever.
+     */
+    @Test
+    public void testQueuedRequestsFailedOnClose() throws Exception {
+        SolverPool pool = new SolverPool(1);
+        Assertions.assertTrue(pool.awaitWarmUp(Duration.ofMinutes(1)));
+        CompletableFuture<RoutingSolution> running =
+                pool.submit(RoutingSolverTest.scatteredDataModel(20, Duration.ofSeconds(2)));
+        Thread.sleep(200);
+        CompletableFuture<RoutingSolution> queued =
+                pool.submit(RoutingSolverTest.scatteredDataModel(5, Duration.ofMillis(100)));
+        pool.close();
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+                () -> queued.get(1, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+        // the thread was busy with the first request, which is either solved or failed
+        Assertions.assertDoesNotThrow(() -> running.handle((solution, failure) -> null).get(1, TimeUnit.MINUTES));
+    }
+}